@@ -3,6 +3,13 @@ CREATE INDEX itinerary_search_key FOR (it:Itinerary) ON (it.search_key);
 CREATE INDEX itinerary_min_seats FOR (it:Itinerary) ON (it.minAvailableSeats);
 CREATE INDEX itinerary_search_seats FOR (it:Itinerary) ON (it.search_key, it.minAvailableSeats);
 CREATE INDEX itinerary_price FOR (it:Itinerary) ON (it.total_price);
+CREATE INDEX itinerary_route_key FOR (it:Itinerary) ON (it.route_key);
+CREATE INDEX itinerary_route_seats FOR (it:Itinerary) ON (it.route_key, it.minAvailableSeats);
+CREATE INDEX itinerary_generation FOR (it:Itinerary) ON (it.generation);
+CREATE INDEX itinerary_generation_route_seats FOR (it:Itinerary) ON (it.generation, it.route_key, it.minAvailableSeats);
+CREATE CONSTRAINT itinerary_generation_legs_unique FOR (it:Itinerary) REQUIRE (it.generation, it.flightLegsHash) IS UNIQUE;
+CREATE INDEX itinerary_departure_date FOR (it:Itinerary) ON (it.departure_date);
+CREATE CONSTRAINT itinerary_cache_pointer_name_unique FOR (p:ItineraryCachePointer) REQUIRE p.name IS UNIQUE;
 
 CREATE CONSTRAINT flight_instance_id_unique FOR (f:FlightInstance) REQUIRE f.id IS UNIQUE;
 CREATE INDEX flight_source_destination FOR (f:FlightInstance) ON (f.source, f.destination);
@@ -14,6 +21,7 @@ CREATE INDEX flight_destination_status FOR (f:FlightInstance) ON (f.destination,
 CREATE INDEX flight_source_dest_status FOR (f:FlightInstance) ON (f.source, f.destination, f.status);
 CREATE INDEX flight_departure_time FOR (f:FlightInstance) ON (f.departure_time);
 CREATE INDEX flight_arrival_time FOR (f:FlightInstance) ON (f.arrival_time);
+CREATE INDEX flight_departure_time_purge FOR (f:FlightInstance) ON (f.departureTime);
 
 CREATE CONSTRAINT airport_code_unique FOR (a:Airport) REQUIRE a.code IS UNIQUE;
 CREATE INDEX airport_city FOR (a:Airport) ON (a.city);
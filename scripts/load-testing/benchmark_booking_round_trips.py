@@ -0,0 +1,170 @@
+#!/usr/bin/env python3
+"""
+Booking Round-Trip Benchmark Script
+
+Counts database round trips for a 9-seat, 3-leg booking (initiate + successful payment).
+Run the application with Hibernate session metrics enabled so every session logs how many
+JDBC statements and batches it executed:
+
+    --spring.jpa.properties.hibernate.generate_statistics=true
+    --logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=INFO
+
+Bookings run one at a time and the log written while each request was in flight is attributed
+to it, so keep other traffic off the instance. A round trip is one executed statement or one
+executed batch (a batch of N rows goes out as a single multi-row INSERT with reWriteBatchedInserts).
+Run once per build and compare the saved reports:
+
+    python3 benchmark_booking_round_trips.py --label before
+    python3 benchmark_booking_round_trips.py --label after
+    python3 benchmark_booking_round_trips.py --compare booking_round_trips_before.json booking_round_trips_after.json
+"""
+
+import argparse
+import json
+import random
+import re
+import statistics
+import sys
+import time
+from datetime import datetime
+
+import requests
+
+STATEMENTS = re.compile(r'spent executing (\d+) JDBC statements')
+BATCHES = re.compile(r'spent executing (\d+) JDBC batches')
+
+
+class BookingRoundTripBenchmark:
+    def __init__(self, base_url, log_file, bookings, legs, seats, max_flight_id):
+        self.base_url = base_url
+        self.log_file = log_file
+        self.bookings = bookings
+        self.legs = legs
+        self.seats = seats
+        self.max_flight_id = max_flight_id
+        self.samples = {'initiate': [], 'payment': [], 'total': []}
+        self.failures = 0
+
+    def log_offset(self):
+        with open(self.log_file, 'rb') as f:
+            f.seek(0, 2)
+            return f.tell()
+
+    def round_trips_since(self, offset):
+        """Statements plus batches logged by the sessions that closed since offset"""
+        time.sleep(0.2)  # Let the appender flush
+        with open(self.log_file, 'rb') as f:
+            f.seek(offset)
+            text = f.read().decode('utf-8', errors='replace')
+        statements = sum(int(n) for n in STATEMENTS.findall(text))
+        batches = sum(int(n) for n in BATCHES.findall(text))
+        return statements + batches
+
+    def book_once(self):
+        flight_ids = random.sample(range(1, self.max_flight_id + 1), self.legs)
+
+        offset = self.log_offset()
+        response = requests.post(f"{self.base_url}/api/v1/booking/initiate",
+                                 json={'flightIds': flight_ids, 'seatCount': self.seats}, timeout=30)
+        body = response.json() if response.content else {}
+        initiate = self.round_trips_since(offset)
+        payment_id = body.get('paymentId')
+        if response.status_code != 200 or not payment_id or body.get('status') == 'failed':
+            self.failures += 1
+            print(f"❌ Booking on flights {flight_ids} failed: {response.status_code} {body.get('message', '')}")
+            return
+
+        offset = self.log_offset()
+        response = requests.post(f"{self.base_url}/api/v1/payment/process",
+                                 json={'paymentId': payment_id, 'paymentStatus': 'SUCCESS'}, timeout=30)
+        payment = self.round_trips_since(offset)
+        if response.status_code != 200:
+            self.failures += 1
+            print(f"❌ Payment {payment_id} failed: {response.status_code}")
+            return
+
+        self.samples['initiate'].append(initiate)
+        self.samples['payment'].append(payment)
+        self.samples['total'].append(initiate + payment)
+        print(f"📊 Flights {flight_ids}: {initiate} round trips to initiate, {payment} to confirm")
+
+    def run(self):
+        print(f"🚀 Measuring {self.bookings} bookings of {self.seats} seats on {self.legs} legs against {self.base_url}")
+        print(f"   • Session metrics read from {self.log_file}")
+        print("─" * 50)
+        for _ in range(self.bookings):
+            self.book_once()
+
+    def report(self, label):
+        summary = {
+            phase: {
+                'mean': statistics.mean(values) if values else 0,
+                'median': statistics.median(values) if values else 0,
+                'min': min(values) if values else 0,
+                'max': max(values) if values else 0,
+            }
+            for phase, values in self.samples.items()
+        }
+        return {
+            'label': label,
+            'config': {'bookings': self.bookings, 'legs': self.legs, 'seats': self.seats, 'base_url': self.base_url},
+            'successful_bookings': len(self.samples['total']),
+            'failed_bookings': self.failures,
+            'round_trips': summary,
+            'timestamp': datetime.now().isoformat(),
+        }
+
+
+def print_report(report):
+    print("\n" + "=" * 60)
+    print(f"🏁 ROUND TRIPS PER BOOKING ({report['label']})")
+    print("=" * 60)
+    print(f"   • Successful bookings: {report['successful_bookings']}, failed: {report['failed_bookings']}")
+    for phase, stats in report['round_trips'].items():
+        print(f"   • {phase:<8} mean {stats['mean']:.1f}  median {stats['median']:.1f}  "
+              f"min {stats['min']}  max {stats['max']}")
+
+
+def compare(before_file, after_file):
+    with open(before_file) as f:
+        before = json.load(f)
+    with open(after_file) as f:
+        after = json.load(f)
+    print(f"{'phase':<10}{before['label']:>12}{after['label']:>12}{'change':>10}")
+    for phase in ('initiate', 'payment', 'total'):
+        b = before['round_trips'][phase]['median']
+        a = after['round_trips'][phase]['median']
+        change = f"{(a - b) / b * 100:+.0f}%" if b else "n/a"
+        print(f"{phase:<10}{b:>12.1f}{a:>12.1f}{change:>10}")
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument('--base-url', default='http://localhost:8080')
+    parser.add_argument('--log-file', default='../../logs/flight-booking.log')
+    parser.add_argument('--bookings', type=int, default=20)
+    parser.add_argument('--legs', type=int, default=3)
+    parser.add_argument('--seats', type=int, default=9)
+    parser.add_argument('--max-flight-id', type=int, default=8000)
+    parser.add_argument('--label', default='run')
+    parser.add_argument('--compare', nargs=2, metavar=('BEFORE', 'AFTER'))
+    args = parser.parse_args()
+
+    if args.compare:
+        compare(*args.compare)
+        return
+
+    benchmark = BookingRoundTripBenchmark(args.base_url, args.log_file, args.bookings,
+                                          args.legs, args.seats, args.max_flight_id)
+    benchmark.run()
+    report = benchmark.report(args.label)
+    print_report(report)
+    if report['successful_bookings'] == 0:
+        print("⚠️  No booking completed; is generate_statistics enabled and the log file right?")
+        sys.exit(1)
+    with open(f"booking_round_trips_{args.label}.json", 'w') as f:
+        json.dump(report, f, indent=2)
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,180 @@
+#!/usr/bin/env python3
+"""
+Seat Hold Contention Benchmark Script
+
+Hammers a few hot flights with concurrent seat holds to compare hold claim strategies under
+contention. Every worker loops: hold seats on one hot flight, then fail the payment so the seats
+go straight back and the flights stay contended for the whole run.
+
+Start the application with one strategy, run, restart with the other, run again and compare:
+
+    --flight-booking.booking.hold-claim-strategy=row-lock
+    python3 benchmark_hold_contention.py --label row-lock
+    --flight-booking.booking.hold-claim-strategy=on-conflict
+    python3 benchmark_hold_contention.py --label on-conflict
+    python3 benchmark_hold_contention.py --compare hold_contention_row-lock.json hold_contention_on-conflict.json
+
+Rejected holds (sold out or lost a race) are expected at this level of contention and are
+reported separately from errors.
+"""
+
+import argparse
+import json
+import random
+import statistics
+import sys
+import threading
+import time
+from concurrent.futures import ThreadPoolExecutor
+from datetime import datetime
+
+import requests
+
+
+def percentile(values, pct):
+    if not values:
+        return 0
+    ordered = sorted(values)
+    return ordered[min(len(ordered) - 1, int(len(ordered) * pct / 100))]
+
+
+class HoldContentionBenchmark:
+    def __init__(self, base_url, flight_ids, concurrency, duration, seats):
+        self.base_url = base_url
+        self.flight_ids = flight_ids
+        self.concurrency = concurrency
+        self.duration = duration
+        self.seats = seats
+        self.lock = threading.Lock()
+        self.hold_latencies = []
+        self.held = 0
+        self.rejected = 0
+        self.errors = 0
+        self.elapsed = 0
+
+    def worker(self, deadline):
+        http = requests.Session()
+        while time.time() < deadline:
+            flight_id = random.choice(self.flight_ids)
+            start = time.perf_counter()
+            try:
+                response = http.post(f"{self.base_url}/api/v1/booking/initiate",
+                                     json={'flightIds': [flight_id], 'seatCount': self.seats}, timeout=30)
+                latency = (time.perf_counter() - start) * 1000
+                body = response.json() if response.content else {}
+            except (requests.RequestException, ValueError):
+                with self.lock:
+                    self.errors += 1
+                continue
+
+            payment_id = body.get('paymentId')
+            with self.lock:
+                if response.status_code == 200 and payment_id and body.get('status') != 'failed':
+                    self.held += 1
+                    self.hold_latencies.append(latency)
+                elif response.status_code < 500:
+                    self.rejected += 1
+                else:
+                    self.errors += 1
+            if payment_id and response.status_code == 200:
+                try:
+                    http.post(f"{self.base_url}/api/v1/payment/process",
+                              json={'paymentId': payment_id, 'paymentStatus': 'FAILED'}, timeout=30)
+                except requests.RequestException:
+                    pass
+
+    def run(self):
+        print(f"🚀 {self.concurrency} workers holding {self.seats} seats on flights {self.flight_ids} "
+              f"for {self.duration}s against {self.base_url}")
+        print("─" * 50)
+        start = time.time()
+        deadline = start + self.duration
+        with ThreadPoolExecutor(max_workers=self.concurrency) as executor:
+            for _ in range(self.concurrency):
+                executor.submit(self.worker, deadline)
+        self.elapsed = time.time() - start
+
+    def report(self, label):
+        attempts = self.held + self.rejected + self.errors
+        return {
+            'label': label,
+            'config': {'flight_ids': self.flight_ids, 'concurrency': self.concurrency,
+                       'duration': self.duration, 'seats': self.seats, 'base_url': self.base_url},
+            'attempts': attempts,
+            'held': self.held,
+            'rejected': self.rejected,
+            'errors': self.errors,
+            'holds_per_second': self.held / self.elapsed if self.elapsed else 0,
+            'rejection_rate': self.rejected / attempts if attempts else 0,
+            'hold_latency_ms': {
+                'mean': statistics.mean(self.hold_latencies) if self.hold_latencies else 0,
+                'p50': percentile(self.hold_latencies, 50),
+                'p95': percentile(self.hold_latencies, 95),
+                'p99': percentile(self.hold_latencies, 99),
+                'max': max(self.hold_latencies) if self.hold_latencies else 0,
+            },
+            'timestamp': datetime.now().isoformat(),
+        }
+
+
+def print_report(report):
+    latency = report['hold_latency_ms']
+    print("\n" + "=" * 60)
+    print(f"🏁 HOLD CONTENTION ({report['label']})")
+    print("=" * 60)
+    print(f"   • Attempts: {report['attempts']}, held: {report['held']}, "
+          f"rejected: {report['rejected']}, errors: {report['errors']}")
+    print(f"   • Throughput: {report['holds_per_second']:.1f} holds/s, "
+          f"rejection rate {report['rejection_rate'] * 100:.1f}%")
+    print(f"   • Hold latency: mean {latency['mean']:.1f}ms  p50 {latency['p50']:.1f}ms  "
+          f"p95 {latency['p95']:.1f}ms  p99 {latency['p99']:.1f}ms")
+
+
+def compare(before_file, after_file):
+    with open(before_file) as f:
+        before = json.load(f)
+    with open(after_file) as f:
+        after = json.load(f)
+    rows = [
+        ('holds/s', before['holds_per_second'], after['holds_per_second']),
+        ('reject %', before['rejection_rate'] * 100, after['rejection_rate'] * 100),
+        ('p50 ms', before['hold_latency_ms']['p50'], after['hold_latency_ms']['p50']),
+        ('p95 ms', before['hold_latency_ms']['p95'], after['hold_latency_ms']['p95']),
+        ('p99 ms', before['hold_latency_ms']['p99'], after['hold_latency_ms']['p99']),
+        ('errors', before['errors'], after['errors']),
+    ]
+    print(f"{'metric':<10}{before['label']:>14}{after['label']:>14}{'change':>10}")
+    for metric, b, a in rows:
+        change = f"{(a - b) / b * 100:+.0f}%" if b else "n/a"
+        print(f"{metric:<10}{b:>14.1f}{a:>14.1f}{change:>10}")
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument('--base-url', default='http://localhost:8080')
+    parser.add_argument('--flight-ids', default='1,2', help='Comma-separated hot flight ids')
+    parser.add_argument('--concurrency', type=int, default=50)
+    parser.add_argument('--duration', type=int, default=60)
+    parser.add_argument('--seats', type=int, default=2)
+    parser.add_argument('--label', default='run')
+    parser.add_argument('--compare', nargs=2, metavar=('BEFORE', 'AFTER'))
+    args = parser.parse_args()
+
+    if args.compare:
+        compare(*args.compare)
+        return
+
+    flight_ids = [int(flight_id) for flight_id in args.flight_ids.split(',')]
+    benchmark = HoldContentionBenchmark(args.base_url, flight_ids, args.concurrency, args.duration, args.seats)
+    benchmark.run()
+    report = benchmark.report(args.label)
+    print_report(report)
+    if report['held'] == 0:
+        print("⚠️  No hold succeeded; are the flight ids right and the application up?")
+        sys.exit(1)
+    with open(f"hold_contention_{args.label}.json", 'w') as f:
+        json.dump(report, f, indent=2)
+
+
+if __name__ == '__main__':
+    main()
@@ -0,0 +1,195 @@
+#!/usr/bin/env python3
+"""
+Search Engine Benchmark Script
+
+Sends the same random searches to every search engine via the `engine` override
+and compares latency and result counts side by side:
+- neo4j: graph traversal with cached Itinerary nodes (primary)
+- postgres: indexed self-joins on flight_instance (fallback)
+Each sampled search is sent to all engines back to back, so both see the same load mix.
+"""
+
+import asyncio
+import aiohttp
+import random
+import time
+import json
+from datetime import datetime, timedelta
+from collections import defaultdict, Counter
+import statistics
+import sys
+
+ENGINES = ['neo4j', 'postgres']
+
+class SearchEngineBenchmark:
+    def __init__(self, base_url="http://localhost:8080", concurrency=5, duration=30):
+        self.base_url = base_url
+        self.concurrency = concurrency
+        self.duration = duration
+        self.airports = []
+        self.results = {
+            engine: {'latencies': [], 'response_codes': Counter(), 'result_counts': []}
+            for engine in ENGINES
+        }
+        self.mismatches = 0
+        self.compared = 0
+        self.start_time = None
+        self.end_time = None
+
+    def load_airports(self, filename='airports.txt'):
+        """Load airport codes from file"""
+        try:
+            with open(filename, 'r') as f:
+                self.airports = [line.strip() for line in f if line.strip()]
+            print(f"✅ Loaded {len(self.airports)} airports")
+            return True
+        except FileNotFoundError:
+            print(f"❌ Error: {filename} not found. Please ensure airports are exported.")
+            return False
+
+    def generate_random_request_params(self):
+        """Generate random search parameters (Oct 1-30, 2025, 1-9 passengers)"""
+        source = random.choice(self.airports)
+        destination = random.choice([a for a in self.airports if a != source])
+        departure_date = (datetime(2025, 10, 1) + timedelta(days=random.randint(0, 29))).strftime('%Y-%m-%d')
+        return {
+            'source': source,
+            'destination': destination,
+            'departureDate': departure_date,
+            'passengerCount': random.randint(1, 9)
+        }
+
+    async def search(self, session, engine, params):
+        """Run one search on one engine and record its metrics"""
+        url = f"{self.base_url}/api/v1/search/flights"
+        start_time = time.time()
+        try:
+            async with session.get(url, params={**params, 'engine': engine},
+                                   timeout=aiohttp.ClientTimeout(total=30)) as response:
+                body = await response.json(content_type=None)
+                latency = (time.time() - start_time) * 1000
+                stats = self.results[engine]
+                stats['response_codes'][response.status] += 1
+                stats['latencies'].append(latency)
+                if response.status == 200:
+                    options = body.get('options', [])
+                    stats['result_counts'].append(len(options))
+                    return [(o.get('totalPrice'), o.get('legs')) for o in options]
+                return None
+        except asyncio.TimeoutError:
+            self.results[engine]['response_codes']['TIMEOUT'] += 1
+        except Exception:
+            self.results[engine]['response_codes']['ERROR'] += 1
+        return None
+
+    async def worker(self, session, worker_id):
+        """Worker coroutine sending each sampled search to every engine"""
+        worker_requests = 0
+        while time.time() - self.start_time < self.duration:
+            params = self.generate_random_request_params()
+            answers = {}
+            for engine in random.sample(ENGINES, len(ENGINES)):  # Shuffle to avoid warming one engine for the other
+                answers[engine] = await self.search(session, engine, params)
+            worker_requests += 1
+
+            if all(answer is not None for answer in answers.values()):
+                self.compared += 1
+                first = answers[ENGINES[0]]
+                if any(answer != first for answer in answers.values()):
+                    self.mismatches += 1
+                    if self.mismatches <= 5:
+                        print(f"⚠️  Result mismatch for {params['source']}→{params['destination']} "
+                              f"on {params['departureDate']}: "
+                              + ", ".join(f"{e}={len(a)}" for e, a in answers.items()))
+
+            await asyncio.sleep(0.01)
+
+        print(f"🔧 Worker {worker_id} completed {worker_requests} searches")
+
+    async def run(self):
+        """Run the benchmark"""
+        print(f"🚀 Starting search engine benchmark:")
+        print(f"   • Engines: {', '.join(ENGINES)}")
+        print(f"   • Concurrency: {self.concurrency}")
+        print(f"   • Duration: {self.duration} seconds")
+        print(f"   • Target: {self.base_url}")
+        print("─" * 50)
+
+        self.start_time = time.time()
+        connector = aiohttp.TCPConnector(limit=self.concurrency * 2, limit_per_host=self.concurrency * 2)
+        async with aiohttp.ClientSession(connector=connector) as session:
+            await asyncio.gather(*[asyncio.create_task(self.worker(session, i)) for i in range(self.concurrency)])
+        self.end_time = time.time()
+
+    def summarize(self, engine):
+        stats = self.results[engine]
+        latencies = sorted(stats['latencies'])
+        if not latencies:
+            return {'requests': 0}
+        return {
+            'requests': len(latencies),
+            'response_codes': dict(stats['response_codes']),
+            'mean_ms': statistics.mean(latencies),
+            'median_ms': statistics.median(latencies),
+            'p95_ms': latencies[int(0.95 * (len(latencies) - 1))],
+            'p99_ms': latencies[int(0.99 * (len(latencies) - 1))],
+            'mean_results': statistics.mean(stats['result_counts']) if stats['result_counts'] else 0
+        }
+
+    def print_results(self):
+        """Print side-by-side engine comparison"""
+        print("\n" + "=" * 60)
+        print("🏁 SEARCH ENGINE BENCHMARK RESULTS")
+        print("=" * 60)
+        print(f"{'Engine':<10} {'Requests':>9} {'Mean':>9} {'Median':>9} {'p95':>9} {'p99':>9} {'Results':>8}")
+        summaries = {}
+        for engine in ENGINES:
+            s = summaries[engine] = self.summarize(engine)
+            if s['requests'] == 0:
+                print(f"{engine:<10} {'-':>9}")
+                continue
+            print(f"{engine:<10} {s['requests']:>9,} {s['mean_ms']:>8.1f}ms {s['median_ms']:>7.1f}ms "
+                  f"{s['p95_ms']:>7.1f}ms {s['p99_ms']:>7.1f}ms {s['mean_results']:>8.1f}")
+
+        print(f"\n📈 Response Codes:")
+        for engine in ENGINES:
+            codes = ", ".join(f"{code}: {count}" for code, count in sorted(
+                self.results[engine]['response_codes'].items(), key=lambda item: str(item[0])))
+            print(f"   • {engine}: {codes}")
+
+        if self.compared:
+            print(f"\n🎯 Result agreement: {self.compared - self.mismatches:,}/{self.compared:,} "
+                  f"({(self.compared - self.mismatches) / self.compared * 100:.1f}%) first pages identical")
+
+        with open('benchmark_search_engines_results.json', 'w') as f:
+            json.dump({
+                'test_config': {'base_url': self.base_url, 'concurrency': self.concurrency, 'duration': self.duration},
+                'engines': summaries,
+                'compared': self.compared,
+                'mismatches': self.mismatches,
+                'timestamp': datetime.now().isoformat()
+            }, f, indent=2)
+        print(f"\n💾 Detailed report saved to: benchmark_search_engines_results.json")
+        print("=" * 60)
+
+async def main():
+    """Main function"""
+    concurrency = int(sys.argv[1]) if len(sys.argv) > 1 else 5
+    duration = int(sys.argv[2]) if len(sys.argv) > 2 else 30
+
+    benchmark = SearchEngineBenchmark(concurrency=concurrency, duration=duration)
+    if not benchmark.load_airports():
+        return 1
+
+    try:
+        await benchmark.run()
+        benchmark.print_results()
+        return 0
+    except KeyboardInterrupt:
+        print("\n🛑 Benchmark interrupted by user")
+        benchmark.end_time = time.time()
+        benchmark.print_results()
+        return 1
+
+if __name__ == "__main__":
+    sys.exit(asyncio.run(main()))
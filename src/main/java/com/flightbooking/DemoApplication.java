@@ -1,13 +1,16 @@
 package com.flightbooking;
 
+import com.flightbooking.booking.config.JpaConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.neo4j.repository.config.EnableNeo4jRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableJpaRepositories(basePackages = "com.flightbooking.booking.repository")
+@EnableJpaRepositories(basePackages = "com.flightbooking.booking.repository", transactionManagerRef = JpaConfig.TRANSACTION_MANAGER)
 @EnableNeo4jRepositories(basePackages = "com.flightbooking.search.repository")
+@EnableScheduling
 public class DemoApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,22 @@
+package com.flightbooking.booking.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * JPA configuration for transaction management of the booking (PostgreSQL) side.
+ * The Neo4j transaction manager is the default; booking services and repositories name this one.
+ */
+@Configuration
+public class JpaConfig {
+
+    public static final String TRANSACTION_MANAGER = "jpaTransactionManager";
+
+    @Bean(name = TRANSACTION_MANAGER)
+    public PlatformTransactionManager jpaTransactionManager(EntityManagerFactory entityManagerFactory) {
+        return new JpaTransactionManager(entityManagerFactory);
+    }
+}
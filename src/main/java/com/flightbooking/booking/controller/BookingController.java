@@ -6,6 +6,8 @@ import com.flightbooking.booking.service.BookingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -51,6 +53,12 @@ public class BookingController {
                 log.info("Booking initiated successfully for session: {}. payment ID: {}",
                         bookingResponse.getSessionId(), bookingResponse.getPaymentId());
                 return ResponseEntity.ok(bookingResponse);
+            } else if ("busy".equals(bookingResponse.getStatus())) {
+                log.info("Booking initiation deferred for session: {}. Reason: {}",
+                        bookingResponse.getSessionId(), bookingResponse.getMessage());
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(bookingResponse);
             } else {
                 log.warn("Booking initiation failed for session: {}. Reason: {}",
                         bookingResponse.getSessionId(), bookingResponse.getMessage());
@@ -15,7 +15,7 @@ import java.util.List;
 @Builder
 public class BookingResponse {
 
-    private String status; // "success" or "failed"
+    private String status; // "success", "failed" or "busy" (turned away by the waiting room; retry later)
     private String message; // Descriptive message
     private String paymentId; // UUID of the created hold
     private Long flightId;
@@ -25,6 +25,7 @@ public class BookingResponse {
     private Long totalAmount; // Total amount in cents
     private List<String> seatNumbers; // List of held seat numbers
     private OffsetDateTime createdAt;
+    private Integer queuePosition; // Position waited at in the flight's line; 0 if there was no line
 
     // Helper method to check if booking was successful
     public boolean isSuccess() {
@@ -81,4 +82,18 @@ public class BookingResponse {
                 .createdAt(OffsetDateTime.now())
                 .build();
     }
+
+    // Static factory method for a request the waiting room turned away
+    public static BookingResponse busy(String message, Long flightId, Integer seatCount, String sessionId,
+                                       Integer queuePosition) {
+        return BookingResponse.builder()
+                .status("busy")
+                .message(message)
+                .flightId(flightId)
+                .seatCount(seatCount)
+                .sessionId(sessionId)
+                .queuePosition(queuePosition)
+                .createdAt(OffsetDateTime.now())
+                .build();
+    }
 }
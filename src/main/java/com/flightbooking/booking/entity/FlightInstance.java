@@ -13,7 +13,11 @@ import java.time.OffsetDateTime;
  * This is the source of truth for flight data and seat counts.
  */
 @Entity
-@Table(name = "flight_instance")
+@Table(name = "flight_instance", indexes = {
+        @Index(name = "idx_flight_instance_route_departure", columnList = "source, destination, departure_time"),
+        @Index(name = "idx_flight_instance_source_departure", columnList = "source, departure_time"),
+        @Index(name = "idx_flight_instance_flight_no_departure", columnList = "flight_no, departure_time")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,57 @@
+package com.flightbooking.booking.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.OffsetDateTime;
+
+/**
+ * FlightInventory entity holding seat counters per flight instance and cabin class.
+ * Counters move together with holds, confirmations and expiries, so availability is a row read
+ * instead of an aggregate over seats, holds and ticket seats. Seats without a cabin class are
+ * counted under the empty cabin.
+ *
+ * A cabin normally has one row, shard 0. Flash-sale flights can have their available seats split over
+ * several shard rows so concurrent holds do not all queue on one row lock; holds are admitted from any
+ * shard, while releases and sales are booked on shard 0, so per-shard held and sold counts are only
+ * meaningful summed per cabin.
+ */
+@Entity
+@Table(name = "flight_inventory",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"flight_instance_id", "cabin_class", "shard"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@EqualsAndHashCode(of = "id")
+public class FlightInventory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "flight_instance_id", nullable = false)
+    private Long flightInstanceId;
+
+    @Column(name = "cabin_class", nullable = false)
+    private String cabinClass;
+
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    @Builder.Default
+    private Integer shard = 0;
+
+    @Column(name = "total_seats", nullable = false)
+    private Integer totalSeats;
+
+    @Column(name = "available_seats", nullable = false)
+    private Integer availableSeats;
+
+    @Column(name = "held_seats", nullable = false)
+    private Integer heldSeats;
+
+    @Column(name = "sold_seats", nullable = false)
+    private Integer soldSeats;
+
+    @Column(name = "updated_at")
+    private OffsetDateTime updatedAt;
+}
@@ -18,7 +18,9 @@ import lombok.*;
 public class Seat {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_id_seq")
+    @SequenceGenerator(name = "seat_id_seq", sequenceName = "seat_id_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('seat_id_seq')") // Rows inserted in SQL draw from the same sequence
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
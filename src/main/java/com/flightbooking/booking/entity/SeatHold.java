@@ -11,7 +11,11 @@ import java.time.OffsetDateTime;
  * Seats are held for a limited time (15 minutes) before being released back to inventory.
  */
 @Entity
-@Table(name = "seat_hold")
+@Table(name = "seat_hold", indexes = {
+        @Index(name = "uk_seat_hold_seat", columnList = "seat_id", unique = true), // One hold per seat until it is reclaimed
+        @Index(name = "idx_seat_hold_session", columnList = "holder_session_id"),
+        @Index(name = "idx_seat_hold_expires", columnList = "expires_at") // Expiry sweeps read the oldest holds first
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,7 +24,9 @@ import java.time.OffsetDateTime;
 public class SeatHold {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seat_hold_id_seq")
+    @SequenceGenerator(name = "seat_hold_id_seq", sequenceName = "seat_hold_id_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('seat_hold_id_seq')") // Rows inserted in SQL draw from the same sequence
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -28,7 +34,7 @@ public class SeatHold {
     private FlightInstance flightInstance;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "seat_id", nullable = false) // Removed unique constraint
+    @JoinColumn(name = "seat_id", nullable = false)
     private Seat seat;
 
     @Column(name = "holder_session_id", nullable = false)
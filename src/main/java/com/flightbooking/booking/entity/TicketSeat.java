@@ -17,7 +17,9 @@ import lombok.*;
 public class TicketSeat {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ticket_seat_id_seq")
+    @SequenceGenerator(name = "ticket_seat_id_seq", sequenceName = "ticket_seat_id_seq", allocationSize = 50)
+    @Column(columnDefinition = "bigint default nextval('ticket_seat_id_seq')") // Rows inserted in SQL draw from the same sequence
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
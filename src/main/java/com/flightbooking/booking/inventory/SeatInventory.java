@@ -0,0 +1,137 @@
+package com.flightbooking.booking.inventory;
+
+import com.flightbooking.booking.repository.FlightInventoryRepository;
+import com.flightbooking.booking.repository.SeatRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This node's seat maps, one per flight instance that has seen hold traffic.
+ * A map is built from Postgres the first time a flight is touched (so a restart rebuilds cleanly)
+ * and is then authoritative for picking seats on this node; every pick is confirmed in Postgres
+ * by a conditional write, and a failed confirmation drops the map so it is rebuilt.
+ * Commits only update the maps of the node that made them; seats freed on another node are found
+ * when a pick misses here but the inventory counters still show seats, which also rebuilds the map.
+ * State changes made by holds, confirmations, cancellations and expiries are applied only once
+ * the database transaction that made them has committed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SeatInventory {
+
+    private final SeatRepository seatRepository;
+    private final FlightInventoryRepository flightInventoryRepository;
+
+    private final Map<Long, SeatMap> maps = new ConcurrentHashMap<>();
+
+    /**
+     * The seat map of a flight, built from the database if this node has none yet; a build also
+     * creates the flight's inventory counters if missing, so it must run in a transaction.
+     * Flights without seats are not kept, so seats added later are picked up.
+     */
+    public SeatMap get(Long flightInstanceId) {
+        SeatMap map = maps.get(flightInstanceId);
+        if (map != null) {
+            return map;
+        }
+        SeatMap loaded = load(flightInstanceId);
+        if (loaded.size() == 0) {
+            return loaded;
+        }
+        SeatMap existing = maps.putIfAbsent(flightInstanceId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * The seat map of a flight if this node has built one, without touching the database.
+     */
+    public SeatMap find(Long flightInstanceId) {
+        return maps.get(flightInstanceId);
+    }
+
+    /**
+     * Drop a flight's map, e.g. when Postgres disagreed with it; the next hold rebuilds it.
+     */
+    public void invalidate(Long flightInstanceId) {
+        if (maps.remove(flightInstanceId) != null) {
+            log.info("Dropped seat map of flight {} for rebuild", flightInstanceId);
+        }
+    }
+
+    /**
+     * Give claimed seats back unless the current transaction commits.
+     */
+    public void releaseOnRollback(SeatMap map, int[] indexes) {
+        afterCompletion(() -> { }, () -> map.release(indexes));
+    }
+
+    /**
+     * Mark seats sold once the current transaction commits. Rows are {flightInstanceId, seatId}.
+     */
+    public void markSoldOnCommit(List<Object[]> seats) {
+        afterCompletion(() -> apply(seats, true), () -> { });
+    }
+
+    /**
+     * Return seats to available once the current transaction commits. Rows are {flightInstanceId, seatId}.
+     */
+    public void releaseOnCommit(List<Object[]> seats) {
+        afterCompletion(() -> apply(seats, false), () -> { });
+    }
+
+    private void apply(List<Object[]> seats, boolean sold) {
+        for (Object[] seat : seats) {
+            SeatMap map = maps.get(((Number) seat[0]).longValue());
+            if (map == null) {
+                continue; // Not loaded on this node; a later build reads the committed state
+            }
+            int index = map.indexOf(((Number) seat[1]).longValue());
+            if (index < 0) {
+                continue;
+            }
+            if (sold) {
+                map.markSold(index);
+            } else {
+                map.release(new int[]{index});
+            }
+        }
+    }
+
+    private SeatMap load(Long flightInstanceId) {
+        long start = System.nanoTime();
+        flightInventoryRepository.initializeFlight(flightInstanceId);
+        SeatMap.Builder builder = SeatMap.builder(flightInstanceId);
+        for (Object[] row : seatRepository.findSeatStates(flightInstanceId)) {
+            builder.add(((Number) row[0]).longValue(), (String) row[1], (String) row[2], ((Number) row[3]).intValue());
+        }
+        SeatMap map = builder.build();
+        log.debug("Built seat map of flight {} ({} seats, {} available) in {} µs", flightInstanceId,
+                map.size(), map.available(null), (System.nanoTime() - start) / 1000);
+        return map;
+    }
+
+    private static void afterCompletion(Runnable committed, Runnable rolledBack) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            committed.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    committed.run();
+                } else {
+                    rolledBack.run();
+                }
+            }
+        });
+    }
+}
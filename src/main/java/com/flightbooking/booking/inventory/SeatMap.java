@@ -0,0 +1,258 @@
+package com.flightbooking.booking.inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat states of one flight instance as bitmaps, one bit per seat.
+ * Seats get dense indexes grouped by cabin (in cabin order, then seat number), so a cabin is a
+ * contiguous bit range; seats without a cabin class belong to the empty cabin "". A seat is
+ * available while its free bit is set, sold once its sold bit is set, and held otherwise.
+ * Claiming seats clears free bits with a compare-and-set per 64-seat word, so concurrent holds on
+ * the same flight never lock and never get the same seat.
+ *
+ * Counts are read without a snapshot and can be momentarily inconsistent with each other.
+ */
+public final class SeatMap {
+
+    public static final int AVAILABLE = 0;
+    public static final int HELD = 1;
+    public static final int SOLD = 2;
+
+    private final long flightInstanceId;
+    private final long[] seatIds; // By index
+    private final String[] seatNos;
+    private final String[] cabins; // Distinct, sorted
+    private final int[] cabinStarts; // Index ranges; cabinStarts[c + 1] ends cabin c
+    private final long[] sortedSeatIds;
+    private final int[] indexesBySortedId;
+    private final AtomicLongArray free;
+    private final AtomicLongArray sold;
+
+    private SeatMap(long flightInstanceId, long[] seatIds, String[] seatNos, String[] cabins, int[] cabinStarts,
+                    AtomicLongArray free, AtomicLongArray sold) {
+        this.flightInstanceId = flightInstanceId;
+        this.seatIds = seatIds;
+        this.seatNos = seatNos;
+        this.cabins = cabins;
+        this.cabinStarts = cabinStarts;
+        this.free = free;
+        this.sold = sold;
+
+        long[] idIndex = new long[seatIds.length]; // seat id << 16 | index; flights stay far below 65536 seats
+        for (int index = 0; index < seatIds.length; index++) {
+            idIndex[index] = seatIds[index] << 16 | index;
+        }
+        Arrays.sort(idIndex);
+        this.sortedSeatIds = new long[seatIds.length];
+        this.indexesBySortedId = new int[seatIds.length];
+        for (int i = 0; i < idIndex.length; i++) {
+            sortedSeatIds[i] = idIndex[i] >>> 16;
+            indexesBySortedId[i] = (int) (idIndex[i] & 0xFFFF);
+        }
+    }
+
+    public static Builder builder(long flightInstanceId) {
+        return new Builder(flightInstanceId);
+    }
+
+    public long getFlightInstanceId() {
+        return flightInstanceId;
+    }
+
+    public int size() {
+        return seatIds.length;
+    }
+
+    public long seatId(int index) {
+        return seatIds[index];
+    }
+
+    public String seatNo(int index) {
+        return seatNos[index];
+    }
+
+    public long[] seatIds(int[] indexes) {
+        long[] ids = new long[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            ids[i] = seatIds[indexes[i]];
+        }
+        return ids;
+    }
+
+    /**
+     * Index of a seat on this flight, or -1 if it is not part of this map.
+     */
+    public int indexOf(long seatId) {
+        int position = Arrays.binarySearch(sortedSeatIds, seatId);
+        return position >= 0 ? indexesBySortedId[position] : -1;
+    }
+
+    /**
+     * Atomically move count available seats to held, lowest indexes first within the cabin
+     * (any cabin when null). All or nothing: returns the claimed indexes, or null when the cabin
+     * does not have count available seats right now.
+     */
+    public int[] claim(String cabin, int count) {
+        int from = rangeStart(cabin);
+        int to = rangeEnd(cabin);
+        int[] claimed = new int[count];
+        int got = 0;
+        for (int word = from >>> 6; from < to && word <= (to - 1) >>> 6 && got < count; word++) {
+            long mask = rangeMask(word, from, to);
+            while (got < count) {
+                long bits = free.get(word);
+                long candidates = bits & mask;
+                if (candidates == 0) {
+                    break;
+                }
+                long take = 0;
+                for (int i = got; i < count && candidates != 0; i++) {
+                    long lowest = Long.lowestOneBit(candidates);
+                    take |= lowest;
+                    candidates &= ~lowest;
+                }
+                if (free.compareAndSet(word, bits, bits & ~take)) {
+                    for (; take != 0; take &= take - 1) {
+                        claimed[got++] = word << 6 | Long.numberOfTrailingZeros(take);
+                    }
+                }
+            }
+        }
+        if (got < count) {
+            release(Arrays.copyOf(claimed, got));
+            return null;
+        }
+        return claimed;
+    }
+
+    /**
+     * Return held seats to available. Only the holder of a claim may release it.
+     */
+    public void release(int[] indexes) {
+        for (int index : indexes) {
+            free.getAndAccumulate(index >>> 6, 1L << index, (bits, bit) -> bits | bit);
+        }
+    }
+
+    /**
+     * Move a held seat to sold.
+     */
+    public void markSold(int index) {
+        sold.getAndAccumulate(index >>> 6, 1L << index, (bits, bit) -> bits | bit);
+    }
+
+    /**
+     * First cabin, in cabin order, with at least count available seats right now; null if none.
+     */
+    public String cabinWithAvailable(int count) {
+        for (String cabin : cabins) {
+            if (available(cabin) >= count) {
+                return cabin;
+            }
+        }
+        return null;
+    }
+
+    public int available(String cabin) {
+        return count(free, cabin);
+    }
+
+    public int sold(String cabin) {
+        return count(sold, cabin);
+    }
+
+    public int held(String cabin) {
+        return Math.max(0, rangeEnd(cabin) - rangeStart(cabin) - available(cabin) - sold(cabin));
+    }
+
+    public List<String> getCabins() {
+        return List.of(cabins);
+    }
+
+    private int count(AtomicLongArray bitmap, String cabin) {
+        int from = rangeStart(cabin);
+        int to = rangeEnd(cabin);
+        int total = 0;
+        for (int word = from >>> 6; from < to && word <= (to - 1) >>> 6; word++) {
+            total += Long.bitCount(bitmap.get(word) & rangeMask(word, from, to));
+        }
+        return total;
+    }
+
+    private int rangeStart(String cabin) {
+        if (cabin == null) {
+            return 0;
+        }
+        int c = Arrays.binarySearch(cabins, cabin);
+        return c >= 0 ? cabinStarts[c] : 0;
+    }
+
+    private int rangeEnd(String cabin) {
+        if (cabin == null) {
+            return seatIds.length;
+        }
+        int c = Arrays.binarySearch(cabins, cabin);
+        return c >= 0 ? cabinStarts[c + 1] : 0;
+    }
+
+    private static long rangeMask(int word, int from, int to) {
+        int low = Math.max(from, word << 6) - (word << 6);
+        int high = Math.min(to, (word + 1) << 6) - (word << 6);
+        long belowHigh = high == 64 ? -1L : (1L << high) - 1;
+        return belowHigh & (-1L << low);
+    }
+
+    /**
+     * Collects seats with their state as loaded from the database.
+     */
+    public static final class Builder {
+
+        private final long flightInstanceId;
+        private final List<Object[]> seats = new ArrayList<>(); // {seatId, seatNo, cabin, state}
+
+        private Builder(long flightInstanceId) {
+            this.flightInstanceId = flightInstanceId;
+        }
+
+        public Builder add(long seatId, String seatNo, String cabin, int state) {
+            seats.add(new Object[]{seatId, seatNo, cabin == null ? "" : cabin, state});
+            return this;
+        }
+
+        public SeatMap build() {
+            seats.sort(Comparator.<Object[], String>comparing(seat -> (String) seat[2])
+                    .thenComparing(seat -> (String) seat[1], Comparator.nullsLast(Comparator.naturalOrder())));
+
+            int n = seats.size();
+            long[] seatIds = new long[n];
+            String[] seatNos = new String[n];
+            List<String> cabins = new ArrayList<>();
+            List<Integer> cabinStarts = new ArrayList<>();
+            AtomicLongArray free = new AtomicLongArray((n + 63) >>> 6);
+            AtomicLongArray sold = new AtomicLongArray((n + 63) >>> 6);
+            for (int index = 0; index < n; index++) {
+                Object[] seat = seats.get(index);
+                seatIds[index] = (Long) seat[0];
+                seatNos[index] = (String) seat[1];
+                if (cabins.isEmpty() || !Objects.equals(cabins.get(cabins.size() - 1), seat[2])) {
+                    cabins.add((String) seat[2]);
+                    cabinStarts.add(index);
+                }
+                int state = (Integer) seat[3];
+                if (state == AVAILABLE) {
+                    free.getAndAccumulate(index >>> 6, 1L << index, (bits, bit) -> bits | bit);
+                } else if (state == SOLD) {
+                    sold.getAndAccumulate(index >>> 6, 1L << index, (bits, bit) -> bits | bit);
+                }
+            }
+            cabinStarts.add(n);
+            return new SeatMap(flightInstanceId, seatIds, seatNos, cabins.toArray(new String[0]),
+                    cabinStarts.stream().mapToInt(Integer::intValue).toArray(), free, sold);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.flightbooking.booking.inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel of ids with wall-clock deadlines (after Varghese and Lauck).
+ * Level 0 has one slot per tick; each higher level has one slot per full turn of the level below,
+ * and its slots are cascaded down as the lower level wraps. Adding and expiring an id is constant
+ * time whatever the number of pending ids, and advancing touches only the slots of elapsed ticks.
+ *
+ * An id is never returned before its deadline, and is returned by the first advance at least one tick
+ * past both its deadline and the time it was added.
+ * Ids are not deduplicated and cannot be removed; callers treat an expiry as a hint to recheck.
+ * Thread-safe.
+ */
+public final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4; // 64^4 ticks: half a year at one-second ticks
+
+    private final long tickMillis;
+    private final Slot[][] wheels = new Slot[LEVELS][SLOTS];
+    private long currentTick; // Next tick to expire; every earlier tick has been handled
+    private int size;
+
+    public TimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+        for (Slot[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = new Slot();
+            }
+        }
+    }
+
+    /**
+     * Schedule an id to expire at a deadline; a deadline already passed expires within a tick.
+     */
+    public synchronized void add(long id, long deadlineMillis) {
+        place(id, deadlineMillis);
+        size++;
+    }
+
+    /**
+     * Move the wheel up to now and return the ids whose deadline has passed, in deadline order by tick.
+     */
+    public synchronized List<Long> advance(long nowMillis) {
+        List<Long> expired = new ArrayList<>();
+        long lastTick = Math.floorDiv(nowMillis, tickMillis);
+        for (; currentTick <= lastTick; currentTick++) {
+            // Cascade the higher levels whose lower levels have just wrapped, top down
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(wheels[level][slotIndex(currentTick, level)]);
+                }
+            }
+            Slot slot = wheels[0][slotIndex(currentTick, 0)];
+            int count = slot.size;
+            long[] ids = slot.ids;
+            long[] deadlines = slot.deadlines;
+            slot.clear();
+            for (int i = 0; i < count; i++) {
+                if (deadlines[i] <= nowMillis) {
+                    expired.add(ids[i]);
+                } else {
+                    place(ids[i], deadlines[i]); // Later in the current tick; comes back on a later advance
+                }
+            }
+        }
+        size -= expired.size();
+        return expired;
+    }
+
+    /**
+     * Ids scheduled and not yet expired.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(Slot slot) {
+        int count = slot.size;
+        long[] ids = slot.ids;
+        long[] deadlines = slot.deadlines;
+        slot.clear();
+        for (int i = 0; i < count; i++) {
+            place(ids[i], deadlines[i]);
+        }
+    }
+
+    private void place(long id, long deadlineMillis) {
+        // Round up so the id never comes out of its slot before the deadline
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick);
+        long delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        if (level == LEVELS - 1 && delta >= 1L << (SLOT_BITS * LEVELS)) {
+            // Beyond the top level: park one turn out; it is re-placed when that slot cascades
+            tick = currentTick + (1L << (SLOT_BITS * LEVELS)) - 1;
+        }
+        wheels[level][slotIndex(tick, level)].add(id, deadlineMillis);
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+    }
+
+    /**
+     * Ids and deadlines in parallel arrays, to keep millions of pending ids off the object heap.
+     */
+    private static final class Slot {
+        private static final long[] EMPTY = new long[0];
+
+        private long[] ids = EMPTY;
+        private long[] deadlines = EMPTY;
+        private int size;
+
+        void add(long id, long deadlineMillis) {
+            if (size == ids.length) {
+                int capacity = Math.max(4, size * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                deadlines = Arrays.copyOf(deadlines, capacity);
+            }
+            ids[size] = id;
+            deadlines[size] = deadlineMillis;
+            size++;
+        }
+
+        void clear() {
+            ids = EMPTY;
+            deadlines = EMPTY;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.flightbooking.booking.inventory;
+
+import com.flightbooking.booking.service.FlightInventoryService;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-flight admission control in front of seat holds (a virtual waiting room).
+ * Each flight lets a few hold attempts at a time through to the database and queues the rest in
+ * arrival order, up to a bounded line; requests beyond the line, or still waiting after the maximum
+ * wait, are turned away with their position so clients can back off. Waiting blocks the request thread,
+ * so the number of requests waiting across all flights is bounded too, and requests beyond it are turned
+ * away at once. Requests for a flight sold out on its inventory counters (whichever node sold it) are
+ * rejected before queueing and again when their turn comes; the counters are read at most once per
+ * sold-out-check interval per flight, so a hot flight holds at most its share of connections, however
+ * many requests it receives, and the rest of the pool stays available to everyone else.
+ *
+ * Multi-leg requests queue on each leg in flight order, so two requests never wait on each other.
+ */
+@Component
+public class WaitingRoom {
+
+    private final FlightInventoryService flightInventoryService;
+    private final boolean enabled;
+    private final int holdsPerFlight;
+    private final int queuePerFlight;
+    private final int maxWaiting;
+    private final long maxWaitNanos;
+    private final long soldOutCheckNanos;
+
+    private final AtomicInteger waiting = new AtomicInteger(); // Across all flights
+
+    private final Map<Long, Gate> gates = new ConcurrentHashMap<>(); // Kept for the node's lifetime; a gate is a few words
+
+    public WaitingRoom(
+            FlightInventoryService flightInventoryService,
+            @Value("${flight-booking.booking.waiting-room.enabled:true}") boolean enabled,
+            @Value("${flight-booking.booking.waiting-room.holds-per-flight:4}") int holdsPerFlight,
+            @Value("${flight-booking.booking.waiting-room.queue-per-flight:100}") int queuePerFlight,
+            @Value("${flight-booking.booking.waiting-room.max-waiting:64}") int maxWaiting,
+            @Value("${flight-booking.booking.waiting-room.max-wait-ms:3000}") long maxWaitMs,
+            @Value("${flight-booking.booking.waiting-room.sold-out-check-ms:250}") long soldOutCheckMs) {
+        this.flightInventoryService = flightInventoryService;
+        this.enabled = enabled;
+        this.holdsPerFlight = holdsPerFlight;
+        this.queuePerFlight = queuePerFlight;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.soldOutCheckNanos = TimeUnit.MILLISECONDS.toNanos(soldOutCheckMs);
+    }
+
+    /**
+     * Wait for a turn to hold seatCount seats on every leg.
+     *
+     * @return A pass to close once the hold attempt is over
+     * @throws RejectedException if a leg is sold out, its line or the waiting room is full, or the wait ran out
+     */
+    public Pass enter(List<Long> flightInstanceIds, int seatCount) {
+        if (!enabled) {
+            return new Pass(List.of(), 0);
+        }
+
+        List<Long> legs = flightInstanceIds.stream().distinct().sorted().toList();
+        List<Gate> legGates = legs.stream()
+                .map(flightInstanceId -> gates.computeIfAbsent(flightInstanceId, id -> new Gate(holdsPerFlight, soldOutCheckNanos)))
+                .toList();
+        for (int leg = 0; leg < legs.size(); leg++) {
+            rejectIfSoldOut(legs.get(leg), legGates.get(leg), seatCount);
+        }
+
+        long deadline = System.nanoTime() + maxWaitNanos;
+        List<Gate> entered = new ArrayList<>(legs.size());
+        int queuePosition = 0;
+        try {
+            for (int leg = 0; leg < legs.size(); leg++) {
+                Gate gate = legGates.get(leg);
+                queuePosition = Math.max(queuePosition, gate.enter(legs.get(leg), queuePerFlight, waiting, maxWaiting, deadline));
+                entered.add(gate);
+                rejectIfSoldOut(legs.get(leg), gate, seatCount); // Seats may have gone while we waited
+            }
+        } catch (RuntimeException e) {
+            entered.forEach(Gate::leave);
+            throw e;
+        }
+        return new Pass(entered, queuePosition);
+    }
+
+    /**
+     * Requests currently waiting for a flight.
+     */
+    public int queueLength(Long flightInstanceId) {
+        Gate gate = gates.get(flightInstanceId);
+        return gate != null ? gate.waiting.get() : 0;
+    }
+
+    /**
+     * Reject if no cabin of the flight has seatCount seats left on the inventory counters, as last read
+     * for its gate; flights without counters are let through.
+     */
+    private void rejectIfSoldOut(Long flightInstanceId, Gate gate, int seatCount) {
+        long now = System.nanoTime();
+        long checkedAt = gate.availabilityCheckedAt.get();
+        // One of the threads finding the last read stale reads again; the others go by the last read
+        if (now - checkedAt >= soldOutCheckNanos && gate.availabilityCheckedAt.compareAndSet(checkedAt, now)) {
+            gate.largestCabinAvailable = flightInventoryService.findLargestCabinAvailability(flightInstanceId);
+        }
+        int available = gate.largestCabinAvailable;
+        if (available >= 0 && available < seatCount) {
+            throw new RejectedException(String.format("Insufficient seats available on flight %d. Requested: %d, Available: %d",
+                    flightInstanceId, seatCount, available), flightInstanceId, true, 0);
+        }
+    }
+
+    /**
+     * One flight's line: fair permits for hold attempts plus a count of who is waiting for one,
+     * and the flight's availability as last read from the inventory counters.
+     */
+    private static final class Gate {
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final AtomicLong availabilityCheckedAt;
+        private volatile int largestCabinAvailable = -1; // Unknown until read
+
+        private Gate(int holdsPerFlight, long checkIntervalNanos) {
+            this.permits = new Semaphore(holdsPerFlight, true);
+            this.availabilityCheckedAt = new AtomicLong(System.nanoTime() - checkIntervalNanos); // Stale from the start
+        }
+
+        /**
+         * Queue until a permit is free; returns the 1-based position in line on arrival, 0 if there was no line.
+         * A request that would have to wait while maxWaiting requests already wait across all flights is
+         * turned away at once.
+         */
+        int enter(Long flightInstanceId, int queueCapacity, AtomicInteger roomWaiting, int maxWaiting, long deadline) {
+            int ahead = waiting.getAndIncrement();
+            boolean queued = false;
+            try {
+                if (ahead >= queueCapacity) {
+                    throw new RejectedException(String.format("Flight %d is busy: %d requests ahead, please retry",
+                            flightInstanceId, ahead), flightInstanceId, false, ahead + 1);
+                }
+                // Timed acquires honor fairness even with a zero timeout, unlike tryAcquire()
+                if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                    return 0;
+                }
+                queued = true;
+                if (roomWaiting.incrementAndGet() > maxWaiting) {
+                    throw new RejectedException(String.format("Flight %d is busy: too many requests waiting, please retry",
+                            flightInstanceId), flightInstanceId, false, ahead + 1);
+                }
+                if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    throw new RejectedException(String.format("Flight %d is busy: waited in line at position %d, please retry",
+                            flightInstanceId, ahead + 1), flightInstanceId, false, ahead + 1);
+                }
+                return ahead + 1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedException("Interrupted while waiting for flight " + flightInstanceId,
+                        flightInstanceId, false, ahead + 1);
+            } finally {
+                if (queued) {
+                    roomWaiting.decrementAndGet();
+                }
+                waiting.decrementAndGet();
+            }
+        }
+
+        void leave() {
+            permits.release();
+        }
+    }
+
+    /**
+     * Admission to hold seats on a set of legs; closing it lets the next request in. Closing twice is a no-op.
+     */
+    public static final class Pass implements AutoCloseable {
+        private final List<Gate> gates;
+        @Getter
+        private final int queuePosition; // Worst position waited at across legs; 0 if admitted straight away
+        private boolean closed;
+
+        private Pass(List<Gate> gates, int queuePosition) {
+            this.gates = gates;
+            this.queuePosition = queuePosition;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                gates.forEach(Gate::leave);
+            }
+        }
+    }
+
+    /**
+     * A request turned away by the waiting room.
+     */
+    @Getter
+    public static class RejectedException extends RuntimeException {
+        private final Long flightInstanceId;
+        private final boolean soldOut; // Otherwise the flight was too busy and the request may be retried
+        private final int queuePosition;
+
+        public RejectedException(String message, Long flightInstanceId, boolean soldOut, int queuePosition) {
+            super(message);
+            this.flightInstanceId = flightInstanceId;
+            this.soldOut = soldOut;
+            this.queuePosition = queuePosition;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +34,89 @@ public interface FlightInstanceRepository extends JpaRepository<FlightInstance,
             @Param("startDate") OffsetDateTime startDate,
             @Param("endDate") OffsetDateTime endDate);
 
+    /**
+     * Find direct flight instances from any of the sources to any of the destinations departing in
+     * [startDate, endDate) and arriving in [arriveFrom, arriveTo).
+     */
+    @Query("SELECT f FROM FlightInstance f WHERE f.source IN :sources AND f.destination IN :destinations " +
+           "AND f.departureTime >= :startDate AND f.departureTime < :endDate " +
+           "AND f.arrivalTime >= :arriveFrom AND f.arrivalTime < :arriveTo ORDER BY f.departureTime")
+    List<FlightInstance> findByRoutesAndDateRange(
+            @Param("sources") Collection<String> sources,
+            @Param("destinations") Collection<String> destinations,
+            @Param("startDate") OffsetDateTime startDate,
+            @Param("endDate") OffsetDateTime endDate,
+            @Param("arriveFrom") OffsetDateTime arriveFrom,
+            @Param("arriveTo") OffsetDateTime arriveTo);
+
+    /**
+     * Find flight instances created or updated at or after a point in time.
+     */
+    @Query("SELECT f FROM FlightInstance f WHERE f.updatedAt >= :since OR f.createdAt >= :since")
+    List<FlightInstance> findChangedSince(@Param("since") OffsetDateTime since);
+
+    /**
+     * Find instances of the given flight numbers departing within a date range.
+     */
+    @Query("SELECT f FROM FlightInstance f WHERE f.flightNo IN :flightNos " +
+           "AND f.departureTime >= :startDate AND f.departureTime < :endDate")
+    List<FlightInstance> findByFlightNosAndDateRange(
+            @Param("flightNos") Collection<String> flightNos,
+            @Param("startDate") OffsetDateTime startDate,
+            @Param("endDate") OffsetDateTime endDate);
+
+    /**
+     * Find one-stop connections (leg ids) from any of the sources to any of the destinations
+     * departing within a date range and arriving in [arriveFrom, arriveTo), without passing through
+     * another source or destination.
+     * Layover between 45 minutes and 24 hours; both legs are served by idx_flight_instance_route_departure.
+     */
+    @Query(value = "SELECT f1.id AS first_leg, f2.id AS second_leg FROM flight_instance f1 " +
+           "JOIN flight_instance f2 ON f2.source = f1.destination AND f2.destination IN (:destinations) " +
+           "AND f2.departure_time >= f1.arrival_time + INTERVAL '45 minutes' " +
+           "AND f2.departure_time <= f1.arrival_time + INTERVAL '1 day' " +
+           "AND f2.arrival_time >= :arriveFrom AND f2.arrival_time < :arriveTo " +
+           "WHERE f1.source IN (:sources) AND f1.destination NOT IN (:destinations) " +
+           "AND f1.destination NOT IN (:sources) " +
+           "AND f1.departure_time >= :startDate AND f1.departure_time < :endDate " +
+           "LIMIT :limit", nativeQuery = true)
+    List<Object[]> findOneStopConnections(
+            @Param("sources") Collection<String> sources,
+            @Param("destinations") Collection<String> destinations,
+            @Param("startDate") OffsetDateTime startDate,
+            @Param("endDate") OffsetDateTime endDate,
+            @Param("arriveFrom") OffsetDateTime arriveFrom,
+            @Param("arriveTo") OffsetDateTime arriveTo,
+            @Param("limit") int limit);
+
+    /**
+     * Find two-stop connections (leg ids) from any of the sources to any of the destinations
+     * departing within a date range and arriving in [arriveFrom, arriveTo), without passing through
+     * another source or destination.
+     * The middle leg is served by idx_flight_instance_source_departure.
+     */
+    @Query(value = "SELECT f1.id AS first_leg, f2.id AS second_leg, f3.id AS third_leg FROM flight_instance f1 " +
+           "JOIN flight_instance f2 ON f2.source = f1.destination " +
+           "AND f2.destination NOT IN (:destinations) AND f2.destination NOT IN (:sources) " +
+           "AND f2.departure_time >= f1.arrival_time + INTERVAL '45 minutes' " +
+           "AND f2.departure_time <= f1.arrival_time + INTERVAL '1 day' " +
+           "JOIN flight_instance f3 ON f3.source = f2.destination AND f3.destination IN (:destinations) " +
+           "AND f3.departure_time >= f2.arrival_time + INTERVAL '45 minutes' " +
+           "AND f3.departure_time <= f2.arrival_time + INTERVAL '1 day' " +
+           "AND f3.arrival_time >= :arriveFrom AND f3.arrival_time < :arriveTo " +
+           "WHERE f1.source IN (:sources) AND f1.destination NOT IN (:destinations) " +
+           "AND f1.destination NOT IN (:sources) " +
+           "AND f1.departure_time >= :startDate AND f1.departure_time < :endDate " +
+           "LIMIT :limit", nativeQuery = true)
+    List<Object[]> findTwoStopConnections(
+            @Param("sources") Collection<String> sources,
+            @Param("destinations") Collection<String> destinations,
+            @Param("startDate") OffsetDateTime startDate,
+            @Param("endDate") OffsetDateTime endDate,
+            @Param("arriveFrom") OffsetDateTime arriveFrom,
+            @Param("arriveTo") OffsetDateTime arriveTo,
+            @Param("limit") int limit);
+
     /**
      * Find flight instances by flight number.
      */
@@ -69,6 +153,11 @@ public interface FlightInstanceRepository extends JpaRepository<FlightInstance,
      */
     boolean existsByFlightNoAndDepartureTime(String flightNo, OffsetDateTime departureTime);
 
+    /**
+     * Check if a flight instance other than the given one exists by flight number and departure time.
+     */
+    boolean existsByFlightNoAndDepartureTimeAndIdNot(String flightNo, OffsetDateTime departureTime, Long id);
+
     /**
      * Find flight instance by flight number and departure time.
      */
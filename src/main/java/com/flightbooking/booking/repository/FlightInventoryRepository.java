@@ -0,0 +1,163 @@
+package com.flightbooking.booking.repository;
+
+import com.flightbooking.booking.entity.FlightInventory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for FlightInventory counters.
+ * Counter changes are single conditional UPDATEs so concurrent writers never lose an update.
+ */
+@Repository
+public interface FlightInventoryRepository extends JpaRepository<FlightInventory, Long> {
+
+    /**
+     * Find counters of a flight instance, one row per cabin class and shard.
+     */
+    List<FlightInventory> findByFlightInstanceId(Long flightInstanceId);
+
+    /**
+     * Create missing counter rows (shard 0) of a flight instance from its seats. Existing rows are left alone.
+     * Every hold row counts as held until it is deleted, matching when the hold gives its seat back.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO flight_inventory (flight_instance_id, cabin_class, total_seats, available_seats, " +
+           "held_seats, sold_seats, updated_at) " +
+           "SELECT flight_instance_id, cabin_class, COUNT(*), COUNT(*) FILTER (WHERE state = 0), " +
+           "COUNT(*) FILTER (WHERE state = 1), COUNT(*) FILTER (WHERE state = 2), NOW() FROM (" +
+           "SELECT s.flight_instance_id, COALESCE(s.cabin_class, '') AS cabin_class, " +
+           "CASE WHEN s.is_available = false OR EXISTS (SELECT 1 FROM ticket_seat ts WHERE ts.seat_id = s.id) THEN 2 " +
+           "WHEN EXISTS (SELECT 1 FROM seat_hold h WHERE h.seat_id = s.id) THEN 1 ELSE 0 END AS state " +
+           "FROM seat s WHERE s.flight_instance_id = :flightInstanceId) seats " +
+           "GROUP BY flight_instance_id, cabin_class " +
+           "ON CONFLICT (flight_instance_id, cabin_class, shard) DO NOTHING", nativeQuery = true)
+    int initializeFlight(@Param("flightInstanceId") Long flightInstanceId);
+
+    /**
+     * Create missing counter rows for every flight instance with seats.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO flight_inventory (flight_instance_id, cabin_class, total_seats, available_seats, " +
+           "held_seats, sold_seats, updated_at) " +
+           "SELECT flight_instance_id, cabin_class, COUNT(*), COUNT(*) FILTER (WHERE state = 0), " +
+           "COUNT(*) FILTER (WHERE state = 1), COUNT(*) FILTER (WHERE state = 2), NOW() FROM (" +
+           "SELECT s.flight_instance_id, COALESCE(s.cabin_class, '') AS cabin_class, " +
+           "CASE WHEN s.is_available = false OR EXISTS (SELECT 1 FROM ticket_seat ts WHERE ts.seat_id = s.id) THEN 2 " +
+           "WHEN EXISTS (SELECT 1 FROM seat_hold h WHERE h.seat_id = s.id) THEN 1 ELSE 0 END AS state " +
+           "FROM seat s WHERE NOT EXISTS (SELECT 1 FROM flight_inventory i WHERE i.flight_instance_id = s.flight_instance_id)) seats " +
+           "GROUP BY flight_instance_id, cabin_class " +
+           "ON CONFLICT (flight_instance_id, cabin_class, shard) DO NOTHING", nativeQuery = true)
+    int initializeMissing();
+
+    /**
+     * Admit a hold of seatCount seats on one leg: one of the cabin's counter rows with that many seats
+     * available moves them from available to held. On a sharded cabin the row is picked by rendezvous hashing
+     * of shardKey, so concurrent holders spread over the shards; rows locked by concurrent admissions are
+     * skipped rather than waited for. Returns the id of the row admitted on; none if every row with enough
+     * seats is drained or locked.
+     */
+    @Query(value = "WITH picked AS (" +
+           "SELECT i.id FROM flight_inventory i WHERE i.flight_instance_id = :flightInstanceId " +
+           "AND i.cabin_class = :cabinClass AND i.available_seats >= :seatCount " +
+           "ORDER BY hashtext(CONCAT(:shardKey, ':', i.shard)) LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+           "UPDATE flight_inventory i SET available_seats = i.available_seats - :seatCount, " +
+           "held_seats = i.held_seats + :seatCount, updated_at = NOW() " +
+           "FROM picked p WHERE i.id = p.id RETURNING i.id", nativeQuery = true)
+    List<Long> admitHoldOnFreeShard(@Param("flightInstanceId") Long flightInstanceId,
+                             @Param("cabinClass") String cabinClass,
+                             @Param("seatCount") int seatCount,
+                             @Param("shardKey") String shardKey);
+
+    /**
+     * Admit a hold of seatCount seats on one leg from the cabin's fullest counter row, waiting for its lock.
+     * Returns the id of the row admitted on; none if no row has enough seats, or if the row was drained by
+     * the admission it waited for.
+     */
+    @Query(value = "WITH picked AS (" +
+           "SELECT i.id FROM flight_inventory i WHERE i.flight_instance_id = :flightInstanceId " +
+           "AND i.cabin_class = :cabinClass AND i.available_seats >= :seatCount " +
+           "ORDER BY i.available_seats DESC, i.shard LIMIT 1 FOR UPDATE) " +
+           "UPDATE flight_inventory i SET available_seats = i.available_seats - :seatCount, " +
+           "held_seats = i.held_seats + :seatCount, updated_at = NOW() " +
+           "FROM picked p WHERE i.id = p.id AND i.available_seats >= :seatCount RETURNING i.id", nativeQuery = true)
+    List<Long> admitHoldOnFullestShard(@Param("flightInstanceId") Long flightInstanceId,
+                                @Param("cabinClass") String cabinClass,
+                                @Param("seatCount") int seatCount);
+
+    /**
+     * Give back seats admitted on a counter row for holds that were not created after all.
+     */
+    @Modifying
+    @Query(value = "UPDATE flight_inventory SET available_seats = available_seats + :seatCount, " +
+           "held_seats = held_seats - :seatCount, updated_at = NOW() WHERE id = :id", nativeQuery = true)
+    int releaseAdmitted(@Param("id") Long id, @Param("seatCount") int seatCount);
+
+    /**
+     * Whether any counter row of a cabin has at least seatCount seats available.
+     */
+    boolean existsByFlightInstanceIdAndCabinClassAndAvailableSeatsGreaterThanEqual(
+            Long flightInstanceId, String cabinClass, Integer seatCount);
+
+    /**
+     * Add shard rows 1..shards-1, initially empty, next to each cabin's shard 0 row of a flight instance.
+     * Existing shards are kept; {@link #rebalanceShards} then spreads the available seats over them.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO flight_inventory (flight_instance_id, cabin_class, shard, total_seats, available_seats, " +
+           "held_seats, sold_seats, updated_at) " +
+           "SELECT i.flight_instance_id, i.cabin_class, g.shard, 0, 0, 0, 0, NOW() " +
+           "FROM flight_inventory i CROSS JOIN generate_series(1, :shards - 1) AS g(shard) " +
+           "WHERE i.flight_instance_id = :flightInstanceId AND i.shard = 0 " +
+           "ON CONFLICT (flight_instance_id, cabin_class, shard) DO NOTHING", nativeQuery = true)
+    int addShards(@Param("flightInstanceId") Long flightInstanceId, @Param("shards") int shards);
+
+    /**
+     * Move surplus available seats between a flight instance's shards, per cabin, so that as many shards as
+     * the cabin can fill hold at least minShardSeats (small shards would turn away large bookings): the seats
+     * are split evenly over that many shards, those already holding the most keeping theirs, and the rest are
+     * emptied. Only rows whose available seats change are written. Rows locked by concurrent admissions are
+     * skipped and keep their seats, so a rebalance never waits for holders. Held and sold seats stay where
+     * they are; they are only meaningful summed per cabin.
+     */
+    @Modifying
+    @Query(value = "WITH locked AS (" +
+           "SELECT i.id, i.cabin_class, i.shard, i.available_seats FROM flight_inventory i " +
+           "WHERE i.flight_instance_id = :flightInstanceId " +
+           "ORDER BY i.cabin_class, i.shard FOR UPDATE SKIP LOCKED), " +
+           "ranked AS (" +
+           "SELECT id, available_seats, " +
+           "ROW_NUMBER() OVER (PARTITION BY cabin_class ORDER BY available_seats DESC, shard) - 1 AS rank, " +
+           "SUM(available_seats) OVER (PARTITION BY cabin_class) AS available, " +
+           "LEAST(COUNT(*) OVER (PARTITION BY cabin_class), " +
+           "GREATEST(1, SUM(available_seats) OVER (PARTITION BY cabin_class) / :minShardSeats)) AS stocked " +
+           "FROM locked), " +
+           "target AS (" +
+           "SELECT id, available_seats, CASE WHEN rank < stocked " +
+           "THEN available / stocked + CASE WHEN rank < available % stocked THEN 1 ELSE 0 END " +
+           "ELSE 0 END AS seats FROM ranked) " +
+           "UPDATE flight_inventory i SET available_seats = t.seats, updated_at = NOW() " +
+           "FROM target t WHERE i.id = t.id AND t.seats <> t.available_seats", nativeQuery = true)
+    int rebalanceShards(@Param("flightInstanceId") Long flightInstanceId, @Param("minShardSeats") int minShardSeats);
+
+    /**
+     * Available seats of a flight instance's best-stocked cabin, summed over its shards; -1 if it has no counters.
+     */
+    @Query(value = "SELECT CAST(COALESCE(MAX(c.available), -1) AS integer) FROM (" +
+           "SELECT SUM(i.available_seats) AS available FROM flight_inventory i " +
+           "WHERE i.flight_instance_id = :flightInstanceId GROUP BY i.cabin_class) c", nativeQuery = true)
+    int findLargestCabinAvailability(@Param("flightInstanceId") Long flightInstanceId);
+
+    /**
+     * Available seats per flight instance across cabins, in one indexed read.
+     * Returns rows of [flight_instance_id, available_seats]; flights without counters are absent.
+     */
+    @Query("SELECT i.flightInstanceId, SUM(i.availableSeats) FROM FlightInventory i " +
+           "WHERE i.flightInstanceId IN :flightInstanceIds GROUP BY i.flightInstanceId")
+    List<Object[]> sumAvailableSeatsByFlight(@Param("flightInstanceIds") Collection<Long> flightInstanceIds);
+}
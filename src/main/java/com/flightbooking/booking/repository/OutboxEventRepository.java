@@ -168,6 +168,17 @@ public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>
     @Query("DELETE FROM OutboxEvent e WHERE e.status = 'FAILED' AND e.createdAt < :cutoffTime")
     int deleteFailedEventsOlderThan(@Param("cutoffTime") OffsetDateTime cutoffTime);
 
+    /**
+     * Delete up to limit events of a topic created before the cutoff, whatever their status, oldest first.
+     * For topics nothing dispatches yet, whose events would otherwise stay pending forever.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM outbox_event WHERE id IN (SELECT id FROM outbox_event WHERE topic = :topic " +
+           "AND created_at < :cutoffTime ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int deleteTopicEventsOlderThan(@Param("topic") String topic,
+                                   @Param("cutoffTime") OffsetDateTime cutoffTime,
+                                   @Param("limit") int limit);
+
     /**
      * Check if an event ID already exists.
      */
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,6 +55,122 @@ public interface SeatHoldRepository extends JpaRepository<SeatHold, Long> {
             @Param("flightInstanceId") Long flightInstanceId, 
             @Param("currentTime") OffsetDateTime currentTime);
 
+    /**
+     * Active holds of a session across all its flight instances, with their seats loaded.
+     */
+    @Query("SELECT h FROM SeatHold h JOIN FETCH h.seat WHERE h.holderSessionId = :sessionId " +
+           "AND h.expiresAt > :currentTime ORDER BY h.flightInstance.id, h.seat.seatNo")
+    List<SeatHold> findActiveHoldsWithSeats(
+            @Param("sessionId") String sessionId,
+            @Param("currentTime") OffsetDateTime currentTime);
+
+    /**
+     * Find active holds of several sessions with their seats, by flight and seat number.
+     */
+    @Query("SELECT h FROM SeatHold h JOIN FETCH h.seat WHERE h.holderSessionId IN :sessionIds " +
+           "AND h.expiresAt > :currentTime ORDER BY h.flightInstance.id, h.seat.seatNo")
+    List<SeatHold> findActiveHoldsWithSeatsBySessions(
+            @Param("sessionIds") Collection<String> sessionIds,
+            @Param("currentTime") OffsetDateTime currentTime);
+
+    /**
+     * Hold the given seats (of any flight instances) for a session in one conditional write: each seat is
+     * claimed only if it is still available, not held (by any hold row, expired or not, until it is
+     * reclaimed) and not sold in the database. Seat rows are locked in id order first, so concurrent
+     * multi-leg claims cannot deadlock, and claimed rows get their version bumped.
+     * The hold check reads the statement snapshot, which misses a hold committed by a claim this one
+     * waited on for the seat lock; the unique index on seat_hold.seat_id skips such a seat instead.
+     * Returns the number of holds created; fewer than requested means the caller's view was stale.
+     */
+    @Modifying
+    @Query(value = "WITH locked AS (" +
+           "SELECT s.id FROM seat s WHERE s.id IN (:seatIds) ORDER BY s.id FOR UPDATE), " +
+           "claimed AS (" +
+           "UPDATE seat s SET version = s.version + 1 FROM locked l " +
+           "WHERE s.id = l.id AND s.is_available = true " +
+           "AND NOT EXISTS (SELECT 1 FROM seat_hold h WHERE h.seat_id = s.id) " +
+           "AND NOT EXISTS (SELECT 1 FROM ticket_seat ts WHERE ts.seat_id = s.id) " +
+           "RETURNING s.id, s.flight_instance_id) " +
+           "INSERT INTO seat_hold (flight_instance_id, seat_id, holder_session_id, expires_at, created_at, version) " +
+           "SELECT c.flight_instance_id, c.id, :sessionId, :expiresAt, NOW(), 0 FROM claimed c " +
+           "ON CONFLICT (seat_id) DO NOTHING", nativeQuery = true)
+    int insertHoldsIfFree(
+            @Param("seatIds") Collection<Long> seatIds,
+            @Param("sessionId") String sessionId,
+            @Param("expiresAt") OffsetDateTime expiresAt);
+
+    /**
+     * Hold seats for several sessions in one conditional write, under the same conditions and seat row
+     * locking as {@link #insertHoldsIfFree}. Each entry is "seatId:sessionId".
+     * Returns rows of [seat_id, holder_session_id] for the holds created; a session missing seats had a stale view.
+     */
+    @Query(value = "WITH wanted AS (" +
+           "SELECT CAST(split_part(k, ':', 1) AS bigint) AS seat_id, substr(k, strpos(k, ':') + 1) AS session_id " +
+           "FROM unnest(ARRAY[:seatSessions]) AS k), " +
+           "locked AS (" +
+           "SELECT s.id FROM seat s WHERE s.id IN (SELECT seat_id FROM wanted) ORDER BY s.id FOR UPDATE), " +
+           "claimed AS (" +
+           "UPDATE seat s SET version = s.version + 1 FROM locked l " +
+           "WHERE s.id = l.id AND s.is_available = true " +
+           "AND NOT EXISTS (SELECT 1 FROM seat_hold h WHERE h.seat_id = s.id) " +
+           "AND NOT EXISTS (SELECT 1 FROM ticket_seat ts WHERE ts.seat_id = s.id) " +
+           "RETURNING s.id, s.flight_instance_id) " +
+           "INSERT INTO seat_hold (flight_instance_id, seat_id, holder_session_id, expires_at, created_at, version) " +
+           "SELECT c.flight_instance_id, c.id, w.session_id, :expiresAt, NOW(), 0 FROM claimed c JOIN wanted w ON w.seat_id = c.id " +
+           "ON CONFLICT (seat_id) DO NOTHING RETURNING seat_id, holder_session_id", nativeQuery = true)
+    List<Object[]> insertHoldsIfFreeForSessions(
+            @Param("seatSessions") Collection<String> seatSessions,
+            @Param("expiresAt") OffsetDateTime expiresAt);
+
+    /**
+     * Hold the given seats for a session without locking seat rows: holds are inserted in seat id order
+     * and the unique index on seat_hold.seat_id arbitrates concurrent claims, a seat already held being
+     * skipped instead of waited for. Seats unavailable or sold as of the statement snapshot are skipped.
+     * Returns the ids of the seats held; fewer than requested means the caller's view was stale.
+     */
+    @Query(value = "INSERT INTO seat_hold (flight_instance_id, seat_id, holder_session_id, expires_at, created_at, version) " +
+           "SELECT s.flight_instance_id, s.id, :sessionId, :expiresAt, NOW(), 0 FROM seat s " +
+           "WHERE s.id IN (:seatIds) AND s.is_available = true " +
+           "AND NOT EXISTS (SELECT 1 FROM ticket_seat ts WHERE ts.seat_id = s.id) " +
+           "ORDER BY s.id " +
+           "ON CONFLICT (seat_id) DO NOTHING RETURNING seat_id", nativeQuery = true)
+    List<Long> insertHoldsOnConflict(
+            @Param("seatIds") Collection<Long> seatIds,
+            @Param("sessionId") String sessionId,
+            @Param("expiresAt") OffsetDateTime expiresAt);
+
+    /**
+     * Sell a session's active holds to a ticket in one statement: the held seats are locked in id order
+     * and marked unavailable, linked to the ticket, their holds deleted, and the flight inventory moved
+     * from held to sold per flight and cabin (on shard 0). The number of statements does not grow with
+     * the seat count.
+     * Returns rows of [flight_instance_id, seat_id, seat_no] for the sold seats, by flight and seat number;
+     * none if the session has no active holds.
+     */
+    @Query(value = "WITH held AS (" +
+           "SELECT h.id, h.seat_id FROM seat_hold h WHERE h.holder_session_id = :sessionId " +
+           "AND h.expires_at > :currentTime ORDER BY h.seat_id FOR UPDATE), " +
+           "locked AS (" +
+           "SELECT s.id FROM seat s JOIN held ON held.seat_id = s.id ORDER BY s.id FOR UPDATE OF s), " +
+           "sold AS (" +
+           "UPDATE seat s SET is_available = false, version = s.version + 1 FROM locked l WHERE s.id = l.id " +
+           "RETURNING s.id, s.flight_instance_id, s.seat_no, COALESCE(s.cabin_class, '') AS cabin_class), " +
+           "ticketed AS (" +
+           "INSERT INTO ticket_seat (ticket_id, seat_id) SELECT :ticketId, id FROM sold), " +
+           "removed AS (" +
+           "DELETE FROM seat_hold h USING held WHERE h.id = held.id), " +
+           "counted AS (" +
+           "UPDATE flight_inventory i SET held_seats = i.held_seats - c.seats, " +
+           "sold_seats = i.sold_seats + c.seats, updated_at = NOW() " +
+           "FROM (SELECT flight_instance_id, cabin_class, COUNT(*) AS seats FROM sold " +
+           "GROUP BY flight_instance_id, cabin_class) c " +
+           "WHERE i.flight_instance_id = c.flight_instance_id AND i.cabin_class = c.cabin_class AND i.shard = 0) " +
+           "SELECT flight_instance_id, id, seat_no FROM sold ORDER BY flight_instance_id, seat_no", nativeQuery = true)
+    List<Object[]> sellActiveHoldsToTicket(
+            @Param("sessionId") String sessionId,
+            @Param("ticketId") Long ticketId,
+            @Param("currentTime") OffsetDateTime currentTime);
+
     /**
      * Find expired holds.
      */
@@ -96,6 +213,58 @@ public interface SeatHoldRepository extends JpaRepository<SeatHold, Long> {
     @Query("DELETE FROM SeatHold h WHERE h.expiresAt <= :currentTime")
     int deleteExpiredHolds(@Param("currentTime") OffsetDateTime currentTime);
 
+    /**
+     * Delete up to limit expired holds, oldest first through the expires_at index, and move their seats
+     * from held back to available in the flight inventory, in one statement. Holds locked by another
+     * transaction are skipped. Returns rows of [flight_instance_id, seat_id] for the seats they freed.
+     */
+    @Query(value = "WITH freed AS (" +
+           "DELETE FROM seat_hold h USING seat s WHERE s.id = h.seat_id AND h.id IN (" +
+           "SELECT e.id FROM seat_hold e WHERE e.expires_at <= :currentTime ORDER BY e.expires_at " +
+           "LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+           "RETURNING h.flight_instance_id, h.seat_id, COALESCE(s.cabin_class, '') AS cabin_class), " +
+           RELEASE_FREED_SEATS, nativeQuery = true)
+    List<Object[]> deleteExpiredHoldsReturningSeats(@Param("currentTime") OffsetDateTime currentTime, @Param("limit") int limit);
+
+    /**
+     * Delete the given holds that have expired and release their seats as above; holds already
+     * confirmed, cancelled or reclaimed are gone and simply not matched.
+     * Returns rows of [flight_instance_id, seat_id] for the seats they freed.
+     */
+    @Query(value = "WITH freed AS (" +
+           "DELETE FROM seat_hold h USING seat s WHERE s.id = h.seat_id AND h.id IN (:holdIds) " +
+           "AND h.expires_at <= :currentTime " +
+           "RETURNING h.flight_instance_id, h.seat_id, COALESCE(s.cabin_class, '') AS cabin_class), " +
+           RELEASE_FREED_SEATS, nativeQuery = true)
+    List<Object[]> deleteExpiredHoldsByIdReturningSeats(
+            @Param("holdIds") List<Long> holdIds,
+            @Param("currentTime") OffsetDateTime currentTime);
+
+    /**
+     * Ids and expiry times of all holds, to schedule their expiry. Returns rows of [id, expiresAt].
+     */
+    @Query("SELECT h.id, h.expiresAt FROM SeatHold h")
+    List<Object[]> findHoldDeadlines();
+
+    /**
+     * Delete holds for a session and move their seats from held back to available in the flight
+     * inventory, in one statement. Returns rows of [flight_instance_id, seat_id] for the seats they freed.
+     */
+    @Query(value = "WITH freed AS (" +
+           "DELETE FROM seat_hold h USING seat s WHERE s.id = h.seat_id AND h.holder_session_id = :sessionId " +
+           "RETURNING h.flight_instance_id, h.seat_id, COALESCE(s.cabin_class, '') AS cabin_class), " +
+           RELEASE_FREED_SEATS, nativeQuery = true)
+    List<Object[]> deleteHoldsBySessionReturningSeats(@Param("sessionId") String sessionId);
+
+    // Tail of the delete statements above: credit the freed seats per flight and cabin (to shard 0), return them
+    String RELEASE_FREED_SEATS = "released AS (" +
+           "UPDATE flight_inventory i SET available_seats = i.available_seats + f.seats, " +
+           "held_seats = i.held_seats - f.seats, updated_at = NOW() " +
+           "FROM (SELECT flight_instance_id, cabin_class, COUNT(*) AS seats FROM freed " +
+           "GROUP BY flight_instance_id, cabin_class) f " +
+           "WHERE i.flight_instance_id = f.flight_instance_id AND i.cabin_class = f.cabin_class AND i.shard = 0) " +
+           "SELECT flight_instance_id, seat_id FROM freed";
+
     /**
      * Delete holds for a specific session.
      */
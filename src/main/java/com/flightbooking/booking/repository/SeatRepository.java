@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -91,6 +92,25 @@ public interface SeatRepository extends JpaRepository<Seat, Long> {
             @Param("flightInstanceId") Long flightInstanceId,
             @Param("limit") int limit);
 
+    /**
+     * Every seat of a flight instance with its state, for building the in-memory seat map.
+     * Returns rows of [seat_id, seat_no, cabin_class, state] with state 0 = available, 1 = held, 2 = sold.
+     * A hold keeps its seat until the hold row is deleted, as in the flight inventory counters.
+     */
+    @Query(value = "SELECT s.id, s.seat_no, s.cabin_class, " +
+           "CASE WHEN s.is_available = false OR EXISTS (SELECT 1 FROM ticket_seat ts WHERE ts.seat_id = s.id) THEN 2 " +
+           "WHEN EXISTS (SELECT 1 FROM seat_hold h WHERE h.seat_id = s.id) THEN 1 " +
+           "ELSE 0 END AS state " +
+           "FROM seat s WHERE s.flight_instance_id = :flightInstanceId", nativeQuery = true)
+    List<Object[]> findSeatStates(@Param("flightInstanceId") Long flightInstanceId);
+
+    /**
+     * Count the given seats that are sold, as of this statement.
+     */
+    @Query(value = "SELECT COUNT(*) FROM seat s WHERE s.id IN (:seatIds) " +
+           "AND (s.is_available = false OR EXISTS (SELECT 1 FROM ticket_seat ts WHERE ts.seat_id = s.id))", nativeQuery = true)
+    long countSoldSeats(@Param("seatIds") Collection<Long> seatIds);
+
     /**
      * Find seats that are currently held (not expired).
      */
@@ -120,4 +140,15 @@ public interface SeatRepository extends JpaRepository<Seat, Long> {
            "AND NOT EXISTS (SELECT 1 FROM SeatHold h WHERE h.seat.id = s.id AND h.expiresAt > CURRENT_TIMESTAMP) " +
            "AND NOT EXISTS (SELECT 1 FROM TicketSeat ts WHERE ts.seat.id = s.id)")
     long countTrulyAvailableSeats(@Param("flightInstanceId") Long flightInstanceId);
+
+    /**
+     * Count truly available seats for several flight instances in one round trip.
+     * Returns rows of [flight_instance_id, available_count]; flights with no free seats are absent.
+     */
+    @Query("SELECT s.flightInstance.id, COUNT(s) FROM Seat s WHERE s.flightInstance.id IN :flightInstanceIds " +
+           "AND s.isAvailable = true " +
+           "AND NOT EXISTS (SELECT 1 FROM SeatHold h WHERE h.seat.id = s.id AND h.expiresAt > CURRENT_TIMESTAMP) " +
+           "AND NOT EXISTS (SELECT 1 FROM TicketSeat ts WHERE ts.seat.id = s.id) " +
+           "GROUP BY s.flightInstance.id")
+    List<Object[]> countTrulyAvailableSeatsByFlight(@Param("flightInstanceIds") Collection<Long> flightInstanceIds);
 }
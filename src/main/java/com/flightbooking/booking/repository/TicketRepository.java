@@ -2,6 +2,7 @@ package com.flightbooking.booking.repository;
 
 import com.flightbooking.booking.entity.Ticket;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -162,4 +163,16 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
      */
     @Query("SELECT DISTINCT t FROM Ticket t LEFT JOIN FETCH t.ticketSeats ts LEFT JOIN FETCH ts.seat s WHERE t.holderUserId = :userId")
     List<Ticket> findTicketsWithSeatsByUser(@Param("userId") Long userId);
+
+    /**
+     * Move a ticket from one status to another in one write, bumping its version.
+     * Returns 0 if the ticket was not in the expected status.
+     */
+    @Modifying
+    @Query("UPDATE Ticket t SET t.status = :newStatus, t.version = t.version + 1 " +
+           "WHERE t.id = :ticketId AND t.status = :expectedStatus")
+    int updateStatusIf(
+            @Param("ticketId") Long ticketId,
+            @Param("expectedStatus") Ticket.TicketStatus expectedStatus,
+            @Param("newStatus") Ticket.TicketStatus newStatus);
 }
@@ -5,14 +5,16 @@ import com.flightbooking.booking.dto.BookingResponse;
 import com.flightbooking.booking.dto.PaymentRequest;
 import com.flightbooking.booking.dto.PaymentResponse;
 import com.flightbooking.booking.entity.*;
+import com.flightbooking.booking.inventory.WaitingRoom;
 import com.flightbooking.booking.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -26,11 +28,13 @@ public class BookingService {
 
     private final FlightInstanceRepository flightInstanceRepository;
     private final SeatHoldService seatHoldService;
+    private final SeatHoldCoalescer seatHoldCoalescer;
+    private final WaitingRoom waitingRoom;
     private final TicketService ticketService;
 
     /**
-     * Initiates a booking by creating seat holds for multiple flights sequentially.
-     * If any flight fails, cleans up all previously held seats.
+     * Initiates a booking by creating seat holds on all flights at once.
+     * Holds are all or nothing: if any flight cannot be held, none are.
      * 
      * @param bookingRequest The booking request containing flight IDs and seat details
      * @return BookingResponse with booking details and payment information
@@ -51,25 +55,41 @@ public class BookingService {
         List<Long> flightIds = bookingRequest.getFlightIds();
         int seatCount = bookingRequest.getSeatCount();
         
-        // Verify all flight instances exist
+        // Wait in each flight's line before touching the database, so a hot flight queues here and not on the connection pool
+        WaitingRoom.Pass pass;
+        try {
+            pass = waitingRoom.enter(flightIds, seatCount);
+        } catch (WaitingRoom.RejectedException e) {
+            log.info("Booking for session {} turned away by the waiting room: {}", sessionId, e.getMessage());
+            return e.isSoldOut()
+                    ? BookingResponse.failure(e.getMessage(), flightIds.get(0), seatCount, sessionId)
+                    : BookingResponse.busy(e.getMessage(), flightIds.get(0), seatCount, sessionId, e.getQueuePosition());
+        }
+        try (pass) {
+            BookingResponse response = holdSeats(flightIds, seatCount, sessionId);
+            response.setQueuePosition(pass.getQueuePosition());
+            return response;
+        }
+    }
+
+    /**
+     * Holds seats on every flight and creates the IN_PROGRESS ticket, once admitted by the waiting room.
+     */
+    private BookingResponse holdSeats(List<Long> flightIds, int seatCount, String sessionId) {
+        // Verify all flight instances exist, in one query
+        Map<Long, FlightInstance> flightsById = flightInstanceRepository.findAllById(flightIds).stream()
+                .collect(Collectors.toMap(FlightInstance::getId, Function.identity()));
         List<FlightInstance> flightInstances = flightIds.stream()
-                .map(flightId -> flightInstanceRepository.findById(flightId)
+                .map(flightId -> Optional.ofNullable(flightsById.get(flightId))
                         .orElseThrow(() -> new RuntimeException("Flight instance not found: " + flightId)))
                 .toList();
         
-        List<SeatHold> allSeatHolds = new ArrayList<>();
+        boolean held = false;
         
         try {
-            // Create seat holds sequentially for each flight
-            for (int i = 0; i < flightIds.size(); i++) {
-                Long flightId = flightIds.get(i);
-                log.debug("Creating seat holds for flight {} (leg {}/{})", flightId, i + 1, flightIds.size());
-                
-                List<SeatHold> seatHolds = seatHoldService.createSeatHolds(flightId, seatCount, sessionId);
-                allSeatHolds.addAll(seatHolds);
-                
-                log.debug("Successfully created {} seat holds for flight {}", seatHolds.size(), flightId);
-            }
+            // Create seat holds on every flight in one transaction
+            List<SeatHold> allSeatHolds = seatHoldCoalescer.createSeatHolds(flightIds, seatCount, sessionId);
+            held = true;
             
             // Generate payment ID for this booking
             String paymentId = ticketService.generatePaymentId();
@@ -103,9 +123,11 @@ public class BookingService {
             );
             
         } catch (Exception e) {
-            // Cleanup: Delete all seat holds for this session if any flight failed
-            log.error("Failed to create booking for session {}, cleaning up any existing holds", sessionId);
-            seatHoldService.cancelSeatHolds(sessionId);
+            // Holds are all or nothing; only a failure after they were taken leaves any to clean up
+            log.error("Failed to create booking for session {}: {}", sessionId, e.getMessage());
+            if (held) {
+                seatHoldService.cancelSeatHolds(sessionId);
+            }
             return BookingResponse.failure(
                     e.getMessage(), // Payment ID for confirmation
                     flightIds.get(0), // Primary flight ID for backward compatibility
@@ -163,36 +185,20 @@ public class BookingService {
         String sessionId = ticket.getSessionId();
 
         
-        // Get all active seat holds for this session
-        List<SeatHold> seatHolds = seatHoldService.findActiveHoldsBySession(sessionId);
-        
-        if (seatHolds.isEmpty()) {
-            throw new IllegalArgumentException("No active seat holds found for session: Payment will be refunded to account  " + sessionId);
-        }
-        
-        // Confirm ticket and create TicketSeat relationships
-        Ticket confirmedTicket = ticketService.confirmTicketWithSeats(
-                ticket, seatHolds);
-        
-        // Confirm seat holds (mark seats as unavailable and delete holds)
-        List<Seat> bookedSeats = seatHoldService.confirmSeatHolds(sessionId);
-        
-        // Extract seat numbers for response
-        List<String> seatNumbers = bookedSeats.stream()
-                .map(Seat::getSeatNo)
-                .toList();
+        // Confirm ticket and sell its held seats in one transaction
+        List<String> seatNumbers = ticketService.confirmTicketWithSeats(ticket);
         
         log.info("Successfully confirmed payment {} for session {} with ticket {} and {} seats", 
-                paymentId, sessionId, confirmedTicket.getId(), seatNumbers.size());
+                paymentId, sessionId, ticket.getId(), seatNumbers.size());
         
         return PaymentResponse.success(
                 paymentId,
                 sessionId,
-                confirmedTicket.getId(),
-                confirmedTicket.getFlightInstance() != null ? confirmedTicket.getFlightInstance().getFlightNo() : "MULTI",
+                ticket.getId(),
+                ticket.getFlightInstance() != null ? ticket.getFlightInstance().getFlightNo() : "MULTI",
                 seatNumbers,
-                confirmedTicket.getTotalAmount(),
-                "TKT-" + confirmedTicket.getId()
+                ticket.getTotalAmount(),
+                "TKT-" + ticket.getId()
         );
     }
 
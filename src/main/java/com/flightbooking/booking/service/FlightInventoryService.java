@@ -0,0 +1,171 @@
+package com.flightbooking.booking.service;
+
+import com.flightbooking.booking.config.JpaConfig;
+import com.flightbooking.booking.entity.FlightInventory;
+import com.flightbooking.booking.repository.FlightInventoryRepository;
+import com.flightbooking.booking.repository.SeatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Service for reading seat availability from the flight inventory counters.
+ * Counters are created for every flight with seats once the application is ready, and per flight
+ * when its first hold arrives; flights without counters fall back to counting seats.
+ *
+ * Flights listed under flight-booking.booking.inventory-shards are flash-sale flights: their counters
+ * are split into shards at startup and rebalanced whenever a shard runs low. Holds are admitted against
+ * the counters here, so that a shard drained under a holder is retried on another.
+ */
+@Service
+@Slf4j
+public class FlightInventoryService {
+
+    private final FlightInventoryRepository flightInventoryRepository;
+    private final SeatRepository seatRepository;
+    private final List<Long> shardedFlights;
+    private final int shards;
+    private final int minShardSeats;
+    private final TransactionTemplate rebalanceTransaction;
+
+    public FlightInventoryService(
+            FlightInventoryRepository flightInventoryRepository,
+            SeatRepository seatRepository,
+            @Qualifier(JpaConfig.TRANSACTION_MANAGER) PlatformTransactionManager transactionManager,
+            @Value("${flight-booking.booking.inventory-shards.flights:}") List<Long> shardedFlights,
+            @Value("${flight-booking.booking.inventory-shards.count:8}") int shards,
+            @Value("${flight-booking.booking.max-passengers-per-booking:9}") int minShardSeats) {
+        this.flightInventoryRepository = flightInventoryRepository;
+        this.seatRepository = seatRepository;
+        this.shardedFlights = List.copyOf(shardedFlights);
+        this.shards = shards;
+        this.minShardSeats = minShardSeats;
+        this.rebalanceTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
+    public void initializeMissing() {
+        long start = System.nanoTime();
+        int created = flightInventoryRepository.initializeMissing();
+        if (created > 0) {
+            log.info("Created {} flight inventory counters in {} ms", created, (System.nanoTime() - start) / 1_000_000);
+        }
+        for (Long flightInstanceId : shardedFlights) {
+            flightInventoryRepository.initializeFlight(flightInstanceId);
+            flightInventoryRepository.addShards(flightInstanceId, shards);
+            flightInventoryRepository.rebalanceShards(flightInstanceId, minShardSeats);
+        }
+        if (!shardedFlights.isEmpty()) {
+            log.info("Split inventory of flights {} into {} shards", shardedFlights, shards);
+        }
+    }
+
+    /**
+     * Admit a hold of seatCount seats on one leg against the cabin's counters, in the caller's transaction.
+     * A free shard is tried first; if every shard with enough seats is locked by concurrent admissions, the
+     * fullest is waited for, and if it was drained meanwhile the next one is tried, until no shard has enough
+     * seats left. Callers admit the legs of a booking in flight order, so waiting cannot deadlock.
+     *
+     * @return The id of the counter row admitted on, or null if no shard of the cabin has seatCount seats available
+     */
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
+    public Long admitHold(Long flightInstanceId, String cabinClass, int seatCount, String shardKey) {
+        for (int attempt = 0; attempt < shards; attempt++) {
+            List<Long> admitted = flightInventoryRepository.admitHoldOnFreeShard(flightInstanceId, cabinClass, seatCount, shardKey);
+            if (admitted.isEmpty()) {
+                admitted = flightInventoryRepository.admitHoldOnFullestShard(flightInstanceId, cabinClass, seatCount);
+            }
+            if (!admitted.isEmpty()) {
+                return admitted.get(0);
+            }
+            if (!flightInventoryRepository.existsByFlightInstanceIdAndCabinClassAndAvailableSeatsGreaterThanEqual(
+                    flightInstanceId, cabinClass, seatCount)) {
+                return null;
+            }
+        }
+        log.warn("Gave up admitting {} seats on flight {} after {} attempts", seatCount, flightInstanceId, shards);
+        return null;
+    }
+
+    /**
+     * Give back part of an admission, in the caller's transaction, on the counter row it was admitted on;
+     * that row is already locked by the admission, so this takes no new locks.
+     */
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
+    public void releaseAdmission(Long inventoryId, int seatCount) {
+        flightInventoryRepository.releaseAdmitted(inventoryId, seatCount);
+    }
+
+    /**
+     * Rebalance sharded flights whose shards have drifted apart, i.e. fewer shards can serve the largest
+     * booking than the cabin's available seats could fill, or a nearly sold-out cabin is spread over several.
+     * Releases and sales land on shard 0, so the other shards otherwise only ever drain.
+     */
+    @Scheduled(fixedDelayString = "${flight-booking.booking.inventory-shards.rebalance-interval-ms:500}")
+    public void rebalanceShards() {
+        for (Long flightInstanceId : shardedFlights) {
+            Map<String, List<FlightInventory>> cabins = flightInventoryRepository.findByFlightInstanceId(flightInstanceId).stream()
+                    .collect(Collectors.groupingBy(FlightInventory::getCabinClass));
+            if (cabins.values().stream().anyMatch(this::isSkewed)) {
+                rebalanceTransaction.executeWithoutResult(status ->
+                        flightInventoryRepository.rebalanceShards(flightInstanceId, minShardSeats));
+                log.debug("Rebalanced inventory shards of flight {}", flightInstanceId);
+            }
+        }
+    }
+
+    private boolean isSkewed(List<FlightInventory> cabinShards) {
+        if (cabinShards.size() < 2) {
+            return false;
+        }
+        int available = cabinShards.stream().mapToInt(FlightInventory::getAvailableSeats).sum();
+        if (available < minShardSeats) {
+            // Not enough for one full shard: keep what is left together
+            return cabinShards.stream().filter(shard -> shard.getAvailableSeats() > 0).count() > 1;
+        }
+        long stocked = cabinShards.stream().filter(shard -> shard.getAvailableSeats() >= minShardSeats).count();
+        return stocked < Math.min(cabinShards.size(), available / minShardSeats);
+    }
+
+    /**
+     * Available seats of a flight's best-stocked cabin, summed over its shards; -1 if the flight has no counters yet.
+     */
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER, readOnly = true)
+    public int findLargestCabinAvailability(Long flightInstanceId) {
+        return flightInventoryRepository.findLargestCabinAvailability(flightInstanceId);
+    }
+
+    /**
+     * Available seats per flight instance, across cabins; flights with no free seats map to 0 or are absent.
+     */
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER, readOnly = true)
+    public Map<Long, Integer> findAvailableSeats(Collection<Long> flightInstanceIds) {
+        Map<Long, Integer> availableSeats = new HashMap<>();
+        for (Object[] row : flightInventoryRepository.sumAvailableSeatsByFlight(flightInstanceIds)) {
+            availableSeats.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+        }
+        List<Long> uncounted = flightInstanceIds.stream()
+                .filter(id -> !availableSeats.containsKey(id))
+                .toList();
+        if (!uncounted.isEmpty()) {
+            for (Object[] row : seatRepository.countTrulyAvailableSeatsByFlight(uncounted)) {
+                availableSeats.put(((Number) row[0]).longValue(), ((Number) row[1]).intValue());
+            }
+        }
+        return availableSeats;
+    }
+}
@@ -0,0 +1,198 @@
+package com.flightbooking.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbooking.booking.config.JpaConfig;
+import com.flightbooking.booking.entity.OutboxEvent;
+import com.flightbooking.booking.entity.SeatHold;
+import com.flightbooking.booking.inventory.SeatInventory;
+import com.flightbooking.booking.inventory.TimingWheel;
+import com.flightbooking.booking.repository.OutboxEventRepository;
+import com.flightbooking.booking.repository.SeatHoldRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Expires seat holds close to their deadline instead of in periodic bulk deletes.
+ * Every hold this node creates is put on an in-memory timing wheel, and once the application is ready
+ * the wheel is loaded with every hold in seat_hold, whichever node created it; each tick the holds that
+ * came due are reclaimed in small batches, each in its own short transaction, and their seats given back
+ * to the inventory counters and seat maps. A node that reaches a hold already reclaimed by another
+ * matches nothing. Holds created by other nodes after startup are expired by those nodes, and a sweep
+ * through the expires_at index catches what no wheel knows about (e.g. holds of a node that went away)
+ * within the sweep interval; since expired holds keep their seats until deleted, keep it short.
+ *
+ * Every reclaimed batch stages one availability event per flight on the outbox, carrying the number
+ * of seats that became available. The events are only staged: nothing relays the outbox to a broker
+ * yet and nothing consumes them, so freed seats reach only the inventory counters and seat maps, not
+ * search. Until a relay dispatches them, staged events older than the retention are pruned.
+ */
+@Service
+@Slf4j
+public class HoldExpiryService {
+
+    public static final String AVAILABILITY_TOPIC = "flight-availability";
+
+    private final SeatHoldRepository seatHoldRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final SeatInventory seatInventory;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate reclaimTransaction;
+    private final TimingWheel wheel;
+    private final int batchSize;
+    private final Duration eventRetention;
+
+    public HoldExpiryService(
+            SeatHoldRepository seatHoldRepository,
+            OutboxEventRepository outboxEventRepository,
+            SeatInventory seatInventory,
+            ObjectMapper objectMapper,
+            @Qualifier(JpaConfig.TRANSACTION_MANAGER) PlatformTransactionManager transactionManager,
+            @Value("${flight-booking.booking.hold-expiry.tick-ms:1000}") long tickMs,
+            @Value("${flight-booking.booking.hold-expiry.batch-size:100}") int batchSize,
+            @Value("${flight-booking.booking.hold-expiry.event-retention-hours:24}") long eventRetentionHours) {
+        this.seatHoldRepository = seatHoldRepository;
+        this.outboxEventRepository = outboxEventRepository;
+        this.seatInventory = seatInventory;
+        this.objectMapper = objectMapper;
+        this.reclaimTransaction = new TransactionTemplate(transactionManager);
+        this.wheel = new TimingWheel(tickMs, System.currentTimeMillis());
+        this.batchSize = batchSize;
+        this.eventRetention = Duration.ofHours(eventRetentionHours);
+    }
+
+    /**
+     * Schedule the expiry of new holds. Holds whose transaction rolls back are harmless on the wheel:
+     * reclaiming them matches nothing.
+     */
+    public void schedule(List<SeatHold> holds) {
+        for (SeatHold hold : holds) {
+            wheel.add(hold.getId(), hold.getExpiresAt().toInstant().toEpochMilli());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        List<Object[]> deadlines = seatHoldRepository.findHoldDeadlines();
+        for (Object[] row : deadlines) {
+            wheel.add(((Number) row[0]).longValue(), ((OffsetDateTime) row[1]).toInstant().toEpochMilli());
+        }
+        log.info("Scheduled expiry of {} seat holds in {} ms", deadlines.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Reclaim the holds that came due since the last tick.
+     */
+    @Scheduled(fixedDelayString = "${flight-booking.booking.hold-expiry.tick-ms:1000}")
+    public void reclaimDue() {
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Long> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            try {
+                reclaim(() -> seatHoldRepository.deleteExpiredHoldsByIdReturningSeats(batch, OffsetDateTime.now()));
+            } catch (RuntimeException e) {
+                log.warn("Failed to reclaim {} expired seat holds, leaving them to the sweep: {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reclaim expired holds no wheel has scheduled, oldest first.
+     */
+    @Scheduled(initialDelayString = "${flight-booking.booking.hold-expiry.sweep-interval-ms:60000}",
+            fixedDelayString = "${flight-booking.booking.hold-expiry.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        int reclaimed;
+        int total = 0;
+        do {
+            reclaimed = reclaim(() -> seatHoldRepository.deleteExpiredHoldsReturningSeats(OffsetDateTime.now(), batchSize));
+            total += reclaimed;
+        } while (reclaimed == batchSize);
+        if (total > 0) {
+            log.info("Swept {} expired seat holds missed by the timing wheel", total);
+        }
+    }
+
+    /**
+     * Delete staged availability events older than the retention, in batches of their own transactions.
+     */
+    @Scheduled(initialDelayString = "${flight-booking.booking.hold-expiry.event-prune-interval-ms:600000}",
+            fixedDelayString = "${flight-booking.booking.hold-expiry.event-prune-interval-ms:600000}")
+    public void pruneAvailabilityEvents() {
+        OffsetDateTime cutoff = OffsetDateTime.now().minus(eventRetention);
+        int deleted;
+        int total = 0;
+        do {
+            deleted = reclaimTransaction.execute(status ->
+                    outboxEventRepository.deleteTopicEventsOlderThan(AVAILABILITY_TOPIC, cutoff, batchSize));
+            total += deleted;
+        } while (deleted == batchSize);
+        if (total > 0) {
+            log.info("Pruned {} staged availability events older than {}", total, eventRetention);
+        }
+    }
+
+    /**
+     * Run one reclaiming delete in its own transaction and stage what it freed; returns the seats freed.
+     */
+    private int reclaim(Supplier<List<Object[]>> delete) {
+        List<Object[]> freedSeats = reclaimTransaction.execute(status -> {
+            List<Object[]> freed = delete.get();
+            if (!freed.isEmpty()) {
+                seatInventory.releaseOnCommit(freed);
+                stageAvailability(freed);
+            }
+            return freed;
+        });
+        if (!freedSeats.isEmpty()) {
+            log.debug("Reclaimed {} expired seat holds", freedSeats.size());
+        }
+        return freedSeats.size();
+    }
+
+    private void stageAvailability(List<Object[]> freedSeats) {
+        Map<Long, Integer> seatsByFlight = new TreeMap<>();
+        for (Object[] seat : freedSeats) {
+            seatsByFlight.merge(((Number) seat[0]).longValue(), 1, Integer::sum);
+        }
+        OffsetDateTime occurredAt = OffsetDateTime.now();
+        outboxEventRepository.saveAll(seatsByFlight.entrySet().stream()
+                .map(flight -> OutboxEvent.builder()
+                        .eventId(UUID.randomUUID())
+                        .topic(AVAILABILITY_TOPIC)
+                        .payload(availabilityPayload(flight.getKey(), flight.getValue(), occurredAt))
+                        .build())
+                .toList());
+    }
+
+    private String availabilityPayload(Long flightInstanceId, int seatsReleased, OffsetDateTime occurredAt) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("flightInstanceId", flightInstanceId);
+        payload.put("availableSeatsDelta", seatsReleased);
+        payload.put("reason", "HOLD_EXPIRED");
+        payload.put("occurredAt", occurredAt);
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
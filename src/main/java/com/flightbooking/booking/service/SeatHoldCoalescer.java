@@ -0,0 +1,152 @@
+package com.flightbooking.booking.service;
+
+import com.flightbooking.booking.entity.SeatHold;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent hold requests for the same flights into hold groups.
+ * The first request for a set of legs opens a group and leads it: it waits a short window (or until
+ * the group is full) for more requests on the same legs, then holds seats for the whole group in one
+ * transaction and hands each waiting request its own holds. A request the group could not serve (no
+ * seats left to pick, or a picked seat taken on another node, which leaves the rest of the group held),
+ * or every request of a group that could not be admitted as a whole, falls back to an individual hold in
+ * its own thread, so callers see exactly the results and errors of
+ * {@link SeatHoldService#createSeatHolds(List, int, String)}.
+ */
+@Component
+@Slf4j
+public class SeatHoldCoalescer {
+
+    private final SeatHoldService seatHoldService;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxGroupSize;
+
+    private final Map<List<Long>, HoldGroup> openGroups = new ConcurrentHashMap<>();
+
+    public SeatHoldCoalescer(
+            SeatHoldService seatHoldService,
+            @Value("${flight-booking.booking.coalescing.enabled:false}") boolean enabled,
+            @Value("${flight-booking.booking.coalescing.window-ms:3}") long windowMs,
+            @Value("${flight-booking.booking.coalescing.max-group-size:32}") int maxGroupSize) {
+        this.seatHoldService = seatHoldService;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    /**
+     * Hold seatCount seats on every leg for a session, sharing a transaction with concurrent requests
+     * for the same legs when coalescing is enabled.
+     *
+     * @see SeatHoldService#createSeatHolds(List, int, String)
+     */
+    public List<SeatHold> createSeatHolds(List<Long> flightInstanceIds, int seatCount, String sessionId) {
+        if (!enabled) {
+            return seatHoldService.createSeatHolds(flightInstanceIds, seatCount, sessionId);
+        }
+
+        List<Long> legs = List.copyOf(flightInstanceIds);
+        PendingHold pending = new PendingHold(new SeatHoldService.HoldRequest(sessionId, seatCount));
+        while (true) {
+            HoldGroup group = openGroups.computeIfAbsent(legs, key -> new HoldGroup());
+            int position = group.join(pending, maxGroupSize);
+            if (position == 0) {
+                lead(legs, group);
+                break;
+            }
+            if (position > 0) {
+                break;
+            }
+            openGroups.remove(legs, group); // Closed while we looked it up
+        }
+
+        List<SeatHold> holds = pending.result.join();
+        return holds != null ? holds : seatHoldService.createSeatHolds(flightInstanceIds, seatCount, sessionId);
+    }
+
+    private void lead(List<Long> legs, HoldGroup group) {
+        List<PendingHold> members = group.awaitClose(windowNanos);
+        openGroups.remove(legs, group);
+        if (members.size() == 1) {
+            members.get(0).result.complete(null);
+            return;
+        }
+
+        try {
+            List<List<SeatHold>> results = seatHoldService.createSeatHolds(legs,
+                    members.stream().map(member -> member.request).toList());
+            for (int i = 0; i < members.size(); i++) {
+                members.get(i).result.complete(results.get(i));
+            }
+            log.debug("Held seats for {} coalesced requests on flights {}", members.size(), legs);
+        } catch (RuntimeException e) {
+            log.info("Hold group of {} requests on flights {} failed, holding individually: {}",
+                    members.size(), legs, e.getMessage());
+        } finally {
+            members.forEach(member -> member.result.complete(null)); // No-op for members already served
+        }
+    }
+
+    /**
+     * A request waiting in a group; completes with its holds, or null to hold on its own.
+     */
+    private static final class PendingHold {
+        private final SeatHoldService.HoldRequest request;
+        private final CompletableFuture<List<SeatHold>> result = new CompletableFuture<>();
+
+        private PendingHold(SeatHoldService.HoldRequest request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * Requests collected for one set of legs until the leader closes the group.
+     */
+    private static final class HoldGroup {
+        private final List<PendingHold> members = new ArrayList<>();
+        private boolean closed;
+
+        /**
+         * Position of the request in the group (0 makes it the leader), or -1 if the group is closed.
+         */
+        synchronized int join(PendingHold pending, int maxSize) {
+            if (closed) {
+                return -1;
+            }
+            members.add(pending);
+            if (members.size() >= maxSize) {
+                closed = true;
+                notifyAll();
+            }
+            return members.size() - 1;
+        }
+
+        /**
+         * Wait until the window has passed or the group is full, then close it.
+         */
+        synchronized List<PendingHold> awaitClose(long windowNanos) {
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining;
+            while (!closed && (remaining = deadline - System.nanoTime()) > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            closed = true;
+            return List.copyOf(members);
+        }
+    }
+}
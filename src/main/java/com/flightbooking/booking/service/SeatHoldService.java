@@ -1,37 +1,74 @@
 package com.flightbooking.booking.service;
 
+import com.flightbooking.booking.config.JpaConfig;
 import com.flightbooking.booking.entity.*;
+import com.flightbooking.booking.inventory.SeatInventory;
+import com.flightbooking.booking.inventory.SeatMap;
 import com.flightbooking.booking.repository.*;
-import lombok.RequiredArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 /**
  * Service for managing seat holds and atomic seat allocation.
  * Handles the critical seat reservation logic with strong consistency guarantees.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
-@Transactional
+@Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
 public class SeatHoldService {
 
     private final FlightInstanceRepository flightInstanceRepository;
-    private final SeatRepository seatRepository;
     private final SeatHoldRepository seatHoldRepository;
+    private final FlightInventoryService flightInventoryService;
     private final OutboxEventRepository outboxEventRepository;
+    private final SeatRepository seatRepository;
+    private final SeatInventory seatInventory;
+    private final HoldExpiryService holdExpiryService;
+    private final boolean claimOnConflict;
 
     private static final int HOLD_DURATION_MINUTES = 15;
 
+    public SeatHoldService(
+            FlightInstanceRepository flightInstanceRepository,
+            SeatHoldRepository seatHoldRepository,
+            FlightInventoryService flightInventoryService,
+            OutboxEventRepository outboxEventRepository,
+            SeatRepository seatRepository,
+            SeatInventory seatInventory,
+            HoldExpiryService holdExpiryService,
+            @Value("${flight-booking.booking.hold-claim-strategy:row-lock}") String holdClaimStrategy) {
+        this.flightInstanceRepository = flightInstanceRepository;
+        this.seatHoldRepository = seatHoldRepository;
+        this.flightInventoryService = flightInventoryService;
+        this.outboxEventRepository = outboxEventRepository;
+        this.seatRepository = seatRepository;
+        this.seatInventory = seatInventory;
+        this.holdExpiryService = holdExpiryService;
+        this.claimOnConflict = switch (holdClaimStrategy) {
+            case "row-lock" -> false;
+            case "on-conflict" -> true;
+            default -> throw new IllegalStateException("Unknown hold claim strategy: " + holdClaimStrategy);
+        };
+    }
+
     /**
      * Creates seat holds for a specific flight instance.
-     * This is the core atomic operation for seat allocation.
      * 
      * @param flightInstanceId The flight instance ID
      * @param seatCount Number of seats to hold
@@ -40,41 +77,220 @@ public class SeatHoldService {
      * @throws RuntimeException if insufficient seats available
      */
     public List<SeatHold> createSeatHolds(Long flightInstanceId, int seatCount, String sessionId) {
-        log.info("Creating {} seat holds for flight {} with session {}", seatCount, flightInstanceId, sessionId);
+        return createSeatHolds(List.of(flightInstanceId), seatCount, sessionId);
+    }
+
+    /**
+     * Creates seat holds on every leg of a booking, all or nothing, in one transaction.
+     * This is the core atomic operation for seat allocation: seats are picked lock-free from this
+     * node's seat maps (a map with too few seats is checked against the inventory counters and
+     * rebuilt if they show more, e.g. after a cancellation on another node), then the legs are admitted against their inventory counters in flight order
+     * and the picked seats confirmed with one conditional write, which locks seat rows in id order,
+     * so concurrent bookings sharing legs cannot deadlock; with the on-conflict claim strategy the seat
+     * write takes no seat row locks and races on the unique hold index instead.
+     * 
+     * @param flightInstanceIds The flight instance IDs of the legs, in itinerary order
+     * @param seatCount Number of seats to hold on each leg
+     * @param sessionId Session identifier for the holds
+     * @return Created seat holds, in leg order and then seat number order
+     * @throws RuntimeException if any leg has insufficient seats available
+     */
+    public List<SeatHold> createSeatHolds(List<Long> flightInstanceIds, int seatCount, String sessionId) {
+        log.info("Creating {} seat holds on each of flights {} with session {}", seatCount, flightInstanceIds, sessionId);
         
-        // Verify flight instance exists
-        FlightInstance flightInstance = flightInstanceRepository.findById(flightInstanceId)
-                .orElseThrow(() -> new RuntimeException("Flight instance not found: " + flightInstanceId));
+        List<Long> legs = flightInstanceIds.stream().sorted().toList();
+        if (legs.stream().distinct().count() != legs.size()) {
+            throw new IllegalArgumentException("Flight instance repeated in booking: " + flightInstanceIds);
+        }
         
-        // Find and lock available seats (FOR UPDATE SKIP LOCKED)
-        List<Seat> availableSeats = seatRepository.findAndLockAvailableSeats(flightInstanceId, seatCount);
+        // Pick seats in memory, each leg within one cabin; they go back to the maps if this transaction does not commit
+        List<Long> seatIds = new ArrayList<>(legs.size() * seatCount);
+        List<String> cabins = new ArrayList<>(legs.size());
+        for (Long flightInstanceId : legs) {
+            SeatMap seatMap = seatInventory.get(flightInstanceId);
+            if (seatMap.size() == 0 && !flightInstanceRepository.existsById(flightInstanceId)) {
+                throw new RuntimeException("Flight instance not found: " + flightInstanceId);
+            }
+            String cabinClass = seatMap.cabinWithAvailable(seatCount);
+            if (cabinClass == null && flightInventoryService.findLargestCabinAvailability(flightInstanceId) >= seatCount) {
+                // Seats freed on another node never reach this node's map, but they do reach the counters: rebuild once
+                seatInventory.invalidate(flightInstanceId);
+                seatMap = seatInventory.get(flightInstanceId);
+                cabinClass = seatMap.cabinWithAvailable(seatCount);
+            }
+            int[] claimed = cabinClass != null ? seatMap.claim(cabinClass, seatCount) : null;
+            if (claimed == null) {
+                throw new RuntimeException(String.format("Insufficient seats available on flight %d. Requested: %d, Available: %d", 
+                        flightInstanceId, seatCount, seatMap.available(null)));
+            }
+            seatInventory.releaseOnRollback(seatMap, claimed);
+            Arrays.stream(seatMap.seatIds(claimed)).forEach(seatIds::add);
+            cabins.add(cabinClass);
+        }
         
-        // Validate we have enough seats
-        if (availableSeats.size() < seatCount) {
-            throw new RuntimeException(String.format("Insufficient seats available. Requested: %d, Available: %d", 
-                    seatCount, availableSeats.size()));
+        // Admit every leg against its inventory counters; a miss leaves the maps alone, the picks go back on rollback
+        for (int leg = 0; leg < legs.size(); leg++) {
+            if (flightInventoryService.admitHold(legs.get(leg), cabins.get(leg), seatCount, sessionId) == null) {
+                throw new RuntimeException(String.format("Insufficient seats available on flight %d. Requested: %d",
+                        legs.get(leg), seatCount));
+            }
         }
         
-        // Create seat holds
+        // Confirm the picked seats in Postgres with one conditional write
         OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(HOLD_DURATION_MINUTES);
-        List<SeatHold> seatHolds = availableSeats.stream()
-                .map(seat -> SeatHold.builder()
-                        .flightInstance(flightInstance)
-                        .seat(seat)
-                        .holderSessionId(sessionId)
-                        .expiresAt(expiresAt)
-                        .build())
-                .toList();
+        int inserted = claimOnConflict
+                ? insertHoldsOnConflict(seatIds, sessionId, expiresAt)
+                : seatHoldRepository.insertHoldsIfFree(seatIds, sessionId, expiresAt);
+        if (inserted < seatIds.size()) {
+            // Seats were taken outside this node's maps (another node, or a map older than the data)
+            legs.forEach(seatInventory::invalidate);
+            throw new RuntimeException(String.format("Seat availability changed on flights %s, please retry. Requested: %d, Held: %d",
+                    flightInstanceIds, seatIds.size(), inserted));
+        }
         
-        // Save all holds in a single transaction
-        List<SeatHold> savedHolds = seatHoldRepository.saveAll(seatHolds);
+        List<SeatHold> savedHolds = new ArrayList<>(seatHoldRepository.findActiveHoldsWithSeats(sessionId, OffsetDateTime.now()));
+        savedHolds.sort(Comparator.comparingInt(hold -> flightInstanceIds.indexOf(hold.getFlightInstance().getId())));
+        holdExpiryService.schedule(savedHolds);
         
-        log.info("Successfully created {} seat holds for session {} on flight {}", 
-                savedHolds.size(), sessionId, flightInstanceId);
+        log.info("Successfully created {} seat holds for session {} on flights {}", 
+                savedHolds.size(), sessionId, flightInstanceIds);
         
         return savedHolds;
     }
 
+    /**
+     * Creates seat holds for a group of sessions booking the same legs, in one transaction, so concurrent
+     * bookings of a hot flight share one admission, one seat write and one commit (group commit).
+     * Seats are picked per session in request order, all or nothing per session; a session the seat maps
+     * cannot serve is left out. The seat write locks seat rows in id order whatever the claim strategy.
+     * If Postgres disagrees with the maps, only the sessions that lost a seat are left out: their holds
+     * and admissions are taken back in the same transaction, and the rest of the group is held.
+     * 
+     * @param flightInstanceIds The flight instance IDs of the legs, in itinerary order
+     * @param requests Sessions and their seat counts per leg; session IDs must be distinct
+     * @return Created seat holds per request, in request order; null for a session that was left out
+     * @throws RuntimeException if the group could not be admitted against the inventory counters
+     */
+    public List<List<SeatHold>> createSeatHolds(List<Long> flightInstanceIds, List<HoldRequest> requests) {
+        log.info("Creating seat holds for {} sessions on flights {}", requests.size(), flightInstanceIds);
+        
+        List<Long> legs = flightInstanceIds.stream().sorted().toList();
+        if (legs.stream().distinct().count() != legs.size()) {
+            throw new IllegalArgumentException("Flight instance repeated in booking: " + flightInstanceIds);
+        }
+        if (requests.stream().map(HoldRequest::getSessionId).distinct().count() != requests.size()) {
+            throw new IllegalArgumentException("Session repeated in hold group");
+        }
+        List<SeatMap> seatMaps = legs.stream().map(seatInventory::get).toList();
+        if (seatMaps.stream().anyMatch(seatMap -> seatMap.size() == 0)) {
+            throw new RuntimeException("No seats on one of flights " + flightInstanceIds);
+        }
+        
+        // Pick seats in memory session by session; a session missing seats on any leg gives its picks back at once
+        Map<Long, Map<String, Integer>> seatsByLegCabin = new TreeMap<>();
+        List<String> seatSessions = new ArrayList<>();
+        List<String> servedSessions = new ArrayList<>();
+        Map<String, String[]> cabinsBySession = new HashMap<>();
+        for (HoldRequest request : requests) {
+            String[] cabins = new String[legs.size()];
+            int[][] claims = new int[legs.size()][];
+            int leg = 0;
+            for (; leg < legs.size(); leg++) {
+                SeatMap seatMap = seatMaps.get(leg);
+                cabins[leg] = seatMap.cabinWithAvailable(request.getSeatCount());
+                claims[leg] = cabins[leg] != null ? seatMap.claim(cabins[leg], request.getSeatCount()) : null;
+                if (claims[leg] == null) {
+                    break;
+                }
+            }
+            if (leg < legs.size()) {
+                for (int claimed = 0; claimed < leg; claimed++) {
+                    seatMaps.get(claimed).release(claims[claimed]);
+                }
+                continue;
+            }
+            for (leg = 0; leg < legs.size(); leg++) {
+                SeatMap seatMap = seatMaps.get(leg);
+                seatInventory.releaseOnRollback(seatMap, claims[leg]);
+                seatsByLegCabin.computeIfAbsent(legs.get(leg), flightInstanceId -> new TreeMap<>())
+                        .merge(cabins[leg], request.getSeatCount(), Integer::sum);
+                for (long seatId : seatMap.seatIds(claims[leg])) {
+                    seatSessions.add(seatId + ":" + request.getSessionId());
+                }
+            }
+            servedSessions.add(request.getSessionId());
+            cabinsBySession.put(request.getSessionId(), cabins);
+        }
+        
+        List<List<SeatHold>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        if (servedSessions.isEmpty()) {
+            return results;
+        }
+        
+        // Admit the group against the inventory counters in flight order, then confirm all picked seats with one conditional write
+        Map<Long, Map<String, Long>> admittedRows = new TreeMap<>();
+        for (Map.Entry<Long, Map<String, Integer>> leg : seatsByLegCabin.entrySet()) {
+            for (Map.Entry<String, Integer> cabin : leg.getValue().entrySet()) {
+                Long inventoryId = flightInventoryService.admitHold(leg.getKey(), cabin.getKey(), cabin.getValue(), servedSessions.get(0));
+                if (inventoryId == null) {
+                    throw new RuntimeException("Insufficient seats available for hold group on flights " + flightInstanceIds);
+                }
+                admittedRows.computeIfAbsent(leg.getKey(), flightInstanceId -> new HashMap<>()).put(cabin.getKey(), inventoryId);
+            }
+        }
+        OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(HOLD_DURATION_MINUTES);
+        Map<String, Long> heldBySession = seatHoldRepository.insertHoldsIfFreeForSessions(seatSessions, expiresAt).stream()
+                .collect(Collectors.groupingBy(row -> (String) row[1], Collectors.counting()));
+        List<HoldRequest> conflicting = requests.stream()
+                .filter(request -> cabinsBySession.containsKey(request.getSessionId()))
+                .filter(request -> heldBySession.getOrDefault(request.getSessionId(), 0L) < (long) request.getSeatCount() * legs.size())
+                .toList();
+        if (!conflicting.isEmpty()) {
+            // Seats were taken outside this node's maps (another node, or a map older than the data): leave out the
+            // sessions that lost one, on rows this transaction already locked, and hold the rest
+            legs.forEach(seatInventory::invalidate);
+            for (HoldRequest request : conflicting) {
+                seatHoldRepository.deleteHoldsBySession(request.getSessionId());
+                String[] cabins = cabinsBySession.get(request.getSessionId());
+                for (int leg = 0; leg < legs.size(); leg++) {
+                    flightInventoryService.releaseAdmission(admittedRows.get(legs.get(leg)).get(cabins[leg]), request.getSeatCount());
+                }
+                servedSessions.remove(request.getSessionId());
+            }
+            log.info("Left {} sessions out of hold group on flights {}: seat availability changed", conflicting.size(), flightInstanceIds);
+            if (servedSessions.isEmpty()) {
+                return results;
+            }
+        }
+        
+        List<SeatHold> savedHolds = seatHoldRepository.findActiveHoldsWithSeatsBySessions(servedSessions, OffsetDateTime.now());
+        holdExpiryService.schedule(savedHolds);
+        Map<String, List<SeatHold>> holdsBySession = savedHolds.stream()
+                .sorted(Comparator.comparingInt(hold -> flightInstanceIds.indexOf(hold.getFlightInstance().getId())))
+                .collect(Collectors.groupingBy(SeatHold::getHolderSessionId));
+        for (int i = 0; i < requests.size(); i++) {
+            results.set(i, holdsBySession.get(requests.get(i).getSessionId()));
+        }
+        
+        log.info("Successfully created {} seat holds for {} of {} sessions on flights {}", 
+                savedHolds.size(), servedSessions.size(), requests.size(), flightInstanceIds);
+        
+        return results;
+    }
+
+    /**
+     * Claims seats through the unique hold index instead of seat row locks. The insert checks seats
+     * against its statement snapshot, so a seat sold by a confirmation that committed while the insert
+     * waited on that seat's hold is caught by a second read; the whole claim then counts as failed.
+     */
+    private int insertHoldsOnConflict(List<Long> seatIds, String sessionId, OffsetDateTime expiresAt) {
+        int inserted = seatHoldRepository.insertHoldsOnConflict(seatIds, sessionId, expiresAt).size();
+        if (inserted == seatIds.size() && seatRepository.countSoldSeats(seatIds) > 0) {
+            return 0;
+        }
+        return inserted;
+    }
+
     /**
      * Finds all active seat holds for a session.
      */
@@ -83,58 +299,51 @@ public class SeatHoldService {
     }
 
     /**
-     * Confirms seat holds by marking seats as booked and deleting holds.
-     * This is called when payment is successful.
+     * Sells a session's active holds to a ticket: seats are marked booked, linked to the ticket and
+     * their holds deleted, all in one set-based statement whatever the number of seats.
+     * This is called when payment is successful, inside the ticket confirmation transaction.
+     *
+     * @return Seat numbers sold, by flight and seat number
+     * @throws IllegalArgumentException if the session has no active holds left
      */
-    @Transactional
-    public List<Seat> confirmSeatHolds(String sessionId) {
-        log.info("Confirming seat holds for session {}", sessionId);
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
+    public List<String> confirmSeatHolds(String sessionId, Long ticketId) {
+        log.info("Confirming seat holds for session {} on ticket {}", sessionId, ticketId);
         
-        List<SeatHold> seatHolds = findActiveHoldsBySession(sessionId);
+        List<Object[]> soldSeats = seatHoldRepository.sellActiveHoldsToTicket(sessionId, ticketId, OffsetDateTime.now());
         
-        if (seatHolds.isEmpty()) {
-            throw new RuntimeException("No active seat holds found for session: " + sessionId);
+        if (soldSeats.isEmpty()) {
+            throw new IllegalArgumentException("No active seat holds found for session: Payment will be refunded to account  " + sessionId);
         }
+        seatInventory.markSoldOnCommit(soldSeats);
         
-        // Mark seats as booked (unavailable)
-        List<Seat> seats = seatHolds.stream()
-                .map(SeatHold::getSeat)
-                .peek(seat -> seat.markAsUnavailable())
+        log.info("Successfully confirmed {} seat holds for session {}", soldSeats.size(), sessionId);
+        return soldSeats.stream()
+                .map(row -> (String) row[2])
                 .toList();
-        
-        // Delete seat holds (seats are now permanently booked)
-        seatHoldRepository.deleteAll(seatHolds);
-        
-        log.info("Successfully confirmed {} seat holds for session {}", seats.size(), sessionId);
-        return seats;
     }
 
     /**
      * Cancels seat holds by deleting them.
      * This is called when payment fails.
      */
-    @Transactional
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
     public void cancelSeatHolds(String sessionId) {
         log.info("Cancelling seat holds for session {}", sessionId);
         
-        int deletedCount = seatHoldRepository.deleteHoldsBySession(sessionId);
+        List<Object[]> freedSeats = seatHoldRepository.deleteHoldsBySessionReturningSeats(sessionId);
+        seatInventory.releaseOnCommit(freedSeats);
         
-        log.info("Successfully cancelled {} seat holds for session {}", deletedCount, sessionId);
+        log.info("Successfully cancelled {} seat holds for session {}", freedSeats.size(), sessionId);
     }
 
     /**
-     * Cleans up expired seat holds to prevent unique constraint violations.
-     * This method should be called before creating new seat holds.
+     * One session's share of a hold group.
      */
-
-
-    @Scheduled(fixedRate = 60000) // Every 1 minute
-    @Transactional
-    public void cleanupExpiredHolds() {
-        // for better performance , clean up with limits
-        int deletedCount = seatHoldRepository.deleteExpiredHolds(OffsetDateTime.now());
-        if (deletedCount > 0) {
-            log.info("Cleaned up {} expired seat holds", deletedCount);
-        }
+    @Getter
+    @AllArgsConstructor
+    public static class HoldRequest {
+        private final String sessionId;
+        private final int seatCount;
     }
 }
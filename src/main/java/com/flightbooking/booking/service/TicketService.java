@@ -1,5 +1,6 @@
 package com.flightbooking.booking.service;
 
+import com.flightbooking.booking.config.JpaConfig;
 import com.flightbooking.booking.entity.*;
 import com.flightbooking.booking.repository.*;
 import lombok.RequiredArgsConstructor;
@@ -21,6 +22,7 @@ public class TicketService {
 
     private final TicketRepository ticketRepository;
     private final TicketSeatRepository ticketSeatRepository;
+    private final SeatHoldService seatHoldService;
 
     /**
      * Creates a ticket and associated ticket-seat relationships in a single transaction.
@@ -35,7 +37,7 @@ public class TicketService {
      * Creates a ticket with IN_PROGRESS status during booking initiation.
      * No TicketSeat relationships are created yet - they will be created during payment confirmation.
      */
-    @Transactional
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
     public Ticket createTicketInProgress(List<FlightInstance> flightInstances, String paymentId, 
                                        String sessionId, int seatCount) {
         log.info("Creating 1 ticket with IN_PROGRESS status for payment ID {} across {} flights for session {}", 
@@ -63,32 +65,29 @@ public class TicketService {
     }
 
     /**
-     * Confirms an existing ticket and creates TicketSeat relationships.
-     * This is called during payment confirmation.
+     * Confirms an IN_PROGRESS ticket and sells the session's held seats to it, in one transaction:
+     * one write for the ticket and one set-based statement for the seats, whatever their number.
+     * This is called during payment confirmation; if the holds have expired nothing is changed.
+     * 
+     * @return Seat numbers booked on the ticket
+     * @throws IllegalArgumentException if the ticket is not awaiting payment or its holds are gone
      */
-    @Transactional
-    public Ticket confirmTicketWithSeats(Ticket ticket, List<SeatHold> seatHolds) {
-        log.info("Confirming ticket {} and creating {} seat relationships", 
-                ticket.getId(), seatHolds.size());
-        
-        // Update ticket status and user ID
-        ticket.setStatus(Ticket.TicketStatus.CONFIRMED);
-        Ticket savedTicket = ticketRepository.save(ticket);
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
+    public List<String> confirmTicketWithSeats(Ticket ticket) {
+        log.info("Confirming ticket {} with the seats held by session {}", ticket.getId(), ticket.getSessionId());
         
-        // Create ticket-seat relationships
-        List<TicketSeat> ticketSeats = seatHolds.stream()
-                .map(seatHold -> TicketSeat.builder()
-                        .ticket(savedTicket)
-                        .seat(seatHold.getSeat())
-                        .build())
-                .toList();
+        int updated = ticketRepository.updateStatusIf(ticket.getId(),
+                Ticket.TicketStatus.IN_PROGRESS, Ticket.TicketStatus.CONFIRMED);
+        if (updated == 0) {
+            throw new IllegalArgumentException("Ticket " + ticket.getId() + " is not awaiting payment");
+        }
         
-        ticketSeatRepository.saveAll(ticketSeats);
+        List<String> seatNumbers = seatHoldService.confirmSeatHolds(ticket.getSessionId(), ticket.getId());
+        ticket.setStatus(Ticket.TicketStatus.CONFIRMED);
         
-        log.info("Successfully confirmed ticket {} with {} seat relationships", 
-                savedTicket.getId(), ticketSeats.size());
+        log.info("Successfully confirmed ticket {} with {} seats", ticket.getId(), seatNumbers.size());
         
-        return savedTicket;
+        return seatNumbers;
     }
 
     /**
@@ -112,7 +111,7 @@ public class TicketService {
      * Confirms ticket after successful payment.
      * Updates ticket with user ID and confirmed status.
      */
-    @Transactional
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
     public Ticket confirmTicket(Ticket ticket, Long userId) {
         log.info("Confirming ticket {} for user {}", ticket.getId(), userId);
         
@@ -129,7 +128,7 @@ public class TicketService {
      * Cancels ticket after payment failure.
      * Updates ticket status and deletes ticket-seat relationships.
      */
-    @Transactional
+    @Transactional(transactionManager = JpaConfig.TRANSACTION_MANAGER)
     public void cancelTicket(Ticket ticket) {
         log.info("Cancelling ticket {} due to payment failure", ticket.getId());
         
@@ -1,5 +1,6 @@
 package com.flightbooking.common.exception;
 
+import com.flightbooking.search.util.SearchCursor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -44,6 +45,23 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(response);
     }
 
+    /**
+     * Handle cursors into partial search results that are no longer held.
+     */
+    @ExceptionHandler(SearchCursor.ExpiredException.class)
+    public ResponseEntity<Map<String, Object>> handleExpiredCursor(SearchCursor.ExpiredException ex) {
+        log.info("Expired search cursor: {}", ex.getMessage());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", OffsetDateTime.now());
+        response.put("status", HttpStatus.GONE.value());
+        response.put("error", "Cursor Expired");
+        response.put("message", ex.getMessage());
+        response.put("restart", true);
+
+        return ResponseEntity.status(HttpStatus.GONE).body(response);
+    }
+
     /**
      * Handle illegal argument exceptions.
      */
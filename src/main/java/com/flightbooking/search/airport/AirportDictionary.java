@@ -0,0 +1,221 @@
+package com.flightbooking.search.airport;
+
+import com.flightbooking.search.entity.Airport;
+import com.flightbooking.search.util.RouteDateKey;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable in-memory airport dictionary.
+ * Airports get dense ids 0..n-1 in code order, small enough to store as (unsigned) shorts in
+ * search data structures; code-to-id is a direct table lookup on the packed code
+ * (see {@link RouteDateKey#encodeAirport(String)}), no hashing.
+ * Autocomplete runs over a compressed trie of codes, cities and names (whole and per word);
+ * nearby-airport lookups run over a {@link GeoGrid} of the airports' coordinates.
+ */
+public final class AirportDictionary {
+
+    public static final int MAX_AIRPORTS = (1 << 16) - 1; // id + 1 must fit an unsigned short
+
+    // Match kinds, best first
+    private static final int CODE_RANK = 0;
+    private static final int CITY_RANK = 1;
+    private static final int NAME_RANK = 2;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+
+    private static final AirportDictionary EMPTY = build(List.of());
+
+    private final Airport[] airports;
+    private final short[] idsByCode; // Packed code -> id + 1; 0 = unknown
+    private final Map<String, int[]> idsByCity; // Normalized city -> ids
+    private final AirportTrie trie;
+    private final GeoGrid grid;
+    private final long fingerprint;
+
+    private AirportDictionary(Airport[] airports, short[] idsByCode, Map<String, int[]> idsByCity,
+                              AirportTrie trie, GeoGrid grid, long fingerprint) {
+        this.airports = airports;
+        this.idsByCode = idsByCode;
+        this.idsByCity = idsByCity;
+        this.trie = trie;
+        this.grid = grid;
+        this.fingerprint = fingerprint;
+    }
+
+    public static AirportDictionary empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build a dictionary; airports with codes that are not three uppercase letters are skipped.
+     */
+    public static AirportDictionary build(List<Airport> source) {
+        List<Airport> valid = new ArrayList<>();
+        for (Airport airport : source) {
+            if (isCode(airport.getCode())) {
+                valid.add(airport);
+            }
+        }
+        valid.sort(Comparator.comparing(Airport::getCode));
+        if (valid.size() > MAX_AIRPORTS) {
+            throw new IllegalArgumentException("Too many airports for short ids: " + valid.size());
+        }
+
+        Airport[] airports = valid.toArray(new Airport[0]);
+        short[] idsByCode = new short[1 << 15];
+        Map<String, int[]> idsByCity = new HashMap<>();
+        double[] latitudes = new double[airports.length];
+        double[] longitudes = new double[airports.length];
+        AirportTrie.Builder trie = AirportTrie.builder();
+        long fingerprint = 17;
+        for (int id = 0; id < airports.length; id++) {
+            Airport airport = airports[id];
+            idsByCode[RouteDateKey.encodeAirport(airport.getCode())] = (short) (id + 1);
+            String city = normalize(airport.getCity());
+            if (!city.isEmpty()) {
+                int[] cityIds = idsByCity.getOrDefault(city, new int[0]);
+                int[] withAirport = Arrays.copyOf(cityIds, cityIds.length + 1);
+                withAirport[cityIds.length] = id;
+                idsByCity.put(city, withAirport);
+            }
+            latitudes[id] = airport.getLatitude() != null ? airport.getLatitude().doubleValue() : Double.NaN;
+            longitudes[id] = airport.getLongitude() != null ? airport.getLongitude().doubleValue() : Double.NaN;
+            trie.add(normalize(airport.getCode()), id, CODE_RANK);
+            addWords(trie, airport.getCity(), id, CITY_RANK);
+            addWords(trie, airport.getName(), id, NAME_RANK);
+            fingerprint = 31 * fingerprint + Objects.hash(airport.getCode(), airport.getName(), airport.getCity(),
+                    airport.getCountry(), airport.getLatitude(), airport.getLongitude());
+        }
+        return new AirportDictionary(airports, idsByCode, idsByCity, trie.build(),
+                new GeoGrid(latitudes, longitudes), fingerprint);
+    }
+
+    /**
+     * Index the whole value (for multi-word prefixes such as "new yo") and each word on its own.
+     */
+    private static void addWords(AirportTrie.Builder trie, String value, int id, int rank) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        trie.add(normalized, id, rank);
+        for (String word : normalized.split(" ")) {
+            if (word.length() > 1) {
+                trie.add(word, id, rank);
+            }
+        }
+    }
+
+    /**
+     * Lowercase, strip accents and collapse punctuation and whitespace to single spaces.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    public int size() {
+        return airports.length;
+    }
+
+    /**
+     * Content hash used to skip rebuilding when a refresh finds nothing changed.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Dense id for an IATA code, or -1 if unknown.
+     */
+    public int idOf(String code) {
+        if (!isCode(code)) {
+            return -1;
+        }
+        return Short.toUnsignedInt(idsByCode[RouteDateKey.encodeAirport(code)]) - 1;
+    }
+
+    private static boolean isCode(String code) {
+        if (code == null || code.length() != 3) {
+            return false;
+        }
+        for (int i = 0; i < 3; i++) {
+            if (code.charAt(i) < 'A' || code.charAt(i) > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Airport get(int id) {
+        return airports[id];
+    }
+
+    public Airport get(String code) {
+        int id = idOf(code);
+        return id < 0 ? null : airports[id];
+    }
+
+    /**
+     * Resolve a place to airport ids: an IATA code (any case) or a city name, widened to every
+     * airport within radiusKm of those when radiusKm is positive. Ordered nearest first (the named
+     * airports themselves at distance zero), then by id; empty if the place is unknown.
+     */
+    public int[] resolvePlace(String place, double radiusKm) {
+        String trimmed = place == null ? "" : place.trim();
+        int codeId = idOf(trimmed.toUpperCase(Locale.ROOT));
+        int[] anchors = codeId >= 0 ? new int[]{codeId} : idsByCity.getOrDefault(normalize(trimmed), new int[0]);
+        if (anchors.length == 0 || radiusKm <= 0) {
+            return anchors.clone();
+        }
+
+        Map<Integer, Double> distances = new HashMap<>();
+        for (int anchor : anchors) {
+            for (int id : grid.within(anchor, radiusKm)) {
+                double distance = id == anchor ? 0 : grid.distanceKm(anchor, id);
+                distances.merge(id, distance, Math::min);
+            }
+        }
+        return distances.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    /**
+     * Airports within radiusKm of a point, in ascending id order.
+     */
+    public int[] nearby(double latitude, double longitude, double radiusKm) {
+        return grid.within(latitude, longitude, radiusKm);
+    }
+
+    /**
+     * Airports matching a free-text prefix: codes first, then cities, then names.
+     */
+    public List<Airport> autocomplete(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int[] ids = trie.complete(prefix, limit);
+        List<Airport> matches = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            matches.add(airports[id]);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,51 @@
+package com.flightbooking.search.airport;
+
+import com.flightbooking.search.repository.AirportRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds the current {@link AirportDictionary}: loaded from Neo4j once the application is ready,
+ * then reloaded periodically and swapped in only when the airport data actually changed.
+ * Until the first load completes the dictionary is empty.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AirportDictionaryService {
+
+    private final AirportRepository airportRepository;
+
+    private volatile AirportDictionary dictionary = AirportDictionary.empty();
+
+    public AirportDictionary getDictionary() {
+        return dictionary;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${flight-booking.search.airports.refresh-interval-ms:300000}",
+            initialDelayString = "${flight-booking.search.airports.refresh-interval-ms:300000}")
+    public synchronized void refresh() {
+        try {
+            long start = System.nanoTime();
+            AirportDictionary loaded = AirportDictionary.build(airportRepository.findAllAirports());
+            if (loaded.getFingerprint() == dictionary.getFingerprint() && loaded.size() == dictionary.size()) {
+                return;
+            }
+            dictionary = loaded;
+            log.info("Airport dictionary loaded: {} airports in {} ms",
+                    loaded.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Failed to refresh airport dictionary, keeping {} airports: {}",
+                    dictionary.size(), e.getMessage(), e);
+        }
+    }
+}
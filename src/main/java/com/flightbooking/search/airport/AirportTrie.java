@@ -0,0 +1,160 @@
+package com.flightbooking.search.airport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Immutable compressed (radix) trie from normalized search terms to airport ids.
+ * Every node keeps its best MAX_SUGGESTIONS airports, ranked by match kind and then id, so a
+ * completion is a walk down the query's characters plus an array copy, independent of how many
+ * airports share the prefix. Chains of single-child nodes with no term ending in them collapse
+ * into one edge; a query ending inside an edge completes from the node below it.
+ */
+public final class AirportTrie {
+
+    public static final int MAX_SUGGESTIONS = 20;
+
+    private final Node root;
+
+    private AirportTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Best airport ids for a normalized prefix, at most limit (capped at MAX_SUGGESTIONS).
+     */
+    public int[] complete(String prefix, int limit) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            Node child = node.child(prefix.charAt(position));
+            if (child == null) {
+                return new int[0];
+            }
+            char[] label = child.label;
+            int matched = 0;
+            while (matched < label.length && position < prefix.length()) {
+                if (label[matched] != prefix.charAt(position)) {
+                    return new int[0];
+                }
+                matched++;
+                position++;
+            }
+            node = child;
+        }
+        return Arrays.copyOf(node.ids, Math.min(node.ids.length, Math.max(0, limit)));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static final class Node {
+
+        private final char[] label; // Edge label leading into this node
+        private final char[] firsts; // First label char of each child, sorted
+        private final Node[] children;
+        private final int[] ids;
+
+        private Node(char[] label, char[] firsts, Node[] children, int[] ids) {
+            this.label = label;
+            this.firsts = firsts;
+            this.children = children;
+            this.ids = ids;
+        }
+
+        private Node child(char first) {
+            int index = Arrays.binarySearch(firsts, first);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    /**
+     * Mutable character trie used while loading; compressed on build.
+     * Lower ranks sort first; an airport is kept once per node, with its best rank.
+     */
+    public static final class Builder {
+
+        private final BuildNode root = new BuildNode();
+
+        private Builder() {
+        }
+
+        public Builder add(String term, int id, int rank) {
+            if (term.isEmpty()) {
+                return this;
+            }
+            BuildNode node = root;
+            node.offer(id, rank);
+            for (int i = 0; i < term.length(); i++) {
+                node = node.children.computeIfAbsent(term.charAt(i), c -> new BuildNode());
+                node.offer(id, rank);
+            }
+            node.terminal = true;
+            return this;
+        }
+
+        public AirportTrie build() {
+            return new AirportTrie(compress(new char[0], root));
+        }
+
+        private static Node compress(char[] label, BuildNode node) {
+            StringBuilder path = new StringBuilder().append(label);
+            // Collapse the chain below while nothing ends here and there is a single way down
+            while (!node.terminal && node.children.size() == 1 && path.length() > 0) {
+                var only = node.children.firstEntry();
+                path.append(only.getKey().charValue());
+                node = only.getValue();
+            }
+
+            char[] firsts = new char[node.children.size()];
+            Node[] children = new Node[node.children.size()];
+            int index = 0;
+            for (var child : node.children.entrySet()) {
+                firsts[index] = child.getKey();
+                children[index] = compress(new char[]{child.getKey()}, child.getValue());
+                index++;
+            }
+            return new Node(path.toString().toCharArray(), firsts, children, node.rankedIds());
+        }
+    }
+
+    private static final class BuildNode {
+
+        private final TreeMap<Character, BuildNode> children = new TreeMap<>();
+        private final List<long[]> top = new ArrayList<>(); // {rank, id}, best first
+        private boolean terminal;
+
+        private void offer(int id, int rank) {
+            for (int i = 0; i < top.size(); i++) {
+                if (top.get(i)[1] == id) {
+                    if (top.get(i)[0] <= rank) {
+                        return;
+                    }
+                    top.remove(i);
+                    break;
+                }
+            }
+            int position = 0;
+            while (position < top.size() && compare(top.get(position), rank, id) <= 0) {
+                position++;
+            }
+            if (position < MAX_SUGGESTIONS) {
+                top.add(position, new long[]{rank, id});
+                if (top.size() > MAX_SUGGESTIONS) {
+                    top.remove(top.size() - 1);
+                }
+            }
+        }
+
+        private static int compare(long[] entry, int rank, int id) {
+            return entry[0] != rank ? Long.compare(entry[0], rank) : Long.compare(entry[1], id);
+        }
+
+        private int[] rankedIds() {
+            return top.stream().mapToInt(entry -> (int) entry[1]).toArray();
+        }
+    }
+}
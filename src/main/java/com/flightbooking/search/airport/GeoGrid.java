@@ -0,0 +1,135 @@
+package com.flightbooking.search.airport;
+
+import java.util.Arrays;
+
+/**
+ * Immutable spatial grid over airport coordinates: one-degree latitude/longitude cells, stored as
+ * sorted cell keys with offsets into an id array (no per-cell objects). A radius query visits only
+ * the cells overlapping the circle's bounding box, wrapping across the antimeridian, and then
+ * filters by great-circle distance.
+ */
+public final class GeoGrid {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final int LAT_CELLS = 180;
+    private static final int LON_CELLS = 360;
+
+    private final double[] latitudes; // By airport id; NaN when unknown
+    private final double[] longitudes;
+    private final int[] cellKeys; // Sorted, distinct
+    private final int[] cellStarts; // Offsets into ids; cellStarts[i + 1] ends cell i
+    private final int[] ids; // Airport ids grouped by cell
+
+    /**
+     * Index the airports with known coordinates; NaN entries are left out of the grid.
+     */
+    public GeoGrid(double[] latitudes, double[] longitudes) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+
+        long[] entries = new long[latitudes.length]; // cell key << 32 | id, sorts by cell then id
+        int count = 0;
+        for (int id = 0; id < latitudes.length; id++) {
+            if (!Double.isNaN(latitudes[id]) && !Double.isNaN(longitudes[id])) {
+                entries[count++] = (long) cellKey(latitudes[id], longitudes[id]) << 32 | id;
+            }
+        }
+        Arrays.sort(entries, 0, count);
+
+        int[] keys = new int[count];
+        int[] starts = new int[count + 1];
+        this.ids = new int[count];
+        int cells = 0;
+        for (int i = 0; i < count; i++) {
+            int key = (int) (entries[i] >>> 32);
+            if (cells == 0 || keys[cells - 1] != key) {
+                keys[cells] = key;
+                starts[cells] = i;
+                cells++;
+            }
+            ids[i] = (int) entries[i];
+        }
+        starts[cells] = count;
+        this.cellKeys = Arrays.copyOf(keys, cells);
+        this.cellStarts = Arrays.copyOf(starts, cells + 1);
+    }
+
+    public boolean hasLocation(int id) {
+        return !Double.isNaN(latitudes[id]) && !Double.isNaN(longitudes[id]);
+    }
+
+    /**
+     * Great-circle (haversine) distance between two airports in km; NaN if either has no location.
+     */
+    public double distanceKm(int a, int b) {
+        return distanceKm(latitudes[a], longitudes[a], latitudes[b], longitudes[b]);
+    }
+
+    /**
+     * Airports within radiusKm of an airport, including itself, in ascending id order.
+     */
+    public int[] within(int id, double radiusKm) {
+        return hasLocation(id) ? within(latitudes[id], longitudes[id], radiusKm) : new int[]{id};
+    }
+
+    /**
+     * Airports within radiusKm of a point, in ascending id order.
+     */
+    public int[] within(double latitude, double longitude, double radiusKm) {
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double minLat = Math.max(-90, latitude - latSpan);
+        double maxLat = Math.min(90, latitude + latSpan);
+
+        // Longitude degrees shrink towards the poles; near a pole every longitude is in range
+        double widestLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        double lonSpan = widestLat >= 90 ? 180 : latSpan / Math.cos(Math.toRadians(widestLat));
+        int firstLonCell = lonCell(longitude - lonSpan);
+        int lonCells = lonSpan >= 180 ? LON_CELLS
+                : Math.min(LON_CELLS, (int) Math.floor(longitude + lonSpan + 180) - (int) Math.floor(longitude - lonSpan + 180) + 1);
+
+        int[] found = new int[8];
+        int count = 0;
+        for (int latCell = latCell(minLat); latCell <= latCell(maxLat); latCell++) {
+            for (int step = 0; step < lonCells; step++) {
+                int cell = Arrays.binarySearch(cellKeys, latCell * LON_CELLS + (firstLonCell + step) % LON_CELLS);
+                if (cell < 0) {
+                    continue;
+                }
+                for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+                    int id = ids[i];
+                    if (distanceKm(latitude, longitude, latitudes[id], longitudes[id]) <= radiusKm) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, count * 2);
+                        }
+                        found[count++] = id;
+                    }
+                }
+            }
+        }
+        int[] result = Arrays.copyOf(found, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    private static int cellKey(double latitude, double longitude) {
+        return latCell(latitude) * LON_CELLS + lonCell(longitude);
+    }
+
+    private static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, Math.max(0, (int) Math.floor(latitude + 90)));
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor(longitude + 180), LON_CELLS);
+    }
+}
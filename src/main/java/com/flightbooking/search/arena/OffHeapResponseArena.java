@@ -0,0 +1,468 @@
+package com.flightbooking.search.arena;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Off-heap store of serialized responses keyed by bytes, with slab allocation and clock eviction.
+ *
+ * Memory is carved into fixed-size direct slabs, handed out lazily to power-of-two size classes
+ * (min-chunk up to the slab size) and cut into equal chunks. An entry occupies one chunk:
+ *
+ *   key hash (8) | created at millis (8) | key length (4) | payload length (4) | key | payload
+ *
+ * The key index is an open-addressing table of primitive arrays sized for the maximum chunk count,
+ * so the heap footprint is fixed up front and does not grow with the number of entries.
+ * Once the slab pool is exhausted, a size class reuses its own chunks: a clock hand gives
+ * recently read entries a second chance and evicts the rest (expired entries first).
+ *
+ * Readers get a pinned {@link Lease} over the payload; pinned chunks are never evicted or reused
+ * until the lease is closed. All bookkeeping is under one lock; payload reads happen outside it.
+ */
+public final class OffHeapResponseArena {
+
+    private static final int HEADER_BYTES = 24;
+    private static final int MAX_CHUNKS_PER_SLAB = 1 << 16;
+    private static final int MAX_SLABS = 1 << 15;
+
+    private static final byte FREE = 0;
+    private static final byte LIVE = 1;
+    private static final byte RETIRED = 2; // Replaced or evicted while pinned; freed on last release
+
+    private final int slabSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final ByteBuffer[] slabs;
+    private final byte[][] states;
+    private final boolean[][] referenced;
+    private final int[][] pins;
+    private final SizeClass[] classes;
+    private int assignedSlabs;
+
+    private final long[] indexHashes; // 0 = empty slot
+    private final int[] indexChunks;
+    private final int indexMask;
+
+    private int entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    public OffHeapResponseArena(long capacityBytes, int slabSize, int minChunkSize, long ttlMillis) {
+        this(capacityBytes, slabSize, minChunkSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    OffHeapResponseArena(long capacityBytes, int slabSize, int minChunkSize, long ttlMillis, LongSupplier clock) {
+        if (Integer.bitCount(slabSize) != 1 || Integer.bitCount(minChunkSize) != 1
+                || minChunkSize <= HEADER_BYTES || minChunkSize > slabSize
+                || slabSize / minChunkSize > MAX_CHUNKS_PER_SLAB) {
+            throw new IllegalArgumentException("Slab size and min chunk size must be powers of two with at most "
+                    + MAX_CHUNKS_PER_SLAB + " chunks per slab");
+        }
+        int slabCount = (int) Math.min(MAX_SLABS, Math.max(1, capacityBytes / slabSize));
+        this.slabSize = slabSize;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.slabs = new ByteBuffer[slabCount];
+        this.states = new byte[slabCount][];
+        this.referenced = new boolean[slabCount][];
+        this.pins = new int[slabCount][];
+
+        int classCount = Integer.numberOfTrailingZeros(slabSize) - Integer.numberOfTrailingZeros(minChunkSize) + 1;
+        this.classes = new SizeClass[classCount];
+        for (int i = 0; i < classCount; i++) {
+            classes[i] = new SizeClass(minChunkSize << i, slabSize / (minChunkSize << i));
+        }
+
+        // At most one entry per smallest chunk; keep the table at most half full
+        long maxEntries = (long) slabCount * (slabSize / minChunkSize);
+        int tableSize = Integer.highestOneBit((int) Math.min(1 << 29, maxEntries * 2 - 1)) << 1;
+        this.indexHashes = new long[tableSize];
+        this.indexChunks = new int[tableSize];
+        this.indexMask = tableSize - 1;
+    }
+
+    /**
+     * Pinned view of one cached payload. Must be closed once the payload has been consumed.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final int chunk;
+        private final ByteBuffer payload;
+        private boolean closed;
+
+        private Lease(int chunk, ByteBuffer payload) {
+            this.chunk = chunk;
+            this.payload = payload;
+        }
+
+        /**
+         * Read-only buffer positioned over the payload.
+         */
+        public ByteBuffer getPayload() {
+            return payload;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(chunk);
+            }
+        }
+    }
+
+    /**
+     * Cache a payload under a key, replacing any previous entry.
+     *
+     * @return false if the entry does not fit a chunk or no chunk could be freed for it
+     */
+    public boolean put(String key, byte[] payload) {
+        return put(ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8)), payload);
+    }
+
+    /**
+     * Cache a payload under the remaining bytes of a key buffer, replacing any previous entry.
+     * The key is copied into the chunk; the buffer's position is left unchanged.
+     *
+     * @return false if the entry does not fit a chunk or no chunk could be freed for it
+     */
+    public boolean put(ByteBuffer key, byte[] payload) {
+        int keyLength = key.remaining();
+        int size = HEADER_BYTES + keyLength + payload.length;
+        int sizeClass = sizeClassFor(size);
+
+        synchronized (this) {
+            long now = clock.getAsLong();
+            int chunk = sizeClass < 0 ? -1 : allocate(classes[sizeClass], now);
+            if (chunk < 0) {
+                rejections++;
+                return false;
+            }
+            long hash = hash(key);
+            ByteBuffer slab = slabs[slabOf(chunk)];
+            int offset = offsetOf(chunk);
+            slab.putLong(offset, hash);
+            slab.putLong(offset + 8, now);
+            slab.putInt(offset + 16, keyLength);
+            slab.putInt(offset + 20, payload.length);
+            slab.put(offset + HEADER_BYTES, key, key.position(), keyLength);
+            slab.put(offset + HEADER_BYTES + keyLength, payload);
+            states[slabOf(chunk)][chunkOf(chunk)] = LIVE;
+            referenced[slabOf(chunk)][chunkOf(chunk)] = false;
+
+            int slot = find(hash);
+            if (slot >= 0) {
+                retire(indexChunks[slot]);
+                indexChunks[slot] = chunk;
+            } else {
+                insert(hash, chunk);
+                entries++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Pin and return the live entry for a key, or null on a miss (absent, expired or hash collision).
+     */
+    public Lease get(String key) {
+        return get(ByteBuffer.wrap(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Pin and return the live entry for the remaining bytes of a key buffer, or null on a miss.
+     * The buffer's position is left unchanged.
+     */
+    public synchronized Lease get(ByteBuffer key) {
+        int slot = find(hash(key));
+        if (slot < 0) {
+            misses++;
+            return null;
+        }
+        int chunk = indexChunks[slot];
+        ByteBuffer slab = slabs[slabOf(chunk)];
+        int offset = offsetOf(chunk);
+        if (!keyMatches(slab, offset, key)) {
+            misses++;
+            return null;
+        }
+        if (isExpired(slab, offset, clock.getAsLong())) {
+            removeSlot(slot);
+            retire(chunk);
+            entries--;
+            misses++;
+            return null;
+        }
+
+        pins[slabOf(chunk)][chunkOf(chunk)]++;
+        referenced[slabOf(chunk)][chunkOf(chunk)] = true;
+        hits++;
+        int payloadStart = offset + HEADER_BYTES + key.remaining();
+        ByteBuffer payload = slab.asReadOnlyBuffer();
+        payload.limit(payloadStart + slab.getInt(offset + 20)).position(payloadStart);
+        return new Lease(chunk, payload.slice());
+    }
+
+    /**
+     * Drop every entry. Pinned chunks are freed when their leases close.
+     */
+    public synchronized void clear() {
+        for (SizeClass sizeClass : classes) {
+            for (int i = 0; i < sizeClass.slabCount; i++) {
+                int slab = sizeClass.slabs[i];
+                for (int chunk = 0; chunk < sizeClass.chunksPerSlab; chunk++) {
+                    if (states[slab][chunk] == LIVE) {
+                        retire(pack(slab, chunk));
+                    }
+                }
+            }
+        }
+        Arrays.fill(indexHashes, 0);
+        entries = 0;
+    }
+
+    public synchronized int getEntries() {
+        return entries;
+    }
+
+    public synchronized long getAllocatedBytes() {
+        return (long) assignedSlabs * slabSize;
+    }
+
+    public long getCapacityBytes() {
+        return (long) slabs.length * slabSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    private int sizeClassFor(int size) {
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i].chunkSize >= size) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Take a chunk for the size class: a free one, a fresh slab from the pool, or an evicted one.
+     */
+    private int allocate(SizeClass sizeClass, long now) {
+        if (sizeClass.freeCount > 0) {
+            return sizeClass.free[--sizeClass.freeCount];
+        }
+        if (assignedSlabs < slabs.length) {
+            int slab = assignedSlabs++;
+            slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+            states[slab] = new byte[sizeClass.chunksPerSlab];
+            referenced[slab] = new boolean[sizeClass.chunksPerSlab];
+            pins[slab] = new int[sizeClass.chunksPerSlab];
+            sizeClass.addSlab(slab);
+            for (int chunk = sizeClass.chunksPerSlab - 1; chunk > 0; chunk--) {
+                sizeClass.pushFree(pack(slab, chunk));
+            }
+            return pack(slab, 0);
+        }
+        return evict(sizeClass, now);
+    }
+
+    /**
+     * Clock sweep over the size class: referenced entries get a second chance, pinned ones are skipped.
+     */
+    private int evict(SizeClass sizeClass, long now) {
+        long chunks = (long) sizeClass.slabCount * sizeClass.chunksPerSlab;
+        for (long step = 0; step < 2 * chunks; step++) {
+            int slab = sizeClass.slabs[sizeClass.handSlab];
+            int chunk = sizeClass.handChunk;
+            if (++sizeClass.handChunk == sizeClass.chunksPerSlab) {
+                sizeClass.handChunk = 0;
+                sizeClass.handSlab = (sizeClass.handSlab + 1) % sizeClass.slabCount;
+            }
+            if (states[slab][chunk] != LIVE || pins[slab][chunk] > 0) {
+                continue;
+            }
+            if (referenced[slab][chunk] && !isExpired(slabs[slab], chunk * sizeClass.chunkSize, now)) {
+                referenced[slab][chunk] = false;
+                continue;
+            }
+            int victim = pack(slab, chunk);
+            int slot = find(slabs[slab].getLong(chunk * sizeClass.chunkSize));
+            if (slot >= 0 && indexChunks[slot] == victim) {
+                removeSlot(slot);
+                entries--;
+            }
+            states[slab][chunk] = FREE;
+            evictions++;
+            return victim;
+        }
+        return -1;
+    }
+
+    private synchronized void release(int chunk) {
+        int slab = slabOf(chunk);
+        if (--pins[slab][chunkOf(chunk)] == 0 && states[slab][chunkOf(chunk)] == RETIRED) {
+            free(chunk);
+        }
+    }
+
+    /**
+     * Unindexed chunk: free now, or once its last lease is closed.
+     */
+    private void retire(int chunk) {
+        if (pins[slabOf(chunk)][chunkOf(chunk)] > 0) {
+            states[slabOf(chunk)][chunkOf(chunk)] = RETIRED;
+        } else {
+            free(chunk);
+        }
+    }
+
+    private void free(int chunk) {
+        states[slabOf(chunk)][chunkOf(chunk)] = FREE;
+        classOfSlab(slabOf(chunk)).pushFree(chunk);
+    }
+
+    private SizeClass classOfSlab(int slab) {
+        int chunkSize = slabSize / states[slab].length;
+        return classes[Integer.numberOfTrailingZeros(chunkSize) - Integer.numberOfTrailingZeros(classes[0].chunkSize)];
+    }
+
+    private boolean isExpired(ByteBuffer slab, int offset, long now) {
+        return now - slab.getLong(offset + 8) > ttlMillis;
+    }
+
+    private boolean keyMatches(ByteBuffer slab, int offset, ByteBuffer key) {
+        int keyLength = key.remaining();
+        if (slab.getInt(offset + 16) != keyLength) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            if (slab.get(offset + HEADER_BYTES + i) != key.get(key.position() + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int offsetOf(int chunk) {
+        return chunkOf(chunk) * (slabSize / states[slabOf(chunk)].length);
+    }
+
+    private static int pack(int slab, int chunk) {
+        return slab << 16 | chunk;
+    }
+
+    private static int slabOf(int chunk) {
+        return chunk >>> 16;
+    }
+
+    private static int chunkOf(int chunk) {
+        return chunk & 0xFFFF;
+    }
+
+    // Index: linear probing with backward-shift deletion, so there are no tombstones
+
+    private int home(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & indexMask;
+    }
+
+    private int find(long hash) {
+        for (int slot = home(hash); indexHashes[slot] != 0; slot = (slot + 1) & indexMask) {
+            if (indexHashes[slot] == hash) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long hash, int chunk) {
+        int slot = home(hash);
+        while (indexHashes[slot] != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        indexHashes[slot] = hash;
+        indexChunks[slot] = chunk;
+    }
+
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & indexMask;
+            if (indexHashes[next] == 0) {
+                break;
+            }
+            int home = home(indexHashes[next]);
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!stays) {
+                indexHashes[hole] = indexHashes[next];
+                indexChunks[hole] = indexChunks[next];
+                hole = next;
+            }
+        }
+        indexHashes[hole] = 0;
+    }
+
+    /**
+     * 64-bit FNV-1a with a murmur3 finalizer; never 0, which marks empty index slots.
+     */
+    static long hash(ByteBuffer key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = key.position(); i < key.limit(); i++) {
+            hash = (hash ^ (key.get(i) & 0xFF)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static final class SizeClass {
+
+        private final int chunkSize;
+        private final int chunksPerSlab;
+        private int[] slabs = new int[4];
+        private int slabCount;
+        private int[] free = new int[0];
+        private int freeCount;
+        private int handSlab;
+        private int handChunk;
+
+        private SizeClass(int chunkSize, int chunksPerSlab) {
+            this.chunkSize = chunkSize;
+            this.chunksPerSlab = chunksPerSlab;
+        }
+
+        private void addSlab(int slab) {
+            if (slabCount == slabs.length) {
+                slabs = Arrays.copyOf(slabs, slabCount * 2);
+            }
+            slabs[slabCount++] = slab;
+            free = Arrays.copyOf(free, slabCount * chunksPerSlab);
+        }
+
+        private void pushFree(int chunk) {
+            free[freeCount++] = chunk;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.flightbooking.search.arena;
+
+import com.flightbooking.search.dto.SearchRequest;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of serialized search responses held in an {@link OffHeapResponseArena}.
+ * Keyed by the full request (route, date, passengers, filters, cursor, limit, engine), so every
+ * page of every filter combination is cached separately. The key is a fixed binary layout written
+ * into a per-thread buffer, so a lookup neither builds nor encodes a string:
+ *
+ *   route/date/passenger key (8) | min price (8) | max price (8) | max stops (4) | limit (4)
+ *   | depart after, depart before, arrive after, arrive before (4 x 4, second of day)
+ *   | engine length (1) | cursor length (2) | engine chars | cursor chars (2 each)
+ *
+ * Absent numeric filters are written as -1. Cached bytes are copied from the arena straight into
+ * the servlet output buffer without building a response object on the heap.
+ */
+@Component
+@Slf4j
+public class SearchResponseCache {
+
+    private static final int COPY_BUFFER_BYTES = 8192;
+    private static final ThreadLocal<byte[]> COPY_BUFFER = ThreadLocal.withInitial(() -> new byte[COPY_BUFFER_BYTES]);
+    private static final int FIXED_KEY_BYTES = 3 * Long.BYTES + 6 * Integer.BYTES + 3;
+    private static final int MAX_KEY_CHARS = 256; // Engine plus cursor; longer requests are not cached
+    private static final ThreadLocal<ByteBuffer> KEY_BUFFER =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(FIXED_KEY_BYTES + 2 * MAX_KEY_CHARS));
+
+    private final boolean enabled;
+    private final OffHeapResponseArena arena;
+
+    public SearchResponseCache(
+            MeterRegistry meterRegistry,
+            @Value("${flight-booking.search.response-arena.enabled:true}") boolean enabled,
+            @Value("${flight-booking.search.response-arena.capacity-mb:256}") long capacityMb,
+            @Value("${flight-booking.search.response-arena.slab-kb:1024}") int slabKb,
+            @Value("${flight-booking.search.response-arena.min-chunk-bytes:1024}") int minChunkBytes,
+            @Value("${flight-booking.search.response-arena.ttl-seconds:30}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.arena = enabled
+                ? new OffHeapResponseArena(capacityMb << 20, slabKb << 10, minChunkBytes, TimeUnit.SECONDS.toMillis(ttlSeconds))
+                : null;
+        if (enabled) {
+            registerMetrics(meterRegistry);
+            log.info("Search response arena: {} MB off-heap in {} KB slabs, ttl {} s",
+                    capacityMb, slabKb, ttlSeconds);
+        }
+    }
+
+    /**
+     * Write the cached response for a request, if there is one.
+     *
+     * @return true if the response was written; false on a miss (nothing written)
+     */
+    public boolean writeCached(SearchRequest searchRequest, HttpServletResponse response) throws IOException {
+        if (!enabled) {
+            return false;
+        }
+        ByteBuffer key = key(searchRequest);
+        if (key == null) {
+            return false;
+        }
+        try (OffHeapResponseArena.Lease lease = arena.get(key)) {
+            if (lease == null) {
+                return false;
+            }
+            write(response, lease.getPayload());
+            return true;
+        }
+    }
+
+    /**
+     * Cache a serialized (complete) response and write it.
+     */
+    public void putAndWrite(SearchRequest searchRequest, byte[] body, HttpServletResponse response) throws IOException {
+        ByteBuffer key = enabled ? key(searchRequest) : null;
+        if (key != null) {
+            arena.put(key, body);
+        }
+        write(response, ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Drop every cached response, e.g. after the itinerary cache was rebuilt.
+     */
+    public void clear() {
+        if (enabled) {
+            arena.clear();
+        }
+    }
+
+    /**
+     * Write the request key into this thread's key buffer; a new request field must be added here.
+     *
+     * @return the flipped buffer, valid until the next call on this thread; null if the key is too long
+     */
+    private ByteBuffer key(SearchRequest searchRequest) {
+        String engine = searchRequest.getEngine() != null ? searchRequest.getEngine() : "";
+        String cursor = searchRequest.getCursor() != null ? searchRequest.getCursor() : "";
+        if (engine.length() + cursor.length() > MAX_KEY_CHARS) {
+            return null;
+        }
+        ByteBuffer key = KEY_BUFFER.get().clear();
+        key.putLong(searchRequest.getSearchKey())
+                .putLong(orAbsent(searchRequest.getMinPrice()))
+                .putLong(orAbsent(searchRequest.getMaxPrice()))
+                .putInt(orAbsent(searchRequest.getMaxStops()))
+                .putInt(orAbsent(searchRequest.getLimit()))
+                .putInt(secondOfDay(searchRequest.getDepartAfter()))
+                .putInt(secondOfDay(searchRequest.getDepartBefore()))
+                .putInt(secondOfDay(searchRequest.getArriveAfter()))
+                .putInt(secondOfDay(searchRequest.getArriveBefore()))
+                .put((byte) engine.length())
+                .putShort((short) cursor.length());
+        for (int i = 0; i < engine.length(); i++) {
+            key.putChar(engine.charAt(i));
+        }
+        for (int i = 0; i < cursor.length(); i++) {
+            key.putChar(cursor.charAt(i));
+        }
+        return key.flip();
+    }
+
+    private static long orAbsent(Long value) {
+        return value != null ? value : -1;
+    }
+
+    private static int orAbsent(Integer value) {
+        return value != null ? value : -1;
+    }
+
+    private static int secondOfDay(LocalTime time) {
+        return time != null ? time.toSecondOfDay() : -1;
+    }
+
+    private void write(HttpServletResponse response, ByteBuffer body) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.remaining());
+        ServletOutputStream out = response.getOutputStream();
+        if (out instanceof CoyoteOutputStream coyote) {
+            // Tomcat copies from the (direct) buffer into its socket buffer without a heap array
+            coyote.write(body);
+        } else {
+            byte[] buffer = COPY_BUFFER.get();
+            while (body.hasRemaining()) {
+                int length = Math.min(buffer.length, body.remaining());
+                body.get(buffer, 0, length);
+                out.write(buffer, 0, length);
+            }
+        }
+        out.flush();
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("search.response.arena.entries", arena, OffHeapResponseArena::getEntries)
+                .description("Responses cached off-heap")
+                .register(meterRegistry);
+        Gauge.builder("search.response.arena.bytes", arena, OffHeapResponseArena::getAllocatedBytes)
+                .description("Off-heap bytes allocated to response slabs")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.response.arena.requests", arena, OffHeapResponseArena::getHits)
+                .description("Response cache lookups by result")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.response.arena.requests", arena, OffHeapResponseArena::getMisses)
+                .description("Response cache lookups by result")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.response.arena.evictions", arena, OffHeapResponseArena::getEvictions)
+                .description("Responses evicted by the clock hand")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.response.arena.rejections", arena, OffHeapResponseArena::getRejections)
+                .description("Responses too large to cache or with no evictable chunk")
+                .register(meterRegistry);
+    }
+}
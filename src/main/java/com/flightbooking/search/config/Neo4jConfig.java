@@ -3,17 +3,20 @@ package com.flightbooking.search.config;
 import org.neo4j.driver.Driver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.neo4j.core.DatabaseSelectionProvider;
 import org.springframework.data.neo4j.core.transaction.Neo4jTransactionManager;
 import org.springframework.transaction.PlatformTransactionManager;
 
 /**
  * Neo4j configuration for transaction management.
+ * This is the default transaction manager; the booking side uses its own JPA one.
  */
 @Configuration
 public class Neo4jConfig {
 
     @Bean
+    @Primary
     public PlatformTransactionManager transactionManager(Driver driver, DatabaseSelectionProvider databaseSelectionProvider) {
         return new Neo4jTransactionManager(driver, databaseSelectionProvider);
     }
@@ -32,6 +32,22 @@ public class Neo4jIndexConfig {
     -- Price sorting optimization
     CREATE INDEX itinerary_price ON (it:Itinerary) FOR (it.total_price);
     
+    -- Packed route key lookup (RouteDateKey: source, destination, date as a single long)
+    CREATE INDEX itinerary_route_key ON (it:Itinerary) FOR (it.route_key);
+    CREATE INDEX itinerary_route_seats ON (it:Itinerary) FOR (it.route_key, it.minAvailableSeats);
+    
+    -- Cache generations: reads filter on the generation named by the active pointer,
+    -- rebuild garbage collection deletes by generation
+    CREATE INDEX itinerary_generation ON (it:Itinerary) FOR (it.generation);
+    CREATE INDEX itinerary_generation_route_seats ON (it:Itinerary) FOR (it.generation, it.route_key, it.minAvailableSeats);
+    
+    -- One itinerary per flight legs within a generation; duplicate cache writes fail and are skipped
+    CREATE CONSTRAINT itinerary_generation_legs_unique ON (it:Itinerary) ASSERT (it.generation, it.flightLegsHash) IS UNIQUE;
+    
+    -- TTL purge of past-date itineraries (GraphPurgeService)
+    CREATE INDEX itinerary_departure_date ON (it:Itinerary) FOR (it.departure_date);
+    CREATE CONSTRAINT itinerary_cache_pointer_name_unique ON (p:ItineraryCachePointer) ASSERT p.name IS UNIQUE;
+    
     // ============================================================================
     // FLIGHTINSTANCE INDEXES (For runtime generation - Fallback 10%)
     // ============================================================================
@@ -56,6 +72,9 @@ public class Neo4jIndexConfig {
     CREATE INDEX flight_departure_time ON (f:FlightInstance) FOR (f.departure_time);
     CREATE INDEX flight_arrival_time ON (f:FlightInstance) FOR (f.arrival_time);
     
+    -- TTL purge of past-date flights (GraphPurgeService); nodes store the camelCase property
+    CREATE INDEX flight_departure_time_purge ON (f:FlightInstance) FOR (f.departureTime);
+    
     // ============================================================================
     // AIRPORT INDEXES (For reference data)
     // ============================================================================
@@ -67,7 +86,7 @@ public class Neo4jIndexConfig {
     // ============================================================================
     // PERFORMANCE NOTES:
     // ============================================================================
-    // 1. itinerary_search_seats is the MOST CRITICAL index - used in primary search path
+    // 1. itinerary_generation_route_seats is the MOST CRITICAL index - used in primary search path
     // 2. flight_source_dest_status optimizes direct flight searches
     // 3. Two-stop generation (findAll()) is a performance bottleneck - needs optimization
     // 4. Consider adding relationship indexes if we implement proper graph traversal
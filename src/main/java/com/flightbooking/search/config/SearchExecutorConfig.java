@@ -0,0 +1,57 @@
+package com.flightbooking.search.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor configuration for concurrent search stages.
+ * Bounded so a burst of cache misses cannot spawn unbounded graph queries.
+ */
+@Configuration
+public class SearchExecutorConfig {
+
+    @Bean(name = "searchExecutor")
+    public ThreadPoolTaskExecutor searchExecutor(
+            @Value("${flight-booking.search.executor.core-size:16}") int coreSize,
+            @Value("${flight-booking.search.executor.max-size:32}") int maxSize,
+            @Value("${flight-booking.search.executor.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-stage-");
+        return executor;
+    }
+
+    /**
+     * Small, separate pool for shadow searches. Saturation rejects (drops) samples
+     * instead of queueing behind or slowing down user-facing search stages.
+     */
+    @Bean(name = "shadowSearchExecutor")
+    public ThreadPoolTaskExecutor shadowSearchExecutor(
+            @Value("${flight-booking.search.shadow.executor.core-size:2}") int coreSize,
+            @Value("${flight-booking.search.shadow.executor.max-size:4}") int maxSize,
+            @Value("${flight-booking.search.shadow.executor.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("search-shadow-");
+        return executor;
+    }
+
+    /**
+     * Single background thread for itinerary cache rebuilds; generation itself runs on searchExecutor.
+     */
+    @Bean(name = "itineraryRebuildExecutor")
+    public ThreadPoolTaskExecutor itineraryRebuildExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.setThreadNamePrefix("itinerary-rebuild-");
+        return executor;
+    }
+}
@@ -0,0 +1,40 @@
+package com.flightbooking.search.controller;
+
+import com.flightbooking.search.airport.AirportDictionaryService;
+import com.flightbooking.search.airport.AirportTrie;
+import com.flightbooking.search.dto.AirportSuggestion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * REST controller for airport lookups.
+ * Served entirely from the in-memory airport dictionary; never queries Neo4j.
+ */
+@RestController
+@RequestMapping("/v1/search/airports")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*") // Configure appropriately for production
+public class AirportController {
+
+    private final AirportDictionaryService airportDictionaryService;
+
+    /**
+     * Autocomplete airports by code, city or name prefix.
+     *
+     * @param q Free-text prefix, e.g. "jf", "new yo" or "heathrow"
+     * @param limit Maximum suggestions (capped at 20)
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<AirportSuggestion>> autocomplete(
+            @RequestParam("q") String q,
+            @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        int cappedLimit = Math.max(1, Math.min(limit, AirportTrie.MAX_SUGGESTIONS));
+        return ResponseEntity.ok(airportDictionaryService.getDictionary().autocomplete(q, cappedLimit).stream()
+                .map(AirportSuggestion::from)
+                .collect(Collectors.toList()));
+    }
+}
@@ -1,13 +1,31 @@
 package com.flightbooking.search.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbooking.search.arena.SearchResponseCache;
+import com.flightbooking.search.dto.NearbySearchRequest;
 import com.flightbooking.search.dto.SearchRequest;
 import com.flightbooking.search.dto.SearchResponse;
+import com.flightbooking.search.dto.SearchStreamEvent;
+import com.flightbooking.search.engine.SearchEngineRouter;
 import com.flightbooking.search.service.FlightSearchService;
+import com.flightbooking.search.service.ItineraryCacheRebuildService;
+import com.flightbooking.search.service.SearchStageMetrics;
+import com.flightbooking.search.timetable.TimetableService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for flight search operations.
@@ -21,15 +39,27 @@ import org.springframework.web.bind.annotation.*;
 public class SearchController {
 
     private final FlightSearchService flightSearchService;
+    private final SearchEngineRouter searchEngineRouter;
+    private final TimetableService timetableService;
+    private final ItineraryCacheRebuildService itineraryCacheRebuildService;
+    private final SearchResponseCache searchResponseCache;
+    private final ObjectMapper objectMapper;
+    private final SearchStageMetrics stageMetrics;
+
+    @Value("${flight-booking.search.stream.timeout-ms:10000}")
+    private long streamTimeoutMs;
 
     /**
      * Search for flights based on criteria.
+     * Complete responses are served from (and written to) the off-heap response cache as bytes;
+     * the method then returns null to tell Spring the response has been written.
      * 
      * @param searchRequest The search criteria
-     * @return SearchResponse with flight options
+     * @return SearchResponse with flight options, or null if written directly
      */
     @GetMapping("/flights")
-    public ResponseEntity<SearchResponse> searchFlights(@Valid @ModelAttribute SearchRequest searchRequest) {
+    public ResponseEntity<SearchResponse> searchFlights(@Valid @ModelAttribute SearchRequest searchRequest,
+                                                        HttpServletResponse response) {
         log.info("Received flight search request: {} to {} on {} for {} passengers",
                 searchRequest.getSource(), searchRequest.getDestination(),
                 searchRequest.getDepartureDate(), searchRequest.getPassengerCount());
@@ -50,14 +80,26 @@ public class SearchController {
                                 .build());
             }
 
+            if (stageMetrics.record("response_cache", () -> writeCached(searchRequest, response))) {
+                log.info("Search served from response cache");
+                return null;
+            }
+
             // Perform search
             SearchResponse searchResponse = flightSearchService.searchFlights(searchRequest);
 
             log.info("Search completed successfully. Found {} flight options",
                     searchResponse.getTotalResults());
 
-            return ResponseEntity.ok(searchResponse);
+            if (Boolean.TRUE.equals(searchResponse.getPartial())) {
+                return ResponseEntity.ok(searchResponse);
+            }
+            byte[] body = stageMetrics.record("response_serialization", () -> serialize(searchResponse));
+            searchResponseCache.putAndWrite(searchRequest, body, response);
+            return null;
 
+        } catch (IllegalArgumentException e) {
+            throw e; // e.g. malformed or foreign cursor, handled by the global exception handler
         } catch (Exception e) {
             log.error("Error processing flight search request: {}", e.getMessage(), e);
             
@@ -74,6 +116,135 @@ public class SearchController {
         }
     }
 
+    /**
+     * Search from and to nearby airports, e.g. every London airport to anything within 80 km of JFK.
+     * All origin/destination pairs are searched together; each option carries its own airports.
+     * 
+     * @param nearbyRequest Origin and destination (IATA code or city) with optional radii
+     * @return SearchResponse with flight options and the airports that were searched
+     */
+    @GetMapping("/flights/nearby")
+    public ResponseEntity<SearchResponse> searchNearbyFlights(@Valid @ModelAttribute NearbySearchRequest nearbyRequest) {
+        log.info("Received nearby flight search request: {} ({} km) to {} ({} km) on {} for {} passengers",
+                nearbyRequest.getOrigin(), nearbyRequest.getOriginRadiusKm(),
+                nearbyRequest.getDestination(), nearbyRequest.getDestinationRadiusKm(),
+                nearbyRequest.getDepartureDate(), nearbyRequest.getPassengerCount());
+
+        SearchResponse searchResponse = flightSearchService.searchNearby(nearbyRequest);
+        log.info("Nearby search completed successfully. Found {} flight options", searchResponse.getTotalResults());
+        return ResponseEntity.ok(searchResponse);
+    }
+
+    private boolean writeCached(SearchRequest searchRequest, HttpServletResponse response) {
+        try {
+            return searchResponseCache.writeCached(searchRequest, response);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] serialize(SearchResponse searchResponse) {
+        try {
+            return objectMapper.writeValueAsBytes(searchResponse);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stream flight options as Server-Sent Events.
+     * Direct flights are sent as soon as they are found, connecting options as each stage completes.
+     * 
+     * @param searchRequest The search criteria
+     * @return SseEmitter emitting "options" events followed by a single "complete" event
+     */
+    @GetMapping(value = "/flights/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFlightsAsEvents(@Valid @ModelAttribute SearchRequest searchRequest) {
+        log.info("Received SSE flight search request: {} to {} on {} for {} passengers",
+                searchRequest.getSource(), searchRequest.getDestination(),
+                searchRequest.getDepartureDate(), searchRequest.getPassengerCount());
+
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        stream(searchRequest, emitter, event -> emitter.send(SseEmitter.event()
+                .name(event.getType())
+                .data(event, MediaType.APPLICATION_JSON)));
+        return emitter;
+    }
+
+    /**
+     * Stream flight options as newline-delimited JSON, one SearchStreamEvent per line.
+     * 
+     * @param searchRequest The search criteria
+     * @return ResponseBodyEmitter writing one JSON object per line
+     */
+    @GetMapping(value = "/flights/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseBodyEmitter streamFlightsAsNdjson(@Valid @ModelAttribute SearchRequest searchRequest) {
+        log.info("Received NDJSON flight search request: {} to {} on {} for {} passengers",
+                searchRequest.getSource(), searchRequest.getDestination(),
+                searchRequest.getDepartureDate(), searchRequest.getPassengerCount());
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(streamTimeoutMs);
+        stream(searchRequest, emitter, event -> {
+            emitter.send(event, MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+        });
+        return emitter;
+    }
+
+    /**
+     * Drive a streamed search into an emitter. Each send is flushed to the client immediately;
+     * a failed send (client disconnected) aborts the remaining stages' output, and an emitter that
+     * times out, errors or completes early cancels the search.
+     */
+    private void stream(SearchRequest searchRequest, ResponseBodyEmitter emitter, StreamWriter writer) {
+        try {
+            // Cancel the future streamFlights returned: cancelling a dependent stage would not reach the search
+            CompletableFuture<Void> search = flightSearchService.streamFlights(searchRequest, event -> {
+                try {
+                    writer.write(event);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            search.whenComplete((ignored, error) -> {
+                if (error instanceof CancellationException) {
+                    log.debug("Streamed flight search cancelled");
+                } else if (error != null) {
+                    log.warn("Streamed flight search ended with error: {}", error.getMessage());
+                    emitter.completeWithError(error);
+                } else {
+                    emitter.complete();
+                }
+            });
+            emitter.onTimeout(() -> search.cancel(true));
+            emitter.onError(error -> search.cancel(true));
+            emitter.onCompletion(() -> search.cancel(true));
+        } catch (Exception e) {
+            log.error("Error processing streamed flight search request: {}", e.getMessage(), e);
+            emitter.completeWithError(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StreamWriter {
+        void write(SearchStreamEvent event) throws IOException;
+    }
+
+    /**
+     * Rebuild the itinerary cache into a new generation in the background (e.g. after a schedule import).
+     * Searches keep reading the current generation until the rebuilt one is complete.
+     */
+    @PostMapping("/itinerary-cache/rebuild")
+    public ResponseEntity<java.util.Map<String, String>> rebuildItineraryCache() {
+        try {
+            itineraryCacheRebuildService.startRebuild();
+            return ResponseEntity.accepted().body(java.util.Map.of("status", "STARTED"));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(org.springframework.http.HttpStatus.CONFLICT)
+                    .body(java.util.Map.of("status", "IN_PROGRESS"));
+        }
+    }
+
     /**
      * Health check endpoint for search service.
      */
@@ -82,6 +253,9 @@ public class SearchController {
         return ResponseEntity.ok(java.util.Map.of(
                 "status", "UP",
                 "service", "search-service",
+                "primaryEngineCircuit", searchEngineRouter.getCircuitState().name(),
+                "timetableVersion", timetableService.isReady() ? String.valueOf(timetableService.getVersion()) : "LOADING",
+                "itineraryCacheRebuild", itineraryCacheRebuildService.isRebuilding() ? "RUNNING" : "IDLE",
                 "timestamp", java.time.OffsetDateTime.now().toString()
         ));
     }
@@ -0,0 +1,27 @@
+package com.flightbooking.search.dto;
+
+import com.flightbooking.search.entity.Airport;
+import lombok.*;
+
+/**
+ * AirportSuggestion DTO returned by airport autocomplete.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AirportSuggestion {
+    private String code;
+    private String name;
+    private String city;
+    private String country;
+
+    public static AirportSuggestion from(Airport airport) {
+        return AirportSuggestion.builder()
+                .code(airport.getCode())
+                .name(airport.getName())
+                .city(airport.getCity())
+                .country(airport.getCountry())
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.flightbooking.search.dto;
+
+import jakarta.validation.constraints.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * NearbySearchRequest DTO for multi-airport flight search.
+ * Origin and destination are an IATA code or a city name, each optionally widened by a radius,
+ * e.g. origin=London to destination=JFK within 80 km.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class NearbySearchRequest {
+
+    @NotBlank(message = "Origin is required")
+    @Size(max = 100, message = "Origin must be at most 100 characters")
+    private String origin; // IATA code or city name
+
+    @NotBlank(message = "Destination is required")
+    @Size(max = 100, message = "Destination must be at most 100 characters")
+    private String destination; // IATA code or city name
+
+    @Builder.Default
+    @DecimalMin(value = "0", message = "Origin radius must not be negative")
+    @DecimalMax(value = "300", message = "Origin radius must be at most 300 km")
+    private Double originRadiusKm = 0.0;
+
+    @Builder.Default
+    @DecimalMin(value = "0", message = "Destination radius must not be negative")
+    @DecimalMax(value = "300", message = "Destination radius must be at most 300 km")
+    private Double destinationRadiusKm = 0.0;
+
+    @NotNull(message = "Departure date is required")
+    @Future(message = "Departure date must be in the future")
+    private LocalDate departureDate;
+
+    @NotNull(message = "Number of passengers is required")
+    @Min(value = 1, message = "At least 1 passenger is required")
+    @Max(value = 9, message = "Maximum 9 passengers allowed")
+    private Integer passengerCount;
+
+    @Builder.Default
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 100, message = "Maximum 100 results per page")
+    private Integer limit = 50; // Maximum number of results to return per page
+
+    private String cursor; // Opaque continuation token from a previous page's nextCursor
+
+    private String engine; // Optional search engine override ("timetable" or "postgres")
+}
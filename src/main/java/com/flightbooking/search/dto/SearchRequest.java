@@ -1,9 +1,13 @@
 package com.flightbooking.search.dto;
 
+import com.flightbooking.search.util.RouteDateKey;
+import com.flightbooking.search.util.TimeWindow;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 
 /**
  * SearchRequest DTO for flight search API.
@@ -40,16 +44,56 @@ public class SearchRequest {
 
     private Integer maxStops; // Optional maximum number of stops (0, 1, or 2)
 
-    private Integer limit = 50; // Maximum number of results to return
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime departAfter; // Optional earliest first-leg departure (UTC, on the departure date)
+
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime departBefore; // Optional latest first-leg departure, inclusive to the minute
+
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime arriveAfter; // Optional earliest final arrival (UTC, on the departure date)
+
+    @DateTimeFormat(pattern = "HH:mm")
+    private LocalTime arriveBefore; // Optional latest final arrival, inclusive to the minute
+
+    @Builder.Default
+    @Min(value = 1, message = "Limit must be at least 1")
+    @Max(value = 100, message = "Maximum 100 results per page")
+    private Integer limit = 50; // Maximum number of results to return per page
+
+    private String cursor; // Opaque continuation token from a previous page's nextCursor
+
+    private String engine; // Optional search engine override ("neo4j" or "postgres"), e.g. for benchmarking
 
     // Helper method to validate source and destination are different
     public boolean isValidRoute() {
         return source != null && destination != null && !source.equals(destination);
     }
 
-    // Helper method to get search key
-    public String getSearchKey() {
-        return source + "-" + destination + "-" + departureDate + "-" + passengerCount;
+    // Helper method to get the passenger-agnostic packed route/date key
+    public long getRouteDateKey() {
+        return RouteDateKey.of(source, destination, departureDate);
+    }
+
+    // Helper method to get search key (route/date key tagged with passenger count)
+    public long getSearchKey() {
+        return RouteDateKey.withVariant(getRouteDateKey(), passengerCount);
+    }
+
+    // Helper method to get the packed time-window key, kept apart from the search key (0 for no window)
+    public long getWindowKey() {
+        return getTimeWindow().getKey();
+    }
+
+    // Helper method to get the departure and arrival windows as epoch-second ranges
+    public TimeWindow getTimeWindow() {
+        return TimeWindow.of(departureDate, departAfter, departBefore, arriveAfter, arriveBefore);
+    }
+
+    // Helper method to check if time windows are valid (each window non-empty)
+    public boolean hasValidTimeWindows() {
+        return (departAfter == null || departBefore == null || !departAfter.isAfter(departBefore))
+                && (arriveAfter == null || arriveBefore == null || !arriveAfter.isAfter(arriveBefore));
     }
 
     // Helper method to check if price filters are valid
@@ -20,7 +20,12 @@ public class SearchResponse {
     private LocalDate departureDate;
     private Integer passengerCount;
     private Integer totalResults;
+    private Boolean partial; // True when some search stages missed the deadline
     private List<FlightOption> options;
+    private String nextCursor; // Opaque token for the next page, absent on the last page
+    private String engine; // Search engine that answered this page
+    private List<String> sourceAirports; // Airports searched from, for nearby-airport searches
+    private List<String> destinationAirports; // Airports searched to, for nearby-airport searches
 
     // Helper method to check if search has results
     public boolean hasResults() {
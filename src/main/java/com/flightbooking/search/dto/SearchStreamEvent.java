@@ -0,0 +1,43 @@
+package com.flightbooking.search.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * SearchStreamEvent DTO for the streaming flight search API.
+ * A stream is a sequence of "options" events (one per batch per stage) followed by one "complete" event.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchStreamEvent {
+
+    public static final String TYPE_OPTIONS = "options";
+    public static final String TYPE_COMPLETE = "complete";
+
+    private String type; // "options" or "complete"
+    private String stage; // DIRECT, ONE_STOP, TWO_STOP or CACHED
+    private List<FlightOption> options;
+    private Integer totalResults;
+    private Boolean partial;
+
+    // Static factory method for a batch of options from one stage
+    public static SearchStreamEvent options(String stage, List<FlightOption> options) {
+        return SearchStreamEvent.builder()
+                .type(TYPE_OPTIONS)
+                .stage(stage)
+                .options(options)
+                .build();
+    }
+
+    // Static factory method for the terminal event
+    public static SearchStreamEvent complete(int totalResults, boolean partial) {
+        return SearchStreamEvent.builder()
+                .type(TYPE_COMPLETE)
+                .totalResults(totalResults)
+                .partial(partial)
+                .build();
+    }
+}
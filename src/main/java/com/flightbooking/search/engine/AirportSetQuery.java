@@ -0,0 +1,44 @@
+package com.flightbooking.search.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Search over every pair of an origin and a destination airport set, e.g. all London airports
+ * to every airport within 80 km of JFK. Engines answer it in one pass rather than pair by pair.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class AirportSetQuery {
+
+    private final List<String> sources;
+    private final List<String> destinations;
+    private final LocalDate departureDate;
+    private final int passengerCount;
+
+    /**
+     * 64-bit key identifying this search for cursors: both airport sets, the date and passengers.
+     */
+    public long getSearchKey() {
+        long key = 0x9E3779B97F4A7C15L;
+        for (String source : sources) {
+            key = mix(key, source.hashCode());
+        }
+        key = mix(key, '>');
+        for (String destination : destinations) {
+            key = mix(key, destination.hashCode());
+        }
+        key = mix(key, departureDate.toEpochDay());
+        return mix(key, passengerCount);
+    }
+
+    private static long mix(long key, long value) {
+        long h = (key ^ value) * 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,55 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.util.SearchCursor;
+import com.flightbooking.search.util.TimeWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keyset paging over in-memory itinerary lists sorted by (price, flight-leg hash).
+ */
+final class ItineraryPaging {
+
+    private ItineraryPaging() {
+    }
+
+    /**
+     * Binary search to the first row after the cursor, then collect up to limit rows
+     * with enough seats for the passengers.
+     */
+    static List<Itinerary> pageAfter(List<Itinerary> sorted, int passengerCount, SearchCursor after, int limit) {
+        return pageAfter(sorted, passengerCount, null, after, limit);
+    }
+
+    /**
+     * As above, also skipping rows outside the time window (null for none).
+     */
+    static List<Itinerary> pageAfter(List<Itinerary> sorted, int passengerCount, TimeWindow window,
+                                     SearchCursor after, int limit) {
+        int low = 0;
+        int high = sorted.size();
+        if (after != null) {
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                Itinerary itinerary = sorted.get(mid);
+                if (after.isBefore(itinerary.getTotalPrice(), itinerary.getFlightLegsHash())) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+        }
+
+        List<Itinerary> page = new ArrayList<>(limit);
+        for (int i = low; i < sorted.size() && page.size() < limit; i++) {
+            Itinerary itinerary = sorted.get(i);
+            if (itinerary.getMinAvailableSeats() != null && itinerary.getMinAvailableSeats() >= passengerCount
+                    && (window == null || window.matches(itinerary.getDepartureTime(), itinerary.getArrivalTime()))) {
+                page.add(itinerary);
+            }
+        }
+        return page;
+    }
+}
@@ -0,0 +1,115 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.service.ItineraryService;
+import com.flightbooking.search.service.RecentGenerationCache;
+import com.flightbooking.search.service.SearchStageMetrics;
+import com.flightbooking.search.util.RouteDateKey;
+import com.flightbooking.search.util.SearchCursor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Primary search engine backed by Neo4j.
+ * Serves cached Itinerary nodes and falls back to graph traversal on a cache miss.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class Neo4jSearchEngine implements SearchEngine {
+
+    public static final String NAME = "neo4j";
+
+    private final ItineraryService itineraryService;
+    private final RecentGenerationCache recentGenerations;
+    private final SearchStageMetrics stageMetrics;
+
+    // In-flight generations keyed by packed route/date key, shared by concurrent cache misses
+    private final Map<Long, CompletableFuture<ItineraryGenerationResult>> inFlightGenerations = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit) {
+        // Step 1: Serve from a recent in-process generation (also covers partial, uncached results)
+        ItineraryGenerationResult recent = recentGenerations.get(searchRequest.getRouteDateKey());
+        if (recent != null) {
+            // An empty recent generation is a known-empty route: a negative cache hit
+            stageMetrics.recordCacheLookup(recent.getItineraries().isEmpty() ? "negative" : "recent");
+            log.info("Serving page from recent in-process generation");
+            return new ItineraryGenerationResult(
+                    ItineraryPaging.pageAfter(recent.getItineraries(), searchRequest.getPassengerCount(),
+                            searchRequest.getTimeWindow(), after, limit),
+                    recent.getIncompleteStages());
+        }
+
+        // A partial result was never written to the graph: once it leaves memory its pages are gone
+        if (after != null && after.isPartial()) {
+            throw new SearchCursor.ExpiredException("Partial search results have expired, restart the search without a cursor");
+        }
+
+        // Step 2: Try to find cached itineraries in the graph
+        List<Itinerary> cachedItineraries = itineraryService.findCachedPage(searchRequest, after, limit);
+
+        // An empty page of a cached route (its window or seat filter matches nothing) is still a hit
+        if (!cachedItineraries.isEmpty() || after != null || itineraryService.isRouteCached(searchRequest)) {
+            stageMetrics.recordCacheLookup("hit");
+            log.info("Found {} cached itineraries for search", cachedItineraries.size());
+            return new ItineraryGenerationResult(cachedItineraries, List.of());
+        }
+
+        // Step 3: Generate itineraries on-the-fly if no cache found
+        // These will be passenger-agnostic and cached for all future searches
+        stageMetrics.recordCacheLookup("miss");
+        log.info("No cached itineraries found, generating new ones");
+        ItineraryGenerationResult generated = generateCoalesced(searchRequest);
+
+        return new ItineraryGenerationResult(
+                ItineraryPaging.pageAfter(generated.getItineraries(), searchRequest.getPassengerCount(),
+                        searchRequest.getTimeWindow(), null, limit),
+                generated.getIncompleteStages());
+    }
+
+    /**
+     * Generate itineraries, coalescing concurrent cache misses for the same route and date
+     * into a single generation. Keyed by the packed passenger-agnostic route key.
+     */
+    private ItineraryGenerationResult generateCoalesced(SearchRequest searchRequest) {
+        long routeKey = searchRequest.getRouteDateKey();
+        CompletableFuture<ItineraryGenerationResult> pending = new CompletableFuture<>();
+        CompletableFuture<ItineraryGenerationResult> inFlight = inFlightGenerations.putIfAbsent(routeKey, pending);
+
+        if (inFlight != null) {
+            log.debug("Joining in-flight generation for {}", RouteDateKey.toString(routeKey));
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            ItineraryGenerationResult generated = itineraryService.generateItineraries(searchRequest);
+            recentGenerations.put(routeKey, generated);
+            pending.complete(generated);
+            return generated;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightGenerations.remove(routeKey, pending);
+        }
+    }
+}
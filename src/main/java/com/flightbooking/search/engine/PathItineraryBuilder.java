@@ -0,0 +1,68 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.booking.service.FlightInventoryService;
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.FlightInstanceNode;
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.service.ItineraryService;
+import com.flightbooking.search.service.SearchStageMetrics;
+import com.flightbooking.search.util.SearchCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns candidate flight paths found outside the graph into one page of itineraries.
+ * Seat availability comes from the flight inventory counters in one indexed read; itinerary building is
+ * delegated to ItineraryService so layover rules and leg JSON match the graph engine.
+ */
+@Component
+@RequiredArgsConstructor
+class PathItineraryBuilder {
+
+    private final FlightInventoryService flightInventoryService;
+    private final ItineraryService itineraryService;
+    private final SearchStageMetrics stageMetrics;
+
+    /**
+     * Build, order and page itineraries for candidate paths.
+     * Nodes are updated in place with their current available seat counts.
+     */
+    ItineraryGenerationResult page(List<List<FlightInstanceNode>> paths, SearchRequest searchRequest,
+                                   SearchCursor after, int limit) {
+        return page(paths, searchRequest.getDepartureDate(), searchRequest.getPassengerCount(), after, limit);
+    }
+
+    ItineraryGenerationResult page(List<List<FlightInstanceNode>> paths, LocalDate departureDate, int passengerCount,
+                                   SearchCursor after, int limit) {
+        stageMetrics.recordCandidates("engine_paths", paths.size());
+        if (paths.isEmpty()) {
+            return new ItineraryGenerationResult(List.of(), List.of());
+        }
+
+        Map<Long, FlightInstanceNode> nodes = new HashMap<>();
+        paths.forEach(path -> path.forEach(node -> nodes.put(Long.valueOf(node.getId()), node)));
+
+        Set<Long> legIds = new LinkedHashSet<>(nodes.keySet());
+        Map<Long, Integer> availableSeats = stageMetrics.record("seat_count",
+                () -> flightInventoryService.findAvailableSeats(legIds));
+        nodes.forEach((id, node) -> {
+            int seats = availableSeats.getOrDefault(id, 0);
+            node.setRemainingSeats(seats);
+            node.setTotalAvailableSeats(seats);
+        });
+
+        List<Itinerary> itineraries = itineraryService.buildItineraries(paths, departureDate);
+        itineraries.sort(ItineraryService.RESULT_ORDER);
+
+        return new ItineraryGenerationResult(
+                ItineraryPaging.pageAfter(itineraries, passengerCount, after, limit), List.of());
+    }
+}
@@ -0,0 +1,137 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.repository.FlightInstanceRepository;
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.FlightInstanceNode;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.util.SearchCursor;
+import com.flightbooking.search.util.TimeWindow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fallback search engine backed by PostgreSQL, the source of truth for flights and seats.
+ * Finds direct, one-stop and two-stop paths with indexed self-joins on flight_instance and
+ * reuses the Neo4j engine's itinerary building, so both engines return identical options.
+ * Results are computed per request and never cached.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PostgresSearchEngine implements SearchEngine {
+
+    public static final String NAME = "postgres";
+
+    // Same cap as the graph connection queries
+    private static final int MAX_CONNECTIONS = 500;
+
+    // Two layovers of at most a day each: nothing departing on the date arrives later than this
+    private static final int ARRIVAL_HORIZON_DAYS = 4;
+
+    private final FlightInstanceRepository flightInstanceRepository;
+    private final PathItineraryBuilder pathItineraryBuilder;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit) {
+        return searchAirports(List.of(searchRequest.getSource()), List.of(searchRequest.getDestination()),
+                searchRequest.getDepartureDate(), searchRequest.getTimeWindow(), searchRequest.getPassengerCount(),
+                after, limit);
+    }
+
+    @Override
+    public ItineraryGenerationResult searchAirports(AirportSetQuery query, SearchCursor after, int limit) {
+        return searchAirports(query.getSources(), query.getDestinations(), query.getDepartureDate(),
+                TimeWindow.of(query.getDepartureDate()), query.getPassengerCount(), after, limit);
+    }
+
+    /**
+     * Same three queries for any number of airport pairs, using IN lists on the route index.
+     * The departure window bounds the first leg's index range; the arrival window filters the last leg.
+     */
+    private ItineraryGenerationResult searchAirports(List<String> sources, List<String> destinations, LocalDate date,
+                                                     TimeWindow window, int passengerCount,
+                                                     SearchCursor after, int limit) {
+        OffsetDateTime startDate = window.departFromTime();
+        OffsetDateTime endDate = window.departToTime();
+        OffsetDateTime arriveFrom = window.arriveFromTime() != null ? window.arriveFromTime() : startDate;
+        OffsetDateTime arriveTo = window.arriveToTime() != null
+                ? window.arriveToTime()
+                : date.atStartOfDay().atOffset(ZoneOffset.UTC).plusDays(ARRIVAL_HORIZON_DAYS);
+        int connectionCap = MAX_CONNECTIONS * sources.size() * destinations.size();
+
+        List<FlightInstance> directFlights = flightInstanceRepository.findByRoutesAndDateRange(
+                sources, destinations, startDate, endDate, arriveFrom, arriveTo);
+        List<Object[]> oneStopRows = flightInstanceRepository.findOneStopConnections(
+                sources, destinations, startDate, endDate, arriveFrom, arriveTo, connectionCap);
+        List<Object[]> twoStopRows = flightInstanceRepository.findTwoStopConnections(
+                sources, destinations, startDate, endDate, arriveFrom, arriveTo, connectionCap);
+        log.debug("Postgres search {} -> {} on {}: {} direct, {} one-stop, {} two-stop candidates",
+                sources, destinations, date, directFlights.size(), oneStopRows.size(), twoStopRows.size());
+
+        // Load every connecting leg once, then look them up by id
+        Map<Long, FlightInstanceNode> nodes = new HashMap<>();
+        directFlights.forEach(flight -> nodes.put(flight.getId(), toNode(flight)));
+        Set<Long> missing = new LinkedHashSet<>();
+        oneStopRows.forEach(row -> addLegIds(missing, row));
+        twoStopRows.forEach(row -> addLegIds(missing, row));
+        missing.removeAll(nodes.keySet());
+        flightInstanceRepository.findAllById(missing).forEach(flight -> nodes.put(flight.getId(), toNode(flight)));
+
+        List<List<FlightInstanceNode>> paths = new ArrayList<>();
+        directFlights.forEach(flight -> paths.add(List.of(nodes.get(flight.getId()))));
+        oneStopRows.forEach(row -> addPath(paths, nodes, row));
+        twoStopRows.forEach(row -> addPath(paths, nodes, row));
+
+        return pathItineraryBuilder.page(paths, date, passengerCount, after, limit);
+    }
+
+    private void addLegIds(Set<Long> legIds, Object[] row) {
+        for (Object legId : row) {
+            legIds.add(((Number) legId).longValue());
+        }
+    }
+
+    private void addPath(List<List<FlightInstanceNode>> paths, Map<Long, FlightInstanceNode> nodes, Object[] row) {
+        List<FlightInstanceNode> path = new ArrayList<>(row.length);
+        for (Object legId : row) {
+            FlightInstanceNode node = nodes.get(((Number) legId).longValue());
+            if (node == null) {
+                return; // Leg removed between the join and the load
+            }
+            path.add(node);
+        }
+        paths.add(path);
+    }
+
+    /**
+     * Map a booking flight row onto the search-side node shape used for itinerary building.
+     */
+    private FlightInstanceNode toNode(FlightInstance flight) {
+        return FlightInstanceNode.builder()
+                .id(String.valueOf(flight.getId()))
+                .flightNo(flight.getFlightNo())
+                .departureTime(flight.getDepartureTime())
+                .arrivalTime(flight.getArrivalTime())
+                .source(flight.getSource())
+                .destination(flight.getDestination())
+                .priceMoney(flight.getPriceMoney())
+                .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.flightbooking.search.engine;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Count-based circuit breaker over the most recent calls to a search engine.
+ * Opens when the failure rate or the slow-call rate in the window crosses its threshold,
+ * rejects calls for a cool-down period, then admits a few trial calls (half-open) and
+ * closes again only if all of them are fast and successful.
+ */
+@Slf4j
+public class SearchCircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    // Ring buffer of recent outcomes
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public SearchCircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                                double slowCallRateThreshold, long slowCallNanos, long openNanos, int halfOpenCalls) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallNanos;
+        this.openNanos = openNanos;
+        this.halfOpenCalls = halfOpenCalls;
+        this.failed = new boolean[windowSize];
+        this.slow = new boolean[windowSize];
+    }
+
+    /**
+     * Ask for permission to call the protected engine.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return false;
+            }
+            log.info("Circuit breaker {} half-open, admitting {} trial calls", name, halfOpenCalls);
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess(long elapsedNanos) {
+        record(false, elapsedNanos > slowCallNanos);
+    }
+
+    public synchronized void onError(long elapsedNanos) {
+        record(true, elapsedNanos > slowCallNanos);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure, boolean slowCall) {
+        if (state == State.OPEN) {
+            return; // Late outcome of a call admitted before the breaker tripped
+        }
+        if (state == State.HALF_OPEN) {
+            if (failure || slowCall) {
+                trip();
+            } else if (++halfOpenSuccesses >= halfOpenCalls) {
+                log.info("Circuit breaker {} closed after {} successful trial calls", name, halfOpenSuccesses);
+                state = State.CLOSED;
+                resetWindow();
+            }
+            return;
+        }
+
+        if (recorded == windowSize) {
+            failures -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = failure;
+        slow[next] = slowCall;
+        failures += failure ? 1 : 0;
+        slowCalls += slowCall ? 1 : 0;
+        next = (next + 1) % windowSize;
+
+        if (recorded >= minimumCalls
+                && ((double) failures / recorded >= failureRateThreshold
+                || (double) slowCalls / recorded >= slowCallRateThreshold)) {
+            trip();
+        }
+    }
+
+    private void trip() {
+        log.warn("Circuit breaker {} opened: {} failures and {} slow calls in last {} calls",
+                name, failures, slowCalls, recorded);
+        state = State.OPEN;
+        openedAtNanos = System.nanoTime();
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
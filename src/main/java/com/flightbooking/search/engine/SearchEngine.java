@@ -0,0 +1,65 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.service.ItineraryService;
+import com.flightbooking.search.service.SearchStage;
+import com.flightbooking.search.util.SearchCursor;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Search engine SPI.
+ * An engine answers one page of a search: itineraries in (price, flight-leg hash) order with enough seats
+ * for the passengers, starting strictly after the cursor and at most limit rows long.
+ */
+public interface SearchEngine {
+
+    /**
+     * Stable engine name used for routing, metrics and the request-level override.
+     */
+    String getName();
+
+    /**
+     * Search one page.
+     *
+     * @param searchRequest The search criteria
+     * @param after Cursor from the previous page, or null for the first page
+     * @param limit Maximum rows to return (callers ask for one extra row to detect a next page)
+     * @return Page rows plus any stages that did not complete
+     */
+    ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit);
+
+    /**
+     * Search one page over every origin/destination pair of the query, with the same ordering and
+     * paging contract as {@link #search}. By default each pair is searched on its own and the pages
+     * merged; engines that can answer every pair in a single pass override this.
+     */
+    default ItineraryGenerationResult searchAirports(AirportSetQuery query, SearchCursor after, int limit) {
+        List<Itinerary> rows = new ArrayList<>();
+        Set<SearchStage> incompleteStages = EnumSet.noneOf(SearchStage.class);
+        for (String source : query.getSources()) {
+            for (String destination : query.getDestinations()) {
+                if (source.equals(destination)) {
+                    continue;
+                }
+                // Every pair pages after the same cursor in the same order, so their first rows hold the merged page
+                ItineraryGenerationResult pair = search(SearchRequest.builder()
+                        .source(source)
+                        .destination(destination)
+                        .departureDate(query.getDepartureDate())
+                        .passengerCount(query.getPassengerCount())
+                        .build(), after, limit);
+                rows.addAll(pair.getItineraries());
+                incompleteStages.addAll(pair.getIncompleteStages());
+            }
+        }
+        rows.sort(ItineraryService.RESULT_ORDER);
+        return new ItineraryGenerationResult(rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows,
+                new ArrayList<>(incompleteStages));
+    }
+}
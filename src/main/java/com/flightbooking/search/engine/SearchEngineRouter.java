@@ -0,0 +1,146 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.util.SearchCursor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Routes searches between the primary and fallback engines.
+ * A latency- and error-driven circuit breaker guards the primary engine; while it is open,
+ * or when a primary call fails, the search is answered by the fallback engine instead.
+ * A primary page with stages cut off by the search deadline is still served, but counts as a failure.
+ */
+@Component
+@Slf4j
+public class SearchEngineRouter {
+
+    private final Map<String, SearchEngine> engines;
+    private final SearchEngine primary;
+    private final SearchEngine fallback;
+    private final SearchCircuitBreaker circuitBreaker;
+    private final List<SearchEngine> airportSetEngines;
+
+    public SearchEngineRouter(
+            List<SearchEngine> engines,
+            @Value("${flight-booking.search.engine.primary:neo4j}") String primaryName,
+            @Value("${flight-booking.search.engine.fallback:postgres}") String fallbackName,
+            @Value("${flight-booking.search.engine.circuit-breaker.window-size:50}") int windowSize,
+            @Value("${flight-booking.search.engine.circuit-breaker.minimum-calls:20}") int minimumCalls,
+            @Value("${flight-booking.search.engine.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${flight-booking.search.engine.circuit-breaker.slow-call-rate-threshold:0.5}") double slowCallRateThreshold,
+            @Value("${flight-booking.search.engine.circuit-breaker.slow-call-ms:1500}") long slowCallMs,
+            @Value("${flight-booking.search.engine.circuit-breaker.open-duration-ms:30000}") long openDurationMs,
+            @Value("${flight-booking.search.engine.circuit-breaker.half-open-calls:5}") int halfOpenCalls,
+            @Value("${flight-booking.search.engine.airport-sets:timetable,postgres}") List<String> airportSetEngineNames) {
+        this.engines = engines.stream().collect(Collectors.toMap(SearchEngine::getName, Function.identity()));
+        this.primary = requireEngine(primaryName);
+        this.fallback = fallbackName == null || fallbackName.isBlank() ? null : requireEngine(fallbackName);
+        this.circuitBreaker = new SearchCircuitBreaker(primaryName, windowSize, minimumCalls,
+                failureRateThreshold, slowCallRateThreshold, TimeUnit.MILLISECONDS.toNanos(slowCallMs),
+                TimeUnit.MILLISECONDS.toNanos(openDurationMs), halfOpenCalls);
+        this.airportSetEngines = airportSetEngineNames.stream()
+                .map(String::trim)
+                .map(this::requireEngine)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Search one page on the engine chosen by the request override or the circuit breaker.
+     */
+    public RoutedSearch search(SearchRequest searchRequest, SearchCursor after, int limit) {
+        if (searchRequest.getEngine() != null) {
+            SearchEngine requested = engines.get(searchRequest.getEngine());
+            if (requested == null) {
+                throw new IllegalArgumentException("Unknown search engine: " + searchRequest.getEngine());
+            }
+            return new RoutedSearch(requested.getName(), requested.search(searchRequest, after, limit));
+        }
+
+        if (fallback == null || circuitBreaker.tryAcquire()) {
+            long start = System.nanoTime();
+            try {
+                ItineraryGenerationResult result = primary.search(searchRequest, after, limit);
+                if (result.isPartial()) {
+                    // Stages cut off by the deadline: the engine is not keeping up, even though it answered
+                    circuitBreaker.onError(System.nanoTime() - start);
+                } else {
+                    circuitBreaker.onSuccess(System.nanoTime() - start);
+                }
+                return new RoutedSearch(primary.getName(), result);
+            } catch (IllegalArgumentException e) {
+                // A bad request (e.g. an expired cursor) is not an engine failure, and no other engine can answer it
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.onError(System.nanoTime() - start);
+                if (fallback == null) {
+                    throw e;
+                }
+                log.warn("Search engine {} failed, falling back to {}: {}",
+                        primary.getName(), fallback.getName(), e.getMessage());
+            }
+        } else {
+            log.debug("Circuit breaker open, routing search to {}", fallback.getName());
+        }
+
+        return new RoutedSearch(fallback.getName(), fallback.search(searchRequest, after, limit));
+    }
+
+    /**
+     * Search one page of a multi-airport query on the requested engine, or on the first of the
+     * configured airport-set engines that answers (e.g. the timetable, then PostgreSQL while it loads).
+     */
+    public RoutedSearch searchAirports(AirportSetQuery query, String engineOverride, SearchCursor after, int limit) {
+        if (engineOverride != null) {
+            SearchEngine requested = engines.get(engineOverride);
+            if (requested == null) {
+                throw new IllegalArgumentException("Unknown search engine: " + engineOverride);
+            }
+            return new RoutedSearch(requested.getName(), requested.searchAirports(query, after, limit));
+        }
+
+        RuntimeException failure = null;
+        for (SearchEngine engine : airportSetEngines) {
+            try {
+                return new RoutedSearch(engine.getName(), engine.searchAirports(query, after, limit));
+            } catch (RuntimeException e) {
+                log.warn("Search engine {} failed airport-set search, trying next: {}", engine.getName(), e.getMessage());
+                failure = e;
+            }
+        }
+        throw failure != null ? failure : new IllegalStateException("No search engine configured for airport sets");
+    }
+
+    public SearchCircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    private SearchEngine requireEngine(String name) {
+        SearchEngine engine = engines.get(name);
+        if (engine == null) {
+            throw new IllegalStateException("No search engine named '" + name + "', available: " + engines.keySet());
+        }
+        return engine;
+    }
+
+    /**
+     * A search result together with the engine that produced it.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class RoutedSearch {
+        private final String engine;
+        private final ItineraryGenerationResult result;
+    }
+}
@@ -0,0 +1,226 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.util.SearchCursor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shadow mode for trying a candidate search engine against production traffic.
+ * A sample of first-page searches is replayed asynchronously on the candidate engine and its
+ * page is diffed against the page the user received (leg hashes, prices and ordering).
+ * Diffs and both engines' latencies are exported as metrics; the candidate's result, errors
+ * and slowness never reach the user-facing response.
+ *
+ * Metrics:
+ * <ul>
+ *   <li>{@code search.shadow.latency{engine,role}} - timer with histogram, role is primary or candidate</li>
+ *   <li>{@code search.shadow.comparisons{outcome}} - match, mismatch, error, dropped or skipped</li>
+ *   <li>{@code search.shadow.discrepancies{type}} - missing, extra, price or order, per affected itinerary</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class ShadowSearchRunner {
+
+    private final Map<String, SearchEngine> engines;
+    private final Executor shadowExecutor;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final String candidateName;
+    private final double sampleRate;
+
+    public ShadowSearchRunner(
+            List<SearchEngine> engines,
+            @Qualifier("shadowSearchExecutor") Executor shadowExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${flight-booking.search.shadow.enabled:false}") boolean enabled,
+            @Value("${flight-booking.search.shadow.candidate:postgres}") String candidateName,
+            @Value("${flight-booking.search.shadow.sample-rate:0.01}") double sampleRate) {
+        this.engines = new HashMap<>();
+        engines.forEach(engine -> this.engines.put(engine.getName(), engine));
+        this.shadowExecutor = shadowExecutor;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled && this.engines.containsKey(candidateName);
+        this.candidateName = candidateName;
+        this.sampleRate = sampleRate;
+        if (enabled && !this.enabled) {
+            log.warn("Shadow search disabled: no search engine named '{}'", candidateName);
+        }
+    }
+
+    /**
+     * Possibly replay a served search on the candidate engine. Never throws and never blocks:
+     * when the shadow executor is saturated the sample is dropped.
+     *
+     * @param searchRequest The request the user sent
+     * @param after Cursor of the served page; only first pages are shadowed
+     * @param limit Row limit used for the served page
+     * @param routed The page the user received and the engine that produced it
+     * @param primaryNanos How long the serving engine took
+     */
+    public void maybeShadow(SearchRequest searchRequest, SearchCursor after, int limit,
+                            SearchEngineRouter.RoutedSearch routed, long primaryNanos) {
+        try {
+            if (!enabled || after != null || searchRequest.getEngine() != null
+                    || candidateName.equals(routed.getEngine())
+                    || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return;
+            }
+            if (routed.getResult().isPartial()) {
+                comparison("skipped").increment();
+                return;
+            }
+
+            SearchRequest shadowRequest = copyOf(searchRequest);
+            List<Itinerary> served = List.copyOf(routed.getResult().getItineraries());
+            shadowExecutor.execute(() -> runShadow(shadowRequest, limit, routed.getEngine(), served, primaryNanos));
+        } catch (RejectedExecutionException e) {
+            comparison("dropped").increment();
+        } catch (RuntimeException e) {
+            log.warn("Failed to start shadow search: {}", e.getMessage());
+        }
+    }
+
+    private void runShadow(SearchRequest searchRequest, int limit, String primaryName,
+                           List<Itinerary> served, long primaryNanos) {
+        SearchEngine candidate = engines.get(candidateName);
+        long start = System.nanoTime();
+        ItineraryGenerationResult result;
+        try {
+            result = candidate.search(searchRequest, null, limit);
+        } catch (RuntimeException e) {
+            comparison("error").increment();
+            log.debug("Shadow search on {} failed: {}", candidateName, e.getMessage());
+            return;
+        }
+        long candidateNanos = System.nanoTime() - start;
+
+        latency(primaryName, "primary").record(primaryNanos, TimeUnit.NANOSECONDS);
+        latency(candidateName, "candidate").record(candidateNanos, TimeUnit.NANOSECONDS);
+
+        if (result.isPartial()) {
+            comparison("skipped").increment();
+            return;
+        }
+
+        int discrepancies = diff(served, result.getItineraries());
+        comparison(discrepancies == 0 ? "match" : "mismatch").increment();
+        if (discrepancies > 0) {
+            log.info("Shadow search mismatch for {} -> {} on {}: {} vs {} rows, {} discrepancies",
+                    searchRequest.getSource(), searchRequest.getDestination(), searchRequest.getDepartureDate(),
+                    served.size(), result.getItineraries().size(), discrepancies);
+        }
+    }
+
+    /**
+     * Diff two pages by flight-leg hash. Counts itineraries only one side returned, common
+     * itineraries priced differently, and common itineraries appearing in a different relative order.
+     */
+    private int diff(List<Itinerary> served, List<Itinerary> candidate) {
+        Map<String, Long> servedPrices = new HashMap<>();
+        served.forEach(itinerary -> servedPrices.put(itinerary.getFlightLegsHash(), itinerary.getTotalPrice()));
+        Set<String> candidateHashes = new HashSet<>();
+
+        int missing = 0;
+        int extra = 0;
+        int price = 0;
+        int order = 0;
+
+        List<String> candidateCommon = new ArrayList<>();
+        for (Itinerary itinerary : candidate) {
+            String hash = itinerary.getFlightLegsHash();
+            candidateHashes.add(hash);
+            if (!servedPrices.containsKey(hash)) {
+                extra++;
+            } else {
+                candidateCommon.add(hash);
+                if (!servedPrices.get(hash).equals(itinerary.getTotalPrice())) {
+                    price++;
+                }
+            }
+        }
+
+        List<String> servedCommon = new ArrayList<>();
+        for (Itinerary itinerary : served) {
+            if (candidateHashes.contains(itinerary.getFlightLegsHash())) {
+                servedCommon.add(itinerary.getFlightLegsHash());
+            } else {
+                missing++;
+            }
+        }
+        for (int i = 0; i < Math.min(servedCommon.size(), candidateCommon.size()); i++) {
+            if (!servedCommon.get(i).equals(candidateCommon.get(i))) {
+                order++;
+            }
+        }
+
+        discrepancy("missing", missing);
+        discrepancy("extra", extra);
+        discrepancy("price", price);
+        discrepancy("order", order);
+        return missing + extra + price + order;
+    }
+
+    private SearchRequest copyOf(SearchRequest searchRequest) {
+        return SearchRequest.builder()
+                .source(searchRequest.getSource())
+                .destination(searchRequest.getDestination())
+                .departureDate(searchRequest.getDepartureDate())
+                .passengerCount(searchRequest.getPassengerCount())
+                .minPrice(searchRequest.getMinPrice())
+                .maxPrice(searchRequest.getMaxPrice())
+                .maxStops(searchRequest.getMaxStops())
+                .departAfter(searchRequest.getDepartAfter())
+                .departBefore(searchRequest.getDepartBefore())
+                .arriveAfter(searchRequest.getArriveAfter())
+                .arriveBefore(searchRequest.getArriveBefore())
+                .limit(searchRequest.getLimit())
+                .engine(candidateName)
+                .build();
+    }
+
+    private Timer latency(String engine, String role) {
+        return Timer.builder("search.shadow.latency")
+                .description("Search engine latency for shadowed searches")
+                .tag("engine", engine)
+                .tag("role", role)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter comparison(String outcome) {
+        return Counter.builder("search.shadow.comparisons")
+                .description("Shadow search comparisons by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private void discrepancy(String type, int count) {
+        if (count > 0) {
+            Counter.builder("search.shadow.discrepancies")
+                    .description("Itineraries that differ between the served and candidate pages")
+                    .tag("type", type)
+                    .register(meterRegistry)
+                    .increment(count);
+        }
+    }
+}
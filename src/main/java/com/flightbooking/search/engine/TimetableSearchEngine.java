@@ -0,0 +1,247 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.repository.FlightInstanceRepository;
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.FlightInstanceNode;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.timetable.TimetableFlight;
+import com.flightbooking.search.timetable.TimetableService;
+import com.flightbooking.search.util.RouteDateKey;
+import com.flightbooking.search.util.SearchCursor;
+import com.flightbooking.search.util.TimeWindow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Search engine over the in-process, memory-mapped timetable.
+ * Paths are enumerated in memory; only seat availability is read from PostgreSQL, plus the ids of
+ * legs expanded from compressed schedules, resolved once per search for the candidate paths only.
+ * Not ready (and therefore failing over, when used as primary) until the timetable is loaded.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TimetableSearchEngine implements SearchEngine {
+
+    public static final String NAME = "timetable";
+
+    // Same cap and layover rules as the graph connection queries
+    private static final int MAX_CONNECTIONS = 500;
+    private static final long MIN_LAYOVER_SECONDS = Duration.ofMinutes(45).toSeconds();
+    private static final long MAX_LAYOVER_SECONDS = Duration.ofHours(24).toSeconds();
+
+    // First legs depart on the search date; later legs may depart up to three days after it
+    private static final int HORIZON_DAYS = 4;
+
+    private final TimetableService timetableService;
+    private final FlightInstanceRepository flightInstanceRepository;
+    private final PathItineraryBuilder pathItineraryBuilder;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit) {
+        return searchAirports(List.of(searchRequest.getSource()), List.of(searchRequest.getDestination()),
+                searchRequest.getDepartureDate(), searchRequest.getTimeWindow(), searchRequest.getPassengerCount(),
+                after, limit);
+    }
+
+    @Override
+    public ItineraryGenerationResult searchAirports(AirportSetQuery query, SearchCursor after, int limit) {
+        return searchAirports(query.getSources(), query.getDestinations(), query.getDepartureDate(),
+                TimeWindow.of(query.getDepartureDate()), query.getPassengerCount(), after, limit);
+    }
+
+    /**
+     * One traversal from every origin at once: departures per airport are loaded once and shared
+     * by all origin/destination pairs, and destination membership is a bit test on the packed code.
+     * Paths through another origin or destination airport are not expanded further.
+     *
+     * Time windows narrow the binary-searched ranges: first legs are read for the departure window
+     * only, later legs only up to the latest arrival, and with an arrival window the last legs are
+     * read from the arrivals index so that only hubs feeding a destination in time are expanded.
+     */
+    private ItineraryGenerationResult searchAirports(List<String> sourceCodes, List<String> destinationCodes,
+                                                     LocalDate date, TimeWindow window, int passengerCount,
+                                                     SearchCursor after, int limit) {
+        BitSet sources = airportSet(sourceCodes);
+        BitSet destinations = airportSet(destinationCodes);
+        int connectionCap = MAX_CONNECTIONS * sourceCodes.size() * destinationCodes.size();
+        long dayStart = date.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        long horizonEnd = dayStart + Duration.ofDays(HORIZON_DAYS).toSeconds();
+        long legsFrom = window.getDepartFrom();
+        long legsTo = Math.min(horizonEnd, window.getArriveTo());
+
+        // Departures per airport over the (window-bounded) horizon, loaded once per search
+        Map<Integer, List<TimetableFlight>> departures = new HashMap<>();
+        Function<Integer, List<TimetableFlight>> departuresFrom = airport ->
+                departures.computeIfAbsent(airport, code -> timetableService.findDepartures(code, legsFrom, legsTo));
+
+        List<TimetableFlight> firstLegs = new ArrayList<>();
+        for (String source : sourceCodes) {
+            firstLegs.addAll(timetableService.findDepartures(
+                    RouteDateKey.encodeAirport(source), window.getDepartFrom(), window.getDepartTo()));
+        }
+
+        // Airports with a last leg arriving in the window; null when arrivals are unbounded
+        BitSet feeders = null;
+        if (window.hasArrivalWindow()) {
+            feeders = new BitSet(1 << 15);
+            for (String destination : destinationCodes) {
+                for (TimetableFlight last : timetableService.findArrivals(RouteDateKey.encodeAirport(destination),
+                        Math.max(window.getArriveFrom(), legsFrom), legsTo)) {
+                    feeders.set(last.getSource());
+                }
+            }
+        }
+
+        List<List<TimetableFlight>> direct = new ArrayList<>();
+        List<List<TimetableFlight>> oneStop = new ArrayList<>();
+        List<List<TimetableFlight>> twoStop = new ArrayList<>();
+        for (TimetableFlight first : firstLegs) {
+            if (destinations.get(first.getDestination())) {
+                if (window.arrives(first.getArrivalEpochSecond())) {
+                    direct.add(List.of(first));
+                }
+                continue;
+            }
+            if (sources.get(first.getDestination())) {
+                continue;
+            }
+            for (TimetableFlight second : connections(departuresFrom.apply(first.getDestination()), first)) {
+                int hub = second.getDestination();
+                if (destinations.get(hub)) {
+                    if (oneStop.size() < connectionCap && window.arrives(second.getArrivalEpochSecond())) {
+                        oneStop.add(List.of(first, second));
+                    }
+                } else if (!sources.get(hub) && (feeders == null || feeders.get(hub)) && twoStop.size() < connectionCap) {
+                    for (TimetableFlight third : connections(departuresFrom.apply(hub), second)) {
+                        if (destinations.get(third.getDestination()) && window.arrives(third.getArrivalEpochSecond())
+                                && twoStop.size() < connectionCap) {
+                            twoStop.add(List.of(first, second, third));
+                        }
+                    }
+                }
+            }
+        }
+        log.debug("Timetable search {} -> {} on {}: {} direct, {} one-stop, {} two-stop candidates",
+                sourceCodes, destinationCodes, date, direct.size(), oneStop.size(), twoStop.size());
+
+        List<List<TimetableFlight>> candidates = new ArrayList<>(direct.size() + oneStop.size() + twoStop.size());
+        candidates.addAll(direct);
+        candidates.addAll(oneStop);
+        candidates.addAll(twoStop);
+        Map<String, Long> resolvedIds = resolveScheduledLegs(candidates, dayStart, horizonEnd);
+
+        Map<Long, FlightInstanceNode> nodes = new HashMap<>();
+        List<List<FlightInstanceNode>> paths = new ArrayList<>(candidates.size());
+        for (List<TimetableFlight> legs : candidates) {
+            List<FlightInstanceNode> path = new ArrayList<>(legs.size());
+            for (TimetableFlight leg : legs) {
+                TimetableFlight resolved = leg.isResolved() ? leg : resolve(leg, resolvedIds);
+                if (resolved == null) {
+                    break;
+                }
+                path.add(nodes.computeIfAbsent(resolved.getId(), id -> toNode(resolved)));
+            }
+            // Scheduled legs without a matching instance (e.g. retimed since the snapshot) drop the path
+            if (path.size() == legs.size()) {
+                paths.add(path);
+            }
+        }
+
+        return pathItineraryBuilder.page(paths, date, passengerCount, after, limit);
+    }
+
+    /**
+     * Look up ids for the unresolved (schedule-expanded) legs of the candidate paths in one query,
+     * keyed by flight number and departure time.
+     */
+    private Map<String, Long> resolveScheduledLegs(List<List<TimetableFlight>> candidates,
+                                                   long fromEpochSecond, long toEpochSecond) {
+        Set<String> flightNos = new HashSet<>();
+        candidates.forEach(legs -> legs.stream()
+                .filter(leg -> !leg.isResolved())
+                .forEach(leg -> flightNos.add(leg.getFlightNo())));
+        if (flightNos.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Long> ids = new HashMap<>();
+        for (FlightInstance row : flightInstanceRepository.findByFlightNosAndDateRange(flightNos,
+                Instant.ofEpochSecond(fromEpochSecond).atOffset(ZoneOffset.UTC),
+                Instant.ofEpochSecond(toEpochSecond).atOffset(ZoneOffset.UTC))) {
+            ids.put(instanceKey(row.getFlightNo(), row.getDepartureTime().toEpochSecond()), row.getId());
+        }
+        return ids;
+    }
+
+    private TimetableFlight resolve(TimetableFlight leg, Map<String, Long> resolvedIds) {
+        Long id = resolvedIds.get(instanceKey(leg.getFlightNo(), leg.getDepartureEpochSecond()));
+        return id != null ? leg.withId(id) : null;
+    }
+
+    private static BitSet airportSet(List<String> codes) {
+        BitSet set = new BitSet(1 << 15);
+        codes.forEach(code -> set.set(RouteDateKey.encodeAirport(code)));
+        return set;
+    }
+
+    private static String instanceKey(String flightNo, long departureEpochSecond) {
+        return flightNo + "@" + departureEpochSecond;
+    }
+
+    /**
+     * Departures (sorted by time) that make a valid connection from the inbound flight.
+     */
+    private List<TimetableFlight> connections(List<TimetableFlight> departures, TimetableFlight inbound) {
+        long earliest = inbound.getArrivalEpochSecond() + MIN_LAYOVER_SECONDS;
+        long latest = inbound.getArrivalEpochSecond() + MAX_LAYOVER_SECONDS;
+
+        int low = 0;
+        int high = departures.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departures.get(mid).getDepartureEpochSecond() < earliest) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < departures.size() && departures.get(end).getDepartureEpochSecond() <= latest) {
+            end++;
+        }
+        return departures.subList(low, end);
+    }
+
+    private FlightInstanceNode toNode(TimetableFlight flight) {
+        return FlightInstanceNode.builder()
+                .id(String.valueOf(flight.getId()))
+                .flightNo(flight.getFlightNo())
+                .departureTime(flight.getDepartureTime())
+                .arrivalTime(flight.getArrivalTime())
+                .source(flight.getSourceCode())
+                .destination(flight.getDestinationCode())
+                .priceMoney(flight.getPriceMoney())
+                .build();
+    }
+}
@@ -3,6 +3,7 @@ package com.flightbooking.search.entity;
 import lombok.*;
 import org.springframework.data.neo4j.core.schema.*;
 import com.flightbooking.search.entity.relationship.IncludesLeg;
+import com.flightbooking.search.util.RouteDateKey;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -23,7 +24,7 @@ public class Itinerary {
 
     @Id
     @Property("id")
-    private String id; // UUID for the itinerary
+    private String id; // Node key (UUID), unique across generations; results are identified by flightLegsHash
 
     @Property("source")
     private String source; // Source airport code
@@ -43,6 +44,12 @@ public class Itinerary {
     @Property("total_duration")
     private Long totalDuration; // Total duration in seconds
 
+    @Property("departure_time")
+    private OffsetDateTime departureTime; // First leg departure
+
+    @Property("arrival_time")
+    private OffsetDateTime arrivalTime; // Last leg arrival
+
     @Property("minAvailableSeats")
     private Integer minAvailableSeats; // Minimum available seats across all legs
 
@@ -52,11 +59,17 @@ public class Itinerary {
     @Property("search_key")
     private String searchKey; // Composite key for fast lookup
 
+    @Property("route_key")
+    private Long routeKey; // Packed RouteDateKey (source, destination, date) used for indexed lookup
+
     @Property("flight_legs")
     private String flightLegsJson; // JSON array of flight leg details for fast reads
 
     @Property("flightLegsHash")
-    private String flightLegsHash; // Hash of flight leg IDs for uniqueness constraint
+    private String flightLegsHash; // Hash of flight leg IDs: the itinerary id in responses and cursors, same in every engine and generation
+
+    @Property("generation")
+    private Long generation; // Cache generation; only the active generation is read
 
     // Relationships
     @Relationship(type = "INCLUDES_LEG", direction = Relationship.Direction.OUTGOING)
@@ -83,6 +96,11 @@ public class Itinerary {
         return source + "-" + destination + "-" + departureDate;
     }
 
+    // Helper method to generate packed route key (passenger-agnostic)
+    public static long generateRouteKey(String source, String destination, LocalDate departureDate) {
+        return RouteDateKey.of(source, destination, departureDate);
+    }
+
     // Helper method to check if itinerary is for direct flight
     public boolean isDirectFlight() {
         return legs != null && legs == 1;
@@ -2,8 +2,11 @@ package com.flightbooking.search.repository;
 
 import com.flightbooking.search.entity.Airport;
 import org.springframework.data.neo4j.repository.Neo4jRepository;
+import org.springframework.data.neo4j.repository.query.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repository for Airport entity operations in Neo4j.
  * Currently only provides basic CRUD operations through Neo4jRepository.
@@ -11,5 +14,10 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface AirportRepository extends Neo4jRepository<Airport, String> {
     // Basic CRUD operations are inherited from Neo4jRepository
-    // Additional custom queries can be added here as needed
+
+    /**
+     * Find all airports without loading their flight relationships.
+     */
+    @Query("MATCH (a:Airport) RETURN a")
+    List<Airport> findAllAirports();
 }
\ No newline at end of file
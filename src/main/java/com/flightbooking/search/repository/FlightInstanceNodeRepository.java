@@ -40,5 +40,25 @@ List<Map<String,Object>> findConnectingFlightsWithOneStop(
         @Param("destination") String destination,
         @Param("departureDate") OffsetDateTime departureDate);
 
+    /**
+     * Find two-stop connections (three legs) with layovers between 45 minutes and 24 hours.
+     * Bounded because the candidate set grows with the square of hub fan-out.
+     */
+    @Query("MATCH (f1:FlightInstance)-[:ARRIVES_AT]->(a1:Airport)-[:DEPARTS_WITH]->(f2:FlightInstance)" +
+           "-[:ARRIVES_AT]->(a2:Airport)-[:DEPARTS_WITH]->(f3:FlightInstance) " +
+           "WHERE f1.source = $source AND f3.destination = $destination " +
+           "AND a1.code <> $destination AND a2.code <> $source AND a1 <> a2 " +
+           "AND f1.status = 'ACTIVE' AND f2.status = 'ACTIVE' AND f3.status = 'ACTIVE' " +
+           "AND date(f1.departureTime) = date($departureDate) " +
+           "AND f1.arrivalTime + duration('PT45M') <= f2.departureTime " +
+           "AND f1.arrivalTime + duration('P1D') >= f2.departureTime " +
+           "AND f2.arrivalTime + duration('PT45M') <= f3.departureTime " +
+           "AND f2.arrivalTime + duration('P1D') >= f3.departureTime " +
+           "RETURN {flights: [f1, f2, f3]} AS row LIMIT 500")
+    List<Map<String,Object>> findConnectingFlightsWithTwoStops(
+            @Param("source") String source,
+            @Param("destination") String destination,
+            @Param("departureDate") OffsetDateTime departureDate);
+
 
 }
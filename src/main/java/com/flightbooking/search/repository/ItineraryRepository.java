@@ -6,11 +6,13 @@ import org.springframework.data.neo4j.repository.query.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 /**
  * Repository for Itinerary entity operations in Neo4j.
  * Provides essential queries for cached itinerary management and search.
+ * Search queries only see the generation named by the active ItineraryCachePointer.
  */
 @Repository
 public interface ItineraryRepository extends Neo4jRepository<Itinerary, String> {
@@ -18,7 +20,67 @@ public interface ItineraryRepository extends Neo4jRepository<Itinerary, String>
     /**
      * Find itineraries by search key with seat availability filter.
      */
-    @Query("MATCH (it:Itinerary) WHERE it.search_key = $searchKey AND it.minAvailableSeats >= $passengerCount " +
-           "RETURN it ORDER BY it.total_price LIMIT 100")
+    @Query("OPTIONAL MATCH (p:ItineraryCachePointer {name: 'active'}) WITH coalesce(p.generation, 0) AS active " +
+           "MATCH (it:Itinerary) WHERE it.generation = active AND it.search_key = $searchKey " +
+           "AND it.minAvailableSeats >= $passengerCount " +
+           "RETURN it ORDER BY it.total_price, it.flightLegsHash LIMIT 100")
     List<Itinerary> findBySearchKeyWithSeatFilter(@Param("searchKey") String searchKey, @Param("passengerCount") Integer passengerCount);
+
+    /**
+     * Find itineraries by packed route key with seat availability filter.
+     * Backed by the itinerary_generation_route_seats index; preferred over the String search key.
+     */
+    @Query("OPTIONAL MATCH (p:ItineraryCachePointer {name: 'active'}) WITH coalesce(p.generation, 0) AS active " +
+           "MATCH (it:Itinerary) WHERE it.generation = active AND it.route_key = $routeKey " +
+           "AND it.minAvailableSeats >= $passengerCount " +
+           "RETURN it ORDER BY it.total_price, it.flightLegsHash LIMIT 100")
+    List<Itinerary> findByRouteKeyWithSeatFilter(@Param("routeKey") Long routeKey, @Param("passengerCount") Integer passengerCount);
+
+    /**
+     * Whether the active generation holds any itinerary for the packed route key, whatever its seats
+     * and times, i.e. whether the route has been cached at all.
+     */
+    @Query("OPTIONAL MATCH (p:ItineraryCachePointer {name: 'active'}) WITH coalesce(p.generation, 0) AS active " +
+           "MATCH (it:Itinerary) WHERE it.generation = active AND it.route_key = $routeKey " +
+           "WITH it LIMIT 1 RETURN count(it) > 0")
+    boolean existsByRouteKey(@Param("routeKey") Long routeKey);
+
+    /**
+     * Keyset-paginated variant of findByRouteKeyWithSeatFilter in (total_price, flightLegsHash) order.
+     * Resumes strictly after (afterPrice, afterId); pass nulls for the first page.
+     */
+    @Query("OPTIONAL MATCH (p:ItineraryCachePointer {name: 'active'}) WITH coalesce(p.generation, 0) AS active " +
+           "MATCH (it:Itinerary) WHERE it.generation = active AND it.route_key = $routeKey " +
+           "AND it.minAvailableSeats >= $passengerCount " +
+           "AND ($afterPrice IS NULL OR it.total_price > $afterPrice " +
+           "OR (it.total_price = $afterPrice AND it.flightLegsHash > $afterId)) " +
+           "RETURN it ORDER BY it.total_price, it.flightLegsHash LIMIT $limit")
+    List<Itinerary> findPageByRouteKeyWithSeatFilter(@Param("routeKey") Long routeKey,
+                                                     @Param("passengerCount") Integer passengerCount,
+                                                     @Param("afterPrice") Long afterPrice,
+                                                     @Param("afterId") String afterId,
+                                                     @Param("limit") Integer limit);
+
+    /**
+     * findPageByRouteKeyWithSeatFilter restricted to first-leg departures in [departFrom, departTo)
+     * and, when bounded, final arrivals in [arriveFrom, arriveTo); pass nulls for open arrival bounds.
+     */
+    @Query("OPTIONAL MATCH (p:ItineraryCachePointer {name: 'active'}) WITH coalesce(p.generation, 0) AS active " +
+           "MATCH (it:Itinerary) WHERE it.generation = active AND it.route_key = $routeKey " +
+           "AND it.minAvailableSeats >= $passengerCount " +
+           "AND it.departure_time >= $departFrom AND it.departure_time < $departTo " +
+           "AND ($arriveFrom IS NULL OR it.arrival_time >= $arriveFrom) " +
+           "AND ($arriveTo IS NULL OR it.arrival_time < $arriveTo) " +
+           "AND ($afterPrice IS NULL OR it.total_price > $afterPrice " +
+           "OR (it.total_price = $afterPrice AND it.flightLegsHash > $afterId)) " +
+           "RETURN it ORDER BY it.total_price, it.flightLegsHash LIMIT $limit")
+    List<Itinerary> findPageByRouteKeyWithSeatAndTimeFilter(@Param("routeKey") Long routeKey,
+                                                            @Param("passengerCount") Integer passengerCount,
+                                                            @Param("departFrom") OffsetDateTime departFrom,
+                                                            @Param("departTo") OffsetDateTime departTo,
+                                                            @Param("arriveFrom") OffsetDateTime arriveFrom,
+                                                            @Param("arriveTo") OffsetDateTime arriveTo,
+                                                            @Param("afterPrice") Long afterPrice,
+                                                            @Param("afterId") String afterId,
+                                                            @Param("limit") Integer limit);
 }
\ No newline at end of file
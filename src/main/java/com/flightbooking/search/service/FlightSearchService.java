@@ -1,17 +1,33 @@
 package com.flightbooking.search.service;
 
+import com.flightbooking.search.airport.AirportDictionary;
+import com.flightbooking.search.airport.AirportDictionaryService;
+import com.flightbooking.search.dto.NearbySearchRequest;
 import com.flightbooking.search.dto.SearchRequest;
 import com.flightbooking.search.dto.SearchResponse;
 import com.flightbooking.search.dto.FlightOption;
 import com.flightbooking.search.dto.FlightLeg;
+import com.flightbooking.search.dto.SearchStreamEvent;
+import com.flightbooking.search.engine.AirportSetQuery;
+import com.flightbooking.search.engine.SearchEngineRouter;
+import com.flightbooking.search.engine.ShadowSearchRunner;
 import com.flightbooking.search.entity.Itinerary;
-import com.flightbooking.search.repository.ItineraryRepository;
+import com.flightbooking.search.util.SearchCursor;
+import com.flightbooking.search.util.TimeWindow;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -24,15 +40,36 @@ import java.util.stream.Collectors;
 public class FlightSearchService {
 
     private final ItineraryService itineraryService;
+    private final SearchEngineRouter searchEngineRouter;
+    private final ShadowSearchRunner shadowSearchRunner;
+    private final SearchStageMetrics stageMetrics;
+    private final AirportDictionaryService airportDictionaryService;
+
+    private static final String CACHED_STAGE = "CACHED";
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Value("${flight-booking.search.stream.batch-size:20}")
+    private int streamBatchSize;
+
+    @Value("${flight-booking.search.nearby.max-airports:8}")
+    private int nearbyMaxAirports;
 
     /**
      * Main search method that handles flight search requests.
+     * Not transactional: each engine runs in a transaction of its own store, so a failing
+     * primary engine leaves nothing behind that would stop the fallback from answering.
      * 
      * @param searchRequest The search criteria
      * @return SearchResponse with flight options
      */
-    @Transactional(readOnly = true)
     public SearchResponse searchFlights(SearchRequest searchRequest) {
+        return stageMetrics.recordRequest(() -> search(searchRequest));
+    }
+
+    private SearchResponse search(SearchRequest searchRequest) {
         log.info("Starting flight search: {} to {} on {} for {} passengers", 
                 searchRequest.getSource(), searchRequest.getDestination(), 
                 searchRequest.getDepartureDate(), searchRequest.getPassengerCount());
@@ -42,49 +79,240 @@ public class FlightSearchService {
             searchRequest.getDepartureDate() == null || searchRequest.getPassengerCount() == null) {
             throw new RuntimeException("Invalid search request");
         }
+        if (!searchRequest.hasValidTimeWindows()) {
+            throw new IllegalArgumentException("Time window ends before it starts");
+        }
 
-        // Step 1: Try to find cached itineraries first
-        List<Itinerary> cachedItineraries = itineraryService.findCachedItineraries(searchRequest);
-        
-        if (!cachedItineraries.isEmpty()) {
-            log.info("Found {} cached itineraries for search", cachedItineraries.size());
-            return buildSearchResponse(searchRequest, cachedItineraries);
+        int pageSize = resolvePageSize(searchRequest.getLimit());
+        SearchCursor after = searchRequest.getCursor() != null
+                ? SearchCursor.decode(searchRequest.getCursor(), searchRequest.getSearchKey(), searchRequest.getWindowKey())
+                : null;
+
+        // One extra row tells us if there is a next page
+        long start = System.nanoTime();
+        SearchEngineRouter.RoutedSearch routed = stageMetrics.record("engine_search",
+                () -> searchEngineRouter.search(searchRequest, after, pageSize + 1));
+        ItineraryGenerationResult result = routed.getResult();
+        log.info("Search answered by {} engine with {} rows", routed.getEngine(), result.getItineraries().size());
+
+        shadowSearchRunner.maybeShadow(searchRequest, after, pageSize + 1, routed, System.nanoTime() - start);
+
+        return stageMetrics.record("response_build", () -> buildSearchResponse(
+                searchRequest, result.getItineraries(), pageSize, result.isPartial(), routed.getEngine()));
+    }
+
+    /**
+     * Nearby-airport search: resolves origin and destination to airport sets (code or city, widened
+     * by radius, nearest first) and searches every origin/destination pair in a single engine pass.
+     *
+     * @param nearbyRequest The search criteria
+     * @return SearchResponse with flight options across all pairs, in price order
+     * @throws IllegalArgumentException if origin or destination matches no airport
+     */
+    public SearchResponse searchNearby(NearbySearchRequest nearbyRequest) {
+        return stageMetrics.recordRequest(() -> searchAirportSets(nearbyRequest));
+    }
+
+    private SearchResponse searchAirportSets(NearbySearchRequest nearbyRequest) {
+        AirportDictionary dictionary = airportDictionaryService.getDictionary();
+        List<String> sources = resolveAirports(dictionary, nearbyRequest.getOrigin(), nearbyRequest.getOriginRadiusKm());
+        // An airport on both sides would only produce round trips to itself
+        List<String> destinations = resolveAirports(dictionary, nearbyRequest.getDestination(),
+                nearbyRequest.getDestinationRadiusKm()).stream()
+                .filter(code -> !sources.contains(code))
+                .collect(Collectors.toList());
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("Unknown origin: " + nearbyRequest.getOrigin());
         }
+        if (destinations.isEmpty()) {
+            throw new IllegalArgumentException("Unknown destination: " + nearbyRequest.getDestination());
+        }
+        log.info("Starting nearby flight search: {} -> {} on {} for {} passengers",
+                sources, destinations, nearbyRequest.getDepartureDate(), nearbyRequest.getPassengerCount());
 
-        // Step 2: Generate itineraries on-the-fly if no cache found
-        // These will be passenger-agnostic and cached for all future searches
-        log.info("No cached itineraries found, generating new ones");
-        List<Itinerary> generatedItineraries = itineraryService.generateItineraries(searchRequest);
-        
+        AirportSetQuery query = new AirportSetQuery(sources, destinations,
+                nearbyRequest.getDepartureDate(), nearbyRequest.getPassengerCount());
+        int pageSize = resolvePageSize(nearbyRequest.getLimit());
+        SearchCursor after = nearbyRequest.getCursor() != null
+                ? SearchCursor.decode(nearbyRequest.getCursor(), query.getSearchKey())
+                : null;
 
+        SearchEngineRouter.RoutedSearch routed = stageMetrics.record("engine_search",
+                () -> searchEngineRouter.searchAirports(query, nearbyRequest.getEngine(), after, pageSize + 1));
+        ItineraryGenerationResult result = routed.getResult();
+        log.info("Nearby search answered by {} engine with {} rows", routed.getEngine(), result.getItineraries().size());
 
-        return buildSearchResponse(searchRequest, generatedItineraries);
+        return stageMetrics.record("response_build", () -> pageResponse(SearchResponse.builder()
+                        .source(nearbyRequest.getOrigin())
+                        .destination(nearbyRequest.getDestination())
+                        .departureDate(nearbyRequest.getDepartureDate())
+                        .passengerCount(nearbyRequest.getPassengerCount())
+                        .sourceAirports(sources)
+                        .destinationAirports(destinations),
+                query.getSearchKey(), 0, result.getItineraries(), pageSize, result.isPartial(), routed.getEngine()));
     }
 
+    /**
+     * Airport codes for a place, nearest first, at most nearbyMaxAirports.
+     */
+    private List<String> resolveAirports(AirportDictionary dictionary, String place, Double radiusKm) {
+        int[] ids = dictionary.resolvePlace(place, radiusKm != null ? radiusKm : 0);
+        List<String> codes = new ArrayList<>(Math.min(ids.length, nearbyMaxAirports));
+        for (int i = 0; i < ids.length && codes.size() < nearbyMaxAirports; i++) {
+            codes.add(dictionary.get(ids[i]).getCode());
+        }
+        return codes;
+    }
+
+    /**
+     * Streaming variant of searchFlights.
+     * Cached results are emitted as a single stage; on a cache miss each stage's options are
+     * emitted as soon as that stage completes, in batches of at most streamBatchSize options.
+     *
+     * @param searchRequest The search criteria
+     * @param sink Receives events in order; may throw to abort the stream (e.g. client gone)
+     * @return Future completed after the terminal "complete" event has been emitted; cancel it to abandon the search
+     */
+    public CompletableFuture<Void> streamFlights(SearchRequest searchRequest, Consumer<SearchStreamEvent> sink) {
+        log.info("Starting streamed flight search: {} to {} on {} for {} passengers",
+                searchRequest.getSource(), searchRequest.getDestination(),
+                searchRequest.getDepartureDate(), searchRequest.getPassengerCount());
+
+        if (searchRequest.getSource() == null || searchRequest.getDestination() == null ||
+            searchRequest.getDepartureDate() == null || searchRequest.getPassengerCount() == null) {
+            throw new RuntimeException("Invalid search request");
+        }
+        if (!searchRequest.hasValidTimeWindows()) {
+            throw new IllegalArgumentException("Time window ends before it starts");
+        }
+        TimeWindow window = searchRequest.getTimeWindow();
+
+        // The cache query applies the window itself; a cached route with nothing in the window is still cached
+        List<Itinerary> cachedItineraries = itineraryService.findCachedItineraries(searchRequest);
+        if (!cachedItineraries.isEmpty() || itineraryService.isRouteCached(searchRequest)) {
+            emitOptions(sink, CACHED_STAGE, cachedItineraries);
+            sink.accept(SearchStreamEvent.complete(cachedItineraries.size(), false));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<SearchStage, CompletableFuture<List<Itinerary>>> stages = itineraryService.launchStages(
+                searchRequest.getSource(), searchRequest.getDestination(), searchRequest.getDepartureDate());
 
+        List<Itinerary> collected = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger emittedCount = new AtomicInteger();
+        List<SearchStage> incompleteStages = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean cancelled = new AtomicBoolean();
 
+        CompletableFuture<?>[] emitted = stages.entrySet().stream()
+                .map(stage -> stage.getValue().handle((itineraries, error) -> {
+                    if (cancelled.get()) {
+                        return null;
+                    }
+                    if (error != null) {
+                        log.warn("Streamed search stage {} did not complete: {}", stage.getKey(), error.toString());
+                        incompleteStages.add(stage.getKey());
+                    } else {
+                        collected.addAll(itineraries);
+                        List<Itinerary> inWindow = inWindow(itineraries, window);
+                        emittedCount.addAndGet(inWindow.size());
+                        emitOptions(sink, stage.getKey().name(), inWindow);
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
+
+        CompletableFuture<Void> stream = CompletableFuture.allOf(emitted).thenRun(() -> {
+            boolean partial = !incompleteStages.isEmpty();
+            if (!partial) {
+                itineraryService.cacheItineraries(collected);
+            }
+            sink.accept(SearchStreamEvent.complete(emittedCount.get(), partial));
+        });
+        // A cancelled stream (client gone) cancels its stages: queued ones never run, nothing more is
+        // emitted and nothing is cached
+        stream.whenComplete((ignored, error) -> {
+            if (error instanceof CancellationException) {
+                cancelled.set(true);
+                stages.values().forEach(stage -> stage.cancel(true));
+            }
+        });
+        return stream;
+    }
+
+    /**
+     * Itineraries inside the request's time window; the whole list when there is none.
+     */
+    private List<Itinerary> inWindow(List<Itinerary> itineraries, TimeWindow window) {
+        if (window.isUnbounded()) {
+            return itineraries;
+        }
+        return itineraries.stream()
+                .filter(itinerary -> window.matches(itinerary.getDepartureTime(), itinerary.getArrivalTime()))
+                .collect(Collectors.toList());
+    }
 
+    /**
+     * Emit itineraries as bounded batches of flight options.
+     */
+    private void emitOptions(Consumer<SearchStreamEvent> sink, String stage, List<Itinerary> itineraries) {
+        for (int from = 0; from < itineraries.size(); from += streamBatchSize) {
+            List<FlightOption> batch = itineraries.subList(from, Math.min(from + streamBatchSize, itineraries.size()))
+                    .stream()
+                    .map(this::convertToFlightOption)
+                    .collect(Collectors.toList());
+            sink.accept(SearchStreamEvent.options(stage, batch));
+        }
+    }
 
     // Note: All itinerary creation logic moved to ItineraryService for better separation of concerns
 
     /**
-     * Build search response from itineraries.
+     * Build search response from one page of itineraries.
+     * Rows beyond pageSize are not returned; their presence produces a nextCursor.
      */
-    private SearchResponse buildSearchResponse(SearchRequest searchRequest, List<Itinerary> itineraries) {
-        List<FlightOption> flightOptions = itineraries.stream()
+    private SearchResponse buildSearchResponse(SearchRequest searchRequest, List<Itinerary> rows, int pageSize,
+                                               boolean partial, String engine) {
+        return pageResponse(SearchResponse.builder()
+                        .source(searchRequest.getSource())
+                        .destination(searchRequest.getDestination())
+                        .departureDate(searchRequest.getDepartureDate())
+                        .passengerCount(searchRequest.getPassengerCount()),
+                searchRequest.getSearchKey(), searchRequest.getWindowKey(), rows, pageSize, partial, engine);
+    }
+
+    /**
+     * Fill in the page of options and the cursor scoped to searchKey and windowKey.
+     */
+    private SearchResponse pageResponse(SearchResponse.SearchResponseBuilder response, long searchKey, long windowKey,
+                                        List<Itinerary> rows, int pageSize, boolean partial, String engine) {
+        List<Itinerary> page = rows.size() > pageSize ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            Itinerary last = page.get(page.size() - 1);
+            nextCursor = new SearchCursor(searchKey, windowKey, last.getTotalPrice(), last.getFlightLegsHash(), partial)
+                    .encode();
+        }
+
+        List<FlightOption> flightOptions = page.stream()
                 .map(this::convertToFlightOption)
                 .collect(Collectors.toList());
 
-        return SearchResponse.builder()
-                .source(searchRequest.getSource())
-                .destination(searchRequest.getDestination())
-                .departureDate(searchRequest.getDepartureDate())
-                .passengerCount(searchRequest.getPassengerCount())
+        return response
                 .totalResults(flightOptions.size())
+                .partial(partial)
                 .options(flightOptions)
+                .nextCursor(nextCursor)
+                .engine(engine)
                 .build();
     }
 
+    /**
+     * Clamp the requested page size to what a single page may return.
+     */
+    private int resolvePageSize(Integer limit) {
+        return limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
     /**
      * Convert itinerary to flight option.
      */
@@ -92,7 +320,7 @@ public class FlightSearchService {
         // For now, we'll create a simplified flight option
         // In the next iteration, we'll add proper flight legs
         return FlightOption.builder()
-                .itineraryId(itinerary.getId())
+                .itineraryId(itinerary.getFlightLegsHash())
                 .source(itinerary.getSource())
                 .destination(itinerary.getDestination())
                 .departureDate(itinerary.getDepartureDate())
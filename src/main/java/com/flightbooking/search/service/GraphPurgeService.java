@@ -0,0 +1,187 @@
+package com.flightbooking.search.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.neo4j.core.DatabaseSelection;
+import org.springframework.data.neo4j.core.DatabaseSelectionProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background TTL purge of past-date Itinerary and FlightInstance nodes in Neo4j.
+ * Deletes in rounds of at most round-size nodes, each committed in batches of batch-size rows by
+ * CALL { ... } IN TRANSACTIONS. That needs an implicit (auto-commit) transaction, so rounds run in a
+ * plain driver session rather than a Spring-managed transaction.
+ * Between rounds the purger sleeps so it is busy at most max-duty-cycle of the time, and a run stops
+ * after max-run-ms; whatever is left goes in the next run.
+ * Itineraries go first: deleting a flight detaches it from the itineraries that still include it.
+ */
+@Service
+@Slf4j
+public class GraphPurgeService {
+
+    private static final String ITINERARY = "Itinerary";
+    private static final String FLIGHT_INSTANCE = "FlightInstance";
+
+    // Purge statements; the WITH-importing CALL form keeps compatibility with Neo4j 5.0+
+    private static final Map<String, String> PURGE_QUERIES = Map.of(
+            ITINERARY,
+            "MATCH (it:Itinerary) WHERE it.departure_date < $cutoffDate " +
+            "WITH it LIMIT $roundSize " +
+            "CALL { WITH it DETACH DELETE it } IN TRANSACTIONS OF $batchSize ROWS " +
+            "RETURN count(*) AS deleted",
+            FLIGHT_INSTANCE,
+            "MATCH (f:FlightInstance) WHERE f.departureTime < $cutoffTime " +
+            "WITH f LIMIT $roundSize " +
+            "CALL { WITH f DETACH DELETE f } IN TRANSACTIONS OF $batchSize ROWS " +
+            "RETURN count(*) AS deleted");
+
+    private final Driver driver;
+    private final DatabaseSelectionProvider databaseSelectionProvider;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int retentionDays;
+    private final int roundSize;
+    private final int batchSize;
+    private final double maxDutyCycle;
+    private final long maxRunMs;
+
+    private final Map<String, AtomicLong> nodeCounts = new ConcurrentHashMap<>();
+
+    public GraphPurgeService(
+            Driver driver,
+            DatabaseSelectionProvider databaseSelectionProvider,
+            MeterRegistry meterRegistry,
+            @Value("${flight-booking.search.purge.enabled:true}") boolean enabled,
+            @Value("${flight-booking.search.purge.retention-days:1}") int retentionDays,
+            @Value("${flight-booking.search.purge.round-size:10000}") int roundSize,
+            @Value("${flight-booking.search.purge.batch-size:1000}") int batchSize,
+            @Value("${flight-booking.search.purge.max-duty-cycle:0.25}") double maxDutyCycle,
+            @Value("${flight-booking.search.purge.max-run-ms:600000}") long maxRunMs) {
+        this.driver = driver;
+        this.databaseSelectionProvider = databaseSelectionProvider;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.retentionDays = retentionDays;
+        this.roundSize = roundSize;
+        this.batchSize = batchSize;
+        this.maxDutyCycle = Math.min(1.0, Math.max(0.01, maxDutyCycle));
+        this.maxRunMs = maxRunMs;
+        for (String label : PURGE_QUERIES.keySet()) {
+            Gauge.builder("graph.nodes", nodeCounts.computeIfAbsent(label, key -> new AtomicLong(-1)), AtomicLong::get)
+                    .description("Node count by label, sampled after each purge run")
+                    .tag("label", label)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Purge everything departing before today minus retention-days, then sample graph size.
+     */
+    @Scheduled(fixedDelayString = "${flight-booking.search.purge.interval-ms:3600000}",
+            initialDelayString = "${flight-booking.search.purge.initial-delay-ms:300000}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate cutoffDate = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxRunMs);
+        try (Session session = driver.session(sessionConfig())) {
+            for (String label : new String[]{ITINERARY, FLIGHT_INSTANCE}) {
+                if (!purgeLabel(session, label, cutoffDate, deadlineNanos)) {
+                    break;
+                }
+            }
+            sampleNodeCounts(session);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Graph purge failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Purge one label round by round.
+     *
+     * @return false if the run deadline passed before the label was fully purged
+     */
+    private boolean purgeLabel(Session session, String label, LocalDate cutoffDate, long deadlineNanos)
+            throws InterruptedException {
+        Map<String, Object> parameters = Map.of(
+                "cutoffDate", cutoffDate,
+                "cutoffTime", cutoffDate.atStartOfDay().atOffset(ZoneOffset.UTC),
+                "roundSize", roundSize,
+                "batchSize", batchSize);
+        Timer roundTimer = Timer.builder("graph.purge.round")
+                .description("Duration of one purge round")
+                .tag("label", label)
+                .register(meterRegistry);
+        Counter deletedCounter = Counter.builder("graph.purge.deleted")
+                .description("Nodes deleted by the TTL purge")
+                .tag("label", label)
+                .register(meterRegistry);
+
+        long total = 0;
+        long startNanos = System.nanoTime();
+        while (true) {
+            long roundStart = System.nanoTime();
+            long deleted = session.run(PURGE_QUERIES.get(label), parameters).single().get("deleted").asLong();
+            long roundNanos = System.nanoTime() - roundStart;
+            roundTimer.record(roundNanos, TimeUnit.NANOSECONDS);
+            deletedCounter.increment(deleted);
+            total += deleted;
+
+            if (deleted < roundSize) {
+                logPurged(label, total, startNanos, cutoffDate, "done");
+                return true;
+            }
+            if (System.nanoTime() - deadlineNanos >= 0) {
+                logPurged(label, total, startNanos, cutoffDate, "deadline reached");
+                return false;
+            }
+            // Yield to live traffic: busy for roundNanos, idle for roundNanos * (1 - d) / d
+            TimeUnit.NANOSECONDS.sleep((long) (roundNanos * (1 - maxDutyCycle) / maxDutyCycle));
+        }
+    }
+
+    private void logPurged(String label, long total, long startNanos, LocalDate cutoffDate, String outcome) {
+        if (total == 0) {
+            return;
+        }
+        long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+        log.info("Purged {} {} nodes departing before {} in {} ms ({} nodes/s, {})",
+                total, label, cutoffDate, elapsedMs, total * 1000 / elapsedMs, outcome);
+    }
+
+    /**
+     * Label counts come from the count store, so sampling them is cheap.
+     */
+    private void sampleNodeCounts(Session session) {
+        for (Map.Entry<String, AtomicLong> count : nodeCounts.entrySet()) {
+            count.getValue().set(session.run("MATCH (n:" + count.getKey() + ") RETURN count(n) AS n")
+                    .single().get("n").asLong());
+        }
+        log.debug("Graph size after purge: {}", nodeCounts);
+    }
+
+    private SessionConfig sessionConfig() {
+        DatabaseSelection selection = databaseSelectionProvider.getDatabaseSelection();
+        return selection.getValue() == null
+                ? SessionConfig.defaultConfig()
+                : SessionConfig.forDatabase(selection.getValue());
+    }
+}
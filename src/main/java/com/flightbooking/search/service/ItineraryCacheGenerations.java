@@ -0,0 +1,218 @@
+package com.flightbooking.search.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generation bookkeeping for the cached Itinerary nodes.
+ * Every itinerary carries the generation it was built for, and a single
+ * (:ItineraryCachePointer {name: 'active'}) node names the generation that reads see.
+ * Flipping that one property is what makes a rebuilt generation visible, atomically.
+ * The same node records the generation being built: a rebuild claims it with a compare-and-set and
+ * renews the claim as it goes, so only one build runs across nodes and a crashed build's claim lapses.
+ * Old generations are deleted in bounded batches, each in its own transaction.
+ */
+@Component
+@Slf4j
+public class ItineraryCacheGenerations {
+
+    // Generation of itineraries cached before generations existed
+    public static final long INITIAL_GENERATION = 0;
+
+    // Match the pointer and take its write lock first, so the conditions that follow read the latest
+    // committed pointer and concurrent compare-and-sets apply one after another
+    private static final String LOCKED_POINTER =
+            "MATCH (p:ItineraryCachePointer {name: 'active'}) SET p._lock = true REMOVE p._lock WITH p ";
+
+    private final Neo4jClient neo4jClient;
+    private final TransactionTemplate batchTransaction;
+    private final int deleteBatchSize;
+
+    public ItineraryCacheGenerations(
+            Neo4jClient neo4jClient,
+            PlatformTransactionManager transactionManager,
+            @Value("${flight-booking.search.itinerary-cache.delete-batch-size:5000}") int deleteBatchSize) {
+        this.neo4jClient = neo4jClient;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.deleteBatchSize = deleteBatchSize;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CachedRoute {
+        private final String source;
+        private final String destination;
+        private final LocalDate departureDate;
+    }
+
+    /**
+     * Create the pointer if missing and adopt itineraries cached without a generation.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            batchTransaction.executeWithoutResult(status -> neo4jClient.query(
+                            "MERGE (p:ItineraryCachePointer {name: 'active'}) " +
+                            "ON CREATE SET p.generation = $generation, p.flipped_at = datetime()")
+                    .bind(INITIAL_GENERATION).to("generation")
+                    .run());
+            long active = getActiveGeneration();
+            long adopted = runInBatches(
+                    "MATCH (it:Itinerary) WHERE it.generation IS NULL " +
+                    "WITH it LIMIT $batchSize SET it.generation = $generation RETURN count(it) AS n",
+                    Map.of("generation", active));
+            if (adopted > 0) {
+                log.info("Adopted {} cached itineraries into generation {}", adopted, active);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to initialize itinerary cache generations: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The generation reads are currently served from.
+     */
+    public long getActiveGeneration() {
+        return neo4jClient.query(
+                        "OPTIONAL MATCH (p:ItineraryCachePointer {name: 'active'}) " +
+                        "RETURN coalesce(p.generation, $initial) AS generation")
+                .bind(INITIAL_GENERATION).to("initial")
+                .fetchAs(Long.class)
+                .mappedBy((typeSystem, record) -> record.get("generation").asLong())
+                .one()
+                .orElse(INITIAL_GENERATION);
+    }
+
+    /**
+     * Claim the building of a generation: succeeds only while the expected generation is still active and
+     * no other build holds a claim renewed within the lease. The claim also lets a crashed build be
+     * recognised and its itineraries collected later.
+     *
+     * @return false if another build holds the claim or the active generation has changed
+     */
+    public boolean claimBuilding(long expectedActive, long generation, long leaseMillis) {
+        return updatePointer(LOCKED_POINTER +
+                        "WHERE p.generation = $expected AND (p.building IS NULL OR p.building_renewed_at IS NULL " +
+                        "OR p.building_renewed_at < datetime() - duration({milliseconds: $lease})) " +
+                        "SET p.building = $generation, p.building_renewed_at = datetime() RETURN count(p) AS n",
+                Map.of("expected", expectedActive, "generation", generation, "lease", leaseMillis));
+    }
+
+    /**
+     * Renew a build's claim.
+     *
+     * @return false if the claim lapsed and another build took it over
+     */
+    public boolean renewBuilding(long generation) {
+        return updatePointer(LOCKED_POINTER +
+                        "WHERE p.building = $generation SET p.building_renewed_at = datetime() RETURN count(p) AS n",
+                Map.of("generation", generation));
+    }
+
+    /**
+     * Release a build's claim, if it still holds it.
+     */
+    public void clearBuilding(long generation) {
+        updatePointer(LOCKED_POINTER +
+                        "WHERE p.building = $generation REMOVE p.building, p.building_renewed_at RETURN count(p) AS n",
+                Map.of("generation", generation));
+    }
+
+    /**
+     * Atomically make the built generation active, provided the active one is still the expected one
+     * and the build still holds its claim.
+     *
+     * @return false if another rebuild flipped the pointer or took over the claim in the meantime
+     */
+    public boolean flip(long expectedActive, long built) {
+        return updatePointer(LOCKED_POINTER +
+                        "WHERE p.generation = $expected AND p.building = $built " +
+                        "SET p.previous = p.generation, p.generation = $built, p.flipped_at = datetime() " +
+                        "REMOVE p.building, p.building_renewed_at RETURN count(p) AS n",
+                Map.of("expected", expectedActive, "built", built));
+    }
+
+    /**
+     * Run a conditional pointer update returning a count n in its own transaction; true if it matched.
+     */
+    private boolean updatePointer(String cypher, Map<String, Object> parameters) {
+        Long updated = batchTransaction.execute(status -> neo4jClient.query(cypher)
+                .bindAll(parameters)
+                .fetchAs(Long.class)
+                .mappedBy((typeSystem, record) -> record.get("n").asLong())
+                .one()
+                .orElse(0L));
+        return updated != null && updated > 0;
+    }
+
+    /**
+     * Distinct routes cached in a generation, departing on or after the given date.
+     */
+    public List<CachedRoute> findCachedRoutes(long generation, LocalDate fromDate) {
+        return List.copyOf(neo4jClient.query(
+                        "MATCH (it:Itinerary) WHERE it.generation = $generation AND it.departure_date >= $fromDate " +
+                        "RETURN DISTINCT it.source AS source, it.destination AS destination, " +
+                        "it.departure_date AS departureDate")
+                .bind(generation).to("generation")
+                .bind(fromDate).to("fromDate")
+                .fetchAs(CachedRoute.class)
+                .mappedBy((typeSystem, record) -> new CachedRoute(
+                        record.get("source").asString(),
+                        record.get("destination").asString(),
+                        record.get("departureDate").asLocalDate()))
+                .all());
+    }
+
+    /**
+     * Delete every itinerary of one generation, in batches.
+     */
+    public long deleteGeneration(long generation) {
+        return runInBatches(
+                "MATCH (it:Itinerary) WHERE it.generation = $generation " +
+                "WITH it LIMIT $batchSize DETACH DELETE it RETURN count(*) AS n",
+                Map.of("generation", generation));
+    }
+
+    /**
+     * Delete itineraries of any generation other than the given ones: leftovers of crashed builds,
+     * or cache-miss writes that raced a flip and landed in the generation being retired.
+     */
+    public long deleteOtherGenerations(long active, long building) {
+        return runInBatches(
+                "MATCH (it:Itinerary) WHERE it.generation <> $active AND it.generation <> $building " +
+                "WITH it LIMIT $batchSize DETACH DELETE it RETURN count(*) AS n",
+                Map.of("active", active, "building", building));
+    }
+
+    /**
+     * Repeat a batch statement returning a count n, one transaction per batch, until it affects nothing.
+     */
+    private long runInBatches(String cypher, Map<String, Object> parameters) {
+        long total = 0;
+        while (true) {
+            Long affected = batchTransaction.execute(status -> neo4jClient.query(cypher)
+                    .bindAll(parameters)
+                    .bind(deleteBatchSize).to("batchSize")
+                    .fetchAs(Long.class)
+                    .mappedBy((typeSystem, record) -> record.get("n").asLong())
+                    .one()
+                    .orElse(0L));
+            if (affected == null || affected == 0) {
+                return total;
+            }
+            total += affected;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.flightbooking.search.service;
+
+import com.flightbooking.search.arena.SearchResponseCache;
+import com.flightbooking.search.entity.Itinerary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Zero-downtime rebuild of the itinerary cache (e.g. after a schedule import).
+ * Regenerates every upcoming route cached in the active generation into a new generation
+ * while reads keep hitting the active one, flips the pointer, then collects the old generation.
+ * A build that cannot regenerate a route completely is discarded and the active generation stays.
+ * Builds claim their generation on the shared pointer first, so at most one runs across all nodes.
+ */
+@Service
+@Slf4j
+public class ItineraryCacheRebuildService {
+
+    private final ItineraryService itineraryService;
+    private final ItineraryCacheGenerations generations;
+    private final RecentGenerationCache recentGenerations;
+    private final SearchResponseCache searchResponseCache;
+    private final Executor rebuildExecutor;
+    private final int routeAttempts;
+    private final long buildLeaseMillis;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    public ItineraryCacheRebuildService(
+            ItineraryService itineraryService,
+            ItineraryCacheGenerations generations,
+            RecentGenerationCache recentGenerations,
+            SearchResponseCache searchResponseCache,
+            @Qualifier("itineraryRebuildExecutor") Executor rebuildExecutor,
+            @Value("${flight-booking.search.itinerary-cache.route-attempts:3}") int routeAttempts,
+            @Value("${flight-booking.search.itinerary-cache.build-lease-ms:300000}") long buildLeaseMillis) {
+        this.itineraryService = itineraryService;
+        this.generations = generations;
+        this.recentGenerations = recentGenerations;
+        this.searchResponseCache = searchResponseCache;
+        this.rebuildExecutor = rebuildExecutor;
+        this.routeAttempts = routeAttempts;
+        this.buildLeaseMillis = buildLeaseMillis;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RebuildResult {
+        private final long previousGeneration;
+        private final long generation;
+        private final int routes;
+        private final int itineraries;
+        private final long deletedItineraries;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * Claim the next generation and build it in the background.
+     *
+     * @throws IllegalStateException if a rebuild is already running on this node or holds the claim on another
+     */
+    public CompletableFuture<RebuildResult> startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new IllegalStateException("Itinerary cache rebuild already in progress");
+        }
+        long active;
+        long building;
+        try {
+            active = generations.getActiveGeneration();
+            building = Math.max(System.currentTimeMillis(), active + 1);
+            if (!generations.claimBuilding(active, building, buildLeaseMillis)) {
+                throw new IllegalStateException("Itinerary cache rebuild already in progress on another node");
+            }
+        } catch (RuntimeException e) {
+            rebuilding.set(false);
+            throw e;
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> rebuild(active, building), rebuildExecutor)
+                    .whenComplete((result, error) -> {
+                        rebuilding.set(false);
+                        if (error != null) {
+                            log.error("Itinerary cache rebuild failed: {}", error.getMessage(), error);
+                        }
+                    });
+        } catch (RuntimeException e) {
+            generations.clearBuilding(building);
+            rebuilding.set(false);
+            throw e;
+        }
+    }
+
+    private RebuildResult rebuild(long active, long building) {
+        long start = System.nanoTime();
+        long stale = generations.deleteOtherGenerations(active, building);
+        if (stale > 0) {
+            log.info("Deleted {} itineraries left over from earlier builds", stale);
+        }
+
+        List<ItineraryCacheGenerations.CachedRoute> routes =
+                generations.findCachedRoutes(active, LocalDate.now(ZoneOffset.UTC));
+        log.info("Rebuilding itinerary cache generation {} -> {} for {} routes", active, building, routes.size());
+
+        int built = 0;
+        try {
+            for (ItineraryCacheGenerations.CachedRoute route : routes) {
+                List<Itinerary> itineraries = generateComplete(route);
+                itineraries.forEach(itinerary -> itinerary.setGeneration(building));
+                itineraryService.cacheItineraries(itineraries);
+                built += itineraries.size();
+                if (!generations.renewBuilding(building)) {
+                    throw new IllegalStateException("Claim on itinerary generation " + building + " lapsed during rebuild");
+                }
+            }
+        } catch (RuntimeException e) {
+            discard(building);
+            throw e;
+        }
+
+        if (!generations.flip(active, building)) {
+            discard(building);
+            throw new IllegalStateException("Active itinerary generation or build claim changed during rebuild of " + building);
+        }
+        // Recent generations and cached responses were built against the old schedule
+        recentGenerations.clear();
+        searchResponseCache.clear();
+        log.info("Itinerary cache generation {} active ({} itineraries)", building, built);
+
+        long deleted = generations.deleteGeneration(active);
+        log.info("Rebuilt itinerary cache in {} ms, deleted {} itineraries of generation {}",
+                (System.nanoTime() - start) / 1_000_000, deleted, active);
+        return new RebuildResult(active, building, routes.size(), built, deleted);
+    }
+
+    /**
+     * Generate a route, retrying when a stage misses the deadline; partial results are never cached.
+     */
+    private List<Itinerary> generateComplete(ItineraryCacheGenerations.CachedRoute route) {
+        for (int attempt = 1; attempt <= routeAttempts; attempt++) {
+            ItineraryGenerationResult result = itineraryService.createItineraries(
+                    route.getSource(), route.getDestination(), route.getDepartureDate());
+            if (!result.isPartial()) {
+                return result.getItineraries();
+            }
+            log.warn("Rebuild of {} -> {} on {} incomplete (attempt {} of {}), stages: {}",
+                    route.getSource(), route.getDestination(), route.getDepartureDate(),
+                    attempt, routeAttempts, result.getIncompleteStages());
+        }
+        throw new IllegalStateException("Could not fully regenerate " + route.getSource() + " -> "
+                + route.getDestination() + " on " + route.getDepartureDate());
+    }
+
+    private void discard(long building) {
+        try {
+            generations.clearBuilding(building);
+            long deleted = generations.deleteGeneration(building);
+            log.warn("Discarded itinerary cache generation {} ({} itineraries)", building, deleted);
+        } catch (RuntimeException e) {
+            // Collected by the next rebuild
+            log.error("Failed to discard itinerary cache generation {}: {}", building, e.getMessage());
+        }
+    }
+}
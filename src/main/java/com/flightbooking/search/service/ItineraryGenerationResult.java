@@ -0,0 +1,25 @@
+package com.flightbooking.search.service;
+
+import com.flightbooking.search.entity.Itinerary;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Result of a deadline-bounded itinerary generation.
+ * Carries the itineraries from every stage that finished in time plus the stages that did not.
+ */
+@Getter
+@AllArgsConstructor
+public class ItineraryGenerationResult {
+
+    private final List<Itinerary> itineraries;
+
+    private final List<SearchStage> incompleteStages;
+
+    // Helper method to check if some stages missed the deadline or failed
+    public boolean isPartial() {
+        return !incompleteStages.isEmpty();
+    }
+}
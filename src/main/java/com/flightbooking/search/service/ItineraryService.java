@@ -8,18 +8,30 @@ import com.flightbooking.search.entity.FlightInstanceNode;
 import com.flightbooking.search.entity.Itinerary;
 import com.flightbooking.search.repository.FlightInstanceNodeRepository;
 import com.flightbooking.search.repository.ItineraryRepository;
+import com.flightbooking.search.util.SearchCursor;
+import com.flightbooking.search.util.TimeWindow;
 import org.springframework.data.neo4j.core.Neo4jClient;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -29,144 +41,310 @@ import java.security.NoSuchAlgorithmException;
  * Handles graph traversal, validation, and itinerary creation using hybrid approach.
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ItineraryService {
 
     private final FlightInstanceNodeRepository flightInstanceNodeRepository;
     private final ItineraryRepository itineraryRepository;
+    private final ItineraryCacheGenerations cacheGenerations;
+    private final SearchStageMetrics stageMetrics;
     private final Neo4jClient neo4jClient;
+    private final PlatformTransactionManager transactionManager;
+    private final Executor searchExecutor;
+    private final long searchDeadlineMs;
 
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private static final int MAX_RESULTS = 100;
+    public ItineraryService(
+            FlightInstanceNodeRepository flightInstanceNodeRepository,
+            ItineraryRepository itineraryRepository,
+            ItineraryCacheGenerations cacheGenerations,
+            SearchStageMetrics stageMetrics,
+            Neo4jClient neo4jClient,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("searchExecutor") Executor searchExecutor,
+            @Value("${flight-booking.search.deadline-ms:2000}") long searchDeadlineMs) {
+        this.flightInstanceNodeRepository = flightInstanceNodeRepository;
+        this.itineraryRepository = itineraryRepository;
+        this.cacheGenerations = cacheGenerations;
+        this.stageMetrics = stageMetrics;
+        this.neo4jClient = neo4jClient;
+        this.transactionManager = transactionManager;
+        this.searchExecutor = searchExecutor;
+        this.searchDeadlineMs = searchDeadlineMs;
+    }
+
+    // Cached rows a streamed search replays, counted after the seat and time filters
+    private static final int MAX_STREAMED_RESULTS = 100;
 
     private static final int MAX_STOPS = 2;
 
+    // Keyset order shared by the graph query, generation and in-process paging; the flight-leg hash
+    // tiebreak is the same in every engine and generation, so a cursor survives a rebuild or a fallback
+    public static final Comparator<Itinerary> RESULT_ORDER =
+            Comparator.comparing(Itinerary::getTotalPrice).thenComparing(Itinerary::getFlightLegsHash);
+
         /**
-     * Find cached itineraries for the search criteria.
+     * Find the cheapest cached itineraries for the search criteria, time window included.
      */
     @Transactional(readOnly = true)
     public List<Itinerary> findCachedItineraries(SearchRequest searchRequest) {
-        String searchKey = Itinerary.generateSearchKey(
-                searchRequest.getSource(), 
-                searchRequest.getDestination(), 
-                searchRequest.getDepartureDate()
-        );
+        return findCachedPage(searchRequest, null, MAX_STREAMED_RESULTS);
+    }
 
-        return itineraryRepository.findBySearchKeyWithSeatFilter(
-                searchKey, 
-                searchRequest.getPassengerCount()
-        );
+    /**
+     * Find one page of cached itineraries in (price, flight-leg hash) order, starting strictly after the cursor.
+     * The seat and time filters run in the query, before the limit.
+     *
+     * @param after Cursor from the previous page, or null for the first page
+     * @param limit Maximum rows to read (callers ask for one extra row to detect a next page)
+     */
+    @Transactional(readOnly = true)
+    public List<Itinerary> findCachedPage(SearchRequest searchRequest, SearchCursor after, int limit) {
+        TimeWindow window = searchRequest.getTimeWindow();
+        if (!window.isUnbounded()) {
+            return stageMetrics.record("cache_lookup", () -> itineraryRepository.findPageByRouteKeyWithSeatAndTimeFilter(
+                    searchRequest.getRouteDateKey(),
+                    searchRequest.getPassengerCount(),
+                    window.departFromTime(),
+                    window.departToTime(),
+                    window.arriveFromTime(),
+                    window.arriveToTime(),
+                    after != null ? after.getLastPrice() : null,
+                    after != null ? after.getLastId() : null,
+                    limit
+            ));
+        }
+        return stageMetrics.record("cache_lookup", () -> itineraryRepository.findPageByRouteKeyWithSeatFilter(
+                searchRequest.getRouteDateKey(),
+                searchRequest.getPassengerCount(),
+                after != null ? after.getLastPrice() : null,
+                after != null ? after.getLastId() : null,
+                limit
+        ));
+    }
+
+    /**
+     * Whether the route and date of the search are cached, even if no cached itinerary passes its
+     * seat and time filters.
+     */
+    @Transactional(readOnly = true)
+    public boolean isRouteCached(SearchRequest searchRequest) {
+        return stageMetrics.record("cache_lookup", () -> itineraryRepository.existsByRouteKey(searchRequest.getRouteDateKey()));
     }
 
         /**
      * Generate itineraries on-the-fly using hybrid graph traversal approach.
-     * Creates passenger-agnostic itineraries that will be cached for all future searches.
+     * Creates passenger-agnostic itineraries that will be cached for all future searches; the whole
+     * route/date set is cached, so any time window pages over every itinerary of the route. Partial results (some stage missed the deadline) are returned but never cached.
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
-    public List<Itinerary> generateItineraries(SearchRequest searchRequest) {
+    public ItineraryGenerationResult generateItineraries(SearchRequest searchRequest) {
         log.info("Generating itineraries using hybrid graph traversal: {} to {} on {}", 
                 searchRequest.getSource(), searchRequest.getDestination(), searchRequest.getDepartureDate());
 
         // Delegate to ItineraryService for actual itinerary creation
-        List<Itinerary> itineraries = createItineraries(
+        ItineraryGenerationResult result = createItineraries(
                 searchRequest.getSource(),
                 searchRequest.getDestination(), 
                 searchRequest.getDepartureDate(),
                 MAX_STOPS // Max 2 stops (3 flights total)
         );
-
-                // Step 3: Save generated itineraries for future searches (passenger-agnostic)
-                if (!itineraries.isEmpty()) {
-                    log.info("Saving {} generated itineraries to cache", itineraries.size());
-                    saveUniqueItineraries(itineraries);
-                }
+        List<Itinerary> itineraries = result.getItineraries();
+
+        // Step 3: Save generated itineraries for future searches (passenger-agnostic)
+        if (result.isPartial()) {
+            log.warn("Not caching partial result for {} -> {} on {}, incomplete stages: {}",
+                    searchRequest.getSource(), searchRequest.getDestination(),
+                    searchRequest.getDepartureDate(), result.getIncompleteStages());
+        } else if (!itineraries.isEmpty()) {
+            log.info("Saving {} generated itineraries to cache", itineraries.size());
+            stageMetrics.record("cache_write", () -> saveUniqueItineraries(itineraries));
+        }
 
         log.info("Generated {} itineraries using hybrid approach", itineraries.size());
-        return itineraries;
+        return result;
     }
 
     /**
      * Create itineraries using hybrid graph traversal approach.
-     * Single query finds all paths, Java validates layovers and creates itineraries.
+     * Direct, one-stop and two-stop stages run concurrently under a single request deadline;
+     * whatever finished in time is returned and the rest is reported as incomplete.
      */
-    public List<Itinerary> createItineraries(String source, String destination, LocalDate date, int maxStops) {
+    public ItineraryGenerationResult createItineraries(String source, String destination, LocalDate date, int maxStops) {
         log.debug("Creating itineraries: {} to {} on {} (max {} stops)", source, destination, date, maxStops);
-        
-        List<Object[]> pathResults = new ArrayList<>();
-        
-        // Convert LocalDate to OffsetDateTime for repository calls
-        OffsetDateTime departureDateTime = date.atStartOfDay().atOffset(java.time.ZoneOffset.UTC);
-        
-        // Find direct flights first
-        List<FlightInstanceNode> directFlights = flightInstanceNodeRepository.findDirectFlights(source, destination, departureDateTime);
-        for (FlightInstanceNode flight : directFlights) {
-            pathResults.add(new Object[]{List.of(flight), 1});
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchDeadlineMs);
+        Map<SearchStage, CompletableFuture<List<Itinerary>>> stages = launchStages(source, destination, date, maxStops);
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        List<SearchStage> incompleteStages = new ArrayList<>();
+
+        for (Map.Entry<SearchStage, CompletableFuture<List<Itinerary>>> stage : stages.entrySet()) {
+            long remainingNanos = Math.max(0, deadlineNanos - System.nanoTime());
+            try {
+                itineraries.addAll(stage.getValue().get(remainingNanos, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // Normally surfaces as ExecutionException via orTimeout; kept for the remaining-time race
+                log.warn("Search stage {} for {} -> {} on {} missed the {} ms deadline",
+                        stage.getKey(), source, destination, date, searchDeadlineMs);
+                stage.getValue().cancel(true);
+                incompleteStages.add(stage.getKey());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof TimeoutException) {
+                    log.warn("Search stage {} for {} -> {} on {} missed the {} ms deadline",
+                            stage.getKey(), source, destination, date, searchDeadlineMs);
+                } else {
+                    log.error("Search stage {} for {} -> {} on {} failed: {}",
+                            stage.getKey(), source, destination, date, e.getCause().getMessage());
+                }
+                incompleteStages.add(stage.getKey());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                incompleteStages.add(stage.getKey());
+            }
         }
-        log.debug("Found {} direct flights for {} -> {} on {}", directFlights.size(), source, destination, date);
-        
-        // Find connecting flights if maxStops > 0
-        if (maxStops > 0) {
 
+        log.debug("Collected {} itineraries from graph traversal, incomplete stages: {}",
+                itineraries.size(), incompleteStages);
 
-            
-            // Test the repository methods to see what response we get
-            log.info("Testing findConnectingFlightsFirstLegIds for {} -> {} on {}", source, destination, departureDateTime);
+        // Not capped: a time window is applied per page, and a cap here would drop rows it matches
+        List<Itinerary> sorted = itineraries.stream()
+                .sorted(RESULT_ORDER)
+                .collect(Collectors.toList());
+        return new ItineraryGenerationResult(sorted, incompleteStages);
+    }
+
+    /**
+     * Create itineraries with every stage needed for a full (cacheable) generation.
+     */
+    public ItineraryGenerationResult createItineraries(String source, String destination, LocalDate date) {
+        return createItineraries(source, destination, date, MAX_STOPS);
+    }
+
+    /**
+     * Launch every stage needed for a full (cacheable) generation.
+     */
+    public Map<SearchStage, CompletableFuture<List<Itinerary>>> launchStages(String source, String destination, LocalDate date) {
+        return launchStages(source, destination, date, MAX_STOPS);
+    }
+
+    /**
+     * Launch one generation task per stage on the search executor.
+     * Each future completes with the validated itineraries for that stage, or exceptionally
+     * with a TimeoutException once the search deadline has passed.
+     */
+    public Map<SearchStage, CompletableFuture<List<Itinerary>>> launchStages(String source, String destination,
+                                                                             LocalDate date, int maxStops) {
+        Map<SearchStage, CompletableFuture<List<Itinerary>>> stages = new EnumMap<>(SearchStage.class);
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchDeadlineMs);
+        for (SearchStage stage : SearchStage.upTo(maxStops)) {
+            CompletableFuture<List<Itinerary>> future;
             try {
-                List<Map<String, Object>> rows = flightInstanceNodeRepository.findConnectingFlightsWithOneStop(source, destination, departureDateTime);
-
-                for (Map<String,Object> row : rows) {
-                    // Convert Neo4j nodes to FlightInstanceNode objects
-                    Object flightsObj = row.get("flights");
-                    if (flightsObj instanceof List) {
-                        @SuppressWarnings("unchecked")
-                        List<Object> flightsList = (List<Object>) flightsObj;
-                        List<FlightInstanceNode> flights = new ArrayList<>();
-                        
-                        for (Object flightObj : flightsList) {
-                            if (flightObj instanceof org.neo4j.driver.types.Node) {
-                                org.neo4j.driver.types.Node node = (org.neo4j.driver.types.Node) flightObj;
-                                // Convert Neo4j node to FlightInstanceNode
-                                FlightInstanceNode flight = convertNodeToFlightInstance(node);
-                                flights.add(flight);
-                            }
-                        }
-                        
-                        if (flights.size() == 2) {
-                            pathResults.add(new Object[]{flights, 2});
-                        }
+                future = CompletableFuture.supplyAsync(
+                        () -> createStageItineraries(stage, source, destination, date, deadlineNanos), searchExecutor);
+            } catch (RejectedExecutionException e) {
+                log.warn("Search executor saturated, rejecting stage {}", stage);
+                future = CompletableFuture.failedFuture(e);
+            }
+            stages.put(stage, future.orTimeout(searchDeadlineMs, TimeUnit.MILLISECONDS));
+        }
+        return stages;
+    }
+
+    /**
+     * Run a single stage: query candidate paths, validate layovers and build itineraries.
+     * Cancelling the stage future does not interrupt a running query, so the graph query runs in its own
+     * read-only transaction whose timeout is the time left until the deadline (rounded up to whole seconds):
+     * the driver passes it to the server, which terminates an abandoned query instead of finishing it.
+     * A stage that only starts once the deadline has passed does not query at all.
+     */
+    public List<Itinerary> createStageItineraries(SearchStage stage, String source, String destination, LocalDate date,
+                                                  long deadlineNanos) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+        if (remainingMillis <= 0) {
+            throw new CompletionException(new TimeoutException("Search stage " + stage + " started after the deadline"));
+        }
+
+        // Convert LocalDate to OffsetDateTime for repository calls
+        OffsetDateTime departureDateTime = date.atStartOfDay().atOffset(java.time.ZoneOffset.UTC);
+
+        TransactionTemplate stageTransaction = new TransactionTemplate(transactionManager);
+        stageTransaction.setReadOnly(true);
+        stageTransaction.setTimeout((int) TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999));
+
+        String queryStage = stage.name().toLowerCase(Locale.ROOT) + "_query";
+        List<List<FlightInstanceNode>> paths = stageMetrics.record(queryStage, () -> stageTransaction.execute(
+                status -> findStagePaths(stage, source, destination, departureDateTime)));
+        stageMetrics.recordCandidates(queryStage, paths.size());
+        log.debug("Found {} {} paths for {} -> {} on {}", paths.size(), stage, source, destination, date);
+
+        return buildItineraries(paths, date);
+    }
+
+    /**
+     * Validate candidate flight paths and turn the valid ones into itineraries, in result order.
+     * Shared by every search engine so layover rules and leg JSON stay identical across engines.
+     */
+    public List<Itinerary> buildItineraries(List<List<FlightInstanceNode>> paths, LocalDate date) {
+        // Validate flight sequence and layovers in Java (cleaner logic)
+        List<List<FlightInstanceNode>> validPaths = stageMetrics.record("validation", () -> paths.stream()
+                .filter(this::isValidFlightSequence)
+                .collect(Collectors.toList()));
+        stageMetrics.recordCandidates("validation", validPaths.size());
+
+        return stageMetrics.record("itinerary_build", () -> validPaths.stream()
+                .map(flights -> createItineraryFromFlights(flights, date))
+                .sorted(RESULT_ORDER)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Query the graph for candidate flight paths of a single stage.
+     */
+    private List<List<FlightInstanceNode>> findStagePaths(SearchStage stage, String source, String destination,
+                                                          OffsetDateTime departureDateTime) {
+        switch (stage) {
+            case DIRECT:
+                return flightInstanceNodeRepository.findDirectFlights(source, destination, departureDateTime).stream()
+                        .map(List::of)
+                        .collect(Collectors.toList());
+            case ONE_STOP:
+                return toFlightPaths(flightInstanceNodeRepository.findConnectingFlightsWithOneStop(
+                        source, destination, departureDateTime), stage.getLegs());
+            case TWO_STOP:
+                return toFlightPaths(flightInstanceNodeRepository.findConnectingFlightsWithTwoStops(
+                        source, destination, departureDateTime), stage.getLegs());
+            default:
+                throw new IllegalArgumentException("Unsupported search stage: " + stage);
+        }
+    }
+
+    /**
+     * Convert {flights: [...]} rows returned by connecting-flight queries into flight paths.
+     */
+    private List<List<FlightInstanceNode>> toFlightPaths(List<Map<String, Object>> rows, int expectedLegs) {
+        List<List<FlightInstanceNode>> paths = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            // Convert Neo4j nodes to FlightInstanceNode objects
+            Object flightsObj = row.get("flights");
+            if (flightsObj instanceof List) {
+                @SuppressWarnings("unchecked")
+                List<Object> flightsList = (List<Object>) flightsObj;
+                List<FlightInstanceNode> flights = new ArrayList<>();
+
+                for (Object flightObj : flightsList) {
+                    if (flightObj instanceof org.neo4j.driver.types.Node) {
+                        flights.add(convertNodeToFlightInstance((org.neo4j.driver.types.Node) flightObj));
                     }
                 }
 
-            } catch (Exception e) {
-                log.error("Error calling findConnectingFlights methods: {}", e.getMessage());
+                if (flights.size() == expectedLegs) {
+                    paths.add(flights);
+                }
             }
-            
         }
-        
-        log.debug("Found {} total paths from Neo4j graph traversal", pathResults.size());
-        
-        return pathResults.stream()
-                .map(result -> {
-                    @SuppressWarnings("unchecked")
-                    List<FlightInstanceNode> flights = (List<FlightInstanceNode>) result[0];
-                    Integer pathLength = (Integer) result[1];
-                    
-                    log.debug("Processing path with {} flights, length: {}", flights.size(), pathLength);
-                    
-                    // Validate flight sequence and layovers in Java (cleaner logic)
-                    if (!isValidFlightSequence(flights)) {
-                        log.debug("Invalid flight sequence - skipping");
-                        return null; // Filter out invalid sequences
-                    }
-                    
-                    return createItineraryFromFlights(flights, date);
-                })
-                .filter(Objects::nonNull)
-                .sorted(Comparator.comparing(Itinerary::getTotalPrice))
-                .limit(MAX_RESULTS)
-                .collect(Collectors.toList());
+        return paths;
     }
 
     /**
@@ -222,6 +400,11 @@ public class ItineraryService {
                 flights.get(flights.size() - 1).getDestination(), 
                 departureDate
         );
+        long routeKey = Itinerary.generateRouteKey(
+                flights.get(0).getSource(),
+                flights.get(flights.size() - 1).getDestination(),
+                departureDate
+        );
 
         // Calculate total price and duration
         long totalPrice = flights.stream().mapToLong(FlightInstanceNode::getPriceMoney).sum();
@@ -256,8 +439,11 @@ public class ItineraryService {
                 .legs(flights.size())
                 .totalPrice(totalPrice)
                 .totalDuration(totalDuration)
+                .departureTime(flights.get(0).getDepartureTime())
+                .arrivalTime(flights.get(flights.size() - 1).getArrivalTime())
                 .minAvailableSeats(minAvailableSeats)
                 .searchKey(searchKey)
+                .routeKey(routeKey)
                 .flightLegsJson(flightLegsJson)
                 .flightLegsHash(flightLegsHash)
                 .createdAt(OffsetDateTime.now())
@@ -334,11 +520,30 @@ public class ItineraryService {
         }
     }
 
+    /**
+     * Cache itineraries produced outside generateItineraries (e.g. by a streamed search or a rebuild).
+     * Like a generated result the whole set is cached. Callers must only pass complete results.
+     */
+    @Transactional
+    public void cacheItineraries(List<Itinerary> itineraries) {
+        if (!itineraries.isEmpty()) {
+            log.info("Saving {} itineraries to cache", itineraries.size());
+            stageMetrics.record("cache_write", () -> saveUniqueItineraries(itineraries));
+        }
+    }
+
     /**
      * Save itineraries with duplicate prevention using the unique constraint.
-     * The database will handle uniqueness based on flightLegsHash.
+     * The database will handle uniqueness based on (generation, flightLegsHash).
+     * Itineraries without a generation go into the active one.
      */
     private void saveUniqueItineraries(List<Itinerary> itineraries) {
+        if (itineraries.stream().anyMatch(itinerary -> itinerary.getGeneration() == null)) {
+            long activeGeneration = cacheGenerations.getActiveGeneration();
+            itineraries.stream()
+                    .filter(itinerary -> itinerary.getGeneration() == null)
+                    .forEach(itinerary -> itinerary.setGeneration(activeGeneration));
+        }
         try {
             // Try to save all itineraries - Neo4j will enforce uniqueness constraint
             itineraryRepository.saveAll(itineraries);
@@ -0,0 +1,73 @@
+package com.flightbooking.search.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived in-process cache of recently generated itinerary lists, keyed by packed route key.
+ * Lets later pages of a cache-miss search (including partial results that were never written to
+ * the graph) resume from memory instead of re-querying Neo4j.
+ */
+@Component
+public class RecentGenerationCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Long, Entry> entries;
+
+    public RecentGenerationCache(
+            @Value("${flight-booking.search.recent-generations.max-entries:1000}") int maxEntries,
+            @Value("${flight-booking.search.recent-generations.ttl-seconds:120}") long ttlSeconds) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > RecentGenerationCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Store a generation result; the itineraries must already be sorted by (price, flight-leg hash).
+     */
+    public synchronized void put(long routeKey, ItineraryGenerationResult result) {
+        entries.put(routeKey, new Entry(result, System.nanoTime()));
+    }
+
+    /**
+     * Get a live generation result, or null if absent or expired.
+     */
+    public synchronized ItineraryGenerationResult get(long routeKey) {
+        Entry entry = entries.get(routeKey);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAtNanos > ttlNanos) {
+            entries.remove(routeKey);
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * Drop every entry, e.g. once the cache they were generated against has been replaced.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private final ItineraryGenerationResult result;
+        private final long storedAtNanos;
+
+        private Entry(ItineraryGenerationResult result, long storedAtNanos) {
+            this.result = result;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+}
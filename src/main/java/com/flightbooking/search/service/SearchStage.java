@@ -0,0 +1,41 @@
+package com.flightbooking.search.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stages of itinerary generation, one per number of stops.
+ * Each stage is an independent graph query and can run concurrently with the others.
+ */
+public enum SearchStage {
+    DIRECT(0),
+    ONE_STOP(1),
+    TWO_STOP(2);
+
+    private final int stops;
+
+    SearchStage(int stops) {
+        this.stops = stops;
+    }
+
+    public int getStops() {
+        return stops;
+    }
+
+    public int getLegs() {
+        return stops + 1;
+    }
+
+    /**
+     * Stages needed to cover itineraries with at most the given number of stops.
+     */
+    public static List<SearchStage> upTo(int maxStops) {
+        List<SearchStage> stages = new ArrayList<>();
+        for (SearchStage stage : values()) {
+            if (stage.stops <= maxStops) {
+                stages.add(stage);
+            }
+        }
+        return stages;
+    }
+}
@@ -0,0 +1,140 @@
+package com.flightbooking.search.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage search instrumentation, exported through the Prometheus registry:
+ *
+ *   search.stage.duration{stage}          timer (with histogram) per stage
+ *   search.stage.allocated.bytes{stage}   bytes allocated by the thread that ran the stage
+ *   search.stage.candidates{stage}        candidate counts (paths found, paths valid, ...)
+ *   search.request.allocated.bytes        bytes allocated on the request thread per search
+ *   search.cache.lookups{result}          itinerary cache lookups: hit, recent, negative, miss
+ *
+ * Allocation is read from com.sun.management.ThreadMXBean where the JVM supports it. Stages that
+ * run on the search executor are measured on their own thread, so request totals exclude them.
+ */
+@Component
+@Slf4j
+public class SearchStageMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> allocations = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> candidates = new ConcurrentHashMap<>();
+    private final Map<String, Counter> cacheLookups = new ConcurrentHashMap<>();
+    private final DistributionSummary requestAllocation;
+
+    public SearchStageMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${flight-booking.search.metrics.allocation-tracking:true}") boolean allocationTracking) {
+        this.meterRegistry = meterRegistry;
+        this.threadBean = allocationTracking ? allocationBean() : null;
+        this.requestAllocation = DistributionSummary.builder("search.request.allocated.bytes")
+                .description("Bytes allocated on the request thread per search")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run one stage, recording its duration and allocated bytes.
+     */
+    public <T> T record(String stage, Supplier<T> work) {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            timer(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            recordAllocation(allocations.computeIfAbsent(stage, this::allocationSummary), allocatedBefore);
+        }
+    }
+
+    public void record(String stage, Runnable work) {
+        record(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a whole search on the request thread, recording the bytes it allocated.
+     */
+    public <T> T recordRequest(Supplier<T> search) {
+        long allocatedBefore = allocatedBytes();
+        try {
+            return search.get();
+        } finally {
+            recordAllocation(requestAllocation, allocatedBefore);
+        }
+    }
+
+    public void recordCandidates(String stage, int count) {
+        candidates.computeIfAbsent(stage, name -> DistributionSummary.builder("search.stage.candidates")
+                        .description("Candidate counts per search stage")
+                        .tag("stage", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(count);
+    }
+
+    public void recordCacheLookup(String result) {
+        cacheLookups.computeIfAbsent(result, name -> Counter.builder("search.cache.lookups")
+                        .description("Itinerary cache lookups by result")
+                        .tag("result", name)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private Timer timer(String stage) {
+        return timers.computeIfAbsent(stage, name -> Timer.builder("search.stage.duration")
+                .description("Duration of one search stage")
+                .tag("stage", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private DistributionSummary allocationSummary(String stage) {
+        return DistributionSummary.builder("search.stage.allocated.bytes")
+                .description("Bytes allocated by the thread running a search stage")
+                .baseUnit("bytes")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private void recordAllocation(DistributionSummary summary, long allocatedBefore) {
+        if (allocatedBefore >= 0) {
+            summary.record(allocatedBytes() - allocatedBefore);
+        }
+    }
+
+    private long allocatedBytes() {
+        return threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        log.warn("Thread allocation tracking not supported by this JVM; search allocation metrics disabled");
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+package com.flightbooking.search.timetable;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Recurring flight schedule: one flight number flying the same route at the same time of day,
+ * at the same price, on a set of weekdays within a validity range, minus cancelled dates.
+ * Stands in for every instance it covers; instances are expanded only for the dates queried.
+ *
+ * Times are UTC seconds of day since airports carry no time zone. Dates are epoch days.
+ * Weekday bit 0 is Monday through bit 6 Sunday.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public final class FlightSchedule {
+
+    public static final long SECONDS_PER_DAY = 86_400;
+
+    private final String flightNo;
+    private final int source;
+    private final int destination;
+    private final int departureSecondOfDay;
+    private final int durationSeconds;
+    private final int weekdayMask;
+    private final long validFromEpochDay;
+    private final long validToEpochDay; // Inclusive
+    private final long priceMoney; // Price in cents
+    private final long[] cancelledEpochDays; // Sorted
+
+    public static int weekdayBit(long epochDay) {
+        // 1970-01-01 was a Thursday (bit 3)
+        return 1 << (int) Math.floorMod(epochDay + 3, 7);
+    }
+
+    /**
+     * Whether the schedule operates on the given date.
+     */
+    public boolean operatesOn(long epochDay) {
+        return epochDay >= validFromEpochDay && epochDay <= validToEpochDay
+                && (weekdayMask & weekdayBit(epochDay)) != 0
+                && Arrays.binarySearch(cancelledEpochDays, epochDay) < 0;
+    }
+
+    /**
+     * The (unresolved) instance departing on the given date.
+     */
+    public TimetableFlight instanceOn(long epochDay) {
+        long departure = epochDay * SECONDS_PER_DAY + departureSecondOfDay;
+        return new TimetableFlight(TimetableFlight.UNRESOLVED, flightNo, source, destination,
+                departure, departure + durationSeconds, priceMoney);
+    }
+
+    /**
+     * Visit instances departing in [fromEpochSecond, toEpochSecond), in departure order.
+     */
+    public void forEachDeparture(long fromEpochSecond, long toEpochSecond, Consumer<TimetableFlight> visitor) {
+        long firstDay = Math.max(validFromEpochDay,
+                Math.floorDiv(fromEpochSecond - departureSecondOfDay + SECONDS_PER_DAY - 1, SECONDS_PER_DAY));
+        long lastDay = Math.min(validToEpochDay,
+                Math.floorDiv(toEpochSecond - 1 - departureSecondOfDay, SECONDS_PER_DAY));
+        for (long day = firstDay; day <= lastDay; day++) {
+            if (operatesOn(day)) {
+                visitor.accept(instanceOn(day));
+            }
+        }
+    }
+
+    /**
+     * Visit instances arriving in [fromEpochSecond, toEpochSecond), in arrival order.
+     */
+    public void forEachArrival(long fromEpochSecond, long toEpochSecond, Consumer<TimetableFlight> visitor) {
+        forEachDeparture(fromEpochSecond - durationSeconds, toEpochSecond - durationSeconds, visitor);
+    }
+
+    /**
+     * Visit every instance of the schedule.
+     */
+    public void forEachInstance(Consumer<TimetableFlight> visitor) {
+        for (long day = validFromEpochDay; day <= validToEpochDay; day++) {
+            if (operatesOn(day)) {
+                visitor.accept(instanceOn(day));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.flightbooking.search.timetable;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Folds flight instances into recurring schedules.
+ * Instances are grouped by flight number, route, UTC departure time of day, duration and price;
+ * a group with at least minOccurrences instances, one per date, becomes a schedule whose weekday
+ * mask covers its dates and whose cancellations are the masked dates without an instance.
+ * Instances that fit no schedule (one-offs, retimed or repriced dates) stay explicit, so
+ * expanding the result reproduces the input exactly, apart from instance ids.
+ */
+public final class ScheduleCompressor {
+
+    private ScheduleCompressor() {
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static final class Result {
+        private final List<FlightSchedule> schedules;
+        private final List<TimetableFlight> instances;
+    }
+
+    public static Result compress(List<TimetableFlight> flights, int minOccurrences) {
+        Map<GroupKey, List<TimetableFlight>> groups = new HashMap<>();
+        for (TimetableFlight flight : flights) {
+            groups.computeIfAbsent(GroupKey.of(flight), key -> new ArrayList<>()).add(flight);
+        }
+
+        List<FlightSchedule> schedules = new ArrayList<>();
+        List<TimetableFlight> instances = new ArrayList<>();
+        for (Map.Entry<GroupKey, List<TimetableFlight>> group : groups.entrySet()) {
+            FlightSchedule schedule = group.getValue().size() >= minOccurrences
+                    ? toSchedule(group.getKey(), group.getValue())
+                    : null;
+            if (schedule != null) {
+                schedules.add(schedule);
+            } else {
+                instances.addAll(group.getValue());
+            }
+        }
+        return new Result(schedules, instances);
+    }
+
+    /**
+     * Build a schedule for one group, or null when it would not be smaller than its instances
+     * (two instances on one date, or more cancellations than operating dates).
+     */
+    private static FlightSchedule toSchedule(GroupKey key, List<TimetableFlight> group) {
+        long[] days = group.stream().mapToLong(TimetableFlight::getDepartureEpochDay).sorted().toArray();
+        int weekdayMask = 0;
+        for (int i = 0; i < days.length; i++) {
+            if (i > 0 && days[i] == days[i - 1]) {
+                return null;
+            }
+            weekdayMask |= FlightSchedule.weekdayBit(days[i]);
+        }
+
+        List<Long> cancelled = new ArrayList<>();
+        int next = 0;
+        for (long day = days[0]; day <= days[days.length - 1]; day++) {
+            if (days[next] == day) {
+                next++;
+            } else if ((weekdayMask & FlightSchedule.weekdayBit(day)) != 0) {
+                cancelled.add(day);
+                if (cancelled.size() > days.length) {
+                    return null;
+                }
+            }
+        }
+
+        return new FlightSchedule(key.flightNo, key.source, key.destination, key.departureSecondOfDay,
+                key.durationSeconds, weekdayMask, days[0], days[days.length - 1], key.priceMoney,
+                cancelled.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class GroupKey {
+        private final String flightNo;
+        private final int source;
+        private final int destination;
+        private final int departureSecondOfDay;
+        private final int durationSeconds;
+        private final long priceMoney;
+
+        static GroupKey of(TimetableFlight flight) {
+            return new GroupKey(flight.getFlightNo(), flight.getSource(), flight.getDestination(),
+                    (int) Math.floorMod(flight.getDepartureEpochSecond(), FlightSchedule.SECONDS_PER_DAY),
+                    (int) (flight.getArrivalEpochSecond() - flight.getDepartureEpochSecond()),
+                    flight.getPriceMoney());
+        }
+    }
+}
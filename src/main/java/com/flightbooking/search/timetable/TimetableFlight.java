@@ -0,0 +1,79 @@
+package com.flightbooking.search.timetable;
+
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.search.util.RouteDateKey;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Immutable timetable entry for one flight instance.
+ * Airports are stored as packed codes (see {@link RouteDateKey#encodeAirport(String)}) and
+ * times as UTC epoch seconds, matching the fixed-size snapshot record layout.
+ * Instances expanded from a {@link FlightSchedule} carry id {@link #UNRESOLVED} until their
+ * PostgreSQL id is looked up by flight number and departure time.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public final class TimetableFlight {
+
+    public static final long UNRESOLVED = 0;
+
+    private final long id;
+    private final String flightNo;
+    private final int source;
+    private final int destination;
+    private final long departureEpochSecond;
+    private final long arrivalEpochSecond;
+    private final long priceMoney; // Price in cents
+
+    public static TimetableFlight from(FlightInstance flight) {
+        return new TimetableFlight(
+                flight.getId(),
+                flight.getFlightNo(),
+                RouteDateKey.encodeAirport(flight.getSource()),
+                RouteDateKey.encodeAirport(flight.getDestination()),
+                flight.getDepartureTime().toEpochSecond(),
+                flight.getArrivalTime().toEpochSecond(),
+                flight.getPriceMoney());
+    }
+
+    public boolean isResolved() {
+        return id != UNRESOLVED;
+    }
+
+    public TimetableFlight withId(long resolvedId) {
+        return new TimetableFlight(resolvedId, flightNo, source, destination,
+                departureEpochSecond, arrivalEpochSecond, priceMoney);
+    }
+
+    /**
+     * UTC date of departure as an epoch day.
+     */
+    public long getDepartureEpochDay() {
+        return Math.floorDiv(departureEpochSecond, FlightSchedule.SECONDS_PER_DAY);
+    }
+
+    public String getSourceCode() {
+        return RouteDateKey.decodeAirport(source);
+    }
+
+    public String getDestinationCode() {
+        return RouteDateKey.decodeAirport(destination);
+    }
+
+    public OffsetDateTime getDepartureTime() {
+        return Instant.ofEpochSecond(departureEpochSecond).atOffset(ZoneOffset.UTC);
+    }
+
+    public OffsetDateTime getArrivalTime() {
+        return Instant.ofEpochSecond(arrivalEpochSecond).atOffset(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,183 @@
+package com.flightbooking.search.timetable;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of timetable changes made after a snapshot.
+ * Each record is {@code [payload length : i32][payload CRC32 : i32][payload]}; a torn or corrupt
+ * tail (crash mid-append) is detected by length or checksum and truncated on open, so replay
+ * always stops at the last complete change.
+ *
+ * Payload: {@code [op : i8][changed at : epoch millis]} followed by the flight fields of an upsert,
+ * or by {@code [epoch day : i64][flight number]} of a retire: a scheduled instance replaced by a
+ * changed flight, possibly one moved to another date.
+ */
+@Slf4j
+public final class TimetableJournal implements Closeable {
+
+    private static final byte UPSERT = 1;
+    private static final byte RETIRE = 2;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+    /**
+     * Receives replayed changes in append order.
+     */
+    public interface Listener {
+        void upsert(TimetableFlight flight, long changedAtMillis);
+
+        void retire(String flightNo, long epochDay, long changedAtMillis);
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private int entries;
+
+    private TimetableJournal(Path path, FileChannel channel, int entries) {
+        this.path = path;
+        this.channel = channel;
+        this.entries = entries;
+    }
+
+    /**
+     * Open (or create) a journal, replaying its complete records into the listener.
+     */
+    public static TimetableJournal open(Path path, Listener listener) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            ByteBuffer data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining() && channel.read(data, data.position()) >= 0) {
+                // Keep reading until the whole file is buffered
+            }
+            data.flip();
+
+            int entries = 0;
+            long validEnd = 0;
+            while (data.remaining() >= RECORD_HEADER_BYTES) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES || length > data.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = data.slice().limit(length);
+                CRC32 crc = new CRC32();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(payload, listener);
+                data.position(data.position() + length);
+                validEnd = data.position();
+                entries++;
+            }
+
+            if (validEnd < size) {
+                log.warn("Truncating {} bytes of incomplete timetable journal tail in {}", size - validEnd, path);
+                channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+            return new TimetableJournal(path, channel, entries);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public synchronized void appendUpsert(TimetableFlight flight, long changedAtMillis) throws IOException {
+        byte[] flightNo = flight.getFlightNo().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 8 + 8 + 8 + 8 + 8 + 4 + 4 + 2 + flightNo.length)
+                .put(UPSERT)
+                .putLong(changedAtMillis)
+                .putLong(flight.getId())
+                .putLong(flight.getDepartureEpochSecond())
+                .putLong(flight.getArrivalEpochSecond())
+                .putLong(flight.getPriceMoney())
+                .putInt(flight.getSource())
+                .putInt(flight.getDestination())
+                .putShort((short) flightNo.length)
+                .put(flightNo);
+        append(payload);
+    }
+
+    public synchronized void appendRetire(String flightNo, long epochDay, long changedAtMillis) throws IOException {
+        byte[] flightNoBytes = flightNo.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + 8 + 8 + 2 + flightNoBytes.length)
+                .put(RETIRE)
+                .putLong(changedAtMillis)
+                .putLong(epochDay)
+                .putShort((short) flightNoBytes.length)
+                .put(flightNoBytes);
+        append(payload);
+    }
+
+    /**
+     * Flush appended records to disk. Called once per sync batch rather than per record;
+     * anything lost in a crash is re-read from the source on the next sync.
+     */
+    public synchronized void force() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized int getEntries() {
+        return entries;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(ByteBuffer payload) throws IOException {
+        payload.flip();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.remaining())
+                .putInt(payload.remaining())
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        entries++;
+    }
+
+    private static void apply(ByteBuffer payload, Listener listener) {
+        byte op = payload.get();
+        long changedAtMillis = payload.getLong();
+        if (op == UPSERT) {
+            long id = payload.getLong();
+            long departure = payload.getLong();
+            long arrival = payload.getLong();
+            long price = payload.getLong();
+            int source = payload.getInt();
+            int destination = payload.getInt();
+            byte[] flightNo = new byte[payload.getShort() & 0xFFFF];
+            payload.get(flightNo);
+            listener.upsert(new TimetableFlight(id, new String(flightNo, StandardCharsets.UTF_8),
+                    source, destination, departure, arrival, price), changedAtMillis);
+        } else if (op == RETIRE) {
+            long epochDay = payload.getLong();
+            byte[] flightNo = new byte[payload.getShort() & 0xFFFF];
+            payload.get(flightNo);
+            listener.retire(new String(flightNo, StandardCharsets.UTF_8), epochDay, changedAtMillis);
+        } else {
+            throw new IllegalStateException("Unknown timetable journal op: " + op);
+        }
+    }
+}
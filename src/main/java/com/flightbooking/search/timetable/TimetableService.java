@@ -0,0 +1,464 @@
+package com.flightbooking.search.timetable;
+
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.repository.FlightInstanceRepository;
+import com.flightbooking.search.entity.Airport;
+import com.flightbooking.search.repository.AirportRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process flight timetable for search, loaded from a memory-mapped snapshot plus a delta journal.
+ *
+ * On startup the newest valid snapshot in the timetable directory is mapped and its journal is
+ * replayed, so a node serves from the timetable within seconds and without querying the databases;
+ * only a node with no snapshot exports flights from PostgreSQL and airports from Neo4j.
+ * A scheduled sync appends flights changed since the watermark to the journal, and once the journal
+ * grows past compact-after-entries it is folded into a new snapshot version.
+ *
+ * With compress-schedules on, snapshots store recurring flights as {@link FlightSchedule}s that are
+ * expanded per query; their instances come back with unresolved ids (see {@link TimetableFlight#UNRESOLVED}).
+ *
+ * The directory is per node; flights are never deleted in this system, so the journal holds upserts plus
+ * the scheduled dates whose instances were replaced by changed flights.
+ */
+@Service
+@Slf4j
+public class TimetableService {
+
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("timetable-(\\d+)\\.snap");
+
+    // Re-read a little before the watermark so rows committed out of timestamp order are not missed
+    private static final long SYNC_OVERLAP_MILLIS = 5000;
+
+    private final FlightInstanceRepository flightInstanceRepository;
+    private final AirportRepository airportRepository;
+    private final boolean enabled;
+    private final Path directory;
+    private final int compactAfterEntries;
+    private final boolean compressSchedules;
+    private final int scheduleMinOccurrences;
+
+    private volatile Timetable timetable;
+
+    public TimetableService(
+            FlightInstanceRepository flightInstanceRepository,
+            AirportRepository airportRepository,
+            @Value("${flight-booking.search.timetable.enabled:true}") boolean enabled,
+            @Value("${flight-booking.search.timetable.directory:data/timetable}") String directory,
+            @Value("${flight-booking.search.timetable.compact-after-entries:10000}") int compactAfterEntries,
+            @Value("${flight-booking.search.timetable.compress-schedules:false}") boolean compressSchedules,
+            @Value("${flight-booking.search.timetable.schedule-min-occurrences:3}") int scheduleMinOccurrences) {
+        this.flightInstanceRepository = flightInstanceRepository;
+        this.airportRepository = airportRepository;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.compactAfterEntries = compactAfterEntries;
+        this.compressSchedules = compressSchedules;
+        this.scheduleMinOccurrences = scheduleMinOccurrences;
+    }
+
+    /**
+     * Map the newest snapshot and replay its journal, exporting a first snapshot if none exists.
+     * Runs after startup; until it finishes the timetable reports itself as not ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        if (!enabled) {
+            log.info("Timetable disabled");
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(directory);
+            TimetableSnapshot snapshot = openNewestSnapshot();
+            if (snapshot == null) {
+                snapshot = exportSnapshot();
+            }
+            timetable = open(snapshot);
+            log.info("Timetable version {} ready in {} ms: {} flights and {} schedules in snapshot, {} journal changes replayed",
+                    snapshot.getVersion(), (System.nanoTime() - start) / 1_000_000, snapshot.getFlightCount(),
+                    snapshot.getScheduleCount(), timetable.journal.getEntries());
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to load timetable from {}: {}", directory, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Append flights changed in PostgreSQL since the watermark to the journal,
+     * then compact into a new snapshot once the journal is large enough.
+     */
+    @Scheduled(fixedDelayString = "${flight-booking.search.timetable.sync-interval-ms:30000}",
+            initialDelayString = "${flight-booking.search.timetable.sync-interval-ms:30000}")
+    public synchronized void sync() {
+        Timetable current = timetable;
+        if (current == null) {
+            return;
+        }
+        try {
+            OffsetDateTime since = Instant.ofEpochMilli(current.watermarkMillis - SYNC_OVERLAP_MILLIS)
+                    .atOffset(ZoneOffset.UTC);
+            int appended = 0;
+            for (FlightInstance row : flightInstanceRepository.findChangedSince(since)) {
+                TimetableFlight flight = TimetableFlight.from(row);
+                long changedAt = changedAtMillis(row);
+                if (!flight.equals(current.find(flight))) {
+                    if (!current.changed.containsKey(flight.getId())) {
+                        retireReplacedInstances(current, flight, changedAt);
+                    }
+                    current.journal.appendUpsert(flight, changedAt);
+                    current.apply(flight);
+                    appended++;
+                }
+                current.watermarkMillis = Math.max(current.watermarkMillis, changedAt);
+            }
+            if (appended > 0) {
+                current.journal.force();
+                log.info("Timetable sync appended {} changed flights to journal", appended);
+            }
+            if (current.journal.getEntries() >= compactAfterEntries) {
+                compact(current);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Timetable sync failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Scheduled instances have no id, so a changed flight cannot shadow the one it was expanded from by id:
+     * retire the instances of its flight number on its date and the dates either side (a retime can cross
+     * midnight) that PostgreSQL no longer has, apart from the changed flight itself.
+     */
+    private void retireReplacedInstances(Timetable current, TimetableFlight flight, long changedAt) throws IOException {
+        for (TimetableFlight scheduled : current.scheduledAround(flight)) {
+            if (!flightInstanceRepository.existsByFlightNoAndDepartureTimeAndIdNot(scheduled.getFlightNo(),
+                    scheduled.getDepartureTime(), flight.getId())) {
+                current.journal.appendRetire(scheduled.getFlightNo(), scheduled.getDepartureEpochDay(), changedAt);
+                current.retire(scheduled.getFlightNo(), scheduled.getDepartureEpochDay());
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return timetable != null;
+    }
+
+    public long getVersion() {
+        return requireTimetable().snapshot.getVersion();
+    }
+
+    public List<Airport> getAirports() {
+        return requireTimetable().airports;
+    }
+
+    /**
+     * Flights departing from a packed airport code in [fromEpochSecond, toEpochSecond), ordered by departure time.
+     */
+    public List<TimetableFlight> findDepartures(int source, long fromEpochSecond, long toEpochSecond) {
+        return requireTimetable().departures(source, fromEpochSecond, toEpochSecond);
+    }
+
+    /**
+     * Flights arriving at a packed airport code in [fromEpochSecond, toEpochSecond), ordered by arrival time.
+     */
+    public List<TimetableFlight> findArrivals(int destination, long fromEpochSecond, long toEpochSecond) {
+        return requireTimetable().arrivals(destination, fromEpochSecond, toEpochSecond);
+    }
+
+    private Timetable requireTimetable() {
+        Timetable current = timetable;
+        if (current == null) {
+            throw new IllegalStateException("Timetable is not loaded");
+        }
+        return current;
+    }
+
+    /**
+     * Fold the journal into a new snapshot version and start an empty journal for it.
+     */
+    private void compact(Timetable current) throws IOException {
+        long start = System.nanoTime();
+        List<TimetableFlight> flights = new ArrayList<>(current.snapshot.getFlightCount());
+        current.snapshot.forEachFlight(flight -> {
+            if (!current.changed.containsKey(flight.getId())) {
+                flights.add(flight);
+            }
+        });
+        current.snapshot.forEachSchedule(schedule -> schedule.forEachInstance(flight -> {
+            if (!current.isShadowed(flight)) {
+                flights.add(flight);
+            }
+        }));
+        flights.addAll(current.changed.values());
+
+        long version = Math.max(System.currentTimeMillis(), current.snapshot.getVersion() + 1);
+        TimetableSnapshot snapshot = writeSnapshot(version, current.watermarkMillis, flights, current.airports);
+        timetable = open(snapshot);
+
+        current.journal.close();
+        deleteQuietly(current.journal.getPath());
+        deleteQuietly(current.snapshot.getPath());
+        log.info("Compacted timetable journal into snapshot version {} ({} flights, {} schedules) in {} ms",
+                version, snapshot.getFlightCount(), snapshot.getScheduleCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private TimetableSnapshot openNewestSnapshot() throws IOException {
+        List<Path> candidates;
+        try (Stream<Path> files = Files.list(directory)) {
+            candidates = files.filter(file -> SNAPSHOT_FILE.matcher(file.getFileName().toString()).matches())
+                    .sorted(Comparator.comparingLong(TimetableService::versionOf).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (Path candidate : candidates) {
+            try {
+                return TimetableSnapshot.open(candidate);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Skipping unreadable timetable snapshot {}: {}", candidate, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Export the full timetable from the databases. Only needed when no snapshot exists.
+     */
+    private TimetableSnapshot exportSnapshot() throws IOException {
+        log.info("No timetable snapshot in {}, exporting from databases", directory);
+        long watermark = 0;
+        List<TimetableFlight> flights = new ArrayList<>();
+        for (FlightInstance row : flightInstanceRepository.findAll()) {
+            flights.add(TimetableFlight.from(row));
+            watermark = Math.max(watermark, changedAtMillis(row));
+        }
+        List<Airport> airports = airportRepository.findAllAirports();
+
+        long version = System.currentTimeMillis();
+        return writeSnapshot(version, watermark, flights, airports);
+    }
+
+    /**
+     * Write a snapshot version, folding recurring flights into schedules when enabled.
+     */
+    private TimetableSnapshot writeSnapshot(long version, long watermarkMillis, List<TimetableFlight> flights,
+                                            List<Airport> airports) throws IOException {
+        List<FlightSchedule> schedules = List.of();
+        if (compressSchedules) {
+            ScheduleCompressor.Result compressed = ScheduleCompressor.compress(flights, scheduleMinOccurrences);
+            log.info("Compressed {} flights into {} schedules and {} explicit flights",
+                    flights.size(), compressed.getSchedules().size(), compressed.getInstances().size());
+            schedules = compressed.getSchedules();
+            flights = compressed.getInstances();
+        }
+        Files.deleteIfExists(journalPath(version));
+        return TimetableSnapshot.write(snapshotPath(version), version, watermarkMillis, flights, schedules, airports);
+    }
+
+    private Timetable open(TimetableSnapshot snapshot) throws IOException {
+        Timetable opened = new Timetable(snapshot);
+        opened.journal = TimetableJournal.open(journalPath(snapshot.getVersion()), new TimetableJournal.Listener() {
+            @Override
+            public void upsert(TimetableFlight flight, long changedAtMillis) {
+                opened.apply(flight);
+                opened.watermarkMillis = Math.max(opened.watermarkMillis, changedAtMillis);
+            }
+
+            @Override
+            public void retire(String flightNo, long epochDay, long changedAtMillis) {
+                opened.retire(flightNo, epochDay);
+            }
+        });
+        return opened;
+    }
+
+    private Path snapshotPath(long version) {
+        return directory.resolve(String.format("timetable-%020d.snap", version));
+    }
+
+    private Path journalPath(long version) {
+        return directory.resolve(String.format("timetable-%020d.journal", version));
+    }
+
+    private static long versionOf(Path file) {
+        Matcher matcher = SNAPSHOT_FILE.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static long changedAtMillis(FlightInstance row) {
+        OffsetDateTime changedAt = row.getUpdatedAt() != null ? row.getUpdatedAt() : row.getCreatedAt();
+        return changedAt != null ? changedAt.toInstant().toEpochMilli() : 0;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete old timetable file {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * A mapped snapshot overlaid with the changes replayed or appended since.
+     * Changed flights shadow their snapshot records by id; scheduled instances have no id yet,
+     * so the ones replaced by changed flights are retired by flight number and departure date.
+     */
+    private static final class Timetable {
+
+        private final TimetableSnapshot snapshot;
+        private final List<Airport> airports;
+        private final Map<Long, TimetableFlight> changed = new ConcurrentHashMap<>();
+        private final Map<Integer, Map<Long, TimetableFlight>> changedBySource = new ConcurrentHashMap<>();
+        private final Map<Integer, Map<Long, TimetableFlight>> changedByDestination = new ConcurrentHashMap<>();
+        private final Set<String> retiredFlightDays = ConcurrentHashMap.newKeySet();
+        private TimetableJournal journal;
+        private volatile long watermarkMillis;
+
+        Timetable(TimetableSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.airports = List.copyOf(snapshot.getAirports());
+            this.watermarkMillis = snapshot.getWatermarkMillis();
+        }
+
+        void apply(TimetableFlight flight) {
+            TimetableFlight previous = changed.put(flight.getId(), flight);
+            if (previous != null && previous.getSource() != flight.getSource()) {
+                changedBySource.get(previous.getSource()).remove(flight.getId());
+            }
+            if (previous != null && previous.getDestination() != flight.getDestination()) {
+                changedByDestination.get(previous.getDestination()).remove(flight.getId());
+            }
+            changedBySource.computeIfAbsent(flight.getSource(), source -> new ConcurrentHashMap<>())
+                    .put(flight.getId(), flight);
+            changedByDestination.computeIfAbsent(flight.getDestination(), destination -> new ConcurrentHashMap<>())
+                    .put(flight.getId(), flight);
+        }
+
+        /**
+         * Stop expanding a schedule on a date, for an instance moved away from it.
+         */
+        void retire(String flightNo, long epochDay) {
+            retiredFlightDays.add(flightNo + "@" + epochDay);
+        }
+
+        /**
+         * Unshadowed scheduled instances of the flight on its departure date and the dates either side.
+         */
+        List<TimetableFlight> scheduledAround(TimetableFlight flight) {
+            List<TimetableFlight> scheduled = new ArrayList<>(3);
+            long day = flight.getDepartureEpochDay();
+            snapshot.forEachSchedule(flight.getSource(), schedule -> {
+                if (schedule.getFlightNo().equals(flight.getFlightNo())) {
+                    for (long candidate = day - 1; candidate <= day + 1; candidate++) {
+                        if (schedule.operatesOn(candidate) && !isShadowed(schedule.instanceOn(candidate))) {
+                            scheduled.add(schedule.instanceOn(candidate));
+                        }
+                    }
+                }
+            });
+            return scheduled;
+        }
+
+        boolean isShadowed(TimetableFlight scheduled) {
+            return retiredFlightDays.contains(flightDay(scheduled));
+        }
+
+        private static String flightDay(TimetableFlight flight) {
+            return flight.getFlightNo() + "@" + flight.getDepartureEpochDay();
+        }
+
+        /**
+         * Current version of a flight, looked up where the given version would be stored.
+         */
+        TimetableFlight find(TimetableFlight flight) {
+            TimetableFlight current = changed.get(flight.getId());
+            if (current != null) {
+                return current;
+            }
+            TimetableFlight[] found = new TimetableFlight[1];
+            snapshot.forEachDeparture(flight.getSource(), flight.getDepartureEpochSecond(),
+                    flight.getDepartureEpochSecond() + 1, candidate -> {
+                        if (candidate.getId() == flight.getId()) {
+                            found[0] = candidate;
+                        }
+                    });
+            if (found[0] == null) {
+                long day = flight.getDepartureEpochDay();
+                snapshot.forEachSchedule(flight.getSource(), schedule -> {
+                    if (schedule.getFlightNo().equals(flight.getFlightNo()) && schedule.operatesOn(day)) {
+                        found[0] = schedule.instanceOn(day).withId(flight.getId());
+                    }
+                });
+            }
+            return found[0];
+        }
+
+        List<TimetableFlight> departures(int source, long fromEpochSecond, long toEpochSecond) {
+            List<TimetableFlight> departures = new ArrayList<>();
+            snapshot.forEachDeparture(source, fromEpochSecond, toEpochSecond, flight -> {
+                if (!changed.containsKey(flight.getId())) {
+                    departures.add(flight);
+                }
+            });
+            snapshot.forEachSchedule(source, schedule -> schedule.forEachDeparture(fromEpochSecond, toEpochSecond, flight -> {
+                if (!isShadowed(flight)) {
+                    departures.add(flight);
+                }
+            }));
+            Map<Long, TimetableFlight> changedHere = changedBySource.get(source);
+            if (changedHere != null) {
+                for (TimetableFlight flight : changedHere.values()) {
+                    if (flight.getDepartureEpochSecond() >= fromEpochSecond && flight.getDepartureEpochSecond() < toEpochSecond) {
+                        departures.add(flight);
+                    }
+                }
+            }
+            departures.sort(Comparator.comparingLong(TimetableFlight::getDepartureEpochSecond));
+            return departures;
+        }
+
+        List<TimetableFlight> arrivals(int destination, long fromEpochSecond, long toEpochSecond) {
+            List<TimetableFlight> arrivals = new ArrayList<>();
+            snapshot.forEachArrival(destination, fromEpochSecond, toEpochSecond, flight -> {
+                if (!changed.containsKey(flight.getId())) {
+                    arrivals.add(flight);
+                }
+            });
+            snapshot.forEachScheduleTo(destination, schedule -> schedule.forEachArrival(fromEpochSecond, toEpochSecond, flight -> {
+                if (!isShadowed(flight)) {
+                    arrivals.add(flight);
+                }
+            }));
+            Map<Long, TimetableFlight> changedHere = changedByDestination.get(destination);
+            if (changedHere != null) {
+                for (TimetableFlight flight : changedHere.values()) {
+                    if (flight.getArrivalEpochSecond() >= fromEpochSecond && flight.getArrivalEpochSecond() < toEpochSecond) {
+                        arrivals.add(flight);
+                    }
+                }
+            }
+            arrivals.sort(Comparator.comparingLong(TimetableFlight::getArrivalEpochSecond));
+            return arrivals;
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package com.flightbooking.search.timetable;
+
+import com.flightbooking.search.entity.Airport;
+import com.flightbooking.search.util.RouteDateKey;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only, memory-mapped timetable snapshot.
+ * Flights are fixed-size records sorted by (source, departure time), so the departures of an
+ * airport within a time window are found by binary search directly in the mapped file without
+ * deserializing the rest of it. Mapping a snapshot costs a checksum pass, not a database query.
+ * Recurring flights may instead be stored once as {@link FlightSchedule}s, sorted by source and
+ * expanded only for the queried window. A second index orders flight records by (destination,
+ * arrival time) and schedules by destination, so arrivals in a window are found the same way.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   header        : magic, format, version, watermark, flight count, airport count,
+ *                   flights offset, airports offset, strings offset, body CRC32,
+ *                   schedule count, cancellation count, schedules offset,
+ *                   cancellations offset, arrivals offset                         (96 bytes; 64 in format 1)
+ *   flights       : id, departure, arrival, price, source, destination, flight no, 0  (48 bytes each)
+ *   airports      : code, name, city, country, latitude, longitude                    (32 bytes each)
+ *   schedules     : source, destination, flight no, departure second of day, duration,
+ *                   weekday mask, valid from, valid to, price,
+ *                   first cancellation, cancellation count                            (48 bytes each)
+ *   cancellations : epoch day                                                         (4 bytes each)
+ *   arrivals      : flight record index by (destination, arrival),
+ *                   then schedule index by destination                                (4 bytes each)
+ *   strings       : [length : u16][UTF-8 bytes], referenced by offset from the section start
+ * </pre>
+ * Formats 1 and 2 have no arrivals section; their arrival index is built in memory when mapped.
+ */
+public final class TimetableSnapshot {
+
+    private static final int MAGIC = 0x46425454; // "FBTT"
+    private static final int FORMAT = 3;
+    private static final int FORMAT_1_HEADER_BYTES = 64;
+    private static final int HEADER_BYTES = 96;
+    private static final int FLIGHT_BYTES = 48;
+    private static final int AIRPORT_BYTES = 32;
+    private static final int SCHEDULE_BYTES = 48;
+    private static final int CANCELLATION_BYTES = 4;
+    private static final int ARRIVAL_BYTES = 4;
+    private static final int NO_STRING = -1;
+
+    private static final Comparator<TimetableFlight> FILE_ORDER = Comparator
+            .comparingInt(TimetableFlight::getSource)
+            .thenComparingLong(TimetableFlight::getDepartureEpochSecond)
+            .thenComparingLong(TimetableFlight::getId);
+
+    private static final Comparator<FlightSchedule> SCHEDULE_FILE_ORDER = Comparator
+            .comparingInt(FlightSchedule::getSource)
+            .thenComparingInt(FlightSchedule::getDepartureSecondOfDay)
+            .thenComparing(FlightSchedule::getFlightNo);
+
+    private static final Comparator<TimetableFlight> ARRIVAL_ORDER = Comparator
+            .comparingInt(TimetableFlight::getDestination)
+            .thenComparingLong(TimetableFlight::getArrivalEpochSecond)
+            .thenComparingLong(TimetableFlight::getId);
+
+    private final Path path;
+    private final ByteBuffer buffer;
+    private final long version;
+    private final long watermarkMillis;
+    private final int flightCount;
+    private final int airportCount;
+    private final int flightsOffset;
+    private final int airportsOffset;
+    private final int stringsOffset;
+    private final int scheduleCount;
+    private final int schedulesOffset;
+    private final int cancellationsOffset;
+    private final int arrivalsOffset;
+    private final int[] arrivalIndex; // In-memory arrivals section for formats without one
+
+    private TimetableSnapshot(Path path, ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a timetable snapshot: " + path);
+        }
+        int format = buffer.getInt(4);
+        if (format < 1 || format > FORMAT) {
+            throw new IllegalStateException("Unsupported timetable snapshot format " + format + ": " + path);
+        }
+        int headerBytes = format == 1 ? FORMAT_1_HEADER_BYTES : HEADER_BYTES;
+        this.version = buffer.getLong(8);
+        this.watermarkMillis = buffer.getLong(16);
+        this.flightCount = buffer.getInt(24);
+        this.airportCount = buffer.getInt(28);
+        this.flightsOffset = (int) buffer.getLong(32);
+        this.airportsOffset = (int) buffer.getLong(40);
+        this.stringsOffset = (int) buffer.getLong(48);
+        this.scheduleCount = format == 1 ? 0 : buffer.getInt(64);
+        this.schedulesOffset = format == 1 ? 0 : (int) buffer.getLong(72);
+        this.cancellationsOffset = format == 1 ? 0 : (int) buffer.getLong(80);
+        this.arrivalsOffset = format < 3 ? 0 : (int) buffer.getLong(88);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(headerBytes));
+        if ((int) crc.getValue() != buffer.getInt(56)) {
+            throw new IllegalStateException("Timetable snapshot checksum mismatch: " + path);
+        }
+        this.arrivalIndex = format < 3 ? arrivalIndex(this::flightAt, flightCount, this::scheduleAt, scheduleCount) : null;
+    }
+
+    /**
+     * Flight record indexes in arrival order followed by schedule indexes in destination order.
+     */
+    private static int[] arrivalIndex(IntFunction<TimetableFlight> flights, int flightCount,
+                                      IntFunction<FlightSchedule> schedules, int scheduleCount) {
+        int[] index = new int[flightCount + scheduleCount];
+        Integer[] flightOrder = new Integer[flightCount];
+        TimetableFlight[] byIndex = new TimetableFlight[flightCount];
+        for (int i = 0; i < flightCount; i++) {
+            flightOrder[i] = i;
+            byIndex[i] = flights.apply(i);
+        }
+        Arrays.sort(flightOrder, Comparator.comparing(i -> byIndex[i], ARRIVAL_ORDER));
+        for (int i = 0; i < flightCount; i++) {
+            index[i] = flightOrder[i];
+        }
+
+        Integer[] scheduleOrder = new Integer[scheduleCount];
+        int[] destinations = new int[scheduleCount];
+        for (int i = 0; i < scheduleCount; i++) {
+            scheduleOrder[i] = i;
+            destinations[i] = schedules.apply(i).getDestination();
+        }
+        Arrays.sort(scheduleOrder, Comparator.comparingInt(i -> destinations[i]));
+        for (int i = 0; i < scheduleCount; i++) {
+            index[flightCount + i] = scheduleOrder[i];
+        }
+        return index;
+    }
+
+    /**
+     * Map an existing snapshot file and verify its checksum.
+     */
+    public static TimetableSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TimetableSnapshot(path, mapped);
+        }
+    }
+
+    /**
+     * Write a snapshot atomically (temporary file, then rename) and map the result.
+     *
+     * @param path Target file
+     * @param version Snapshot version, increasing across snapshots
+     * @param watermarkMillis Latest source change included in the snapshot
+     */
+    public static TimetableSnapshot write(Path path, long version, long watermarkMillis, List<TimetableFlight> flights,
+                                          List<FlightSchedule> schedules, List<Airport> airports) throws IOException {
+        List<TimetableFlight> sorted = new ArrayList<>(flights);
+        sorted.sort(FILE_ORDER);
+
+        StringTable strings = new StringTable();
+        ByteBuffer flightSection = ByteBuffer.allocate(sorted.size() * FLIGHT_BYTES);
+        for (TimetableFlight flight : sorted) {
+            flightSection.putLong(flight.getId())
+                    .putLong(flight.getDepartureEpochSecond())
+                    .putLong(flight.getArrivalEpochSecond())
+                    .putLong(flight.getPriceMoney())
+                    .putInt(flight.getSource())
+                    .putInt(flight.getDestination())
+                    .putInt(strings.add(flight.getFlightNo()))
+                    .putInt(0);
+        }
+
+        ByteBuffer airportSection = ByteBuffer.allocate(airports.size() * AIRPORT_BYTES);
+        for (Airport airport : airports) {
+            airportSection.putInt(RouteDateKey.encodeAirport(airport.getCode()))
+                    .putInt(strings.add(airport.getName()))
+                    .putInt(strings.add(airport.getCity()))
+                    .putInt(strings.add(airport.getCountry()))
+                    .putDouble(airport.getLatitude() != null ? airport.getLatitude().doubleValue() : Double.NaN)
+                    .putDouble(airport.getLongitude() != null ? airport.getLongitude().doubleValue() : Double.NaN);
+        }
+
+        List<FlightSchedule> sortedSchedules = new ArrayList<>(schedules);
+        sortedSchedules.sort(SCHEDULE_FILE_ORDER);
+        int cancellationCount = sortedSchedules.stream().mapToInt(schedule -> schedule.getCancelledEpochDays().length).sum();
+
+        ByteBuffer scheduleSection = ByteBuffer.allocate(sortedSchedules.size() * SCHEDULE_BYTES);
+        ByteBuffer cancellationSection = ByteBuffer.allocate(cancellationCount * CANCELLATION_BYTES);
+        for (FlightSchedule schedule : sortedSchedules) {
+            scheduleSection.putInt(schedule.getSource())
+                    .putInt(schedule.getDestination())
+                    .putInt(strings.add(schedule.getFlightNo()))
+                    .putInt(schedule.getDepartureSecondOfDay())
+                    .putInt(schedule.getDurationSeconds())
+                    .putInt(schedule.getWeekdayMask())
+                    .putInt((int) schedule.getValidFromEpochDay())
+                    .putInt((int) schedule.getValidToEpochDay())
+                    .putLong(schedule.getPriceMoney())
+                    .putInt(cancellationSection.position() / CANCELLATION_BYTES)
+                    .putInt(schedule.getCancelledEpochDays().length);
+            for (long day : schedule.getCancelledEpochDays()) {
+                cancellationSection.putInt((int) day);
+            }
+        }
+
+        int[] arrivals = arrivalIndex(sorted::get, sorted.size(), sortedSchedules::get, sortedSchedules.size());
+        ByteBuffer arrivalSection = ByteBuffer.allocate(arrivals.length * ARRIVAL_BYTES);
+        for (int index : arrivals) {
+            arrivalSection.putInt(index);
+        }
+
+        ByteBuffer stringSection = strings.toBuffer();
+        int flightsOffset = HEADER_BYTES;
+        int airportsOffset = flightsOffset + flightSection.capacity();
+        int schedulesOffset = airportsOffset + airportSection.capacity();
+        int cancellationsOffset = schedulesOffset + scheduleSection.capacity();
+        int arrivalsOffset = cancellationsOffset + cancellationSection.capacity();
+        int stringsOffset = arrivalsOffset + arrivalSection.capacity();
+
+        ByteBuffer file = ByteBuffer.allocate(stringsOffset + stringSection.capacity());
+        file.position(HEADER_BYTES);
+        file.put(flightSection.flip())
+                .put(airportSection.flip())
+                .put(scheduleSection.flip())
+                .put(cancellationSection.flip())
+                .put(arrivalSection.flip())
+                .put(stringSection.flip());
+
+        CRC32 crc = new CRC32();
+        crc.update(file.duplicate().position(HEADER_BYTES));
+        file.putInt(0, MAGIC)
+                .putInt(4, FORMAT)
+                .putLong(8, version)
+                .putLong(16, watermarkMillis)
+                .putInt(24, sorted.size())
+                .putInt(28, airports.size())
+                .putLong(32, flightsOffset)
+                .putLong(40, airportsOffset)
+                .putLong(48, stringsOffset)
+                .putInt(56, (int) crc.getValue())
+                .putInt(64, sortedSchedules.size())
+                .putInt(68, cancellationCount)
+                .putLong(72, schedulesOffset)
+                .putLong(80, cancellationsOffset)
+                .putLong(88, arrivalsOffset);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            file.rewind();
+            while (file.hasRemaining()) {
+                channel.write(file);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getWatermarkMillis() {
+        return watermarkMillis;
+    }
+
+    public int getFlightCount() {
+        return flightCount;
+    }
+
+    public int getScheduleCount() {
+        return scheduleCount;
+    }
+
+    public TimetableFlight flightAt(int index) {
+        int at = flightsOffset + index * FLIGHT_BYTES;
+        return new TimetableFlight(
+                buffer.getLong(at),
+                string(buffer.getInt(at + 40)),
+                buffer.getInt(at + 32),
+                buffer.getInt(at + 36),
+                buffer.getLong(at + 8),
+                buffer.getLong(at + 16),
+                buffer.getLong(at + 24));
+    }
+
+    public FlightSchedule scheduleAt(int index) {
+        int at = schedulesOffset + index * SCHEDULE_BYTES;
+        int firstCancellation = buffer.getInt(at + 40);
+        long[] cancelled = new long[buffer.getInt(at + 44)];
+        for (int i = 0; i < cancelled.length; i++) {
+            cancelled[i] = buffer.getInt(cancellationsOffset + (firstCancellation + i) * CANCELLATION_BYTES);
+        }
+        return new FlightSchedule(
+                string(buffer.getInt(at + 8)),
+                buffer.getInt(at),
+                buffer.getInt(at + 4),
+                buffer.getInt(at + 12),
+                buffer.getInt(at + 16),
+                buffer.getInt(at + 20),
+                buffer.getInt(at + 24),
+                buffer.getInt(at + 28),
+                buffer.getLong(at + 32),
+                cancelled);
+    }
+
+    /**
+     * Visit explicit flights departing from source with departure in [fromEpochSecond, toEpochSecond),
+     * in departure order.
+     */
+    public void forEachDeparture(int source, long fromEpochSecond, long toEpochSecond, Consumer<TimetableFlight> visitor) {
+        for (int i = lowerBound(source, fromEpochSecond); i < flightCount; i++) {
+            int at = flightsOffset + i * FLIGHT_BYTES;
+            if (buffer.getInt(at + 32) != source || buffer.getLong(at + 8) >= toEpochSecond) {
+                return;
+            }
+            visitor.accept(flightAt(i));
+        }
+    }
+
+    /**
+     * Visit the schedules departing from source.
+     */
+    public void forEachSchedule(int source, Consumer<FlightSchedule> visitor) {
+        int low = 0;
+        int high = scheduleCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(schedulesOffset + mid * SCHEDULE_BYTES) < source) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < scheduleCount && buffer.getInt(schedulesOffset + i * SCHEDULE_BYTES) == source; i++) {
+            visitor.accept(scheduleAt(i));
+        }
+    }
+
+    /**
+     * Visit explicit flights arriving at destination with arrival in [fromEpochSecond, toEpochSecond),
+     * in arrival order.
+     */
+    public void forEachArrival(int destination, long fromEpochSecond, long toEpochSecond, Consumer<TimetableFlight> visitor) {
+        int low = 0;
+        int high = flightCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int at = flightsOffset + arrivalAt(mid) * FLIGHT_BYTES;
+            int midDestination = buffer.getInt(at + 36);
+            if (midDestination < destination || (midDestination == destination && buffer.getLong(at + 16) < fromEpochSecond)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < flightCount; i++) {
+            int record = arrivalAt(i);
+            int at = flightsOffset + record * FLIGHT_BYTES;
+            if (buffer.getInt(at + 36) != destination || buffer.getLong(at + 16) >= toEpochSecond) {
+                return;
+            }
+            visitor.accept(flightAt(record));
+        }
+    }
+
+    /**
+     * Visit the schedules arriving at destination.
+     */
+    public void forEachScheduleTo(int destination, Consumer<FlightSchedule> visitor) {
+        int low = 0;
+        int high = scheduleCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(schedulesOffset + arrivalAt(flightCount + mid) * SCHEDULE_BYTES + 4) < destination) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int i = low; i < scheduleCount; i++) {
+            int schedule = arrivalAt(flightCount + i);
+            if (buffer.getInt(schedulesOffset + schedule * SCHEDULE_BYTES + 4) != destination) {
+                return;
+            }
+            visitor.accept(scheduleAt(schedule));
+        }
+    }
+
+    private int arrivalAt(int position) {
+        return arrivalIndex != null ? arrivalIndex[position] : buffer.getInt(arrivalsOffset + position * ARRIVAL_BYTES);
+    }
+
+    /**
+     * Visit every explicit flight in file order.
+     */
+    public void forEachFlight(Consumer<TimetableFlight> visitor) {
+        for (int i = 0; i < flightCount; i++) {
+            visitor.accept(flightAt(i));
+        }
+    }
+
+    /**
+     * Visit every schedule in file order.
+     */
+    public void forEachSchedule(Consumer<FlightSchedule> visitor) {
+        for (int i = 0; i < scheduleCount; i++) {
+            visitor.accept(scheduleAt(i));
+        }
+    }
+
+    public List<Airport> getAirports() {
+        List<Airport> airports = new ArrayList<>(airportCount);
+        for (int i = 0; i < airportCount; i++) {
+            int at = airportsOffset + i * AIRPORT_BYTES;
+            double latitude = buffer.getDouble(at + 16);
+            double longitude = buffer.getDouble(at + 24);
+            airports.add(Airport.builder()
+                    .code(RouteDateKey.decodeAirport(buffer.getInt(at)))
+                    .name(string(buffer.getInt(at + 4)))
+                    .city(string(buffer.getInt(at + 8)))
+                    .country(string(buffer.getInt(at + 12)))
+                    .latitude(Double.isNaN(latitude) ? null : BigDecimal.valueOf(latitude))
+                    .longitude(Double.isNaN(longitude) ? null : BigDecimal.valueOf(longitude))
+                    .build());
+        }
+        return airports;
+    }
+
+    /**
+     * First record index with (source, departure) >= (source, fromEpochSecond).
+     */
+    private int lowerBound(int source, long fromEpochSecond) {
+        int low = 0;
+        int high = flightCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int at = flightsOffset + mid * FLIGHT_BYTES;
+            int midSource = buffer.getInt(at + 32);
+            if (midSource < source || (midSource == source && buffer.getLong(at + 8) < fromEpochSecond)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private String string(int offset) {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        int at = stringsOffset + offset;
+        int length = buffer.getShort(at) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deduplicating string section builder.
+     */
+    private static final class StringTable {
+
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private int size;
+
+        int add(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            return offsets.computeIfAbsent(value, key -> {
+                byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF) {
+                    throw new IllegalArgumentException("Timetable string too long: " + bytes.length + " bytes");
+                }
+                int offset = size;
+                entries.add(bytes);
+                size += 2 + bytes.length;
+                return offset;
+            });
+        }
+
+        ByteBuffer toBuffer() {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (byte[] bytes : entries) {
+                buffer.putShort((short) bytes.length).put(bytes);
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.flightbooking.search.util;
+
+import java.time.LocalDate;
+
+/**
+ * Canonical packed 64-bit key for a (source, destination, departure date) search.
+ * Used by every in-process cache, coalescing map and sketch instead of String keys,
+ * so the search hot path never builds or hashes strings and can use primitive-keyed maps.
+ *
+ * Layout (most significant bit first):
+ * <pre>
+ *   [ source : 15 ][ destination : 15 ][ epoch day : 30 ][ variant : 4 ]
+ * </pre>
+ * Each IATA letter is stored in 5 bits (A=1 .. Z=26), so a valid airport code is never 0.
+ * The variant nibble is 0 for the passenger-agnostic route key; caches whose contents depend
+ * on the passenger count (1-9) store it there via {@link #withVariant(long, int)}.
+ */
+public final class RouteDateKey {
+
+    private static final int LETTER_BITS = 5;
+    private static final int AIRPORT_BITS = 15;
+    private static final int DAY_BITS = 30;
+    private static final int VARIANT_BITS = 4;
+
+    private static final int VARIANT_SHIFT = 0;
+    private static final int DAY_SHIFT = VARIANT_SHIFT + VARIANT_BITS;
+    private static final int DESTINATION_SHIFT = DAY_SHIFT + DAY_BITS;
+    private static final int SOURCE_SHIFT = DESTINATION_SHIFT + AIRPORT_BITS;
+
+    private static final long AIRPORT_MASK = (1L << AIRPORT_BITS) - 1;
+    private static final long DAY_MASK = (1L << DAY_BITS) - 1;
+    private static final long VARIANT_MASK = (1L << VARIANT_BITS) - 1;
+
+    public static final int MAX_VARIANT = (int) VARIANT_MASK;
+
+    private RouteDateKey() {
+    }
+
+    /**
+     * Packs a passenger-agnostic route/date key.
+     */
+    public static long of(String source, String destination, LocalDate departureDate) {
+        return of(encodeAirport(source), encodeAirport(destination), departureDate.toEpochDay());
+    }
+
+    /**
+     * Packs a route/date key from already encoded airport codes.
+     */
+    public static long of(int source, int destination, long epochDay) {
+        if (epochDay < 0 || epochDay > DAY_MASK) {
+            throw new IllegalArgumentException("Epoch day out of range for route key: " + epochDay);
+        }
+        return ((source & AIRPORT_MASK) << SOURCE_SHIFT)
+                | ((destination & AIRPORT_MASK) << DESTINATION_SHIFT)
+                | (epochDay << DAY_SHIFT);
+    }
+
+    /**
+     * Returns the same route/date key tagged with a variant (e.g. passenger count).
+     */
+    public static long withVariant(long key, int variant) {
+        if (variant < 0 || variant > MAX_VARIANT) {
+            throw new IllegalArgumentException("Route key variant out of range: " + variant);
+        }
+        return (key & ~(VARIANT_MASK << VARIANT_SHIFT)) | ((long) variant << VARIANT_SHIFT);
+    }
+
+    /**
+     * Strips the variant, leaving the passenger-agnostic route/date key.
+     */
+    public static long routeDate(long key) {
+        return key & ~(VARIANT_MASK << VARIANT_SHIFT);
+    }
+
+    public static int source(long key) {
+        return (int) ((key >>> SOURCE_SHIFT) & AIRPORT_MASK);
+    }
+
+    public static int destination(long key) {
+        return (int) ((key >>> DESTINATION_SHIFT) & AIRPORT_MASK);
+    }
+
+    public static long epochDay(long key) {
+        return (key >>> DAY_SHIFT) & DAY_MASK;
+    }
+
+    public static int variant(long key) {
+        return (int) ((key >>> VARIANT_SHIFT) & VARIANT_MASK);
+    }
+
+    public static LocalDate departureDate(long key) {
+        return LocalDate.ofEpochDay(epochDay(key));
+    }
+
+    /**
+     * Encodes a three-letter IATA code into 15 bits.
+     */
+    public static int encodeAirport(String code) {
+        if (code == null || code.length() != 3) {
+            throw new IllegalArgumentException("Airport code must be exactly 3 letters: " + code);
+        }
+        int encoded = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Airport code must be uppercase letters: " + code);
+            }
+            encoded = (encoded << LETTER_BITS) | (c - 'A' + 1);
+        }
+        return encoded;
+    }
+
+    /**
+     * Decodes a 15-bit airport code back to its IATA string.
+     */
+    public static String decodeAirport(int encoded) {
+        char[] chars = new char[3];
+        for (int i = 2; i >= 0; i--) {
+            int letter = encoded & ((1 << LETTER_BITS) - 1);
+            if (letter < 1 || letter > 26) {
+                throw new IllegalArgumentException("Invalid encoded airport code: " + encoded);
+            }
+            chars[i] = (char) ('A' + letter - 1);
+            encoded >>>= LETTER_BITS;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Human-readable form for logging, e.g. {@code JFK-LAX-2025-10-01/2}.
+     */
+    public static String toString(long key) {
+        String base = decodeAirport(source(key)) + "-" + decodeAirport(destination(key)) + "-" + departureDate(key);
+        int variant = variant(key);
+        return variant == 0 ? base : base + "/" + variant;
+    }
+}
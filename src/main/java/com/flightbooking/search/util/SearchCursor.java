@@ -0,0 +1,135 @@
+package com.flightbooking.search.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset-paginated search results.
+ * Encodes the (price, flight-leg hash) of the last itinerary on the previous page plus the search key
+ * and time-window key it belongs to, so a later page resumes strictly after that row without
+ * re-reading earlier ones, and a cursor from one window is not replayed against another.
+ * A cursor into a partial result is marked as such: those results only live in memory for a
+ * while, and once they are gone the cursor is expired rather than pointing at an empty page.
+ */
+public final class SearchCursor {
+
+    private static final byte VERSION_1 = 1;
+    private static final byte VERSION_2 = 2;
+    private static final byte VERSION = 3;
+    private static final byte PARTIAL = 1;
+
+    private final long searchKey;
+    private final long windowKey;
+    private final long lastPrice;
+    private final String lastId;
+    private final boolean partial;
+
+    public SearchCursor(long searchKey, long lastPrice, String lastId) {
+        this(searchKey, lastPrice, lastId, false);
+    }
+
+    public SearchCursor(long searchKey, long lastPrice, String lastId, boolean partial) {
+        this(searchKey, 0, lastPrice, lastId, partial);
+    }
+
+    public SearchCursor(long searchKey, long windowKey, long lastPrice, String lastId, boolean partial) {
+        this.searchKey = searchKey;
+        this.windowKey = windowKey;
+        this.lastPrice = lastPrice;
+        this.lastId = lastId;
+        this.partial = partial;
+    }
+
+    public long getSearchKey() {
+        return searchKey;
+    }
+
+    public long getWindowKey() {
+        return windowKey;
+    }
+
+    public long getLastPrice() {
+        return lastPrice;
+    }
+
+    public String getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Whether the cursor points into a partial result that was never cached.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Whether a row with the given (price, flight-leg hash) sorts strictly after this cursor.
+     */
+    public boolean isBefore(long price, String id) {
+        return price > lastPrice || (price == lastPrice && id.compareTo(lastId) > 0);
+    }
+
+    /**
+     * Encode as a URL-safe token: version, flags, search key, window key, last price, last id.
+     */
+    public String encode() {
+        byte[] id = lastId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(2 + 3 * Long.BYTES + id.length);
+        buffer.put(VERSION).put(partial ? PARTIAL : 0).putLong(searchKey).putLong(windowKey).putLong(lastPrice).put(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Decode a token and check that it was issued for the same search without a time window.
+     *
+     * @throws IllegalArgumentException if the token is malformed or belongs to another search
+     */
+    public static SearchCursor decode(String token, long expectedSearchKey) {
+        return decode(token, expectedSearchKey, 0);
+    }
+
+    /**
+     * Decode a token and check that it was issued for the same search and time window.
+     * Tokens from before the window key (versions 1 and 2) carry no window.
+     *
+     * @throws IllegalArgumentException if the token is malformed or belongs to another search
+     */
+    public static SearchCursor decode(String token, long expectedSearchKey, long expectedWindowKey) {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(token));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed search cursor");
+        }
+        byte version = buffer.hasRemaining() ? buffer.get() : 0;
+        if (version != VERSION && version != VERSION_2 && version != VERSION_1) {
+            throw new IllegalArgumentException("Malformed search cursor");
+        }
+        boolean partial = version != VERSION_1 && buffer.hasRemaining() && (buffer.get() & PARTIAL) != 0;
+        int keys = version == VERSION ? 2 : 1;
+        if (buffer.remaining() <= (keys + 1) * Long.BYTES) {
+            throw new IllegalArgumentException("Malformed search cursor");
+        }
+        long searchKey = buffer.getLong();
+        long windowKey = version == VERSION ? buffer.getLong() : 0;
+        long lastPrice = buffer.getLong();
+        byte[] id = new byte[buffer.remaining()];
+        buffer.get(id);
+
+        if (searchKey != expectedSearchKey || windowKey != expectedWindowKey) {
+            throw new IllegalArgumentException("Search cursor does not belong to this search");
+        }
+        return new SearchCursor(searchKey, windowKey, lastPrice, new String(id, StandardCharsets.UTF_8), partial);
+    }
+
+    /**
+     * A cursor into a partial result that is no longer held; the search has to be restarted.
+     */
+    public static class ExpiredException extends IllegalArgumentException {
+        public ExpiredException(String message) {
+            super(message);
+        }
+    }
+}
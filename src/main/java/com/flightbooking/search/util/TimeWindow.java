@@ -0,0 +1,142 @@
+package com.flightbooking.search.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Departure and arrival windows of a search as half-open epoch-second ranges.
+ * Times of day are UTC on the departure date (airports carry no time zone) and inclusive to the
+ * minute: "before 10:00" admits 10:00:59. An unset bound leaves that side of the window open.
+ */
+public final class TimeWindow {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long SECONDS_PER_MINUTE = 60;
+    private static final int KEY_LANE_BITS = 16;
+
+    private final long departFrom;
+    private final long departTo;
+    private final long arriveFrom;
+    private final long arriveTo;
+    private final boolean departureWindow;
+    private final long key;
+
+    private TimeWindow(long departFrom, long departTo, long arriveFrom, long arriveTo, boolean departureWindow,
+                       long key) {
+        this.departFrom = departFrom;
+        this.departTo = departTo;
+        this.arriveFrom = arriveFrom;
+        this.arriveTo = arriveTo;
+        this.departureWindow = departureWindow;
+        this.key = key;
+    }
+
+    /**
+     * First legs may depart any time on the date; arrivals are unbounded.
+     */
+    public static TimeWindow of(LocalDate date) {
+        return of(date, null, null, null, null);
+    }
+
+    public static TimeWindow of(LocalDate date, LocalTime departAfter, LocalTime departBefore,
+                                LocalTime arriveAfter, LocalTime arriveBefore) {
+        long dayStart = date.toEpochDay() * SECONDS_PER_DAY;
+        return new TimeWindow(
+                departAfter != null ? dayStart + departAfter.toSecondOfDay() : dayStart,
+                departBefore != null ? endOfMinute(dayStart, departBefore) : dayStart + SECONDS_PER_DAY,
+                arriveAfter != null ? dayStart + arriveAfter.toSecondOfDay() : Long.MIN_VALUE,
+                arriveBefore != null ? endOfMinute(dayStart, arriveBefore) : Long.MAX_VALUE,
+                departAfter != null || departBefore != null,
+                keyLane(departAfter) << 3 * KEY_LANE_BITS | keyLane(departBefore) << 2 * KEY_LANE_BITS
+                        | keyLane(arriveAfter) << KEY_LANE_BITS | keyLane(arriveBefore));
+    }
+
+    private static long keyLane(LocalTime time) {
+        return time != null ? time.toSecondOfDay() / SECONDS_PER_MINUTE + 1 : 0;
+    }
+
+    private static long endOfMinute(long dayStart, LocalTime time) {
+        return dayStart + time.withSecond(0).withNano(0).toSecondOfDay() + SECONDS_PER_MINUTE;
+    }
+
+    public long getDepartFrom() {
+        return departFrom;
+    }
+
+    public long getDepartTo() {
+        return departTo;
+    }
+
+    public long getArriveFrom() {
+        return arriveFrom;
+    }
+
+    public long getArriveTo() {
+        return arriveTo;
+    }
+
+    public boolean hasDepartureWindow() {
+        return departureWindow;
+    }
+
+    public boolean hasArrivalWindow() {
+        return arriveFrom != Long.MIN_VALUE || arriveTo != Long.MAX_VALUE;
+    }
+
+    public boolean departs(long epochSecond) {
+        return epochSecond >= departFrom && epochSecond < departTo;
+    }
+
+    public boolean arrives(long epochSecond) {
+        return epochSecond >= arriveFrom && epochSecond < arriveTo;
+    }
+
+    public boolean isUnbounded() {
+        return !departureWindow && !hasArrivalWindow();
+    }
+
+    /**
+     * Whether a trip departing and arriving at these times falls in the window.
+     * A missing time only matches when that side of the window is open.
+     */
+    public boolean matches(OffsetDateTime departure, OffsetDateTime arrival) {
+        boolean departureOk = departure != null ? departs(departure.toEpochSecond()) : !departureWindow;
+        boolean arrivalOk = arrival != null ? arrives(arrival.toEpochSecond()) : !hasArrivalWindow();
+        return departureOk && arrivalOk;
+    }
+
+    /**
+     * The bounds as a 64-bit key: depart after, depart before, arrive after and arrive before in
+     * 16-bit lanes (high to low), each the minute of day plus one, or 0 when open. Minute resolution
+     * matches the HH:mm request parameters; an unbounded window has key 0.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    public OffsetDateTime departFromTime() {
+        return toTime(departFrom);
+    }
+
+    public OffsetDateTime departToTime() {
+        return toTime(departTo);
+    }
+
+    /**
+     * Arrival bounds as timestamps for queries, or null when that side is open.
+     */
+    public OffsetDateTime arriveFromTime() {
+        return arriveFrom != Long.MIN_VALUE ? toTime(arriveFrom) : null;
+    }
+
+    public OffsetDateTime arriveToTime() {
+        return arriveTo != Long.MAX_VALUE ? toTime(arriveTo) : null;
+    }
+
+    private static OffsetDateTime toTime(long epochSecond) {
+        return Instant.ofEpochSecond(epochSecond).atOffset(ZoneOffset.UTC);
+    }
+}
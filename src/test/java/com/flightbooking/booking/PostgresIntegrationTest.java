@@ -0,0 +1,136 @@
+package com.flightbooking.booking;
+
+import com.flightbooking.booking.config.JpaConfig;
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.entity.Seat;
+import com.flightbooking.booking.repository.FlightInstanceRepository;
+import com.flightbooking.booking.repository.SeatRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Booking tests against a real PostgreSQL: the hold, sell and inventory statements rely on row locks,
+ * ON CONFLICT and data-modifying CTEs that the H2 test database does not have.
+ * Skipped where Docker is not available.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.sql.init.mode=never",
+        "spring.kafka.bootstrap-servers=localhost:9092",
+        "flight-booking.search.timetable.enabled=false"
+})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15");
+
+    @Container
+    private static final Neo4jContainer<?> NEO4J = new Neo4jContainer<>("neo4j:5").withAdminPassword("neo4j_pass");
+
+    @DynamicPropertySource
+    static void databaseProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.neo4j.uri", NEO4J::getBoltUrl);
+        registry.add("spring.neo4j.authentication.password", NEO4J::getAdminPassword);
+    }
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    protected FlightInstanceRepository flightInstanceRepository;
+
+    @Autowired
+    protected SeatRepository seatRepository;
+
+    @Autowired
+    @Qualifier(JpaConfig.TRANSACTION_MANAGER)
+    protected PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanDatabase() {
+        jdbcTemplate.execute("TRUNCATE ticket_seat, ticket, seat_hold, seat, flight_inventory, outbox_event, flight_instance CASCADE");
+    }
+
+    protected TransactionTemplate transaction() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    protected FlightInstance flight(String flightNo) {
+        OffsetDateTime departure = OffsetDateTime.now(ZoneOffset.UTC).plusDays(30).withNano(0);
+        return flightInstanceRepository.save(FlightInstance.builder()
+                .flightNo(flightNo)
+                .source("JFK")
+                .destination("LAX")
+                .departureTime(departure)
+                .arrivalTime(departure.plusHours(6))
+                .priceMoney(25_000L)
+                .build());
+    }
+
+    protected List<Seat> seats(FlightInstance flight, int count) {
+        List<Seat> seats = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            seats.add(Seat.builder()
+                    .flightInstance(flight)
+                    .seatNo(String.format("%02dA", i))
+                    .cabinClass("ECONOMY")
+                    .isAvailable(true)
+                    .version(0)
+                    .build());
+        }
+        return seatRepository.saveAll(seats);
+    }
+
+    protected int count(String sql, Object... args) {
+        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, args);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Wait until some session of the test database waits on a lock, i.e. a concurrent statement is blocked.
+     */
+    protected void awaitLockWait() {
+        await().atMost(10, TimeUnit.SECONDS).until(
+                () -> count("SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'") > 0);
+    }
+
+    /**
+     * Block a transaction thread until the test releases it.
+     */
+    protected static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.flightbooking.booking.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatMapTest {
+
+    @Test
+    void claimsLowestAvailableSeatsOfTheCabin() {
+        SeatMap map = SeatMap.builder(1)
+                .add(10, "1A", "BUSINESS", SeatMap.SOLD)
+                .add(11, "1B", "BUSINESS", SeatMap.AVAILABLE)
+                .add(20, "20A", "ECONOMY", SeatMap.HELD)
+                .add(21, "20B", "ECONOMY", SeatMap.AVAILABLE)
+                .add(22, "20C", "ECONOMY", SeatMap.AVAILABLE)
+                .build();
+
+        int[] claimed = map.claim("ECONOMY", 2);
+
+        assertThat(Arrays.stream(map.seatIds(claimed)).boxed()).containsExactly(21L, 22L);
+        assertThat(map.available("ECONOMY")).isZero();
+        assertThat(map.held("ECONOMY")).isEqualTo(3);
+        assertThat(map.available("BUSINESS")).isEqualTo(1);
+        assertThat(map.sold("BUSINESS")).isEqualTo(1);
+        assertThat(map.claim("ECONOMY", 1)).isNull();
+    }
+
+    @Test
+    void failedClaimLeavesSeatsAvailable() {
+        SeatMap map = seats(70);
+
+        assertThat(map.claim(null, 71)).isNull();
+        assertThat(map.available(null)).isEqualTo(70);
+
+        int[] claimed = map.claim(null, 70);
+        map.markSold(map.indexOf(map.seatId(claimed[0])));
+        map.release(Arrays.copyOfRange(claimed, 1, claimed.length));
+
+        assertThat(map.sold(null)).isEqualTo(1);
+        assertThat(map.available(null)).isEqualTo(69);
+        assertThat(map.held(null)).isZero();
+    }
+
+    @Test
+    void concurrentClaimsNeverShareASeat() throws Exception {
+        SeatMap map = seats(180);
+        BitSet taken = new BitSet();
+        AtomicInteger duplicates = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int thread = 0; thread < 8; thread++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    int[] claimed;
+                    while ((claimed = map.claim(null, 3)) != null) {
+                        synchronized (taken) {
+                            for (int index : claimed) {
+                                if (taken.get(index)) {
+                                    duplicates.incrementAndGet();
+                                }
+                                taken.set(index);
+                            }
+                        }
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(duplicates).hasValue(0);
+        assertThat(taken.cardinality()).isEqualTo(180);
+        assertThat(map.available(null)).isZero();
+    }
+
+    private static SeatMap seats(int count) {
+        SeatMap.Builder builder = SeatMap.builder(1);
+        for (int i = 0; i < count; i++) {
+            builder.add(1000 + i, String.format("%03d", i), "ECONOMY", SeatMap.AVAILABLE);
+        }
+        return builder.build();
+    }
+}
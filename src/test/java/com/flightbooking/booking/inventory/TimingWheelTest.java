@@ -0,0 +1,42 @@
+package com.flightbooking.booking.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresIdsOnceTheirDeadlineHasPassed() {
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        wheel.add(1, 1500);
+        wheel.add(2, 2000);
+        wheel.add(3, 15 * 60 * 1000); // A full hold duration out, on a higher level
+
+        assertThat(wheel.advance(1499)).isEmpty();
+        assertThat(wheel.advance(2000)).containsExactly(1L, 2L);
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(15 * 60 * 1000 - 1)).isEmpty();
+        assertThat(wheel.advance(15 * 60 * 1000)).containsExactly(3L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void expiresOverdueIdsWithinATick() {
+        TimingWheel wheel = new TimingWheel(1000, 10_000);
+        wheel.add(1, 5_000);
+
+        assertThat(wheel.advance(10_000)).containsExactly(1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void keepsDeadlinesBeyondTheTopLevel() {
+        long farOut = 1000L * ((1L << 24) + 100); // Past a full turn of the top level
+        TimingWheel wheel = new TimingWheel(1000, 0);
+        wheel.add(1, farOut);
+
+        assertThat(wheel.advance(farOut - 1)).isEmpty();
+        assertThat(wheel.advance(farOut)).containsExactly(1L);
+    }
+}
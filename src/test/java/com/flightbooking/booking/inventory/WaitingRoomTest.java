@@ -0,0 +1,98 @@
+package com.flightbooking.booking.inventory;
+
+import com.flightbooking.booking.service.FlightInventoryService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WaitingRoomTest {
+
+    @Test
+    void turnsAwayRequestsOnceTheLineIsFull() throws Exception {
+        WaitingRoom room = new WaitingRoom(available(-1), true, 1, 1, 64, 2000, 250);
+        WaitingRoom.Pass first = room.enter(List.of(7L), 1);
+        assertThat(first.getQueuePosition()).isZero();
+
+        CompletableFuture<WaitingRoom.Pass> second = CompletableFuture.supplyAsync(() -> room.enter(List.of(7L), 1));
+        while (room.queueLength(7L) == 0) {
+            Thread.sleep(1);
+        }
+
+        assertThatThrownBy(() -> room.enter(List.of(7L), 1))
+                .isInstanceOfSatisfying(WaitingRoom.RejectedException.class, e -> {
+                    assertThat(e.isSoldOut()).isFalse();
+                    assertThat(e.getQueuePosition()).isEqualTo(2);
+                });
+
+        first.close();
+        WaitingRoom.Pass admitted = second.get(1, TimeUnit.SECONDS);
+        assertThat(admitted.getQueuePosition()).isEqualTo(1);
+        admitted.close();
+        room.enter(List.of(7L), 1).close();
+    }
+
+    @Test
+    void givesUpAfterTheMaximumWaitAndReleasesEarlierLegs() {
+        WaitingRoom room = new WaitingRoom(available(-1), true, 1, 10, 64, 20, 250);
+        WaitingRoom.Pass busy = room.enter(List.of(2L), 1);
+
+        assertThatThrownBy(() -> room.enter(List.of(2L, 1L), 1))
+                .isInstanceOfSatisfying(WaitingRoom.RejectedException.class, e -> {
+                    assertThat(e.getFlightInstanceId()).isEqualTo(2L);
+                    assertThat(e.getQueuePosition()).isEqualTo(1);
+                });
+
+        room.enter(List.of(1L), 1).close(); // Leg 1 was given back when leg 2 timed out
+        busy.close();
+    }
+
+    @Test
+    void turnsAwayAtOnceWhenTooManyRequestsWaitAcrossFlights() throws Exception {
+        WaitingRoom room = new WaitingRoom(available(-1), true, 1, 10, 1, 2000, 250);
+        WaitingRoom.Pass first = room.enter(List.of(3L), 1);
+        WaitingRoom.Pass other = room.enter(List.of(4L), 1);
+        CompletableFuture<WaitingRoom.Pass> waiter = CompletableFuture.supplyAsync(() -> room.enter(List.of(3L), 1));
+        while (room.queueLength(3L) == 0) {
+            Thread.sleep(1);
+        }
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> room.enter(List.of(4L), 1))
+                .isInstanceOfSatisfying(WaitingRoom.RejectedException.class, e -> assertThat(e.isSoldOut()).isFalse());
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(1)); // Not after the 2 s wait
+
+        first.close();
+        waiter.get(1, TimeUnit.SECONDS).close();
+        other.close();
+        room.enter(List.of(4L), 1).close();
+    }
+
+    @Test
+    void rejectsFlightsSoldOutOnTheInventoryCounters() {
+        FlightInventoryService inventory = available(1);
+        WaitingRoom room = new WaitingRoom(inventory, true, 1, 10, 64, 2000, 60_000);
+
+        assertThatThrownBy(() -> room.enter(List.of(5L), 2))
+                .isInstanceOfSatisfying(WaitingRoom.RejectedException.class, e -> assertThat(e.isSoldOut()).isTrue());
+        room.enter(List.of(5L), 1).close();
+
+        // Read once per interval, however many requests arrive
+        verify(inventory, times(1)).findLargestCabinAvailability(5L);
+    }
+
+    private static FlightInventoryService available(int seats) {
+        FlightInventoryService inventory = mock(FlightInventoryService.class);
+        when(inventory.findLargestCabinAvailability(anyLong())).thenReturn(seats);
+        return inventory;
+    }
+}
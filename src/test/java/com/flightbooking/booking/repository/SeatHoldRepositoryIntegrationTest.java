@@ -0,0 +1,140 @@
+package com.flightbooking.booking.repository;
+
+import com.flightbooking.booking.PostgresIntegrationTest;
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.entity.Seat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatHoldRepositoryIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private SeatHoldRepository seatHoldRepository;
+
+    @Test
+    void concurrentClaimsHoldASeatOnlyOnce() throws Exception {
+        FlightInstance flight = flight("UA0100");
+        Long seatId = seats(flight, 1).get(0).getId();
+        OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(10);
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // The first claim locks the seat row and keeps its transaction open until the second one waits on it
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> transaction().execute(status -> {
+            int held = seatHoldRepository.insertHoldsIfFree(List.of(seatId), "session-1", expiresAt);
+            firstClaimed.countDown();
+            awaitQuietly(release);
+            return held;
+        }));
+        assertThat(firstClaimed.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> transaction().execute(
+                status -> seatHoldRepository.insertHoldsIfFree(List.of(seatId), "session-2", expiresAt)));
+        awaitLockWait();
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(second.get(10, TimeUnit.SECONDS)).isZero();
+        assertThat(count("SELECT count(*) FROM seat_hold WHERE seat_id = ?", seatId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT holder_session_id FROM seat_hold WHERE seat_id = ?",
+                String.class, seatId)).isEqualTo("session-1");
+    }
+
+    @Test
+    void concurrentGroupClaimsHoldASeatOnlyOnce() throws Exception {
+        FlightInstance flight = flight("UA0200");
+        Long seatId = seats(flight, 1).get(0).getId();
+        OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(10);
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> transaction().execute(status -> {
+            int held = seatHoldRepository.insertHoldsIfFreeForSessions(List.of(seatId + ":session-1"), expiresAt).size();
+            firstClaimed.countDown();
+            awaitQuietly(release);
+            return held;
+        }));
+        assertThat(firstClaimed.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> transaction().execute(
+                status -> seatHoldRepository.insertHoldsIfFreeForSessions(List.of(seatId + ":session-2"), expiresAt).size()));
+        awaitLockWait();
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(second.get(10, TimeUnit.SECONDS)).isZero();
+        assertThat(count("SELECT count(*) FROM seat_hold WHERE seat_id = ?", seatId)).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentConflictClaimsHoldASeatOnlyOnce() throws Exception {
+        FlightInstance flight = flight("UA0300");
+        Long seatId = seats(flight, 1).get(0).getId();
+        OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(10);
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // The second claim waits on the first one's uncommitted hold in the unique index, then skips the seat
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() -> transaction().execute(status -> {
+            List<Long> held = seatHoldRepository.insertHoldsOnConflict(List.of(seatId), "session-1", expiresAt);
+            firstClaimed.countDown();
+            awaitQuietly(release);
+            return held;
+        }));
+        assertThat(firstClaimed.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<Long>> second = CompletableFuture.supplyAsync(() -> transaction().execute(
+                status -> seatHoldRepository.insertHoldsOnConflict(List.of(seatId), "session-2", expiresAt)));
+        awaitLockWait();
+        release.countDown();
+
+        assertThat(first.get(10, TimeUnit.SECONDS)).containsExactly(seatId);
+        assertThat(second.get(10, TimeUnit.SECONDS)).isEmpty();
+        assertThat(jdbcTemplate.queryForObject("SELECT holder_session_id FROM seat_hold WHERE seat_id = ?",
+                String.class, seatId)).isEqualTo("session-1");
+    }
+
+    @Test
+    void conflictClaimTakesTheSeatWhenTheOtherClaimRollsBack() throws Exception {
+        FlightInstance flight = flight("UA0400");
+        Long seatId = seats(flight, 1).get(0).getId();
+        OffsetDateTime expiresAt = OffsetDateTime.now().plusMinutes(10);
+        CountDownLatch firstClaimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> transaction().executeWithoutResult(status -> {
+            seatHoldRepository.insertHoldsOnConflict(List.of(seatId), "session-1", expiresAt);
+            firstClaimed.countDown();
+            awaitQuietly(release);
+            status.setRollbackOnly();
+        }));
+        assertThat(firstClaimed.await(10, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<Long>> second = CompletableFuture.supplyAsync(() -> transaction().execute(
+                status -> seatHoldRepository.insertHoldsOnConflict(List.of(seatId), "session-2", expiresAt)));
+        awaitLockWait();
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        assertThat(second.get(10, TimeUnit.SECONDS)).containsExactly(seatId);
+        assertThat(jdbcTemplate.queryForObject("SELECT holder_session_id FROM seat_hold WHERE seat_id = ?",
+                String.class, seatId)).isEqualTo("session-2");
+    }
+
+    @Test
+    void conflictClaimSkipsSoldSeats() {
+        FlightInstance flight = flight("UA0500");
+        List<Long> seatIds = seats(flight, 2).stream().map(Seat::getId).toList();
+        jdbcTemplate.update("UPDATE seat SET is_available = false WHERE id = ?", seatIds.get(0));
+
+        List<Long> held = transaction().execute(
+                status -> seatHoldRepository.insertHoldsOnConflict(seatIds, "session-1", OffsetDateTime.now().plusMinutes(10)));
+
+        assertThat(held).containsExactly(seatIds.get(1));
+        assertThat(count("SELECT count(*) FROM seat_hold")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,229 @@
+package com.flightbooking.booking.service;
+
+import com.flightbooking.booking.PostgresIntegrationTest;
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.entity.Seat;
+import com.flightbooking.booking.inventory.SeatInventory;
+import com.flightbooking.booking.inventory.SeatMap;
+import com.flightbooking.booking.repository.FlightInventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlightInventoryServiceIntegrationTest extends PostgresIntegrationTest {
+
+    private static final String CABIN = "ECONOMY";
+
+    @Autowired
+    private FlightInventoryService flightInventoryService;
+
+    @Autowired
+    private FlightInventoryRepository flightInventoryRepository;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Test
+    void countersStartFromTheSeatStates() {
+        FlightInstance flight = flight("UA0100");
+        List<Seat> seats = seats(flight, 5);
+        jdbcTemplate.update("UPDATE seat SET is_available = false WHERE id = ?", seats.get(0).getId());
+        jdbcTemplate.update("INSERT INTO seat_hold (flight_instance_id, seat_id, holder_session_id, expires_at, created_at, version) " +
+                "VALUES (?, ?, 'session-0', NOW() + INTERVAL '10 minutes', NOW(), 0)", flight.getId(), seats.get(1).getId());
+
+        transaction().executeWithoutResult(status -> flightInventoryRepository.initializeFlight(flight.getId()));
+
+        assertThat(jdbcTemplate.queryForMap("SELECT total_seats, available_seats, held_seats, sold_seats " +
+                "FROM flight_inventory WHERE flight_instance_id = ?", flight.getId()))
+                .containsEntry("total_seats", 5).containsEntry("available_seats", 3)
+                .containsEntry("held_seats", 1).containsEntry("sold_seats", 1);
+        assertThat(flightInventoryService.findAvailableSeats(List.of(flight.getId()))).containsEntry(flight.getId(), 3);
+    }
+
+    @Test
+    void concurrentHoldsNeverOversellTheCounters() throws Exception {
+        FlightInstance flight = flight("UA0200");
+        seats(flight, 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> attempts = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        try {
+                            return !seatHoldService.createSeatHolds(flight.getId(), 1, "session-" + i).isEmpty();
+                        } catch (RuntimeException e) {
+                            return false;
+                        }
+                    }))
+                    .toList();
+            start.countDown();
+            int held = 0;
+            for (Future<Boolean> attempt : attempts) {
+                held += attempt.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            }
+
+            assertThat(held).isEqualTo(4);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(count("SELECT count(*) FROM seat_hold WHERE flight_instance_id = ?", flight.getId())).isEqualTo(4);
+        assertThat(count("SELECT available_seats FROM flight_inventory WHERE flight_instance_id = ?", flight.getId())).isZero();
+        assertThat(count("SELECT held_seats FROM flight_inventory WHERE flight_instance_id = ?", flight.getId())).isEqualTo(4);
+
+        String session = jdbcTemplate.queryForObject("SELECT MIN(holder_session_id) FROM seat_hold", String.class);
+        seatHoldService.cancelSeatHolds(session);
+        assertThat(count("SELECT available_seats FROM flight_inventory WHERE flight_instance_id = ?", flight.getId())).isEqualTo(1);
+        assertThat(count("SELECT held_seats FROM flight_inventory WHERE flight_instance_id = ?", flight.getId())).isEqualTo(3);
+    }
+
+    @Test
+    void lockedShardIsPassedOverForAFreeOne() throws Exception {
+        Long flightId = flight("UA0300").getId();
+        shards(flightId, 5, 5);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transaction().executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM flight_inventory WHERE flight_instance_id = ? AND shard = 0 FOR UPDATE",
+                    flightId);
+            locked.countDown();
+            awaitQuietly(release);
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Admitted on shard 1 without waiting for the holder of shard 0
+        Long admitted = transaction().execute(status -> flightInventoryService.admitHold(flightId, CABIN, 2, "session-1"));
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+
+        assertThat(admitted).isNotNull();
+        assertThat(available(flightId)).containsExactly(5, 3);
+    }
+
+    @Test
+    void shardDrainedWhileWaitingIsRetriedOnAnother() throws Exception {
+        Long flightId = flight("UA0400").getId();
+        shards(flightId, 5, 5);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Another admission holds both shards and drains shard 0
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transaction().executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM flight_inventory WHERE flight_instance_id = ? FOR UPDATE", flightId);
+            jdbcTemplate.update("UPDATE flight_inventory SET available_seats = 0, held_seats = 5 " +
+                    "WHERE flight_instance_id = ? AND shard = 0", flightId);
+            locked.countDown();
+            awaitQuietly(release);
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Long> admitted = CompletableFuture.supplyAsync(() -> transaction().execute(
+                status -> flightInventoryService.admitHold(flightId, CABIN, 2, "session-1")));
+        awaitLockWait();
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+
+        assertThat(admitted.get(10, TimeUnit.SECONDS)).isNotNull();
+        assertThat(available(flightId)).containsExactly(0, 3);
+    }
+
+    @Test
+    void holdIsRefusedOnceNoShardHasEnoughSeats() {
+        Long flightId = flight("UA0500").getId();
+        shards(flightId, 1, 2);
+
+        Long admitted = transaction().execute(status -> flightInventoryService.admitHold(flightId, CABIN, 3, "session-1"));
+
+        assertThat(admitted).isNull();
+        assertThat(available(flightId)).containsExactly(1, 2);
+    }
+
+    @Test
+    void rebalanceMovesOnlySurplusSeats() {
+        Long flightId = flight("UA0600").getId();
+        shards(flightId, 20, 10, 0);
+
+        Integer rebalanced = transaction().execute(status -> flightInventoryRepository.rebalanceShards(flightId, 9));
+
+        assertThat(rebalanced).isEqualTo(2);
+        assertThat(available(flightId)).containsExactly(10, 10, 10);
+        assertThat(count("SELECT count(*) FROM flight_inventory WHERE flight_instance_id = ? AND held_seats <> 0",
+                flightId)).isZero();
+    }
+
+    @Test
+    void nearlySoldOutCabinGathersOnItsFullestShard() {
+        Long flightId = flight("UA0700").getId();
+        shards(flightId, 3, 5, 4);
+
+        transaction().executeWithoutResult(status -> flightInventoryRepository.rebalanceShards(flightId, 9));
+
+        assertThat(available(flightId)).containsExactly(0, 12, 0);
+    }
+
+    @Test
+    void rebalanceSkipsShardsLockedByAdmissions() throws Exception {
+        Long flightId = flight("UA0800").getId();
+        shards(flightId, 30, 0, 0);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transaction().executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM flight_inventory WHERE flight_instance_id = ? AND shard = 2 FOR UPDATE",
+                    flightId);
+            locked.countDown();
+            awaitQuietly(release);
+        }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        transaction().executeWithoutResult(status -> flightInventoryRepository.rebalanceShards(flightId, 9));
+        release.countDown();
+        holder.get(10, TimeUnit.SECONDS);
+
+        assertThat(available(flightId)).containsExactly(15, 15, 0);
+    }
+
+    @Test
+    void counterMissKeepsTheSeatMap() {
+        FlightInstance flight = flight("UA0900");
+        seats(flight, 4);
+        SeatMap seatMap = transaction().execute(status -> seatInventory.get(flight.getId()));
+        // The counters say sold out while this node's map still has every seat
+        jdbcTemplate.update("UPDATE flight_inventory SET available_seats = 0 WHERE flight_instance_id = ?", flight.getId());
+
+        assertThatThrownBy(() -> seatHoldService.createSeatHolds(flight.getId(), 2, "session-1"))
+                .hasMessageContaining("Insufficient seats");
+
+        assertThat(seatInventory.find(flight.getId())).isSameAs(seatMap);
+        assertThat(seatMap.available(null)).isEqualTo(4);
+        assertThat(count("SELECT count(*) FROM seat_hold")).isZero();
+    }
+
+    private void shards(Long flightId, int... available) {
+        for (int shard = 0; shard < available.length; shard++) {
+            jdbcTemplate.update("INSERT INTO flight_inventory (flight_instance_id, cabin_class, shard, total_seats, " +
+                    "available_seats, held_seats, sold_seats, updated_at) VALUES (?, ?, ?, ?, ?, 0, 0, NOW())",
+                    flightId, CABIN, shard, available[shard], available[shard]);
+        }
+    }
+
+    private List<Integer> available(Long flightId) {
+        return jdbcTemplate.queryForList("SELECT available_seats FROM flight_inventory WHERE flight_instance_id = ? " +
+                "ORDER BY shard", Integer.class, flightId);
+    }
+}
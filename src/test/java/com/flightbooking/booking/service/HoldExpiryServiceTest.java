@@ -0,0 +1,38 @@
+package com.flightbooking.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flightbooking.booking.inventory.SeatInventory;
+import com.flightbooking.booking.repository.OutboxEventRepository;
+import com.flightbooking.booking.repository.SeatHoldRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HoldExpiryServiceTest {
+
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    private final HoldExpiryService holdExpiryService = new HoldExpiryService(mock(SeatHoldRepository.class),
+            outboxEventRepository, mock(SeatInventory.class), new ObjectMapper(), mock(PlatformTransactionManager.class),
+            1000, 2, 24);
+
+    @Test
+    void staleAvailabilityEventsArePrunedBatchByBatch() {
+        when(outboxEventRepository.deleteTopicEventsOlderThan(eq(HoldExpiryService.AVAILABILITY_TOPIC), any(), eq(2)))
+                .thenReturn(2, 2, 1);
+        OffsetDateTime dayAgo = OffsetDateTime.now().minusHours(24);
+
+        holdExpiryService.pruneAvailabilityEvents();
+
+        verify(outboxEventRepository, times(3)).deleteTopicEventsOlderThan(eq(HoldExpiryService.AVAILABILITY_TOPIC),
+                argThat(cutoff -> !cutoff.isBefore(dayAgo) && cutoff.isBefore(dayAgo.plusMinutes(1))), eq(2));
+    }
+}
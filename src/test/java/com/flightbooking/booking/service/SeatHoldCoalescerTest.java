@@ -0,0 +1,98 @@
+package com.flightbooking.booking.service;
+
+import com.flightbooking.booking.entity.SeatHold;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatHoldCoalescerTest {
+
+    private static final List<Long> LEGS = List.of(11L, 12L);
+
+    private final SeatHoldService seatHoldService = mock(SeatHoldService.class);
+
+    @Test
+    void loneRequestHoldsOnItsOwnOnceTheWindowCloses() {
+        List<SeatHold> own = List.of(hold("session-1"));
+        when(seatHoldService.createSeatHolds(LEGS, 2, "session-1")).thenReturn(own);
+        SeatHoldCoalescer coalescer = new SeatHoldCoalescer(seatHoldService, true, 20, 8);
+
+        assertThat(coalescer.createSeatHolds(LEGS, 2, "session-1")).isSameAs(own);
+        verify(seatHoldService, never()).createSeatHolds(anyList(), anyList());
+    }
+
+    @Test
+    void fullGroupIsFlushedWithoutWaitingForTheWindow() throws Exception {
+        when(seatHoldService.createSeatHolds(eq(LEGS), anyList())).thenAnswer(invocation -> {
+            List<SeatHoldService.HoldRequest> requests = invocation.getArgument(1);
+            return requests.stream().map(request -> List.of(hold(request.getSessionId()))).toList();
+        });
+        SeatHoldCoalescer coalescer = new SeatHoldCoalescer(seatHoldService, true, 60_000, 2);
+
+        CompletableFuture<List<SeatHold>> first = CompletableFuture.supplyAsync(() -> coalescer.createSeatHolds(LEGS, 1, "session-1"));
+        CompletableFuture<List<SeatHold>> second = CompletableFuture.supplyAsync(() -> coalescer.createSeatHolds(LEGS, 1, "session-2"));
+
+        // Well before the one-minute window
+        assertThat(first.get(5, TimeUnit.SECONDS)).extracting(SeatHold::getHolderSessionId).containsExactly("session-1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).extracting(SeatHold::getHolderSessionId).containsExactly("session-2");
+        verify(seatHoldService, times(1)).createSeatHolds(eq(LEGS), anyList());
+        verify(seatHoldService, never()).createSeatHolds(anyList(), anyInt(), anyString());
+    }
+
+    @Test
+    void onlyTheMemberThatLostASeatHoldsOnItsOwn() throws Exception {
+        when(seatHoldService.createSeatHolds(eq(LEGS), anyList())).thenAnswer(invocation -> {
+            List<SeatHoldService.HoldRequest> requests = invocation.getArgument(1);
+            return requests.stream()
+                    .map(request -> request.getSessionId().equals("session-2") ? null : List.of(hold(request.getSessionId())))
+                    .toList();
+        });
+        List<SeatHold> retried = List.of(hold("session-2"));
+        when(seatHoldService.createSeatHolds(LEGS, 1, "session-2")).thenReturn(retried);
+        SeatHoldCoalescer coalescer = new SeatHoldCoalescer(seatHoldService, true, 60_000, 3);
+
+        List<CompletableFuture<List<SeatHold>>> holds = Arrays.stream(new String[]{"session-1", "session-2", "session-3"})
+                .map(session -> CompletableFuture.supplyAsync(() -> coalescer.createSeatHolds(LEGS, 1, session)))
+                .toList();
+
+        assertThat(holds.get(0).get(5, TimeUnit.SECONDS)).extracting(SeatHold::getHolderSessionId).containsExactly("session-1");
+        assertThat(holds.get(1).get(5, TimeUnit.SECONDS)).isSameAs(retried);
+        assertThat(holds.get(2).get(5, TimeUnit.SECONDS)).extracting(SeatHold::getHolderSessionId).containsExactly("session-3");
+        verify(seatHoldService, times(1)).createSeatHolds(anyList(), anyInt(), anyString());
+    }
+
+    @Test
+    void groupThatFailsAsAWholeFallsBackToIndividualHolds() throws Exception {
+        when(seatHoldService.createSeatHolds(eq(LEGS), anyList()))
+                .thenThrow(new RuntimeException("Insufficient seats available for hold group"));
+        when(seatHoldService.createSeatHolds(eq(LEGS), eq(1), any()))
+                .thenAnswer(invocation -> List.of(hold(invocation.getArgument(2))));
+        SeatHoldCoalescer coalescer = new SeatHoldCoalescer(seatHoldService, true, 60_000, 2);
+
+        CompletableFuture<List<SeatHold>> first = CompletableFuture.supplyAsync(() -> coalescer.createSeatHolds(LEGS, 1, "session-1"));
+        CompletableFuture<List<SeatHold>> second = CompletableFuture.supplyAsync(() -> coalescer.createSeatHolds(LEGS, 1, "session-2"));
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).extracting(SeatHold::getHolderSessionId).containsExactly("session-1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).extracting(SeatHold::getHolderSessionId).containsExactly("session-2");
+        verify(seatHoldService, times(2)).createSeatHolds(eq(LEGS), eq(1), any());
+    }
+
+    private static SeatHold hold(String sessionId) {
+        return SeatHold.builder().holderSessionId(sessionId).build();
+    }
+}
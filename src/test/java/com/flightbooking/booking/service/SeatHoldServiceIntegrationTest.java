@@ -0,0 +1,178 @@
+package com.flightbooking.booking.service;
+
+import com.flightbooking.booking.PostgresIntegrationTest;
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.entity.Seat;
+import com.flightbooking.booking.entity.SeatHold;
+import com.flightbooking.booking.entity.Ticket;
+import com.flightbooking.booking.inventory.SeatInventory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeatHoldServiceIntegrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Test
+    void bookingsTakingLegsInOppositeOrderDoNotDeadlock() throws Exception {
+        FlightInstance firstFlight = flight("UA1100");
+        FlightInstance secondFlight = flight("UA1200");
+        seats(firstFlight, 20);
+        seats(secondFlight, 20);
+        Long first = firstFlight.getId();
+        Long second = secondFlight.getId();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<SeatHold>>> bookings = IntStream.range(0, 8)
+                    .mapToObj(i -> executor.submit(() -> {
+                        start.await();
+                        List<Long> legs = i % 2 == 0 ? List.of(first, second) : List.of(second, first);
+                        return seatHoldService.createSeatHolds(legs, 2, "session-" + i);
+                    }))
+                    .toList();
+            start.countDown();
+            for (Future<List<SeatHold>> booking : bookings) {
+                assertThat(booking.get(30, TimeUnit.SECONDS)).hasSize(4); // A deadlock would fail one of them
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(count("SELECT count(*) FROM seat_hold")).isEqualTo(32);
+        assertThat(count("SELECT available_seats FROM flight_inventory WHERE flight_instance_id = ?", first)).isEqualTo(4);
+        assertThat(count("SELECT available_seats FROM flight_inventory WHERE flight_instance_id = ?", second)).isEqualTo(4);
+    }
+
+    @Test
+    void multiLegHoldIsAllOrNothing() {
+        FlightInstance first = flight("UA1300");
+        FlightInstance second = flight("UA1400");
+        seats(first, 2);
+        seats(second, 2);
+        transaction().executeWithoutResult(status -> {
+            seatInventory.get(first.getId());
+            seatInventory.get(second.getId());
+        });
+        // The second leg sold out on another node: its counter is admitted after the first leg's
+        jdbcTemplate.update("UPDATE flight_inventory SET available_seats = 0 WHERE flight_instance_id = ?", second.getId());
+
+        assertThatThrownBy(() -> seatHoldService.createSeatHolds(List.of(first.getId(), second.getId()), 2, "session-1"))
+                .hasMessageContaining("Insufficient seats");
+
+        assertThat(count("SELECT count(*) FROM seat_hold")).isZero();
+        assertThat(count("SELECT available_seats FROM flight_inventory WHERE flight_instance_id = ?", first.getId())).isEqualTo(2);
+        assertThat(seatInventory.find(first.getId()).available(null)).isEqualTo(2);
+    }
+
+    @Test
+    void groupLeavesOutOnlyTheSessionThatLostASeat() {
+        FlightInstance flight = flight("UA1000");
+        List<Seat> seats = seats(flight, 4);
+        transaction().executeWithoutResult(status -> seatInventory.get(flight.getId()));
+        // Held behind this node's maps, e.g. by another node
+        jdbcTemplate.update("INSERT INTO seat_hold (flight_instance_id, seat_id, holder_session_id, expires_at, created_at, version) " +
+                "VALUES (?, ?, 'elsewhere', NOW() + INTERVAL '10 minutes', NOW(), 0)", flight.getId(), seats.get(3).getId());
+
+        List<List<SeatHold>> results = seatHoldService.createSeatHolds(List.of(flight.getId()), List.of(
+                new SeatHoldService.HoldRequest("session-1", 2),
+                new SeatHoldService.HoldRequest("session-2", 2)));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.stream().filter(Objects::isNull)).hasSize(1);
+        assertThat(results.stream().filter(Objects::nonNull).findFirst().orElseThrow()).hasSize(2);
+        assertThat(count("SELECT count(*) FROM seat_hold")).isEqualTo(3);
+        // Only the served session's seats stay admitted on the counters
+        assertThat(count("SELECT SUM(available_seats) FROM flight_inventory WHERE flight_instance_id = ?", flight.getId()))
+                .isEqualTo(2);
+        assertThat(count("SELECT SUM(held_seats) FROM flight_inventory WHERE flight_instance_id = ?", flight.getId()))
+                .isEqualTo(2);
+        assertThat(seatInventory.find(flight.getId())).isNull(); // Rebuilt on the next hold
+    }
+
+    @Test
+    void seatsFreedOnAnotherNodeAreFoundThroughTheCounters() {
+        FlightInstance flight = flight("UA1700");
+        seats(flight, 2);
+        seatHoldService.createSeatHolds(flight.getId(), 2, "session-1");
+        assertThat(seatInventory.find(flight.getId()).available(null)).isZero();
+        // Cancelled on another node: its commit frees the seats in Postgres but not in this node's map
+        jdbcTemplate.update("DELETE FROM seat_hold WHERE holder_session_id = 'session-1'");
+        jdbcTemplate.update("UPDATE flight_inventory SET available_seats = available_seats + held_seats, held_seats = 0 " +
+                "WHERE flight_instance_id = ?", flight.getId());
+
+        assertThat(seatHoldService.createSeatHolds(flight.getId(), 2, "session-2")).hasSize(2);
+
+        assertThat(count("SELECT count(*) FROM seat_hold WHERE holder_session_id = 'session-2'")).isEqualTo(2);
+        assertThat(seatInventory.find(flight.getId()).available(null)).isZero();
+    }
+
+    @Test
+    void soldOutFlightIsStillRejected() {
+        FlightInstance flight = flight("UA1800");
+        seats(flight, 2);
+        seatHoldService.createSeatHolds(flight.getId(), 2, "session-1");
+
+        assertThatThrownBy(() -> seatHoldService.createSeatHolds(flight.getId(), 1, "session-2"))
+                .hasMessageContaining("Insufficient seats");
+
+        assertThat(count("SELECT count(*) FROM seat_hold")).isEqualTo(2);
+    }
+
+    @Test
+    void confirmSellsTheHeldSeatsToTheTicket() {
+        FlightInstance flight = flight("UA1500");
+        seats(flight, 4);
+        seatHoldService.createSeatHolds(flight.getId(), 3, "session-1");
+        Ticket ticket = ticketService.createTicketInProgress(List.of(flight), "payment-1", "session-1", 3);
+
+        List<String> seatNumbers = seatHoldService.confirmSeatHolds("session-1", ticket.getId());
+
+        assertThat(seatNumbers).hasSize(3).isSorted();
+        assertThat(count("SELECT count(*) FROM seat WHERE flight_instance_id = ? AND NOT is_available", flight.getId()))
+                .isEqualTo(3);
+        assertThat(count("SELECT count(*) FROM ticket_seat WHERE ticket_id = ?", ticket.getId())).isEqualTo(3);
+        assertThat(count("SELECT count(*) FROM seat_hold")).isZero();
+        // Moved from held to sold; the seat left unsold stays available
+        assertThat(jdbcTemplate.queryForMap("SELECT CAST(SUM(available_seats) AS integer) AS available, " +
+                "CAST(SUM(held_seats) AS integer) AS held, CAST(SUM(sold_seats) AS integer) AS sold " +
+                "FROM flight_inventory WHERE flight_instance_id = ?", flight.getId()))
+                .containsEntry("available", 1).containsEntry("held", 0).containsEntry("sold", 3);
+        assertThat(seatInventory.find(flight.getId()).available(null)).isEqualTo(1);
+    }
+
+    @Test
+    void expiredHoldsAreNotSold() {
+        FlightInstance flight = flight("UA1600");
+        seats(flight, 2);
+        seatHoldService.createSeatHolds(flight.getId(), 2, "session-1");
+        Ticket ticket = ticketService.createTicketInProgress(List.of(flight), "payment-1", "session-1", 2);
+        jdbcTemplate.update("UPDATE seat_hold SET expires_at = NOW() - INTERVAL '1 minute'");
+
+        assertThatThrownBy(() -> seatHoldService.confirmSeatHolds("session-1", ticket.getId()))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(count("SELECT count(*) FROM seat WHERE flight_instance_id = ? AND NOT is_available", flight.getId()))
+                .isZero();
+        assertThat(count("SELECT count(*) FROM ticket_seat")).isZero();
+        assertThat(count("SELECT count(*) FROM seat_hold")).isEqualTo(2); // Left for the expiry sweep
+    }
+}
@@ -0,0 +1,94 @@
+package com.flightbooking.search.airport;
+
+import com.flightbooking.search.entity.Airport;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AirportDictionaryTest {
+
+    private final AirportDictionary dictionary = AirportDictionary.build(List.of(
+            airport("LAX", "Los Angeles International Airport", "Los Angeles"),
+            airport("JFK", "John F. Kennedy International Airport", "New York"),
+            airport("LGA", "LaGuardia Airport", "New York"),
+            airport("BOG", "El Dorado International Airport", "Bogotá"),
+            airport("NYO", "Stockholm Skavsta Airport", "Nyköping")));
+
+    @Test
+    void assignsDenseIdsInCodeOrder() {
+        assertThat(dictionary.size()).isEqualTo(5);
+        assertThat(dictionary.idOf("BOG")).isZero();
+        assertThat(dictionary.idOf("NYO")).isEqualTo(4);
+        assertThat(dictionary.get(dictionary.idOf("LGA")).getCode()).isEqualTo("LGA");
+        assertThat(dictionary.idOf("ORD")).isEqualTo(-1);
+        assertThat(dictionary.idOf("jfk")).isEqualTo(-1);
+    }
+
+    @Test
+    void ranksCodeMatchesBeforeCityAndName() {
+        assertThat(codes(dictionary.autocomplete("n", 10))).containsExactly("NYO", "JFK", "LGA");
+        assertThat(codes(dictionary.autocomplete("new yo", 10))).containsExactly("JFK", "LGA");
+        assertThat(codes(dictionary.autocomplete("kennedy", 10))).containsExactly("JFK");
+    }
+
+    @Test
+    void ignoresCaseAndAccents() {
+        assertThat(codes(dictionary.autocomplete("BOGOTA", 10))).containsExactly("BOG");
+        assertThat(codes(dictionary.autocomplete("nykö", 10))).containsExactly("NYO");
+        assertThat(dictionary.autocomplete("  ", 10)).isEmpty();
+        assertThat(dictionary.autocomplete("xyz", 10)).isEmpty();
+    }
+
+    @Test
+    void respectsLimit() {
+        assertThat(dictionary.autocomplete("international", 2)).hasSize(2);
+    }
+
+    @Test
+    void resolvesCodesCitiesAndRadiusNearestFirst() {
+        AirportDictionary located = AirportDictionary.build(List.of(
+                airport("LHR", "Heathrow", "London", 51.4700, -0.4543),
+                airport("LGW", "Gatwick", "London", 51.1537, -0.1821),
+                airport("STN", "Stansted", "London", 51.8850, 0.2350),
+                airport("JFK", "John F. Kennedy International Airport", "New York", 40.6413, -73.7781),
+                airport("EWR", "Newark Liberty International Airport", "Newark", 40.6895, -74.1745),
+                airport("LGA", "LaGuardia Airport", "New York", 40.7769, -73.8740)));
+
+        assertThat(codes(located, located.resolvePlace("london", 0))).containsExactlyInAnyOrder("LGW", "LHR", "STN");
+        assertThat(codes(located, located.resolvePlace("jfk", 0))).containsExactly("JFK");
+        assertThat(codes(located, located.resolvePlace("JFK", 50))).containsExactly("JFK", "LGA", "EWR");
+        assertThat(codes(located, located.resolvePlace("LHR", 20))).containsExactly("LHR");
+        assertThat(located.resolvePlace("Paris", 100)).isEmpty();
+    }
+
+    @Test
+    void radiusSearchWrapsAroundTheAntimeridian() {
+        AirportDictionary located = AirportDictionary.build(List.of(
+                airport("AAA", "East", "East", -16.0, 179.9),
+                airport("BBB", "West", "West", -16.0, -179.9),
+                airport("CCC", "Far", "Far", -16.0, 170.0)));
+
+        assertThat(codes(located, located.nearby(-16.0, 180.0, 50))).containsExactly("AAA", "BBB");
+    }
+
+    private static List<String> codes(AirportDictionary dictionary, int[] ids) {
+        return Arrays.stream(ids).mapToObj(id -> dictionary.get(id).getCode()).toList();
+    }
+
+    private static List<String> codes(List<Airport> airports) {
+        return airports.stream().map(Airport::getCode).toList();
+    }
+
+    private static Airport airport(String code, String name, String city) {
+        return Airport.builder().code(code).name(name).city(city).country("XX").build();
+    }
+
+    private static Airport airport(String code, String name, String city, double latitude, double longitude) {
+        return Airport.builder().code(code).name(name).city(city).country("XX")
+                .latitude(BigDecimal.valueOf(latitude)).longitude(BigDecimal.valueOf(longitude)).build();
+    }
+}
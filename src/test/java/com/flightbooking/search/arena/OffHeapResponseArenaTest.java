@@ -0,0 +1,76 @@
+package com.flightbooking.search.arena;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapResponseArenaTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void storesAndReplacesPayloads() {
+        OffHeapResponseArena arena = new OffHeapResponseArena(4096, 1024, 64, 30_000, now::get);
+
+        assertThat(arena.put("JFK-LAX", bytes("first"))).isTrue();
+        assertThat(arena.put("JFK-LAX", bytes("second"))).isTrue();
+
+        assertThat(read(arena, "JFK-LAX")).isEqualTo("second");
+        assertThat(arena.getEntries()).isEqualTo(1);
+        assertThat(arena.get("LAX-JFK")).isNull();
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        OffHeapResponseArena arena = new OffHeapResponseArena(4096, 1024, 64, 30_000, now::get);
+        arena.put("JFK-LAX", bytes("payload"));
+
+        now.addAndGet(30_001);
+
+        assertThat(arena.get("JFK-LAX")).isNull();
+        assertThat(arena.getEntries()).isZero();
+    }
+
+    @Test
+    void clockEvictionSparesRecentlyReadAndPinnedEntries() {
+        // One slab of four 256-byte chunks
+        OffHeapResponseArena arena = new OffHeapResponseArena(1024, 1024, 256, 30_000, now::get);
+        for (int i = 0; i < 4; i++) {
+            arena.put("key-" + i, bytes("payload-" + i));
+        }
+        read(arena, "key-0");
+        OffHeapResponseArena.Lease pinned = arena.get("key-1");
+
+        assertThat(arena.put("key-4", bytes("payload-4"))).isTrue();
+
+        assertThat(arena.get("key-2")).isNull();
+        assertThat(read(arena, "key-0")).isEqualTo("payload-0");
+        assertThat(StandardCharsets.UTF_8.decode(pinned.getPayload()).toString()).isEqualTo("payload-1");
+        assertThat(read(arena, "key-4")).isEqualTo("payload-4");
+        assertThat(arena.getEvictions()).isEqualTo(1);
+        pinned.close();
+    }
+
+    @Test
+    void rejectsPayloadsLargerThanASlab() {
+        OffHeapResponseArena arena = new OffHeapResponseArena(4096, 1024, 64, 30_000, now::get);
+
+        assertThat(arena.put("big", new byte[2048])).isFalse();
+        assertThat(arena.getRejections()).isEqualTo(1);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String read(OffHeapResponseArena arena, String key) {
+        try (OffHeapResponseArena.Lease lease = arena.get(key)) {
+            ByteBuffer payload = lease.getPayload();
+            return StandardCharsets.UTF_8.decode(payload).toString();
+        }
+    }
+}
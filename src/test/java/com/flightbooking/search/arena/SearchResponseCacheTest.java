@@ -0,0 +1,64 @@
+package com.flightbooking.search.arena;
+
+import com.flightbooking.search.dto.SearchRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResponseCacheTest {
+
+    private final SearchResponseCache cache = new SearchResponseCache(new SimpleMeterRegistry(), true, 1, 64, 1024, 30);
+
+    @Test
+    void equalRequestsShareAnEntry() throws IOException {
+        cache.putAndWrite(request().maxStops(1).departAfter(LocalTime.of(9, 0)).cursor("abc").build(),
+                "page".getBytes(StandardCharsets.UTF_8), new MockHttpServletResponse());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(cache.writeCached(request().maxStops(1).departAfter(LocalTime.of(9, 0)).cursor("abc").build(),
+                response)).isTrue();
+        assertThat(response.getContentAsString()).isEqualTo("page");
+    }
+
+    @Test
+    void everyPageFieldIsPartOfTheKey() throws IOException {
+        cache.putAndWrite(request().build(), "page".getBytes(StandardCharsets.UTF_8), new MockHttpServletResponse());
+
+        assertThat(cache.writeCached(request().build(), new MockHttpServletResponse())).isTrue();
+        assertThat(cache.writeCached(request().passengerCount(2).build(), new MockHttpServletResponse())).isFalse();
+        assertThat(cache.writeCached(request().departureDate(LocalDate.of(2025, 10, 7)).build(),
+                new MockHttpServletResponse())).isFalse();
+        assertThat(cache.writeCached(request().minPrice(0L).build(), new MockHttpServletResponse())).isFalse();
+        assertThat(cache.writeCached(request().maxPrice(50_000L).build(), new MockHttpServletResponse())).isFalse();
+        assertThat(cache.writeCached(request().maxStops(0).build(), new MockHttpServletResponse())).isFalse();
+        assertThat(cache.writeCached(request().arriveBefore(LocalTime.NOON).build(), new MockHttpServletResponse()))
+                .isFalse();
+        assertThat(cache.writeCached(request().limit(20).build(), new MockHttpServletResponse())).isFalse();
+        assertThat(cache.writeCached(request().cursor("abc").build(), new MockHttpServletResponse())).isFalse();
+        assertThat(cache.writeCached(request().engine("postgres").build(), new MockHttpServletResponse())).isFalse();
+    }
+
+    @Test
+    void oversizedCursorIsNotCached() throws IOException {
+        SearchRequest searchRequest = request().cursor("c".repeat(300)).build();
+
+        cache.putAndWrite(searchRequest, "page".getBytes(StandardCharsets.UTF_8), new MockHttpServletResponse());
+
+        assertThat(cache.writeCached(searchRequest, new MockHttpServletResponse())).isFalse();
+    }
+
+    private static SearchRequest.SearchRequestBuilder request() {
+        return SearchRequest.builder()
+                .source("JFK")
+                .destination("LAX")
+                .departureDate(LocalDate.of(2025, 10, 6))
+                .passengerCount(1);
+    }
+}
@@ -0,0 +1,46 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.service.ItineraryService;
+import com.flightbooking.search.util.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ItineraryPagingTest {
+
+    @Test
+    void cursorResumesOnAnotherGenerationOrEngine() {
+        // Equal prices: only the tiebreak orders them
+        List<Itinerary> served = sorted("c", "a", "d", "b");
+        List<Itinerary> page = ItineraryPaging.pageAfter(served, 1, null, 2);
+        Itinerary last = page.get(page.size() - 1);
+        SearchCursor cursor = new SearchCursor(1, last.getTotalPrice(), last.getFlightLegsHash());
+
+        // The same options rebuilt with new node ids, e.g. after a cache rebuild or on the fallback engine
+        List<Itinerary> rebuilt = sorted("b", "d", "a", "c");
+        List<Itinerary> next = ItineraryPaging.pageAfter(rebuilt, 1, cursor, 2);
+
+        assertThat(Stream.concat(page.stream(), next.stream()).map(Itinerary::getFlightLegsHash))
+                .containsExactly("a", "b", "c", "d");
+    }
+
+    private static List<Itinerary> sorted(String... legsHashes) {
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (String legsHash : legsHashes) {
+            itineraries.add(Itinerary.builder()
+                    .id(UUID.randomUUID().toString())
+                    .flightLegsHash(legsHash)
+                    .totalPrice(20_000L)
+                    .minAvailableSeats(9)
+                    .build());
+        }
+        itineraries.sort(ItineraryService.RESULT_ORDER);
+        return itineraries;
+    }
+}
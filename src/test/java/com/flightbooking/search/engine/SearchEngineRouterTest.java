@@ -0,0 +1,173 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.service.SearchStage;
+import com.flightbooking.search.util.SearchCursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchEngineRouterTest {
+
+    private static final SearchRequest REQUEST = SearchRequest.builder()
+            .source("JFK")
+            .destination("LAX")
+            .departureDate(LocalDate.of(2025, 10, 6))
+            .passengerCount(1)
+            .build();
+
+    @Test
+    void fallbackAnswersWhenThePrimaryFails() {
+        StubEngine primary = new StubEngine("neo4j", new IllegalStateException("Neo4j unavailable"));
+        StubEngine fallback = new StubEngine("postgres", null);
+        SearchEngineRouter router = router(primary, fallback, 2);
+
+        SearchEngineRouter.RoutedSearch routed = router.search(REQUEST, null, 11);
+
+        assertThat(routed.getEngine()).isEqualTo("postgres");
+        assertThat(routed.getResult().isPartial()).isFalse();
+        assertThat(primary.calls.get()).isEqualTo(1);
+        assertThat(fallback.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void openBreakerSkipsThePrimary() {
+        StubEngine primary = new StubEngine("neo4j", new IllegalStateException("Neo4j unavailable"));
+        StubEngine fallback = new StubEngine("postgres", null);
+        SearchEngineRouter router = router(primary, fallback, 2);
+
+        router.search(REQUEST, null, 11);
+        router.search(REQUEST, null, 11);
+        assertThat(router.getCircuitState()).isEqualTo(SearchCircuitBreaker.State.OPEN);
+
+        assertThat(router.search(REQUEST, null, 11).getEngine()).isEqualTo("postgres");
+        assertThat(primary.calls.get()).isEqualTo(2);
+        assertThat(fallback.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void primaryCutOffByTheDeadlineOpensTheBreaker() {
+        SearchEngine timingOut = new SearchEngine() {
+            @Override
+            public String getName() {
+                return "neo4j";
+            }
+
+            @Override
+            public ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit) {
+                return new ItineraryGenerationResult(List.of(), List.of(SearchStage.ONE_STOP, SearchStage.TWO_STOP));
+            }
+        };
+        StubEngine fallback = new StubEngine("postgres", null);
+        SearchEngineRouter router = router(timingOut, fallback, 2);
+
+        // Partial pages are still served while the breaker is closed
+        assertThat(router.search(REQUEST, null, 11).getResult().isPartial()).isTrue();
+        assertThat(router.search(REQUEST, null, 11).getEngine()).isEqualTo("neo4j");
+        assertThat(router.getCircuitState()).isEqualTo(SearchCircuitBreaker.State.OPEN);
+
+        SearchEngineRouter.RoutedSearch routed = router.search(REQUEST, null, 11);
+        assertThat(routed.getEngine()).isEqualTo("postgres");
+        assertThat(routed.getResult().isPartial()).isFalse();
+    }
+
+    @Test
+    void badRequestsAreNotRetriedOnTheFallback() {
+        StubEngine primary = new StubEngine("neo4j", new SearchCursor.ExpiredException("expired"));
+        StubEngine fallback = new StubEngine("postgres", null);
+        SearchEngineRouter router = router(primary, fallback, 2);
+
+        assertThatThrownBy(() -> router.search(REQUEST, new SearchCursor(REQUEST.getSearchKey(), 100, "a", true), 11))
+                .isInstanceOf(SearchCursor.ExpiredException.class);
+        assertThat(fallback.calls.get()).isZero();
+        assertThat(router.getCircuitState()).isEqualTo(SearchCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void engineWithoutSinglePassSearchFansOutPerAirportPair() {
+        SearchEngine pairwise = new SearchEngine() {
+            @Override
+            public String getName() {
+                return "pairwise";
+            }
+
+            @Override
+            public ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit) {
+                String route = searchRequest.getSource() + "-" + searchRequest.getDestination();
+                List<Itinerary> rows = Stream.of(itinerary(route + "-1", PRICES.get(route)),
+                                itinerary(route + "-2", PRICES.get(route) + 10_000))
+                        .filter(row -> after == null || after.isBefore(row.getTotalPrice(), row.getId()))
+                        .limit(limit)
+                        .toList();
+                return new ItineraryGenerationResult(rows,
+                        route.equals("LGA-LAX") ? List.of(SearchStage.TWO_STOP) : List.of());
+            }
+        };
+        StubEngine fallback = new StubEngine("postgres", null);
+        SearchEngineRouter router = new SearchEngineRouter(List.of(pairwise, fallback), "pairwise", "postgres",
+                10, 2, 0.5, 0.5, 2500, 30_000, 1, List.of("pairwise"));
+        AirportSetQuery query = new AirportSetQuery(List.of("JFK", "LGA"), List.of("LAX", "JFK"),
+                LocalDate.of(2025, 10, 6), 1);
+
+        ItineraryGenerationResult first = router.searchAirports(query, null, null, 3).getResult();
+        assertThat(first.getItineraries()).extracting(Itinerary::getId)
+                .containsExactly("LGA-LAX-1", "JFK-LAX-1", "LGA-JFK-1");
+        assertThat(first.getIncompleteStages()).containsExactly(SearchStage.TWO_STOP);
+
+        Itinerary last = first.getItineraries().get(2);
+        ItineraryGenerationResult second = router.searchAirports(query, null,
+                new SearchCursor(query.getSearchKey(), last.getTotalPrice(), last.getId()), 3).getResult();
+        assertThat(second.getItineraries()).extracting(Itinerary::getId)
+                .containsExactly("LGA-LAX-2", "JFK-LAX-2", "LGA-JFK-2");
+    }
+
+    private static final Map<String, Long> PRICES = Map.of("JFK-LAX", 20_000L, "LGA-LAX", 15_000L, "LGA-JFK", 25_000L);
+
+    private static Itinerary itinerary(String id, long price) {
+        return Itinerary.builder()
+                .id(id)
+                .flightLegsHash(id)
+                .totalPrice(price)
+                .minAvailableSeats(9)
+                .build();
+    }
+
+    private static SearchEngineRouter router(SearchEngine primary, SearchEngine fallback, int minimumCalls) {
+        return new SearchEngineRouter(List.of(primary, fallback), primary.getName(), fallback.getName(),
+                10, minimumCalls, 0.5, 0.5, 2500, 30_000, 1, List.of(fallback.getName()));
+    }
+
+    private static final class StubEngine implements SearchEngine {
+        private final String name;
+        private final RuntimeException failure;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private StubEngine(String name, RuntimeException failure) {
+            this.name = name;
+            this.failure = failure;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit) {
+            calls.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            return new ItineraryGenerationResult(List.of(), List.of());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.flightbooking.search.engine;
+
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.entity.Itinerary;
+import com.flightbooking.search.service.ItineraryGenerationResult;
+import com.flightbooking.search.service.SearchStage;
+import com.flightbooking.search.util.SearchCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShadowSearchRunnerTest {
+
+    private static final SearchRequest REQUEST = SearchRequest.builder()
+            .source("JFK")
+            .destination("LAX")
+            .departureDate(LocalDate.of(2025, 10, 6))
+            .passengerCount(1)
+            .build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void matchingPagesCountAsAMatch() {
+        StubEngine candidate = new StubEngine(List.of(itinerary("a", 10_000), itinerary("b", 20_000)));
+        ShadowSearchRunner runner = new ShadowSearchRunner(List.of(candidate), Runnable::run, meterRegistry,
+                true, "postgres", 1.0);
+
+        runner.maybeShadow(REQUEST, null, 10, served(itinerary("a", 10_000), itinerary("b", 20_000)), 1_000_000);
+
+        assertThat(candidate.calls.get()).isEqualTo(1);
+        assertThat(candidate.lastRequest.getEngine()).isEqualTo("postgres");
+        assertThat(comparisons("match")).isEqualTo(1);
+        assertThat(meterRegistry.get("search.shadow.latency").tag("role", "primary").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("search.shadow.latency").tag("role", "candidate").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("search.shadow.discrepancies").counter()).isNull();
+    }
+
+    @Test
+    void differencesAreCountedByType() {
+        StubEngine candidate = new StubEngine(List.of(
+                itinerary("c", 15_000), itinerary("b", 20_000), itinerary("a", 11_000), itinerary("d", 30_000)));
+        ShadowSearchRunner runner = new ShadowSearchRunner(List.of(candidate), Runnable::run, meterRegistry,
+                true, "postgres", 1.0);
+
+        runner.maybeShadow(REQUEST, null, 10,
+                served(itinerary("a", 10_000), itinerary("b", 20_000), itinerary("e", 40_000)), 1_000_000);
+
+        assertThat(comparisons("mismatch")).isEqualTo(1);
+        assertThat(discrepancies("missing")).isEqualTo(1); // e
+        assertThat(discrepancies("extra")).isEqualTo(2); // c and d
+        assertThat(discrepancies("price")).isEqualTo(1); // a
+        assertThat(discrepancies("order")).isEqualTo(2); // a, b served; b, a on the candidate
+    }
+
+    @Test
+    void candidateFailureIsCountedAndSwallowed() {
+        StubEngine candidate = new StubEngine(new IllegalStateException("Postgres unavailable"));
+        ShadowSearchRunner runner = new ShadowSearchRunner(List.of(candidate), Runnable::run, meterRegistry,
+                true, "postgres", 1.0);
+
+        runner.maybeShadow(REQUEST, null, 10, served(itinerary("a", 10_000)), 1_000_000);
+
+        assertThat(comparisons("error")).isEqualTo(1);
+    }
+
+    @Test
+    void saturatedExecutorDropsTheSample() {
+        StubEngine candidate = new StubEngine(List.of());
+        ShadowSearchRunner runner = new ShadowSearchRunner(List.of(candidate), command -> {
+            throw new RejectedExecutionException("full");
+        }, meterRegistry, true, "postgres", 1.0);
+
+        runner.maybeShadow(REQUEST, null, 10, served(itinerary("a", 10_000)), 1_000_000);
+
+        assertThat(comparisons("dropped")).isEqualTo(1);
+        assertThat(candidate.calls.get()).isZero();
+    }
+
+    @Test
+    void laterPagesAndPartialPagesAreNotCompared() {
+        StubEngine candidate = new StubEngine(List.of());
+        ShadowSearchRunner runner = new ShadowSearchRunner(List.of(candidate), Runnable::run, meterRegistry,
+                true, "postgres", 1.0);
+
+        runner.maybeShadow(REQUEST, new SearchCursor(REQUEST.getSearchKey(), 10_000, "a"), 10,
+                served(itinerary("b", 20_000)), 1_000_000);
+        runner.maybeShadow(REQUEST, null, 10, new SearchEngineRouter.RoutedSearch("neo4j",
+                new ItineraryGenerationResult(List.of(), List.of(SearchStage.TWO_STOP))), 1_000_000);
+
+        assertThat(candidate.calls.get()).isZero();
+        assertThat(comparisons("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void unknownCandidateDisablesShadowing() {
+        StubEngine candidate = new StubEngine(List.of());
+        ShadowSearchRunner runner = new ShadowSearchRunner(List.of(candidate), Runnable::run, meterRegistry,
+                true, "duckdb", 1.0);
+
+        runner.maybeShadow(REQUEST, null, 10, served(itinerary("a", 10_000)), 1_000_000);
+
+        assertThat(candidate.calls.get()).isZero();
+        assertThat(meterRegistry.getMeters()).isEmpty();
+    }
+
+    private double comparisons(String outcome) {
+        return meterRegistry.get("search.shadow.comparisons").tag("outcome", outcome).counter().count();
+    }
+
+    private double discrepancies(String type) {
+        return meterRegistry.get("search.shadow.discrepancies").tag("type", type).counter().count();
+    }
+
+    private static SearchEngineRouter.RoutedSearch served(Itinerary... itineraries) {
+        return new SearchEngineRouter.RoutedSearch("neo4j", new ItineraryGenerationResult(List.of(itineraries), List.of()));
+    }
+
+    private static Itinerary itinerary(String legsHash, long price) {
+        return Itinerary.builder()
+                .id(legsHash)
+                .flightLegsHash(legsHash)
+                .totalPrice(price)
+                .build();
+    }
+
+    private static final class StubEngine implements SearchEngine {
+        private final List<Itinerary> page;
+        private final RuntimeException failure;
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile SearchRequest lastRequest;
+
+        private StubEngine(List<Itinerary> page) {
+            this.page = page;
+            this.failure = null;
+        }
+
+        private StubEngine(RuntimeException failure) {
+            this.page = List.of();
+            this.failure = failure;
+        }
+
+        @Override
+        public String getName() {
+            return "postgres";
+        }
+
+        @Override
+        public ItineraryGenerationResult search(SearchRequest searchRequest, SearchCursor after, int limit) {
+            calls.incrementAndGet();
+            lastRequest = searchRequest;
+            if (failure != null) {
+                throw failure;
+            }
+            return new ItineraryGenerationResult(page, List.of());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.flightbooking.search.service;
+
+import com.flightbooking.search.airport.AirportDictionaryService;
+import com.flightbooking.search.dto.SearchRequest;
+import com.flightbooking.search.dto.SearchStreamEvent;
+import com.flightbooking.search.engine.SearchEngineRouter;
+import com.flightbooking.search.engine.ShadowSearchRunner;
+import com.flightbooking.search.entity.Itinerary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlightSearchServiceTest {
+
+    private static final SearchRequest REQUEST = SearchRequest.builder()
+            .source("JFK")
+            .destination("LAX")
+            .departureDate(LocalDate.of(2025, 10, 6))
+            .passengerCount(1)
+            .build();
+
+    private final ItineraryService itineraryService = mock(ItineraryService.class);
+    private final FlightSearchService flightSearchService = new FlightSearchService(itineraryService,
+            mock(SearchEngineRouter.class), mock(ShadowSearchRunner.class),
+            new SearchStageMetrics(new SimpleMeterRegistry(), false), mock(AirportDictionaryService.class));
+
+    @Test
+    void cancelledStreamCancelsItsStagesAndCachesNothing() {
+        ReflectionTestUtils.setField(flightSearchService, "streamBatchSize", 20);
+        Map<SearchStage, CompletableFuture<List<Itinerary>>> stages = new EnumMap<>(SearchStage.class);
+        for (SearchStage stage : SearchStage.values()) {
+            stages.put(stage, new CompletableFuture<>());
+        }
+        when(itineraryService.findCachedItineraries(REQUEST)).thenReturn(List.of());
+        when(itineraryService.launchStages("JFK", "LAX", REQUEST.getDepartureDate())).thenReturn(stages);
+        List<SearchStreamEvent> events = new ArrayList<>();
+
+        CompletableFuture<Void> stream = flightSearchService.streamFlights(REQUEST, events::add);
+        stages.get(SearchStage.DIRECT).complete(List.of(Itinerary.builder().id("JFK-LAX").totalPrice(20_000L).build()));
+        assertThat(events).extracting(SearchStreamEvent::getType).containsExactly("options");
+
+        // The client goes away while the connecting stages still run
+        assertThat(stream.cancel(true)).isTrue();
+
+        assertThat(stages.get(SearchStage.ONE_STOP)).isCancelled();
+        assertThat(stages.get(SearchStage.TWO_STOP)).isCancelled();
+        assertThat(events).hasSize(1);
+        verify(itineraryService, never()).cacheItineraries(any());
+    }
+
+    @Test
+    void completedStreamCachesItsStages() {
+        ReflectionTestUtils.setField(flightSearchService, "streamBatchSize", 20);
+        Map<SearchStage, CompletableFuture<List<Itinerary>>> stages = new EnumMap<>(SearchStage.class);
+        Itinerary direct = Itinerary.builder().id("JFK-LAX").totalPrice(20_000L).build();
+        stages.put(SearchStage.DIRECT, CompletableFuture.completedFuture(List.of(direct)));
+        stages.put(SearchStage.ONE_STOP, CompletableFuture.completedFuture(List.of()));
+        when(itineraryService.findCachedItineraries(REQUEST)).thenReturn(List.of());
+        when(itineraryService.launchStages("JFK", "LAX", REQUEST.getDepartureDate())).thenReturn(stages);
+        List<SearchStreamEvent> events = new ArrayList<>();
+
+        flightSearchService.streamFlights(REQUEST, events::add).join();
+
+        assertThat(events).extracting(SearchStreamEvent::getType).containsExactly("options", "complete");
+        verify(itineraryService).cacheItineraries(List.of(direct));
+    }
+
+    @Test
+    void cachedRouteWithNothingInTheWindowIsNotRegenerated() {
+        ReflectionTestUtils.setField(flightSearchService, "streamBatchSize", 20);
+        SearchRequest night = SearchRequest.builder()
+                .source("JFK")
+                .destination("LAX")
+                .departureDate(REQUEST.getDepartureDate())
+                .passengerCount(1)
+                .departAfter(LocalTime.of(23, 0))
+                .build();
+        when(itineraryService.findCachedItineraries(night)).thenReturn(List.of());
+        when(itineraryService.isRouteCached(night)).thenReturn(true);
+        List<SearchStreamEvent> events = new ArrayList<>();
+
+        flightSearchService.streamFlights(night, events::add).join();
+
+        assertThat(events).extracting(SearchStreamEvent::getType).containsExactly("complete");
+        verify(itineraryService, never()).launchStages(any(), any(), any());
+    }
+}
@@ -0,0 +1,116 @@
+package com.flightbooking.search.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Value;
+import org.springframework.data.neo4j.core.DatabaseSelectionProvider;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GraphPurgeServiceTest {
+
+    private static final String PURGE_ITINERARIES = "MATCH (it:Itinerary) WHERE";
+    private static final String PURGE_FLIGHTS = "MATCH (f:FlightInstance) WHERE";
+
+    private final Driver driver = mock(Driver.class);
+    private final Session session = mock(Session.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Gauges only hold their state weakly: keep the service reachable until the assertions have run
+    private GraphPurgeService purgeService;
+
+    @Test
+    void purgesItinerariesThenFlightsRoundByRound() {
+        Result fullRound = result("deleted", 2);
+        Result lastRound = result("deleted", 1);
+        Result noFlights = result("deleted", 0);
+        Result itineraryCount = result("n", 40);
+        Result flightCount = result("n", 9);
+        when(driver.session(any(SessionConfig.class))).thenReturn(session);
+        when(session.run(startsWith(PURGE_ITINERARIES), anyMap())).thenReturn(fullRound, fullRound, lastRound);
+        when(session.run(startsWith(PURGE_FLIGHTS), anyMap())).thenReturn(noFlights);
+        when(session.run("MATCH (n:Itinerary) RETURN count(n) AS n")).thenReturn(itineraryCount);
+        when(session.run("MATCH (n:FlightInstance) RETURN count(n) AS n")).thenReturn(flightCount);
+
+        purgeService(true, 60_000).purge();
+
+        InOrder order = inOrder(session);
+        order.verify(session, times(3)).run(startsWith(PURGE_ITINERARIES), anyMap());
+        order.verify(session).run(startsWith(PURGE_FLIGHTS), anyMap());
+        verify(session, times(3)).run(startsWith(PURGE_ITINERARIES), argThat((Map<String, Object> parameters) ->
+                parameters.get("roundSize").equals(2) && parameters.get("batchSize").equals(1)));
+        verify(session).close();
+        assertThat(meterRegistry.get("graph.purge.deleted").tag("label", "Itinerary").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("graph.purge.round").tag("label", "Itinerary").timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("graph.nodes").tag("label", "Itinerary").gauge().value()).isEqualTo(40);
+        assertThat(meterRegistry.get("graph.nodes").tag("label", "FlightInstance").gauge().value()).isEqualTo(9);
+    }
+
+    @Test
+    void runStopsAtTheDeadlineAndLeavesTheRestForTheNextRun() {
+        Result fullRound = result("deleted", 2);
+        Result count = result("n", 100);
+        when(driver.session(any(SessionConfig.class))).thenReturn(session);
+        when(session.run(startsWith(PURGE_ITINERARIES), anyMap())).thenReturn(fullRound);
+        when(session.run(startsWith("MATCH (n:"))).thenReturn(count);
+
+        purgeService(true, 0).purge();
+
+        verify(session, times(1)).run(startsWith(PURGE_ITINERARIES), anyMap());
+        verify(session, never()).run(startsWith(PURGE_FLIGHTS), anyMap());
+        verify(session, times(2)).run(startsWith("MATCH (n:"));
+    }
+
+    @Test
+    void failedRoundIsLoggedNotThrown() {
+        when(driver.session(any(SessionConfig.class))).thenReturn(session);
+        when(session.run(anyString(), anyMap())).thenThrow(new IllegalStateException("Neo4j unavailable"));
+
+        purgeService(true, 60_000).purge();
+
+        verify(session).close();
+        assertThat(meterRegistry.get("graph.nodes").tag("label", "Itinerary").gauge().value()).isEqualTo(-1);
+    }
+
+    @Test
+    void disabledPurgeDoesNotTouchTheGraph() {
+        purgeService(false, 60_000).purge();
+
+        verifyNoInteractions(driver, session);
+    }
+
+    private GraphPurgeService purgeService(boolean enabled, long maxRunMs) {
+        purgeService = new GraphPurgeService(driver, DatabaseSelectionProvider.getDefaultSelectionProvider(), meterRegistry,
+                enabled, 1, 2, 1, 1.0, maxRunMs);
+        return purgeService;
+    }
+
+    private static Result result(String key, long value) {
+        Value field = mock(Value.class);
+        when(field.asLong()).thenReturn(value);
+        Record record = mock(Record.class);
+        when(record.get(key)).thenReturn(field);
+        Result result = mock(Result.class);
+        when(result.single()).thenReturn(record);
+        return result;
+    }
+}
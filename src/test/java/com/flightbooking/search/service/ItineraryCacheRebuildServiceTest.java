@@ -0,0 +1,119 @@
+package com.flightbooking.search.service;
+
+import com.flightbooking.search.arena.SearchResponseCache;
+import com.flightbooking.search.entity.Itinerary;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ItineraryCacheRebuildServiceTest {
+
+    private static final long ACTIVE = 7;
+    private static final LocalDate DATE = LocalDate.now().plusDays(10);
+
+    private final ItineraryService itineraryService = mock(ItineraryService.class);
+    private final ItineraryCacheGenerations generations = mock(ItineraryCacheGenerations.class);
+    private final RecentGenerationCache recentGenerations = mock(RecentGenerationCache.class);
+    private final SearchResponseCache searchResponseCache = mock(SearchResponseCache.class);
+    private final ItineraryCacheRebuildService rebuildService = new ItineraryCacheRebuildService(
+            itineraryService, generations, recentGenerations, searchResponseCache, Runnable::run, 2, 60_000);
+
+    @Test
+    void rebuildClaimsBuildsFlipsThenCollects() {
+        Itinerary itinerary = Itinerary.builder().id("JFK-LAX").totalPrice(20_000L).build();
+        when(generations.getActiveGeneration()).thenReturn(ACTIVE);
+        when(generations.claimBuilding(eq(ACTIVE), anyLong(), eq(60_000L))).thenReturn(true);
+        when(generations.findCachedRoutes(eq(ACTIVE), any()))
+                .thenReturn(List.of(new ItineraryCacheGenerations.CachedRoute("JFK", "LAX", DATE)));
+        when(itineraryService.createItineraries("JFK", "LAX", DATE))
+                .thenReturn(new ItineraryGenerationResult(List.of(itinerary), List.of()));
+        when(generations.renewBuilding(anyLong())).thenReturn(true);
+        when(generations.flip(eq(ACTIVE), anyLong())).thenReturn(true);
+        when(generations.deleteGeneration(ACTIVE)).thenReturn(4L);
+
+        ItineraryCacheRebuildService.RebuildResult result = rebuildService.startRebuild().join();
+
+        long building = result.getGeneration();
+        assertThat(building).isGreaterThan(ACTIVE);
+        assertThat(itinerary.getGeneration()).isEqualTo(building);
+        assertThat(result.getRoutes()).isEqualTo(1);
+        assertThat(result.getItineraries()).isEqualTo(1);
+        assertThat(result.getDeletedItineraries()).isEqualTo(4);
+        InOrder order = inOrder(generations, itineraryService, recentGenerations, searchResponseCache);
+        order.verify(generations).claimBuilding(ACTIVE, building, 60_000L);
+        order.verify(generations).deleteOtherGenerations(ACTIVE, building);
+        order.verify(itineraryService).cacheItineraries(List.of(itinerary));
+        order.verify(generations).renewBuilding(building);
+        order.verify(generations).flip(ACTIVE, building);
+        order.verify(recentGenerations).clear();
+        order.verify(searchResponseCache).clear();
+        order.verify(generations).deleteGeneration(ACTIVE);
+        assertThat(rebuildService.isRebuilding()).isFalse();
+    }
+
+    @Test
+    void rebuildIsRefusedWhileAnotherBuildHoldsTheClaim() {
+        when(generations.getActiveGeneration()).thenReturn(ACTIVE);
+        when(generations.claimBuilding(eq(ACTIVE), anyLong(), anyLong())).thenReturn(false);
+
+        assertThatThrownBy(rebuildService::startRebuild)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("another node");
+
+        verify(generations, never()).deleteOtherGenerations(anyLong(), anyLong());
+        verifyNoInteractions(itineraryService);
+        assertThat(rebuildService.isRebuilding()).isFalse();
+    }
+
+    @Test
+    void incompleteRouteDiscardsTheBuildWithoutFlipping() {
+        when(generations.getActiveGeneration()).thenReturn(ACTIVE);
+        when(generations.claimBuilding(eq(ACTIVE), anyLong(), anyLong())).thenReturn(true);
+        when(generations.findCachedRoutes(eq(ACTIVE), any()))
+                .thenReturn(List.of(new ItineraryCacheGenerations.CachedRoute("JFK", "LAX", DATE)));
+        when(itineraryService.createItineraries("JFK", "LAX", DATE))
+                .thenReturn(new ItineraryGenerationResult(List.of(), List.of(SearchStage.TWO_STOP)));
+
+        assertThatThrownBy(() -> rebuildService.startRebuild().join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+
+        verify(itineraryService, never()).cacheItineraries(any());
+        verify(generations, never()).flip(anyLong(), anyLong());
+        verify(generations).clearBuilding(anyLong());
+        verify(generations, never()).deleteGeneration(ACTIVE);
+    }
+
+    @Test
+    void lapsedClaimAbortsTheBuild() {
+        when(generations.getActiveGeneration()).thenReturn(ACTIVE);
+        when(generations.claimBuilding(eq(ACTIVE), anyLong(), anyLong())).thenReturn(true);
+        when(generations.findCachedRoutes(eq(ACTIVE), any()))
+                .thenReturn(List.of(new ItineraryCacheGenerations.CachedRoute("JFK", "LAX", DATE)));
+        when(itineraryService.createItineraries("JFK", "LAX", DATE))
+                .thenReturn(new ItineraryGenerationResult(List.of(), List.of()));
+        when(generations.renewBuilding(anyLong())).thenReturn(false);
+
+        assertThatThrownBy(() -> rebuildService.startRebuild().join())
+                .isInstanceOf(CompletionException.class)
+                .hasMessageContaining("lapsed");
+
+        verify(generations, never()).flip(anyLong(), anyLong());
+        verify(recentGenerations, never()).clear();
+    }
+}
@@ -0,0 +1,70 @@
+package com.flightbooking.search.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SearchStageMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void stageRecordsDurationAndAllocation() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported());
+        SearchStageMetrics metrics = new SearchStageMetrics(meterRegistry, true);
+
+        long[] result = metrics.record("itinerary_build", () -> new long[1 << 16]);
+
+        assertThat(result).hasSize(1 << 16);
+        assertThat(meterRegistry.get("search.stage.duration").tag("stage", "itinerary_build").timer().count()).isEqualTo(1);
+        // At least the 512 KiB array
+        assertThat(meterRegistry.get("search.stage.allocated.bytes").tag("stage", "itinerary_build").summary().max())
+                .isGreaterThanOrEqualTo(8.0 * (1 << 16));
+    }
+
+    @Test
+    void failingStageIsStillTimed() {
+        SearchStageMetrics metrics = new SearchStageMetrics(meterRegistry, false);
+
+        assertThatThrownBy(() -> metrics.record("direct_query", () -> {
+            throw new IllegalStateException("Neo4j unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get("search.stage.duration").tag("stage", "direct_query").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledAllocationTrackingRecordsNoBytes() {
+        SearchStageMetrics metrics = new SearchStageMetrics(meterRegistry, false);
+
+        metrics.record("validation", () -> { });
+        metrics.recordRequest(() -> "page");
+
+        assertThat(meterRegistry.get("search.stage.allocated.bytes").tag("stage", "validation").summary().count()).isZero();
+        assertThat(meterRegistry.get("search.request.allocated.bytes").summary().count()).isZero();
+        assertThat(meterRegistry.get("search.stage.duration").tag("stage", "validation").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void candidatesAndCacheLookupsAreTagged() {
+        SearchStageMetrics metrics = new SearchStageMetrics(meterRegistry, false);
+
+        metrics.recordCandidates("one_stop_query", 12);
+        metrics.recordCandidates("one_stop_query", 4);
+        metrics.recordCacheLookup("hit");
+        metrics.recordCacheLookup("hit");
+        metrics.recordCacheLookup("negative");
+
+        assertThat(meterRegistry.get("search.stage.candidates").tag("stage", "one_stop_query").summary().totalAmount())
+                .isEqualTo(16);
+        assertThat(meterRegistry.get("search.cache.lookups").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("search.cache.lookups").tag("result", "negative").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("search.cache.lookups").tag("result", "miss").counter()).isNull();
+    }
+}
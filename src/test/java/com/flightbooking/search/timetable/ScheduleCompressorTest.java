@@ -0,0 +1,146 @@
+package com.flightbooking.search.timetable;
+
+import com.flightbooking.booking.entity.FlightInstance;
+import com.flightbooking.booking.repository.FlightInstanceRepository;
+import com.flightbooking.search.repository.AirportRepository;
+import com.flightbooking.search.util.RouteDateKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScheduleCompressorTest {
+
+    private static final int JFK = RouteDateKey.encodeAirport("JFK");
+    private static final int LAX = RouteDateKey.encodeAirport("LAX");
+
+    @Test
+    void foldsDailyFlightIntoScheduleWithCancellations() {
+        LocalDate monday = LocalDate.of(2025, 10, 6);
+        List<TimetableFlight> flights = new ArrayList<>();
+        for (int day = 0; day < 14; day++) {
+            if (day != 3 && day != 9) {
+                flights.add(flight(day + 1, "UA0100", monday.plusDays(day), 8 * 3600, 1000));
+            }
+        }
+
+        ScheduleCompressor.Result result = ScheduleCompressor.compress(flights, 3);
+
+        assertThat(result.getInstances()).isEmpty();
+        assertThat(result.getSchedules()).hasSize(1);
+        FlightSchedule schedule = result.getSchedules().get(0);
+        assertThat(schedule.getWeekdayMask()).isEqualTo(0b1111111);
+        assertThat(schedule.getCancelledEpochDays()).containsExactly(
+                monday.plusDays(3).toEpochDay(), monday.plusDays(9).toEpochDay());
+
+        List<TimetableFlight> expanded = new ArrayList<>();
+        schedule.forEachInstance(expanded::add);
+        assertThat(expanded).containsExactlyElementsOf(
+                flights.stream().map(flight -> flight.withId(TimetableFlight.UNRESOLVED)).toList());
+    }
+
+    @Test
+    void keepsOneOffsAndRetimedDatesExplicit() {
+        LocalDate monday = LocalDate.of(2025, 10, 6);
+        List<TimetableFlight> flights = List.of(
+                flight(1, "UA0200", monday, 9 * 3600, 1000),
+                flight(2, "UA0200", monday.plusDays(7), 9 * 3600, 1000),
+                flight(3, "UA0200", monday.plusDays(14), 9 * 3600, 1000),
+                flight(4, "UA0200", monday.plusDays(21), 11 * 3600, 1000),
+                flight(5, "UA0300", monday, 9 * 3600, 1000));
+
+        ScheduleCompressor.Result result = ScheduleCompressor.compress(flights, 3);
+
+        assertThat(result.getSchedules()).hasSize(1);
+        FlightSchedule schedule = result.getSchedules().get(0);
+        assertThat(schedule.getWeekdayMask()).isEqualTo(FlightSchedule.weekdayBit(monday.toEpochDay()));
+        assertThat(schedule.getCancelledEpochDays()).isEmpty();
+        assertThat(result.getInstances()).extracting(TimetableFlight::getId).containsExactlyInAnyOrder(4L, 5L);
+    }
+
+    @Test
+    void expandsOnlyTheQueriedWindow() {
+        LocalDate monday = LocalDate.of(2025, 10, 6);
+        FlightSchedule schedule = new FlightSchedule("UA0100", JFK, LAX, 8 * 3600, 6 * 3600,
+                0b1111111, monday.toEpochDay(), monday.plusDays(30).toEpochDay(), 1000,
+                new long[]{monday.plusDays(1).toEpochDay()});
+        long from = monday.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+
+        List<TimetableFlight> window = new ArrayList<>();
+        schedule.forEachDeparture(from, from + 3 * FlightSchedule.SECONDS_PER_DAY, window::add);
+
+        assertThat(window).extracting(TimetableFlight::getDepartureEpochDay)
+                .containsExactly(monday.toEpochDay(), monday.plusDays(2).toEpochDay());
+    }
+
+    @Test
+    void retimeAcrossMidnightShadowsTheScheduledDate(@TempDir Path directory) {
+        LocalDate monday = LocalDate.of(2025, 10, 6);
+        List<FlightInstance> rows = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            rows.add(row(day + 1, "UA0100", monday.plusDays(day), 23 * 3600));
+        }
+        // Wednesday's 23:00 departure slips to 01:00 on Thursday, next to Thursday's own 23:00 departure
+        FlightInstance retimed = row(3, "UA0100", monday.plusDays(3), 3600);
+        OffsetDateTime originalDeparture = rows.get(2).getDepartureTime();
+
+        FlightInstanceRepository flights = mock(FlightInstanceRepository.class);
+        AirportRepository airports = mock(AirportRepository.class);
+        when(flights.findAll()).thenReturn(rows);
+        when(flights.findChangedSince(any())).thenReturn(List.of(retimed));
+        when(flights.existsByFlightNoAndDepartureTimeAndIdNot(eq("UA0100"), any(), eq(3L)))
+                .thenAnswer(call -> !originalDeparture.isEqual(call.getArgument(1)));
+        when(airports.findAllAirports()).thenReturn(List.of());
+
+        TimetableService timetable = new TimetableService(flights, airports, true, directory.toString(), 10_000, true, 3);
+        timetable.load();
+        timetable.sync();
+
+        long from = monday.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        List<TimetableFlight> departures = timetable.findDepartures(JFK, from, from + 7 * FlightSchedule.SECONDS_PER_DAY);
+        assertThat(departures).extracting(TimetableFlight::getDepartureEpochDay).containsExactly(
+                monday.toEpochDay(), monday.plusDays(1).toEpochDay(), monday.plusDays(3).toEpochDay(),
+                monday.plusDays(3).toEpochDay(), monday.plusDays(4).toEpochDay(), monday.plusDays(5).toEpochDay(),
+                monday.plusDays(6).toEpochDay());
+        assertThat(departures).filteredOn(TimetableFlight::isResolved).extracting(TimetableFlight::getId)
+                .containsExactly(3L);
+
+        // Replaying the journal on restart retires the date again
+        TimetableService restarted = new TimetableService(flights, airports, true, directory.toString(), 10_000, true, 3);
+        restarted.load();
+        assertThat(restarted.findDepartures(JFK, from, from + 7 * FlightSchedule.SECONDS_PER_DAY))
+                .containsExactlyElementsOf(departures);
+    }
+
+    private static FlightInstance row(long id, String flightNo, LocalDate date, int departureSecondOfDay) {
+        OffsetDateTime departure = Instant.ofEpochSecond(date.atStartOfDay().toEpochSecond(ZoneOffset.UTC)
+                + departureSecondOfDay).atOffset(ZoneOffset.UTC);
+        return FlightInstance.builder()
+                .id(id)
+                .flightNo(flightNo)
+                .source("JFK")
+                .destination("LAX")
+                .departureTime(departure)
+                .arrivalTime(departure.plusHours(6))
+                .priceMoney(1000L)
+                .createdAt(OffsetDateTime.now(ZoneOffset.UTC))
+                .build();
+    }
+
+    private static TimetableFlight flight(long id, String flightNo, LocalDate date, int departureSecondOfDay, long price) {
+        long departure = date.atStartOfDay().toEpochSecond(ZoneOffset.UTC) + departureSecondOfDay;
+        return new TimetableFlight(id, flightNo, JFK, LAX, departure, departure + 6 * 3600, price);
+    }
+}
@@ -0,0 +1,97 @@
+package com.flightbooking.search.timetable;
+
+import com.flightbooking.search.util.RouteDateKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimetableJournalTest {
+
+    private static final int JFK = RouteDateKey.encodeAirport("JFK");
+    private static final int LAX = RouteDateKey.encodeAirport("LAX");
+
+    @Test
+    void replaysChangesInAppendOrder(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("timetable.journal");
+        TimetableFlight flight = new TimetableFlight(7, "UA0100", JFK, LAX, 1_760_000_000L, 1_760_021_600L, 25_000);
+        try (TimetableJournal journal = TimetableJournal.open(path, new RecordingListener())) {
+            journal.appendUpsert(flight, 1000);
+            journal.appendRetire("UA0200", 20_368, 2000);
+            journal.force();
+        }
+
+        RecordingListener replayed = new RecordingListener();
+        try (TimetableJournal journal = TimetableJournal.open(path, replayed)) {
+            assertThat(journal.getEntries()).isEqualTo(2);
+        }
+        assertThat(replayed.changes).containsExactly("upsert " + flight + " at 1000", "retire UA0200 20368 at 2000");
+    }
+
+    @Test
+    void tornTailIsTruncatedAndAppendedPast(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("timetable.journal");
+        try (TimetableJournal journal = TimetableJournal.open(path, new RecordingListener())) {
+            journal.appendRetire("UA0100", 20_368, 1000);
+            journal.appendRetire("UA0200", 20_368, 2000);
+        }
+        long complete = Files.size(path);
+        // A crash mid-append leaves half of the last record
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(complete - 5);
+        }
+
+        RecordingListener replayed = new RecordingListener();
+        try (TimetableJournal journal = TimetableJournal.open(path, replayed)) {
+            assertThat(journal.getEntries()).isEqualTo(1);
+            journal.appendRetire("UA0300", 20_368, 3000);
+        }
+        assertThat(replayed.changes).containsExactly("retire UA0100 20368 at 1000");
+
+        RecordingListener reopened = new RecordingListener();
+        try (TimetableJournal ignored = TimetableJournal.open(path, reopened)) {
+            assertThat(reopened.changes).containsExactly("retire UA0100 20368 at 1000", "retire UA0300 20368 at 3000");
+        }
+    }
+
+    @Test
+    void corruptRecordEndsTheReplay(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("timetable.journal");
+        try (TimetableJournal journal = TimetableJournal.open(path, new RecordingListener())) {
+            journal.appendRetire("UA0100", 20_368, 1000);
+            journal.appendRetire("UA0200", 20_368, 2000);
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1; // Flip a bit of the last record's flight number
+        Files.write(path, bytes);
+
+        RecordingListener replayed = new RecordingListener();
+        try (TimetableJournal journal = TimetableJournal.open(path, replayed)) {
+            assertThat(journal.getEntries()).isEqualTo(1);
+        }
+        assertThat(replayed.changes).containsExactly("retire UA0100 20368 at 1000");
+        assertThat(Files.size(path)).isEqualTo(bytes.length / 2);
+    }
+
+    private static final class RecordingListener implements TimetableJournal.Listener {
+        private final List<String> changes = new ArrayList<>();
+
+        @Override
+        public void upsert(TimetableFlight flight, long changedAtMillis) {
+            changes.add("upsert " + flight + " at " + changedAtMillis);
+        }
+
+        @Override
+        public void retire(String flightNo, long epochDay, long changedAtMillis) {
+            changes.add("retire " + flightNo + " " + epochDay + " at " + changedAtMillis);
+        }
+    }
+}
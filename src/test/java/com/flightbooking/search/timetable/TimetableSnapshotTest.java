@@ -0,0 +1,85 @@
+package com.flightbooking.search.timetable;
+
+import com.flightbooking.search.entity.Airport;
+import com.flightbooking.search.util.RouteDateKey;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimetableSnapshotTest {
+
+    private static final int JFK = RouteDateKey.encodeAirport("JFK");
+    private static final int LAX = RouteDateKey.encodeAirport("LAX");
+    private static final int SFO = RouteDateKey.encodeAirport("SFO");
+    private static final long DAY = FlightSchedule.SECONDS_PER_DAY;
+    private static final long START = 20_368 * DAY;
+
+    @Test
+    void writtenSnapshotReadsBackFromTheMapping(@TempDir Path directory) throws IOException {
+        List<TimetableFlight> flights = List.of(
+                flight(3, "UA0300", SFO, JFK, START + 3600),
+                flight(2, "UA0200", JFK, SFO, START + 7200),
+                flight(1, "UA0100", JFK, LAX, START + 3600));
+        Airport jfk = Airport.builder().code("JFK").name("John F. Kennedy International").city("New York")
+                .country("USA").latitude(BigDecimal.valueOf(40.6413)).longitude(BigDecimal.valueOf(-73.7781)).build();
+
+        TimetableSnapshot.write(directory.resolve("timetable-1.snapshot"), 1, 5000, flights, List.of(), List.of(jfk));
+        TimetableSnapshot snapshot = TimetableSnapshot.open(directory.resolve("timetable-1.snapshot"));
+
+        assertThat(snapshot.getVersion()).isEqualTo(1);
+        assertThat(snapshot.getWatermarkMillis()).isEqualTo(5000);
+        assertThat(snapshot.getFlightCount()).isEqualTo(3);
+        List<TimetableFlight> all = new ArrayList<>();
+        snapshot.forEachFlight(all::add);
+        assertThat(all).containsExactlyInAnyOrderElementsOf(flights);
+        assertThat(snapshot.getAirports()).singleElement().satisfies(airport -> {
+            assertThat(airport.getCode()).isEqualTo("JFK");
+            assertThat(airport.getCity()).isEqualTo("New York");
+            assertThat(airport.getLatitude()).isEqualByComparingTo("40.6413");
+        });
+        assertThat(Files.exists(directory.resolve("timetable-1.snapshot.tmp"))).isFalse();
+    }
+
+    @Test
+    void departuresAreFoundByWindowInDepartureOrder(@TempDir Path directory) throws IOException {
+        List<TimetableFlight> flights = new ArrayList<>();
+        for (int day = 0; day < 5; day++) {
+            flights.add(flight(10 + day, "UA0100", JFK, LAX, START + day * DAY + 3600));
+            flights.add(flight(20 + day, "UA0200", JFK, SFO, START + day * DAY + 7200));
+            flights.add(flight(30 + day, "UA0300", LAX, JFK, START + day * DAY + 3600));
+        }
+        TimetableSnapshot snapshot = TimetableSnapshot.write(directory.resolve("timetable-1.snapshot"), 1, 0,
+                flights, List.of(), List.of());
+
+        List<TimetableFlight> window = new ArrayList<>();
+        snapshot.forEachDeparture(JFK, START + DAY, START + 3 * DAY, window::add);
+
+        assertThat(window).extracting(TimetableFlight::getId).containsExactly(11L, 21L, 12L, 22L);
+    }
+
+    @Test
+    void corruptSnapshotIsRefused(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("timetable-1.snapshot");
+        TimetableSnapshot.write(path, 1, 0, List.of(flight(1, "UA0100", JFK, LAX, START)), List.of(), List.of());
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(path, bytes);
+
+        assertThatThrownBy(() -> TimetableSnapshot.open(path))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("checksum");
+    }
+
+    private static TimetableFlight flight(long id, String flightNo, int source, int destination, long departure) {
+        return new TimetableFlight(id, flightNo, source, destination, departure, departure + 6 * 3600, 25_000);
+    }
+}
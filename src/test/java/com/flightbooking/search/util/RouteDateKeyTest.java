@@ -0,0 +1,47 @@
+package com.flightbooking.search.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RouteDateKeyTest {
+
+    @Test
+    void packsAndUnpacksRouteAndDate() {
+        LocalDate date = LocalDate.of(2025, 10, 1);
+        long key = RouteDateKey.of("JFK", "LAX", date);
+
+        assertThat(RouteDateKey.decodeAirport(RouteDateKey.source(key))).isEqualTo("JFK");
+        assertThat(RouteDateKey.decodeAirport(RouteDateKey.destination(key))).isEqualTo("LAX");
+        assertThat(RouteDateKey.departureDate(key)).isEqualTo(date);
+        assertThat(RouteDateKey.variant(key)).isZero();
+        assertThat(RouteDateKey.toString(key)).isEqualTo("JFK-LAX-2025-10-01");
+    }
+
+    @Test
+    void distinguishesDirectionAndDate() {
+        LocalDate date = LocalDate.of(2025, 10, 1);
+
+        assertThat(RouteDateKey.of("JFK", "LAX", date)).isNotEqualTo(RouteDateKey.of("LAX", "JFK", date));
+        assertThat(RouteDateKey.of("JFK", "LAX", date)).isNotEqualTo(RouteDateKey.of("JFK", "LAX", date.plusDays(1)));
+    }
+
+    @Test
+    void variantDoesNotDisturbRouteDate() {
+        long key = RouteDateKey.of("ZZZ", "AAA", LocalDate.of(2030, 1, 31));
+        long tagged = RouteDateKey.withVariant(key, 9);
+
+        assertThat(RouteDateKey.variant(tagged)).isEqualTo(9);
+        assertThat(RouteDateKey.routeDate(tagged)).isEqualTo(key);
+        assertThat(RouteDateKey.toString(tagged)).isEqualTo("ZZZ-AAA-2030-01-31/9");
+    }
+
+    @Test
+    void rejectsInvalidAirportCodes() {
+        assertThatThrownBy(() -> RouteDateKey.encodeAirport("jfk")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> RouteDateKey.encodeAirport("JFKX")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,87 @@
+package com.flightbooking.search.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchCursorTest {
+
+    private static final long SEARCH_KEY = 0x1234_5678_9ABCL;
+
+    @Test
+    void roundTripsThroughTheToken() {
+        SearchCursor cursor = SearchCursor.decode(new SearchCursor(SEARCH_KEY, 25_000, "JFK-LAX-ü", true).encode(), SEARCH_KEY);
+
+        assertThat(cursor.getSearchKey()).isEqualTo(SEARCH_KEY);
+        assertThat(cursor.getLastPrice()).isEqualTo(25_000);
+        assertThat(cursor.getLastId()).isEqualTo("JFK-LAX-ü");
+        assertThat(cursor.isPartial()).isTrue();
+        assertThat(SearchCursor.decode(new SearchCursor(SEARCH_KEY, 1, "a").encode(), SEARCH_KEY).isPartial()).isFalse();
+    }
+
+    @Test
+    void resumesStrictlyAfterTheLastRow() {
+        SearchCursor cursor = new SearchCursor(SEARCH_KEY, 25_000, "b");
+
+        assertThat(cursor.isBefore(25_000, "b")).isFalse();
+        assertThat(cursor.isBefore(25_000, "a")).isFalse();
+        assertThat(cursor.isBefore(24_999, "z")).isFalse();
+        assertThat(cursor.isBefore(25_000, "c")).isTrue();
+        assertThat(cursor.isBefore(25_001, "a")).isTrue();
+    }
+
+    @Test
+    void decodesVersionOneTokens() {
+        byte[] id = "JFK-LAX".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 * Long.BYTES + id.length)
+                .put((byte) 1).putLong(SEARCH_KEY).putLong(25_000).put(id);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+
+        SearchCursor cursor = SearchCursor.decode(token, SEARCH_KEY);
+
+        assertThat(cursor.getLastPrice()).isEqualTo(25_000);
+        assertThat(cursor.getLastId()).isEqualTo("JFK-LAX");
+        assertThat(cursor.isPartial()).isFalse();
+    }
+
+    @Test
+    void isScopedToTheTimeWindow() {
+        long morning = 0x0169_0259_0000_0000L;
+        String token = new SearchCursor(SEARCH_KEY, morning, 25_000, "a", false).encode();
+
+        SearchCursor cursor = SearchCursor.decode(token, SEARCH_KEY, morning);
+
+        assertThat(cursor.getSearchKey()).isEqualTo(SEARCH_KEY);
+        assertThat(cursor.getWindowKey()).isEqualTo(morning);
+        assertThat(cursor.getLastPrice()).isEqualTo(25_000);
+        assertThatThrownBy(() -> SearchCursor.decode(token, SEARCH_KEY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("does not belong");
+        assertThatThrownBy(() -> SearchCursor.decode(token, SEARCH_KEY, morning + 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("does not belong");
+    }
+
+    @Test
+    void rejectsMalformedAndForeignTokens() {
+        String token = new SearchCursor(SEARCH_KEY, 25_000, "a").encode();
+
+        assertThatThrownBy(() -> SearchCursor.decode(token, SEARCH_KEY + 1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("does not belong");
+        assertThatThrownBy(() -> SearchCursor.decode("not a cursor!", SEARCH_KEY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed search cursor");
+        assertThatThrownBy(() -> SearchCursor.decode(token.substring(0, 8), SEARCH_KEY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed search cursor");
+        assertThatThrownBy(() -> SearchCursor.decode("", SEARCH_KEY))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Malformed search cursor");
+    }
+}
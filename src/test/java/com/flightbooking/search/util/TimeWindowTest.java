@@ -0,0 +1,65 @@
+package com.flightbooking.search.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWindowTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 10, 1);
+    private static final long DAY_START = DATE.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+
+    @Test
+    void boundsAreInclusiveToTheMinute() {
+        TimeWindow window = TimeWindow.of(DATE, LocalTime.of(6, 0), LocalTime.of(10, 0), null, LocalTime.of(18, 0));
+
+        assertThat(window.departs(DAY_START + 6 * 3600 - 1)).isFalse();
+        assertThat(window.departs(DAY_START + 6 * 3600)).isTrue();
+        assertThat(window.departs(DAY_START + 10 * 3600 + 59)).isTrue();
+        assertThat(window.departs(DAY_START + 10 * 3600 + 60)).isFalse();
+        assertThat(window.arrives(DAY_START + 18 * 3600 + 59)).isTrue();
+        assertThat(window.arrives(DAY_START + 18 * 3600 + 60)).isFalse();
+        assertThat(window.hasDepartureWindow()).isTrue();
+        assertThat(window.hasArrivalWindow()).isTrue();
+    }
+
+    @Test
+    void openWindowCoversTheDepartureDateAndAnyArrival() {
+        TimeWindow window = TimeWindow.of(DATE);
+
+        assertThat(window.isUnbounded()).isTrue();
+        assertThat(window.getDepartFrom()).isEqualTo(DAY_START);
+        assertThat(window.getDepartTo()).isEqualTo(DAY_START + 86_400);
+        assertThat(window.arrives(DAY_START + 3 * 86_400)).isTrue();
+        assertThat(window.arriveFromTime()).isNull();
+        assertThat(window.arriveToTime()).isNull();
+        assertThat(window.matches(null, null)).isTrue();
+    }
+
+    @Test
+    void missingTimesOnlyMatchOpenSides() {
+        TimeWindow arrivalOnly = TimeWindow.of(DATE, null, null, LocalTime.of(12, 0), null);
+
+        assertThat(arrivalOnly.matches(null, null)).isFalse();
+        assertThat(arrivalOnly.matches(null, DATE.atTime(13, 0).atOffset(ZoneOffset.UTC))).isTrue();
+        assertThat(arrivalOnly.matches(DATE.atTime(23, 0).atOffset(ZoneOffset.UTC),
+                DATE.atTime(11, 0).atOffset(ZoneOffset.UTC))).isFalse();
+    }
+
+    @Test
+    void keyPacksTheBoundsInMinuteLanes() {
+        TimeWindow morning = TimeWindow.of(DATE, LocalTime.of(6, 0), LocalTime.of(10, 0), null, LocalTime.of(23, 59));
+
+        assertThat(TimeWindow.of(DATE).getKey()).isZero();
+        assertThat(morning.getKey() >>> 48).isEqualTo(6 * 60 + 1);
+        assertThat(morning.getKey() >>> 32 & 0xFFFF).isEqualTo(10 * 60 + 1);
+        assertThat(morning.getKey() >>> 16 & 0xFFFF).isZero();
+        assertThat(morning.getKey() & 0xFFFF).isEqualTo(24 * 60);
+        assertThat(TimeWindow.of(DATE, null, null, LocalTime.of(6, 0), null).getKey())
+                .isNotEqualTo(TimeWindow.of(DATE, LocalTime.of(6, 0), null, null, null).getKey());
+    }
+}